@@ -165,6 +165,15 @@ public class CacheManagementController {
         return "cache/monitor-detail";
     }
 
+    /**
+     * 配置变更监听器的分发统计
+     */
+    @GetMapping("/monitor/listeners")
+    @ResponseBody
+    public Object configListenerStats() {
+        return cacheConfigService.getListenerStats();
+    }
+
     /**
      * 刷新缓存
      */
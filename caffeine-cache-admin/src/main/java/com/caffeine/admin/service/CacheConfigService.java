@@ -4,10 +4,12 @@ import com.caffeine.admin.handler.CacheConfigWebSocketHandler;
 import com.caffeine.admin.model.CacheConfig;
 import com.caffeine.admin.repository.CacheConfigRepository;
 import com.caffeine.component.listener.CacheConfigChangeNotifier;
+import com.caffeine.component.listener.ListenerStats;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Optional;
@@ -87,10 +89,17 @@ public class CacheConfigService {
         updateCacheConfig(cacheName, config);
     }
 
+    /**
+     * 获取服务器端各配置变更监听器的应用耗时和队列深度
+     */
+    public List<ListenerStats> getListenerStats() {
+        return configChangeNotifier.getListenerStats();
+    }
+
     /**
      * 通知配置变更
      * 通过WebSocket通知所有客户端配置变更
-     * 同时通知服务器端的缓存管理器
+     * 同时通知服务器端的缓存管理器，服务器端异步应用，不阻塞当前请求
      */
     private void notifyConfigChange(String cacheName, CacheConfig newConfig) {
         // 通知服务器端缓存管理器
@@ -1,15 +1,15 @@
 package com.caffeine.component.config;
 
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * 缓存配置类
+ * 配置值保存在不可变的{@link Snapshot}中，通过一个volatile引用发布：读取无锁且不分配对象；
+ * 修改时复制当前快照、修改副本后整体替换(写时复制)，读取方看到的总是某一次完整发布的配置。
+ * 需要一致地读取多个配置项时，先通过{@link #snapshot()}取得快照再从快照读取。
  */
 public class CacheConfig {
-    // 缓存名称
-    private String name;
-
     // 默认配置
     private static final long DEFAULT_MAXIMUM_SIZE = 10000;
     private static final long DEFAULT_EXPIRE_AFTER_WRITE = 3600;
@@ -19,32 +19,38 @@ public class CacheConfig {
     private static final boolean DEFAULT_ASYNC_WARMUP_ENABLED = false;
     private static final String DEFAULT_PERSISTENCE_PATH = "./cache_data";
     private static final long DEFAULT_PERSISTENCE_INTERVAL = 3600;
+    private static final boolean DEFAULT_OFF_HEAP_VALUE_STORE_ENABLED = false;
+    private static final long DEFAULT_OFF_HEAP_VALUE_STORE_CAPACITY = 1024L * 1024 * 1024;
+    private static final boolean DEFAULT_WARMUP_READ_THROUGH_ENABLED = false;
+    private static final boolean DEFAULT_REDIS_L2_ENABLED = false;
+    private static final long DEFAULT_REDIS_L2_BATCH_WINDOW_MICROS = 1000;
+    private static final int DEFAULT_REDIS_L2_MAX_BATCH_SIZE = 64;
+    private static final long DEFAULT_REDIS_L2_TIMEOUT_MILLIS = 100;
+    private static final long DEFAULT_REDIS_L2_NEGATIVE_TTL_MILLIS = 1000;
+    private static final boolean DEFAULT_REDIS_WRITE_ENABLED = false;
+    private static final boolean DEFAULT_REDIS_WRITE_THROUGH = false;
+    private static final int DEFAULT_REDIS_WRITE_BATCH_SIZE = 500;
+    private static final long DEFAULT_REDIS_WRITE_FLUSH_INTERVAL_MILLIS = 50;
+    private static final boolean DEFAULT_REDIS_WRITE_TTL_ENABLED = false;
+    private static final long DEFAULT_HOT_KEY_SNAPSHOT_INTERVAL_SECONDS = 0;
+    private static final int DEFAULT_HOT_KEY_TOP_K = 10000;
+    private static final long DEFAULT_RESIZE_DURATION_SECONDS = 0;
+    private static final long DEFAULT_RESIZE_MAX_EVICTIONS_PER_SECOND = 0;
+    private static final long DEFAULT_VERSION = 0;
+    private static final String DEFAULT_PERSISTENCE_DELETE_CAUSES = "EXPIRED,SIZE";
+    private static final int DEFAULT_PERSISTENCE_DELETE_BATCH_SIZE = 500;
+    private static final long DEFAULT_PERSISTENCE_DELETE_FLUSH_INTERVAL_MILLIS = 200;
+    // 最近一次分配的版本号
+    private static final AtomicLong LAST_VERSION = new AtomicLong();
 
-    // 配置项
-    private long maximumSize;
-    private long expireAfterWrite;
-    private boolean offHeapCacheEnabled;
-    private boolean persistenceEnabled;
-    private boolean autoPersistenceEnabled;
-    private boolean asyncWarmupEnabled;
-    private String persistencePath;
-    private long persistenceInterval;
-
-    // 锁，用于线程安全的配置更新
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 当前配置快照，发布后不再修改
+    private volatile Snapshot snapshot;
 
     /**
      * 构造函数，使用默认配置
      */
     public CacheConfig() {
-        this.maximumSize = DEFAULT_MAXIMUM_SIZE;
-        this.expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
-        this.offHeapCacheEnabled = DEFAULT_OFF_HEAP_CACHE_ENABLED;
-        this.persistenceEnabled = DEFAULT_PERSISTENCE_ENABLED;
-        this.autoPersistenceEnabled = DEFAULT_AUTO_PERSISTENCE_ENABLED;
-        this.asyncWarmupEnabled = DEFAULT_ASYNC_WARMUP_ENABLED;
-        this.persistencePath = DEFAULT_PERSISTENCE_PATH;
-        this.persistenceInterval = DEFAULT_PERSISTENCE_INTERVAL;
+        this.snapshot = new Snapshot();
     }
 
     /**
@@ -53,198 +59,557 @@ public class CacheConfig {
     public CacheConfig(long maximumSize, long expireAfterWrite, boolean offHeapCacheEnabled,
                        boolean persistenceEnabled, boolean autoPersistenceEnabled,
                        boolean asyncWarmupEnabled, String persistencePath, long persistenceInterval) {
-        this.maximumSize = maximumSize;
-        this.expireAfterWrite = expireAfterWrite;
-        this.offHeapCacheEnabled = offHeapCacheEnabled;
-        this.persistenceEnabled = persistenceEnabled;
-        this.autoPersistenceEnabled = autoPersistenceEnabled;
-        this.asyncWarmupEnabled = asyncWarmupEnabled;
-        this.persistencePath = persistencePath;
-        this.persistenceInterval = persistenceInterval;
+        Snapshot initial = new Snapshot();
+        initial.maximumSize = maximumSize;
+        initial.expireAfterWrite = expireAfterWrite;
+        initial.offHeapCacheEnabled = offHeapCacheEnabled;
+        initial.persistenceEnabled = persistenceEnabled;
+        initial.autoPersistenceEnabled = autoPersistenceEnabled;
+        initial.asyncWarmupEnabled = asyncWarmupEnabled;
+        initial.persistencePath = persistencePath;
+        initial.persistenceInterval = persistenceInterval;
+        this.snapshot = initial;
     }
 
     /**
-     * 更新配置
+     * 更新配置，直接发布新配置的当前快照
      * @param newConfig 新配置
      */
-    public void update(CacheConfig newConfig) {
-        lock.writeLock().lock();
-        try {
-            this.name = newConfig.name;
-            this.maximumSize = newConfig.maximumSize;
-            this.expireAfterWrite = newConfig.expireAfterWrite;
-            this.offHeapCacheEnabled = newConfig.offHeapCacheEnabled;
-            this.persistenceEnabled = newConfig.persistenceEnabled;
-            this.autoPersistenceEnabled = newConfig.autoPersistenceEnabled;
-            this.asyncWarmupEnabled = newConfig.asyncWarmupEnabled;
-            this.persistencePath = newConfig.persistencePath;
-            this.persistenceInterval = newConfig.persistenceInterval;
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public synchronized void update(CacheConfig newConfig) {
+        this.snapshot = newConfig.snapshot;
     }
 
-    public String getName() {
-        lock.readLock().lock();
-        try {
-            return name;
-        } finally {
-            lock.readLock().unlock();
+    /**
+     * 在新配置不旧于当前配置时更新
+     * 新配置带版本号(大于0)且不大于当前版本号时视为迟到的旧配置，不更新；
+     * 已接受过带版本号的配置后，未设置版本号的配置无法判断先后，同样不更新。
+     * 变更的发起方(配置变更通知器、配置文件来源)通过{@link #nextVersion(long)}为配置分配版本号。
+     * @param newConfig 新配置
+     * @return 更新前的快照，新配置过期被拒绝时返回null
+     */
+    public synchronized Snapshot updateIfNewer(CacheConfig newConfig) {
+        Snapshot previous = this.snapshot;
+        Snapshot next = newConfig.snapshot;
+        if (next.version <= previous.version && (next.version > 0 || previous.version > 0)) {
+            return null;
         }
+        this.snapshot = next;
+        return previous;
     }
 
-    public void setName(String name) {
-        lock.writeLock().lock();
-        try {
-            this.name = name;
-        } finally {
-            lock.writeLock().unlock();
+    /**
+     * 分配一个新的配置版本号
+     * 版本号取当前毫秒时间戳，并保证在本进程内单调递增且大于指定的版本号
+     * @param after 新版本号需大于的版本号，如被覆盖配置的当前版本号
+     * @return 版本号
+     */
+    public static long nextVersion(long after) {
+        while (true) {
+            long last = LAST_VERSION.get();
+            long next = Math.max(Math.max(last, after) + 1, System.currentTimeMillis());
+            if (LAST_VERSION.compareAndSet(last, next)) {
+                return next;
+            }
         }
     }
 
-    // Getters and setters with proper locking
+    /**
+     * 获取当前配置快照，快照不会再变化，可用于一致地读取多个配置项或比较新旧配置
+     * @return 配置快照
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 写时复制：在当前快照的副本上修改后整体发布
+     */
+    private synchronized void mutate(Consumer<Snapshot> change) {
+        Snapshot next = new Snapshot(snapshot);
+        change.accept(next);
+        snapshot = next;
+    }
+
+    public String getName() {
+        return snapshot.name;
+    }
+
+    public void setName(String name) {
+        mutate(next -> next.name = name);
+    }
 
     public long getMaximumSize() {
-        lock.readLock().lock();
-        try {
-            return maximumSize;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.maximumSize;
     }
 
     public void setMaximumSize(long maximumSize) {
-        lock.writeLock().lock();
-        try {
-            this.maximumSize = maximumSize;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        mutate(next -> next.maximumSize = maximumSize);
     }
 
     public long getExpireAfterWrite() {
-        lock.readLock().lock();
-        try {
-            return expireAfterWrite;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.expireAfterWrite;
     }
 
     public void setExpireAfterWrite(long expireAfterWrite) {
-        lock.writeLock().lock();
-        try {
-            this.expireAfterWrite = expireAfterWrite;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        mutate(next -> next.expireAfterWrite = expireAfterWrite);
     }
 
     public boolean isOffHeapCacheEnabled() {
-        lock.readLock().lock();
-        try {
-            return offHeapCacheEnabled;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.offHeapCacheEnabled;
     }
 
     public void setOffHeapCacheEnabled(boolean offHeapCacheEnabled) {
-        lock.writeLock().lock();
-        try {
-            this.offHeapCacheEnabled = offHeapCacheEnabled;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        mutate(next -> next.offHeapCacheEnabled = offHeapCacheEnabled);
     }
 
     public boolean isPersistenceEnabled() {
-        lock.readLock().lock();
-        try {
-            return persistenceEnabled;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.persistenceEnabled;
     }
 
     public void setPersistenceEnabled(boolean persistenceEnabled) {
-        lock.writeLock().lock();
-        try {
-            this.persistenceEnabled = persistenceEnabled;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        mutate(next -> next.persistenceEnabled = persistenceEnabled);
     }
 
     public boolean isAutoPersistenceEnabled() {
-        lock.readLock().lock();
-        try {
-            return autoPersistenceEnabled;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.autoPersistenceEnabled;
     }
 
     public void setAutoPersistenceEnabled(boolean autoPersistenceEnabled) {
-        lock.writeLock().lock();
-        try {
-            this.autoPersistenceEnabled = autoPersistenceEnabled;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        mutate(next -> next.autoPersistenceEnabled = autoPersistenceEnabled);
     }
 
     public boolean isAsyncWarmupEnabled() {
-        lock.readLock().lock();
-        try {
-            return asyncWarmupEnabled;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.asyncWarmupEnabled;
     }
 
     public void setAsyncWarmupEnabled(boolean asyncWarmupEnabled) {
-        lock.writeLock().lock();
-        try {
-            this.asyncWarmupEnabled = asyncWarmupEnabled;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        mutate(next -> next.asyncWarmupEnabled = asyncWarmupEnabled);
     }
 
     public String getPersistencePath() {
-        lock.readLock().lock();
-        try {
-            return persistencePath;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.persistencePath;
     }
 
     public void setPersistencePath(String persistencePath) {
-        lock.writeLock().lock();
-        try {
-            this.persistencePath = persistencePath;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        mutate(next -> next.persistencePath = persistencePath);
     }
 
     public long getPersistenceInterval() {
-        lock.readLock().lock();
-        try {
-            return persistenceInterval;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.persistenceInterval;
     }
 
     public void setPersistenceInterval(long persistenceInterval) {
-        lock.writeLock().lock();
-        try {
-            this.persistenceInterval = persistenceInterval;
-        } finally {
-            lock.writeLock().unlock();
+        mutate(next -> next.persistenceInterval = persistenceInterval);
+    }
+
+    public boolean isOffHeapValueStoreEnabled() {
+        return snapshot.offHeapValueStoreEnabled;
+    }
+
+    public void setOffHeapValueStoreEnabled(boolean offHeapValueStoreEnabled) {
+        mutate(next -> next.offHeapValueStoreEnabled = offHeapValueStoreEnabled);
+    }
+
+    public long getOffHeapValueStoreCapacity() {
+        return snapshot.offHeapValueStoreCapacity;
+    }
+
+    public void setOffHeapValueStoreCapacity(long offHeapValueStoreCapacity) {
+        mutate(next -> next.offHeapValueStoreCapacity = offHeapValueStoreCapacity);
+    }
+
+    public boolean isWarmupReadThroughEnabled() {
+        return snapshot.warmupReadThroughEnabled;
+    }
+
+    public void setWarmupReadThroughEnabled(boolean warmupReadThroughEnabled) {
+        mutate(next -> next.warmupReadThroughEnabled = warmupReadThroughEnabled);
+    }
+
+    public boolean isRedisL2Enabled() {
+        return snapshot.redisL2Enabled;
+    }
+
+    public void setRedisL2Enabled(boolean redisL2Enabled) {
+        mutate(next -> next.redisL2Enabled = redisL2Enabled);
+    }
+
+    public long getRedisL2BatchWindowMicros() {
+        return snapshot.redisL2BatchWindowMicros;
+    }
+
+    public void setRedisL2BatchWindowMicros(long redisL2BatchWindowMicros) {
+        mutate(next -> next.redisL2BatchWindowMicros = redisL2BatchWindowMicros);
+    }
+
+    public int getRedisL2MaxBatchSize() {
+        return snapshot.redisL2MaxBatchSize;
+    }
+
+    public void setRedisL2MaxBatchSize(int redisL2MaxBatchSize) {
+        mutate(next -> next.redisL2MaxBatchSize = redisL2MaxBatchSize);
+    }
+
+    public long getRedisL2TimeoutMillis() {
+        return snapshot.redisL2TimeoutMillis;
+    }
+
+    public void setRedisL2TimeoutMillis(long redisL2TimeoutMillis) {
+        mutate(next -> next.redisL2TimeoutMillis = redisL2TimeoutMillis);
+    }
+
+    public long getRedisL2NegativeTtlMillis() {
+        return snapshot.redisL2NegativeTtlMillis;
+    }
+
+    public void setRedisL2NegativeTtlMillis(long redisL2NegativeTtlMillis) {
+        mutate(next -> next.redisL2NegativeTtlMillis = redisL2NegativeTtlMillis);
+    }
+
+    public boolean isRedisWriteEnabled() {
+        return snapshot.redisWriteEnabled;
+    }
+
+    public void setRedisWriteEnabled(boolean redisWriteEnabled) {
+        mutate(next -> next.redisWriteEnabled = redisWriteEnabled);
+    }
+
+    public boolean isRedisWriteThrough() {
+        return snapshot.redisWriteThrough;
+    }
+
+    public void setRedisWriteThrough(boolean redisWriteThrough) {
+        mutate(next -> next.redisWriteThrough = redisWriteThrough);
+    }
+
+    public int getRedisWriteBatchSize() {
+        return snapshot.redisWriteBatchSize;
+    }
+
+    public void setRedisWriteBatchSize(int redisWriteBatchSize) {
+        mutate(next -> next.redisWriteBatchSize = redisWriteBatchSize);
+    }
+
+    public long getRedisWriteFlushIntervalMillis() {
+        return snapshot.redisWriteFlushIntervalMillis;
+    }
+
+    public void setRedisWriteFlushIntervalMillis(long redisWriteFlushIntervalMillis) {
+        mutate(next -> next.redisWriteFlushIntervalMillis = redisWriteFlushIntervalMillis);
+    }
+
+    public boolean isRedisWriteTtlEnabled() {
+        return snapshot.redisWriteTtlEnabled;
+    }
+
+    public void setRedisWriteTtlEnabled(boolean redisWriteTtlEnabled) {
+        mutate(next -> next.redisWriteTtlEnabled = redisWriteTtlEnabled);
+    }
+
+    public long getHotKeySnapshotIntervalSeconds() {
+        return snapshot.hotKeySnapshotIntervalSeconds;
+    }
+
+    public void setHotKeySnapshotIntervalSeconds(long hotKeySnapshotIntervalSeconds) {
+        mutate(next -> next.hotKeySnapshotIntervalSeconds = hotKeySnapshotIntervalSeconds);
+    }
+
+    public int getHotKeyTopK() {
+        return snapshot.hotKeyTopK;
+    }
+
+    public void setHotKeyTopK(int hotKeyTopK) {
+        mutate(next -> next.hotKeyTopK = hotKeyTopK);
+    }
+
+    public long getResizeDurationSeconds() {
+        return snapshot.resizeDurationSeconds;
+    }
+
+    public void setResizeDurationSeconds(long resizeDurationSeconds) {
+        mutate(next -> next.resizeDurationSeconds = resizeDurationSeconds);
+    }
+
+    public long getResizeMaxEvictionsPerSecond() {
+        return snapshot.resizeMaxEvictionsPerSecond;
+    }
+
+    public void setResizeMaxEvictionsPerSecond(long resizeMaxEvictionsPerSecond) {
+        mutate(next -> next.resizeMaxEvictionsPerSecond = resizeMaxEvictionsPerSecond);
+    }
+
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    public void setVersion(long version) {
+        mutate(next -> next.version = version);
+    }
+
+    public String getPersistenceDeleteCauses() {
+        return snapshot.persistenceDeleteCauses;
+    }
+
+    public void setPersistenceDeleteCauses(String persistenceDeleteCauses) {
+        mutate(next -> next.persistenceDeleteCauses = persistenceDeleteCauses);
+    }
+
+    public int getPersistenceDeleteBatchSize() {
+        return snapshot.persistenceDeleteBatchSize;
+    }
+
+    public void setPersistenceDeleteBatchSize(int persistenceDeleteBatchSize) {
+        mutate(next -> next.persistenceDeleteBatchSize = persistenceDeleteBatchSize);
+    }
+
+    public long getPersistenceDeleteFlushIntervalMillis() {
+        return snapshot.persistenceDeleteFlushIntervalMillis;
+    }
+
+    public void setPersistenceDeleteFlushIntervalMillis(long persistenceDeleteFlushIntervalMillis) {
+        mutate(next -> next.persistenceDeleteFlushIntervalMillis = persistenceDeleteFlushIntervalMillis);
+    }
+
+    /**
+     * 不可变的配置快照
+     */
+    public static final class Snapshot {
+        // 缓存名称
+        private String name;
+        private long maximumSize;
+        private long expireAfterWrite;
+        private boolean offHeapCacheEnabled;
+        private boolean persistenceEnabled;
+        private boolean autoPersistenceEnabled;
+        private boolean asyncWarmupEnabled;
+        private String persistencePath;
+        private long persistenceInterval;
+        // 混合模式：键在堆内，值存放在堆外直接内存
+        private boolean offHeapValueStoreEnabled;
+        // 混合模式下堆外值存储的容量(字节)
+        private long offHeapValueStoreCapacity;
+        // 预热完成前，缓存未命中时回源到预热数据源
+        private boolean warmupReadThroughEnabled;
+        // 是否在本地未命中时从Redis回源
+        private boolean redisL2Enabled;
+        // Redis回源合并窗口(微秒)
+        private long redisL2BatchWindowMicros;
+        // Redis回源单批最大键数
+        private int redisL2MaxBatchSize;
+        // Redis回源等待超时(毫秒)，超时按未命中处理
+        private long redisL2TimeoutMillis;
+        // Redis中不存在的键在该时间内不再回源(毫秒)，0表示不缓存未命中
+        private long redisL2NegativeTtlMillis;
+        // 是否将本地写入同步到Redis
+        private boolean redisWriteEnabled;
+        // true为写穿(等待Redis确认)，false为写回(异步批量写入)
+        private boolean redisWriteThrough;
+        // Redis写入单批最大条目数
+        private int redisWriteBatchSize;
+        // Redis写回的刷新间隔(毫秒)
+        private long redisWriteFlushIntervalMillis;
+        // 是否将expireAfterWrite作为Redis键的过期时间
+        private boolean redisWriteTtlEnabled;
+        // 热点键快照间隔（秒），0表示不定期保存
+        private long hotKeySnapshotIntervalSeconds;
+        // 热点键快照保存的键数
+        private int hotKeyTopK;
+        // 缩容时逐步降低容量上限的总时长(秒)，0表示立即生效
+        private long resizeDurationSeconds;
+        // 逐步缩容时每秒最多淘汰的条目数，0表示不限
+        private long resizeMaxEvictionsPerSecond;
+        // 配置版本号，单调递增；0表示未设置版本，总会被接受
+        private long version;
+        // 同步删除到持久化存储的移除原因，逗号分隔的RemovalCause名称，空表示不同步
+        private String persistenceDeleteCauses;
+        // 持久化批量删除的单批最大键数
+        private int persistenceDeleteBatchSize;
+        // 持久化批量删除的刷新间隔(毫秒)
+        private long persistenceDeleteFlushIntervalMillis;
+
+        private Snapshot() {
+            this.maximumSize = DEFAULT_MAXIMUM_SIZE;
+            this.expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+            this.offHeapCacheEnabled = DEFAULT_OFF_HEAP_CACHE_ENABLED;
+            this.persistenceEnabled = DEFAULT_PERSISTENCE_ENABLED;
+            this.autoPersistenceEnabled = DEFAULT_AUTO_PERSISTENCE_ENABLED;
+            this.asyncWarmupEnabled = DEFAULT_ASYNC_WARMUP_ENABLED;
+            this.persistencePath = DEFAULT_PERSISTENCE_PATH;
+            this.persistenceInterval = DEFAULT_PERSISTENCE_INTERVAL;
+            this.offHeapValueStoreEnabled = DEFAULT_OFF_HEAP_VALUE_STORE_ENABLED;
+            this.offHeapValueStoreCapacity = DEFAULT_OFF_HEAP_VALUE_STORE_CAPACITY;
+            this.warmupReadThroughEnabled = DEFAULT_WARMUP_READ_THROUGH_ENABLED;
+            this.redisL2Enabled = DEFAULT_REDIS_L2_ENABLED;
+            this.redisL2BatchWindowMicros = DEFAULT_REDIS_L2_BATCH_WINDOW_MICROS;
+            this.redisL2MaxBatchSize = DEFAULT_REDIS_L2_MAX_BATCH_SIZE;
+            this.redisL2TimeoutMillis = DEFAULT_REDIS_L2_TIMEOUT_MILLIS;
+            this.redisL2NegativeTtlMillis = DEFAULT_REDIS_L2_NEGATIVE_TTL_MILLIS;
+            this.redisWriteEnabled = DEFAULT_REDIS_WRITE_ENABLED;
+            this.redisWriteThrough = DEFAULT_REDIS_WRITE_THROUGH;
+            this.redisWriteBatchSize = DEFAULT_REDIS_WRITE_BATCH_SIZE;
+            this.redisWriteFlushIntervalMillis = DEFAULT_REDIS_WRITE_FLUSH_INTERVAL_MILLIS;
+            this.redisWriteTtlEnabled = DEFAULT_REDIS_WRITE_TTL_ENABLED;
+            this.hotKeySnapshotIntervalSeconds = DEFAULT_HOT_KEY_SNAPSHOT_INTERVAL_SECONDS;
+            this.hotKeyTopK = DEFAULT_HOT_KEY_TOP_K;
+            this.resizeDurationSeconds = DEFAULT_RESIZE_DURATION_SECONDS;
+            this.resizeMaxEvictionsPerSecond = DEFAULT_RESIZE_MAX_EVICTIONS_PER_SECOND;
+            this.version = DEFAULT_VERSION;
+            this.persistenceDeleteCauses = DEFAULT_PERSISTENCE_DELETE_CAUSES;
+            this.persistenceDeleteBatchSize = DEFAULT_PERSISTENCE_DELETE_BATCH_SIZE;
+            this.persistenceDeleteFlushIntervalMillis = DEFAULT_PERSISTENCE_DELETE_FLUSH_INTERVAL_MILLIS;
+        }
+
+        private Snapshot(Snapshot source) {
+            this.name = source.name;
+            this.maximumSize = source.maximumSize;
+            this.expireAfterWrite = source.expireAfterWrite;
+            this.offHeapCacheEnabled = source.offHeapCacheEnabled;
+            this.persistenceEnabled = source.persistenceEnabled;
+            this.autoPersistenceEnabled = source.autoPersistenceEnabled;
+            this.asyncWarmupEnabled = source.asyncWarmupEnabled;
+            this.persistencePath = source.persistencePath;
+            this.persistenceInterval = source.persistenceInterval;
+            this.offHeapValueStoreEnabled = source.offHeapValueStoreEnabled;
+            this.offHeapValueStoreCapacity = source.offHeapValueStoreCapacity;
+            this.warmupReadThroughEnabled = source.warmupReadThroughEnabled;
+            this.redisL2Enabled = source.redisL2Enabled;
+            this.redisL2BatchWindowMicros = source.redisL2BatchWindowMicros;
+            this.redisL2MaxBatchSize = source.redisL2MaxBatchSize;
+            this.redisL2TimeoutMillis = source.redisL2TimeoutMillis;
+            this.redisL2NegativeTtlMillis = source.redisL2NegativeTtlMillis;
+            this.redisWriteEnabled = source.redisWriteEnabled;
+            this.redisWriteThrough = source.redisWriteThrough;
+            this.redisWriteBatchSize = source.redisWriteBatchSize;
+            this.redisWriteFlushIntervalMillis = source.redisWriteFlushIntervalMillis;
+            this.redisWriteTtlEnabled = source.redisWriteTtlEnabled;
+            this.hotKeySnapshotIntervalSeconds = source.hotKeySnapshotIntervalSeconds;
+            this.hotKeyTopK = source.hotKeyTopK;
+            this.resizeDurationSeconds = source.resizeDurationSeconds;
+            this.resizeMaxEvictionsPerSecond = source.resizeMaxEvictionsPerSecond;
+            this.version = source.version;
+            this.persistenceDeleteCauses = source.persistenceDeleteCauses;
+            this.persistenceDeleteBatchSize = source.persistenceDeleteBatchSize;
+            this.persistenceDeleteFlushIntervalMillis = source.persistenceDeleteFlushIntervalMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public long getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+
+        public boolean isOffHeapCacheEnabled() {
+            return offHeapCacheEnabled;
+        }
+
+        public boolean isPersistenceEnabled() {
+            return persistenceEnabled;
+        }
+
+        public boolean isAutoPersistenceEnabled() {
+            return autoPersistenceEnabled;
+        }
+
+        public boolean isAsyncWarmupEnabled() {
+            return asyncWarmupEnabled;
+        }
+
+        public String getPersistencePath() {
+            return persistencePath;
+        }
+
+        public long getPersistenceInterval() {
+            return persistenceInterval;
+        }
+
+        public boolean isOffHeapValueStoreEnabled() {
+            return offHeapValueStoreEnabled;
+        }
+
+        public long getOffHeapValueStoreCapacity() {
+            return offHeapValueStoreCapacity;
+        }
+
+        public boolean isWarmupReadThroughEnabled() {
+            return warmupReadThroughEnabled;
+        }
+
+        public boolean isRedisL2Enabled() {
+            return redisL2Enabled;
+        }
+
+        public long getRedisL2BatchWindowMicros() {
+            return redisL2BatchWindowMicros;
+        }
+
+        public int getRedisL2MaxBatchSize() {
+            return redisL2MaxBatchSize;
+        }
+
+        public long getRedisL2TimeoutMillis() {
+            return redisL2TimeoutMillis;
+        }
+
+        public long getRedisL2NegativeTtlMillis() {
+            return redisL2NegativeTtlMillis;
+        }
+
+        public boolean isRedisWriteEnabled() {
+            return redisWriteEnabled;
+        }
+
+        public boolean isRedisWriteThrough() {
+            return redisWriteThrough;
+        }
+
+        public int getRedisWriteBatchSize() {
+            return redisWriteBatchSize;
+        }
+
+        public long getRedisWriteFlushIntervalMillis() {
+            return redisWriteFlushIntervalMillis;
+        }
+
+        public boolean isRedisWriteTtlEnabled() {
+            return redisWriteTtlEnabled;
+        }
+
+        public long getHotKeySnapshotIntervalSeconds() {
+            return hotKeySnapshotIntervalSeconds;
+        }
+
+        public int getHotKeyTopK() {
+            return hotKeyTopK;
+        }
+
+        public long getResizeDurationSeconds() {
+            return resizeDurationSeconds;
+        }
+
+        public long getResizeMaxEvictionsPerSecond() {
+            return resizeMaxEvictionsPerSecond;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getPersistenceDeleteCauses() {
+            return persistenceDeleteCauses;
+        }
+
+        public int getPersistenceDeleteBatchSize() {
+            return persistenceDeleteBatchSize;
+        }
+
+        public long getPersistenceDeleteFlushIntervalMillis() {
+            return persistenceDeleteFlushIntervalMillis;
         }
     }
-}
\ No newline at end of file
+}
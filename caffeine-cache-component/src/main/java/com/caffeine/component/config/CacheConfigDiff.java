@@ -0,0 +1,189 @@
+package com.caffeine.component.config;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 两份配置快照之间的字段级差异
+ * 每个配置项标明生效所需的最低代价，缓存管理器据此只做必要的工作：
+ * 在线调整已有实例、重新挂载或卸下包装层(数据保留在原实例中)，或者重建缓存实例。
+ */
+public final class CacheConfigDiff {
+
+    /**
+     * 配置项生效的方式，按代价从低到高排列
+     */
+    public enum ApplyMode {
+        // 在使用时读取或在已有实例上在线调整
+        LIVE_TUNE,
+        // 重新挂载包装层(持久化、Redis读写、预热回源)，底层缓存实例及数据不变
+        TIER,
+        // 重建缓存实例并迁移数据
+        REBUILD,
+        // 只在创建缓存管理器时读取，运行期间变更不生效
+        RESTART
+    }
+
+    /**
+     * 可比较的配置项
+     */
+    public enum Knob {
+        MAXIMUM_SIZE(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getMaximumSize),
+        EXPIRE_AFTER_WRITE(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getExpireAfterWrite),
+        // 堆外缓存和持久化管理器只在创建缓存管理器时按配置创建
+        OFF_HEAP_CACHE_ENABLED(ApplyMode.RESTART, CacheConfig.Snapshot::isOffHeapCacheEnabled),
+        PERSISTENCE_ENABLED(ApplyMode.RESTART, CacheConfig.Snapshot::isPersistenceEnabled),
+        // 持久化管理器存在时重新挂载或卸下持久化写入，不存在时由缓存管理器改为RESTART
+        AUTO_PERSISTENCE_ENABLED(ApplyMode.TIER, CacheConfig.Snapshot::isAutoPersistenceEnabled),
+        ASYNC_WARMUP_ENABLED(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::isAsyncWarmupEnabled),
+        PERSISTENCE_PATH(ApplyMode.RESTART, CacheConfig.Snapshot::getPersistencePath),
+        PERSISTENCE_INTERVAL(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getPersistenceInterval),
+        OFF_HEAP_VALUE_STORE_ENABLED(ApplyMode.REBUILD, CacheConfig.Snapshot::isOffHeapValueStoreEnabled),
+        OFF_HEAP_VALUE_STORE_CAPACITY(ApplyMode.REBUILD, CacheConfig.Snapshot::getOffHeapValueStoreCapacity),
+        WARMUP_READ_THROUGH_ENABLED(ApplyMode.TIER, CacheConfig.Snapshot::isWarmupReadThroughEnabled),
+        REDIS_L2_ENABLED(ApplyMode.TIER, CacheConfig.Snapshot::isRedisL2Enabled),
+        REDIS_L2_BATCH_WINDOW_MICROS(ApplyMode.TIER, CacheConfig.Snapshot::getRedisL2BatchWindowMicros),
+        REDIS_L2_MAX_BATCH_SIZE(ApplyMode.TIER, CacheConfig.Snapshot::getRedisL2MaxBatchSize),
+        REDIS_L2_TIMEOUT_MILLIS(ApplyMode.TIER, CacheConfig.Snapshot::getRedisL2TimeoutMillis),
+        REDIS_L2_NEGATIVE_TTL_MILLIS(ApplyMode.TIER, CacheConfig.Snapshot::getRedisL2NegativeTtlMillis),
+        REDIS_WRITE_ENABLED(ApplyMode.TIER, CacheConfig.Snapshot::isRedisWriteEnabled),
+        REDIS_WRITE_THROUGH(ApplyMode.TIER, CacheConfig.Snapshot::isRedisWriteThrough),
+        REDIS_WRITE_BATCH_SIZE(ApplyMode.TIER, CacheConfig.Snapshot::getRedisWriteBatchSize),
+        REDIS_WRITE_FLUSH_INTERVAL_MILLIS(ApplyMode.TIER, CacheConfig.Snapshot::getRedisWriteFlushIntervalMillis),
+        REDIS_WRITE_TTL_ENABLED(ApplyMode.TIER, CacheConfig.Snapshot::isRedisWriteTtlEnabled),
+        HOT_KEY_SNAPSHOT_INTERVAL_SECONDS(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getHotKeySnapshotIntervalSeconds),
+        HOT_KEY_TOP_K(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getHotKeyTopK),
+        RESIZE_DURATION_SECONDS(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getResizeDurationSeconds),
+        RESIZE_MAX_EVICTIONS_PER_SECOND(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getResizeMaxEvictionsPerSecond),
+        PERSISTENCE_DELETE_CAUSES(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getPersistenceDeleteCauses),
+        PERSISTENCE_DELETE_BATCH_SIZE(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getPersistenceDeleteBatchSize),
+        PERSISTENCE_DELETE_FLUSH_INTERVAL_MILLIS(ApplyMode.LIVE_TUNE, CacheConfig.Snapshot::getPersistenceDeleteFlushIntervalMillis);
+
+        private final ApplyMode applyMode;
+        private final Function<CacheConfig.Snapshot, Object> getter;
+
+        Knob(ApplyMode applyMode, Function<CacheConfig.Snapshot, Object> getter) {
+            this.applyMode = applyMode;
+            this.getter = getter;
+        }
+
+        public ApplyMode getApplyMode() {
+            return applyMode;
+        }
+
+        /**
+         * 读取快照中该配置项的值
+         */
+        public Object valueOf(CacheConfig.Snapshot snapshot) {
+            return getter.apply(snapshot);
+        }
+    }
+
+    private final CacheConfig.Snapshot oldConfig;
+    private final CacheConfig.Snapshot newConfig;
+    private final Set<Knob> changed;
+    // 按运行环境调整过生效方式的配置项
+    private final Map<Knob, ApplyMode> applyModes;
+
+    private CacheConfigDiff(CacheConfig.Snapshot oldConfig, CacheConfig.Snapshot newConfig, Set<Knob> changed,
+                            Map<Knob, ApplyMode> applyModes) {
+        this.oldConfig = oldConfig;
+        this.newConfig = newConfig;
+        this.changed = changed;
+        this.applyModes = applyModes;
+    }
+
+    /**
+     * 比较两份配置快照
+     * @param oldConfig 旧配置
+     * @param newConfig 新配置
+     * @return 差异
+     */
+    public static CacheConfigDiff between(CacheConfig.Snapshot oldConfig, CacheConfig.Snapshot newConfig) {
+        Set<Knob> changed = EnumSet.noneOf(Knob.class);
+        if (oldConfig != newConfig) {
+            for (Knob knob : Knob.values()) {
+                if (!Objects.equals(knob.valueOf(oldConfig), knob.valueOf(newConfig))) {
+                    changed.add(knob);
+                }
+            }
+        }
+        return new CacheConfigDiff(oldConfig, newConfig, Collections.unmodifiableSet(changed),
+                new EnumMap<>(Knob.class));
+    }
+
+    /**
+     * 返回指定配置项改为以另一种方式生效的差异，用于生效方式取决于运行环境的配置项
+     * @param knob 配置项
+     * @param applyMode 生效方式
+     * @return 新的差异，原差异不变
+     */
+    public CacheConfigDiff withApplyMode(Knob knob, ApplyMode applyMode) {
+        Map<Knob, ApplyMode> modes = new EnumMap<>(applyModes);
+        modes.put(knob, applyMode);
+        return new CacheConfigDiff(oldConfig, newConfig, changed, modes);
+    }
+
+    public CacheConfig.Snapshot getOldConfig() {
+        return oldConfig;
+    }
+
+    public CacheConfig.Snapshot getNewConfig() {
+        return newConfig;
+    }
+
+    /**
+     * 变更的配置项
+     */
+    public Set<Knob> getChangedKnobs() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return changed.isEmpty();
+    }
+
+    public boolean contains(Knob knob) {
+        return changed.contains(knob);
+    }
+
+    /**
+     * 配置项在本次差异中的生效方式
+     */
+    public ApplyMode getApplyMode(Knob knob) {
+        ApplyMode applyMode = applyModes.get(knob);
+        return applyMode != null ? applyMode : knob.applyMode;
+    }
+
+    /**
+     * 是否有配置项以指定方式生效
+     */
+    public boolean requires(ApplyMode applyMode) {
+        for (Knob knob : changed) {
+            if (getApplyMode(knob) == applyMode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CacheConfigDiff{");
+        boolean first = true;
+        for (Knob knob : changed) {
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(knob).append(": ").append(knob.valueOf(oldConfig))
+                    .append(" -> ").append(knob.valueOf(newConfig));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -33,9 +33,9 @@ public class CacheConfigListenerConfig {
         // 获取所有CaffeineCacheManager实例
         Map<String, CaffeineCacheManager> cacheManagers = applicationContext.getBeansOfType(CaffeineCacheManager.class);
         
-        // 注册每个缓存管理器为配置变更监听器
+        // 按缓存名称注册每个缓存管理器，变更只路由到对应的管理器
         for (CaffeineCacheManager cacheManager : cacheManagers.values()) {
-            configChangeNotifier.registerListener(cacheManager);
+            configChangeNotifier.registerListener(cacheManager.getConfig().getName(), cacheManager);
             System.out.println("已注册缓存管理器: " + cacheManager.getConfig().getName());
         }
     }
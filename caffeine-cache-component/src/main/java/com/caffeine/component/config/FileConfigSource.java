@@ -0,0 +1,397 @@
+package com.caffeine.component.config;
+
+import com.caffeine.component.listener.CacheConfigChangeNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 基于配置文件的缓存配置源
+ * 读取properties或YAML文件中的各缓存配置，通过WatchService监听文件变更，防抖后重新加载，
+ * 只把配置有变化的缓存通过{@link CacheConfigChangeNotifier}推送，不需要管理后台也不需要重启。
+ * 文件格式(键名与CacheConfig的属性名一致)：
+ * <pre>
+ * # properties
+ * caches.users.maximumSize=5000
+ * caches.users.expireAfterWrite=600
+ *
+ * # YAML(只支持嵌套映射和标量值)
+ * caches:
+ *   users:
+ *     maximumSize: 5000
+ *     expireAfterWrite: 600
+ * </pre>
+ * 文件只覆盖其中出现的配置项，其余配置项取基础配置在推送时的值：基础配置传入缓存管理器的{@link CacheConfig}(getConfig())时，
+ * 未出现在文件中的配置项保持运行时的当前值，不会被重置为默认值。文件不能设置版本号，推送的配置不带版本号，总会被接受。
+ * 文件解析失败时保留上一次成功加载的配置。
+ */
+public class FileConfigSource implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FileConfigSource.class);
+    // 缓存配置的键前缀
+    private static final String CACHES_PREFIX = "caches.";
+    // 默认防抖时间(毫秒)
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+    // 可配置的属性，键为属性名
+    private static final Map<String, Method> SETTERS = findSetters();
+
+    private final Path file;
+    private final CacheConfigChangeNotifier notifier;
+    // 各缓存的基础配置，每次推送时读取
+    private final Function<String, CacheConfig> baseConfigs;
+    // 连续变更在此时间内无新变更后才重新加载(毫秒)
+    private final long debounceMillis;
+    // 上一次成功加载的各缓存配置项，由reload的锁保护
+    private Map<String, Map<String, String>> current = Collections.emptyMap();
+    private volatile WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * 构造函数
+     * @param file 配置文件，扩展名为.yml或.yaml时按YAML解析，否则按properties解析
+     * @param notifier 配置变更通知器
+     * @param baseConfig 基础配置，通常为缓存管理器的当前配置，文件中未出现的配置项取其推送时的值
+     */
+    public FileConfigSource(Path file, CacheConfigChangeNotifier notifier, CacheConfig baseConfig) {
+        this(file, notifier, baseConfig, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * 构造函数
+     * @param file 配置文件
+     * @param notifier 配置变更通知器
+     * @param baseConfig 基础配置，通常为缓存管理器的当前配置，文件中未出现的配置项取其推送时的值
+     * @param debounceMillis 防抖时间(毫秒)
+     */
+    public FileConfigSource(Path file, CacheConfigChangeNotifier notifier, CacheConfig baseConfig, long debounceMillis) {
+        this(file, notifier, constant(Objects.requireNonNull(baseConfig, "baseConfig")), debounceMillis);
+    }
+
+    /**
+     * 构造函数，各缓存由不同的缓存管理器管理时使用
+     * @param file 配置文件
+     * @param notifier 配置变更通知器
+     * @param baseConfigs 按缓存名称返回其当前配置，文件中未出现的配置项取其推送时的值
+     * @param debounceMillis 防抖时间(毫秒)
+     */
+    public FileConfigSource(Path file, CacheConfigChangeNotifier notifier,
+                            Function<String, CacheConfig> baseConfigs, long debounceMillis) {
+        this.file = file.toAbsolutePath();
+        this.notifier = notifier;
+        this.baseConfigs = Objects.requireNonNull(baseConfigs, "baseConfigs");
+        this.debounceMillis = debounceMillis;
+    }
+
+    private static Function<String, CacheConfig> constant(CacheConfig baseConfig) {
+        return cacheName -> baseConfig;
+    }
+
+    /**
+     * 加载一次配置并开始监听文件变更
+     * @throws IOException 无法监听文件所在目录时抛出
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        watchService = file.getFileSystem().newWatchService();
+        // 监听所在目录，编辑器先写临时文件再改名替换时同样能收到事件
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        reload();
+        watcher = new Thread(this::watch, "config-file-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * 重新加载配置文件，推送配置有变化的缓存
+     * @return 推送了变更的缓存名称
+     */
+    public synchronized Set<String> reload() {
+        Map<String, Map<String, String>> loaded;
+        try {
+            loaded = parse();
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("解析缓存配置文件失败，保留当前配置: {}", file, e);
+            return Collections.emptySet();
+        }
+
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, Map<String, String>> entry : loaded.entrySet()) {
+            String cacheName = entry.getKey();
+            if (entry.getValue().equals(current.get(cacheName))) {
+                continue;
+            }
+            CacheConfig config;
+            try {
+                config = toConfig(cacheName, entry.getValue());
+            } catch (IllegalArgumentException e) {
+                logger.warn("缓存配置无效，跳过: {}", cacheName, e);
+                // 保留原配置项，修正后再次比较时仍视为变更
+                entry.setValue(current.getOrDefault(cacheName, Collections.emptyMap()));
+                continue;
+            }
+            notifier.notifyConfigChange(config);
+            changed.add(cacheName);
+        }
+        for (String removed : current.keySet()) {
+            if (!loaded.containsKey(removed)) {
+                logger.info("配置文件中已移除缓存配置，保持其当前配置: {}", removed);
+            }
+        }
+        current = loaded;
+        if (!changed.isEmpty()) {
+            logger.info("已从配置文件推送缓存配置变更: {}", changed);
+        }
+        return changed;
+    }
+
+    /**
+     * 停止监听
+     */
+    @Override
+    public void close() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                logger.warn("关闭配置文件监听失败", e);
+            }
+        }
+        Thread thread;
+        synchronized (this) {
+            thread = watcher;
+            watcher = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void watch() {
+        Path fileName = file.getFileName();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean relevant = drainEvents(key, fileName);
+                // 防抖：直到一段时间内不再有该文件的事件才重新加载
+                while (relevant) {
+                    WatchKey next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    drainEvents(next, fileName);
+                }
+                if (relevant) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 已关闭
+        }
+    }
+
+    private static boolean drainEvents(WatchKey key, Path fileName) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * 解析配置文件，返回各缓存的配置项
+     */
+    private Map<String, Map<String, String>> parse() throws IOException {
+        if (!Files.exists(file)) {
+            return new LinkedHashMap<>();
+        }
+        String name = file.getFileName().toString();
+        Map<String, String> flat = name.endsWith(".yml") || name.endsWith(".yaml")
+                ? parseYaml(Files.readAllLines(file, StandardCharsets.UTF_8))
+                : parseProperties();
+        Map<String, Map<String, String>> caches = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : flat.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(CACHES_PREFIX)) {
+                continue;
+            }
+            int dot = key.lastIndexOf('.');
+            if (dot <= CACHES_PREFIX.length()) {
+                throw new IllegalArgumentException("无效的配置键: " + key);
+            }
+            String cacheName = key.substring(CACHES_PREFIX.length(), dot);
+            caches.computeIfAbsent(cacheName, ignored -> new HashMap<>()).put(key.substring(dot + 1), entry.getValue());
+        }
+        return caches;
+    }
+
+    private Map<String, String> parseProperties() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, String> flat = new LinkedHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            flat.put(key.trim(), properties.getProperty(key).trim());
+        }
+        return flat;
+    }
+
+    /**
+     * 解析YAML的子集：按缩进嵌套的映射和标量值，展开为以点分隔的键
+     */
+    static Map<String, String> parseYaml(List<String> lines) {
+        Map<String, String> flat = new LinkedHashMap<>();
+        List<Integer> indents = new ArrayList<>();
+        List<String> path = new ArrayList<>();
+        int lineNumber = 0;
+        for (String raw : lines) {
+            lineNumber++;
+            String line = stripComment(raw);
+            if (line.trim().isEmpty() || line.trim().equals("---")) {
+                continue;
+            }
+            int indent = 0;
+            while (indent < line.length() && line.charAt(indent) == ' ') {
+                indent++;
+            }
+            String content = line.trim();
+            int colon = content.indexOf(':');
+            if (colon <= 0 || content.startsWith("-")) {
+                throw new IllegalArgumentException("不支持的YAML内容，第" + lineNumber + "行: " + raw);
+            }
+            while (!indents.isEmpty() && indents.get(indents.size() - 1) >= indent) {
+                indents.remove(indents.size() - 1);
+                path.remove(path.size() - 1);
+            }
+            String key = unquote(content.substring(0, colon).trim());
+            String value = content.substring(colon + 1).trim();
+            if (value.isEmpty()) {
+                indents.add(indent);
+                path.add(key);
+            } else {
+                StringBuilder fullKey = new StringBuilder();
+                for (String parent : path) {
+                    fullKey.append(parent).append('.');
+                }
+                flat.put(fullKey.append(key).toString(), unquote(value));
+            }
+        }
+        return flat;
+    }
+
+    private static String stripComment(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"' || c == '\'') {
+                quoted = !quoted;
+            } else if (c == '#' && !quoted && (i == 0 || Character.isWhitespace(line.charAt(i - 1)))) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * 以基础配置的当前值为底，只覆盖文件中出现的配置项
+     */
+    private CacheConfig toConfig(String cacheName, Map<String, String> values) {
+        CacheConfig base = baseConfigs.apply(cacheName);
+        if (base == null) {
+            throw new IllegalArgumentException("缺少基础配置: " + cacheName);
+        }
+        CacheConfig config = new CacheConfig();
+        config.update(base);
+        config.setName(cacheName);
+        // 基础配置的版本号已被接受过，沿用会被当作迟到的变更丢弃，推送时分配更新的版本号
+        config.setVersion(CacheConfig.nextVersion(base.getVersion()));
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            Method setter = SETTERS.get(entry.getKey());
+            if (setter == null) {
+                throw new IllegalArgumentException("未知的配置项: " + entry.getKey());
+            }
+            try {
+                setter.invoke(config, convert(setter.getParameterTypes()[0], entry.getKey(), entry.getValue()));
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalArgumentException("设置配置项失败: " + entry.getKey(), e);
+            }
+        }
+        return config;
+    }
+
+    private static Object convert(Class<?> type, String key, String value) {
+        try {
+            if (type == long.class) {
+                return Long.parseLong(value);
+            }
+            if (type == int.class) {
+                return Integer.parseInt(value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("配置项不是有效的数字: " + key + "=" + value, e);
+        }
+        if (type == boolean.class) {
+            if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("配置项不是有效的布尔值: " + key + "=" + value);
+            }
+            return Boolean.parseBoolean(value);
+        }
+        return value;
+    }
+
+    private static Map<String, Method> findSetters() {
+        Map<String, Method> setters = new HashMap<>();
+        for (Method method : CacheConfig.class.getMethods()) {
+            String name = method.getName();
+            // 名称由文件中的位置决定，版本号由配置源管理，不能在文件中设置
+            if (name.startsWith("set") && name.length() > 3 && method.getParameterCount() == 1
+                    && !name.equals("setName") && !name.equals("setVersion")) {
+                Class<?> type = method.getParameterTypes()[0];
+                if (type == long.class || type == int.class || type == boolean.class || type == String.class) {
+                    setters.put(Character.toLowerCase(name.charAt(3)) + name.substring(4), method);
+                }
+            }
+        }
+        return setters;
+    }
+}
@@ -1,29 +1,108 @@
 package com.caffeine.component.core;
 
 import com.caffeine.component.config.CacheConfig;
+import com.caffeine.component.config.CacheConfigDiff;
 import com.caffeine.component.listener.CacheConfigChangeListener;
+import com.caffeine.component.offheap.DefaultOffHeapValueCodec;
 import com.caffeine.component.offheap.OffHeapCacheManager;
+import com.caffeine.component.offheap.OffHeapValueArena;
+import com.caffeine.component.offheap.OffHeapValueCache;
+import com.caffeine.component.offheap.OffHeapValueHandle;
 import com.caffeine.component.persistence.CachePersistenceManager;
 import com.caffeine.component.persistence.CacheWriterAdapter;
 import com.caffeine.component.persistence.CacheWithWriter;
+import com.caffeine.component.persistence.PersistenceDeleteQueue;
+import com.caffeine.component.redis.RedisBatchReader;
+import com.caffeine.component.redis.RedisBatchWriter;
+import com.caffeine.component.redis.RedisReadThroughCache;
+import com.caffeine.component.redis.RedisValueEncoder;
+import com.caffeine.component.redis.RedisWriteThroughCache;
+import com.caffeine.component.warmup.CacheDataLoader;
+import com.caffeine.component.warmup.HotKeyStore;
+import com.caffeine.component.warmup.WarmupHandle;
+import com.caffeine.component.warmup.WarmupReadThroughCache;
+import com.caffeine.component.warmup.loader.RedisCacheLoader;
+import com.caffeine.component.warmup.loader.RedisValueDecoder;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPool;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Caffeine缓存管理器
  */
-public class CaffeineCacheManager implements CacheConfigChangeListener {
+public class CaffeineCacheManager implements CacheConfigChangeListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheManager.class);
+    // Redis回源的发送线程数
+    private static final int REDIS_L2_DISPATCHERS = 2;
+
     // 缓存实例容器
     private final Map<String, Cache<Object, Object>> cacheContainer = new ConcurrentHashMap<>();
+    // 各缓存未包装的底层实例，切换包装层时复用，数据不需迁移
+    private final Map<String, Cache<Object, Object>> baseCaches = new ConcurrentHashMap<>();
+    // long键缓存实例容器
+    private final Map<String, LongKeyCache<Object>> longKeyCacheContainer = new ConcurrentHashMap<>();
+    // 各缓存最近一次预热的句柄
+    private final Map<String, WarmupHandle> warmupHandles = new ConcurrentHashMap<>();
+    // 各缓存最近一次预热的数据源
+    private final Map<String, CacheDataLoader> warmupLoaders = new ConcurrentHashMap<>();
+    // 进行中的全量重载
+    private final Map<String, CompletableFuture<Cache<Object, Object>>> reloadsInProgress = new ConcurrentHashMap<>();
+    // 各缓存最近一次全量重载的加载句柄
+    private final Map<String, WarmupHandle> reloadHandles = new ConcurrentHashMap<>();
     // 配置
     private final CacheConfig config;
     // 堆外缓存管理器
     private final OffHeapCacheManager offHeapCacheManager;
     // 缓存持久化管理器
     private final CachePersistenceManager persistenceManager;
+    // Redis回源和写入的连接池、键前缀和值编解码器，未设置时不访问Redis
+    private volatile JedisPool redisL2Pool;
+    private volatile String redisL2Prefix;
+    private volatile RedisValueDecoder redisL2Decoder = RedisValueDecoder.UTF8_STRING;
+    private volatile RedisValueEncoder redisValueEncoder = RedisValueEncoder.UTF8_STRING;
+    // Redis回源的批量读取器，按需创建，所有缓存共用，由redisLock保护
+    private RedisBatchReader redisBatchReader;
+    // Redis写入的批量写入器，按需创建，所有缓存共用，由redisLock保护
+    private RedisBatchWriter redisBatchWriter;
+    // 按需创建的共用组件各自使用独立的锁而不是this：setConfig持有this时会访问缓存容器，
+    // 而缓存在容器的computeIfAbsent中创建时需要获取这些组件，共用this会互相等待
+    private final Object redisLock = new Object();
+    private final Object offHeapValueArenaLock = new Object();
+    private final Object persistenceDeleteQueueLock = new Object();
+    // 热点键样本存储
+    private final HotKeyStore hotKeyStore;
+    // 定期保存热点键样本的调度线程，按需创建
+    private ScheduledExecutorService hotKeyScheduler;
+    private ScheduledFuture<?> hotKeySnapshotTask;
+    // 容量上限的分步调整
+    private final PacedResizer resizer = new PacedResizer();
+    // long键缓存容量上限的分步调整，long键缓存可与对象缓存同名，使用单独的调整器
+    private final PacedResizer longKeyResizer = new PacedResizer();
+    // 同步删除到持久化存储的移除原因
+    private volatile Set<RemovalCause> persistenceDeleteCauses;
+    // 持久化批量删除队列，按需创建，所有缓存共用
+    private volatile PersistenceDeleteQueue persistenceDeleteQueue;
+    // 混合模式的堆外值存储区，按需创建，所有缓存共用同一份容量，由offHeapValueArenaLock保护
+    private OffHeapValueArena offHeapValueArena;
+    // 是否已关闭，关闭后不再按需创建后台组件
+    private volatile boolean closed;
 
     /**
      * 构造函数
@@ -33,6 +112,12 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
         this.config = config;
         this.offHeapCacheManager = config.isOffHeapCacheEnabled() ? new OffHeapCacheManager(config) : null;
         this.persistenceManager = config.isPersistenceEnabled() ? new CachePersistenceManager(config) : null;
+        if (config.isAutoPersistenceEnabled() && persistenceManager == null) {
+            logger.warn("autoPersistenceEnabled需要同时启用persistenceEnabled，写入不会同步到持久化存储");
+        }
+        this.hotKeyStore = new HotKeyStore(new File(config.getPersistencePath(), "hotkeys"));
+        this.persistenceDeleteCauses = parseRemovalCauses(config.getPersistenceDeleteCauses());
+        scheduleHotKeySnapshots();
     }
 
     /**
@@ -42,33 +127,508 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
      */
     public Cache<Object, Object> getCache(String cacheName) {
         return cacheContainer.computeIfAbsent(cacheName, name -> {
-            Caffeine<Object, Object> caffeineBuilder = Caffeine.newBuilder()
-                    .maximumSize(config.getMaximumSize())
-                    .expireAfterWrite(config.getExpireAfterWrite(), TimeUnit.SECONDS);
+            Cache<Object, Object> base = buildBaseCache(name);
+            baseCaches.put(name, base);
+            return decorateCache(name, base, true);
+        });
+    }
+
+    /**
+     * 按配置创建未包装的缓存实例
+     * 启用持久化时注册移除监听，淘汰和过期等移除按persistenceDeleteCauses配置异步删除持久化数据
+     * @param cacheName 缓存名称
+     * @return 缓存实例
+     */
+    private Cache<Object, Object> buildBaseCache(String cacheName) {
+        CacheConfig.Snapshot settings = config.snapshot();
+        if (settings.isOffHeapValueStoreEnabled()) {
+            // 混合模式：键在堆内，值在堆外
+            return buildOffHeapValueCache(cacheName);
+        }
+        Caffeine<Object, Object> caffeineBuilder = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(settings.getExpireAfterWrite(), TimeUnit.SECONDS);
+        if (persistenceManager != null) {
+            caffeineBuilder.removalListener((key, value, cause) -> onCacheRemoval(cacheName, key, cause));
+        }
+        return caffeineBuilder.build();
+    }
+
+    /**
+     * 缓存条目被移除时按移除原因把键放入持久化删除队列
+     * 值被替换(REPLACED)时新值已写入，从不删除
+     * @param cacheName 缓存名称
+     * @param key 键
+     * @param cause 移除原因
+     */
+    private void onCacheRemoval(String cacheName, Object key, RemovalCause cause) {
+        if (key == null || !persistenceDeleteCauses.contains(cause)) {
+            return;
+        }
+        PersistenceDeleteQueue queue = getPersistenceDeleteQueue();
+        if (queue != null) {
+            queue.enqueue(cacheName, key);
+        }
+    }
+
+    /**
+     * 获取持久化批量删除队列，未启用持久化时返回null
+     * @return 批量删除队列
+     */
+    public PersistenceDeleteQueue getPersistenceDeleteQueue() {
+        PersistenceDeleteQueue queue = persistenceDeleteQueue;
+        if (queue != null || persistenceManager == null) {
+            return queue;
+        }
+        synchronized (persistenceDeleteQueueLock) {
+            if (persistenceDeleteQueue == null && !closed) {
+                // 删除前检查键是否已重新写入当前实例，同名的对象缓存和long键缓存共用持久化数据
+                persistenceDeleteQueue = new PersistenceDeleteQueue(persistenceManager, (cacheName, key) -> {
+                    Cache<Object, Object> base = baseCaches.get(cacheName);
+                    if (base != null && base.asMap().containsKey(key)) {
+                        return true;
+                    }
+                    LongKeyCache<Object> longKeyCache = longKeyCacheContainer.get(cacheName);
+                    return longKeyCache != null && key instanceof Long && longKeyCache.containsKey((Long) key);
+                }, config.getPersistenceDeleteBatchSize(), config.getPersistenceDeleteFlushIntervalMillis());
+            }
+            return persistenceDeleteQueue;
+        }
+    }
+
+    /**
+     * 立即处理待删除的持久化数据并等待完成
+     */
+    public void flushPersistenceDeletes() {
+        PersistenceDeleteQueue queue = persistenceDeleteQueue;
+        if (queue != null) {
+            queue.flush();
+        }
+    }
+
+    /**
+     * 关闭批量删除队列，关闭前处理剩余的待删除键
+     */
+    private void resetPersistenceDeleteQueue() {
+        synchronized (persistenceDeleteQueueLock) {
+            if (persistenceDeleteQueue != null) {
+                persistenceDeleteQueue.shutdown();
+                persistenceDeleteQueue = null;
+            }
+        }
+    }
+
+    /**
+     * 解析逗号分隔的移除原因名称，忽略REPLACED和无法识别的名称
+     * @param causes 移除原因名称
+     * @return 移除原因集合
+     */
+    static Set<RemovalCause> parseRemovalCauses(String causes) {
+        Set<RemovalCause> result = EnumSet.noneOf(RemovalCause.class);
+        if (causes == null) {
+            return result;
+        }
+        for (String name : causes.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            try {
+                RemovalCause cause = RemovalCause.valueOf(trimmed.toUpperCase());
+                if (cause != RemovalCause.REPLACED) {
+                    result.add(cause);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("忽略无法识别的移除原因: {}", trimmed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按配置为缓存实例添加持久化、Redis同步和预热回源等包装
+     * @param cacheName 缓存名称
+     * @param cache 未包装的缓存实例
+     * @param restore 是否从持久化存储和堆外缓存恢复数据
+     * @return 包装后的缓存实例
+     */
+    private Cache<Object, Object> decorateCache(String cacheName, Cache<Object, Object> cache, boolean restore) {
+        // 同一次构建使用同一份配置快照
+        CacheConfig.Snapshot settings = config.snapshot();
+        // 如果启用了自动持久化，则添加写监听器；持久化管理器只在创建时按配置创建
+        if (settings.isAutoPersistenceEnabled() && persistenceManager != null) {
+            CacheWriterAdapter<Object, Object> writerAdapter = new CacheWriterAdapter<>(cacheName, persistenceManager);
+            // 包装缓存以添加写入逻辑
+            cache = new CacheWithWriter<>(cache, writerAdapter);
+        }
+
+        // 从持久化存储加载缓存（如果启用）
+        if (restore && settings.isPersistenceEnabled() && persistenceManager != null) {
+            persistenceManager.loadCache(cacheName, cache);
+        }
+
+        // 从堆外缓存加载（如果启用）
+        if (restore && settings.isOffHeapCacheEnabled() && offHeapCacheManager != null) {
+            offHeapCacheManager.loadToHeapCache(cacheName, cache);
+        }
+
+        // 本地写入同步到Redis（如果启用）
+        RedisBatchWriter writer = settings.isRedisWriteEnabled() ? getRedisBatchWriter() : null;
+        if (writer != null) {
+            long ttlSeconds = settings.isRedisWriteTtlEnabled() ? settings.getExpireAfterWrite() : 0;
+            cache = new RedisWriteThroughCache<>(cache, cacheName, redisL2Prefix, writer, redisValueEncoder,
+                    ttlSeconds, settings.isRedisWriteThrough());
+        }
+
+        // 本地未命中时从Redis回源（如果启用）
+        RedisBatchReader reader = settings.isRedisL2Enabled() ? getRedisBatchReader() : null;
+        if (reader != null) {
+            cache = new RedisReadThroughCache<>(cache, cacheName, redisL2Prefix, reader, redisL2Decoder,
+                    settings.getRedisL2TimeoutMillis(), settings.getRedisL2NegativeTtlMillis());
+        }
+
+        // 预热完成前回源（如果启用）
+        if (settings.isWarmupReadThroughEnabled()) {
+            WarmupReadThroughCache<Object, Object> readThroughCache = new WarmupReadThroughCache<>(cache, cacheName);
+            WarmupHandle handle = warmupHandles.get(cacheName);
+            CacheDataLoader loader = warmupLoaders.get(cacheName);
+            if (handle != null && loader != null && !handle.isDone()) {
+                readThroughCache.attach(loader, handle);
+            }
+            cache = readThroughCache;
+        }
+
+        return cache;
+    }
+
+    /**
+     * 双缓冲全量重载缓存
+     * 在后台新建一个缓存实例并从数据加载器加载全部数据，加载成功后原子替换容器中的旧实例；
+     * 加载期间读写照常访问旧实例，读取方不会看到新旧数据混合的中间状态，加载失败时保留旧实例。
+     * 旧实例替换后不再清空，仍持有其引用的读取方读完后由GC回收；混合模式下旧实例替换后立即归还堆外内存，
+     * 之后通过旧实例读取视为未命中，写入抛出IllegalStateException。
+     * 注意：加载期间写入旧实例的数据不会带到新实例；重载期间内存占用约为平时两倍；
+     * 需要读到新数据的调用方应每次通过{@link #getCache}获取实例，而不是长期持有引用。
+     * 同一个缓存已有重载进行中时返回进行中的重载。
+     * @param cacheName 缓存名称
+     * @param loader 数据加载器
+     * @return 替换完成后返回新实例的Future，加载失败时异常完成
+     */
+    public CompletableFuture<Cache<Object, Object>> reload(String cacheName, CacheDataLoader loader) {
+        CompletableFuture<Cache<Object, Object>> created = new CompletableFuture<>();
+        CompletableFuture<Cache<Object, Object>> existing = reloadsInProgress.putIfAbsent(cacheName, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        // 加载到未包装的实例，加载的数据不会触发持久化或写入Redis
+        Cache<Object, Object> fresh = buildBaseCache(cacheName);
+        WarmupHandle handle;
+        try {
+            handle = loader.loadData(cacheName, fresh);
+        } catch (RuntimeException e) {
+            reloadsInProgress.remove(cacheName, created);
+            created.completeExceptionally(e);
+            return created;
+        }
+        reloadHandles.put(cacheName, handle);
+
+        handle.getFuture().whenComplete((ignored, error) -> {
+            reloadsInProgress.remove(cacheName, created);
+            if (error != null) {
+                logger.warn("全量重载失败，保留原缓存实例: {}", cacheName, error);
+                created.completeExceptionally(error);
+                return;
+            }
+            try {
+                Cache<Object, Object> replacement = decorateCache(cacheName, fresh, false);
+                // 新实例已按当前上限创建，旧实例上的分步缩容不再需要
+                resizer.cancel(cacheName);
+                Cache<Object, Object> retiredBase = baseCaches.put(cacheName, fresh);
+                Cache<Object, Object> retired = cacheContainer.put(cacheName, replacement);
+                logger.info("全量重载完成并切换缓存实例: {}, 条目数: {}, 原实例条目数: {}", cacheName,
+                        fresh.estimatedSize(), retired != null ? retired.estimatedSize() : 0);
+                retireBaseCache(retiredBase);
+                created.complete(replacement);
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 获取缓存最近一次全量重载的加载句柄，可用于查看进度
+     * @param cacheName 缓存名称
+     * @return 加载句柄，未重载过时返回null
+     */
+    public WarmupHandle getReloadHandle(String cacheName) {
+        return reloadHandles.get(cacheName);
+    }
+
+    /**
+     * 设置Redis回源和写入的数据源，与Redis加载器共用连接池、键前缀和解码器
+     * 需同时启用redisL2Enabled或redisWriteEnabled配置
+     * @param loader Redis缓存加载器
+     */
+    public void setRedisL2Source(RedisCacheLoader loader) {
+        setRedisL2Source(loader.getJedisPool(), loader.getRedisPrefix(), loader.getValueDecoder());
+    }
+
+    /**
+     * 设置Redis回源和写入的数据源，已创建的缓存会重新挂载包装层以生效
+     * 需同时启用redisL2Enabled或redisWriteEnabled配置
+     * @param jedisPool Jedis连接池
+     * @param redisPrefix Redis键前缀，Redis键为 前缀 + 缓存名称 + ":" + 键
+     * @param decoder 值解码器
+     */
+    public void setRedisL2Source(JedisPool jedisPool, String redisPrefix, RedisValueDecoder decoder) {
+        this.redisL2Pool = jedisPool;
+        this.redisL2Prefix = redisPrefix;
+        this.redisL2Decoder = decoder != null ? decoder : RedisValueDecoder.UTF8_STRING;
+        resetRedisBatchReader();
+        resetRedisBatchWriter();
+        redecorateAllCaches();
+    }
+
+    /**
+     * 设置写入Redis时使用的值编码器，默认按UTF-8字符串写入
+     * @param encoder 值编码器
+     */
+    public void setRedisValueEncoder(RedisValueEncoder encoder) {
+        this.redisValueEncoder = encoder != null ? encoder : RedisValueEncoder.UTF8_STRING;
+        redecorateAllCaches();
+    }
+
+    /**
+     * 获取Redis回源的批量读取器，未设置数据源时返回null
+     * @return 批量读取器
+     */
+    public RedisBatchReader getRedisBatchReader() {
+        synchronized (redisLock) {
+            if (redisBatchReader == null && redisL2Pool != null && !closed) {
+                redisBatchReader = new RedisBatchReader(redisL2Pool, config.getRedisL2MaxBatchSize(),
+                        config.getRedisL2BatchWindowMicros(), REDIS_L2_DISPATCHERS);
+            }
+            return redisBatchReader;
+        }
+    }
+
+    /**
+     * 获取Redis写入的批量写入器，未设置数据源时返回null
+     * @return 批量写入器
+     */
+    public RedisBatchWriter getRedisBatchWriter() {
+        synchronized (redisLock) {
+            if (redisBatchWriter == null && redisL2Pool != null && !closed) {
+                redisBatchWriter = new RedisBatchWriter(redisL2Pool, config.getRedisWriteBatchSize(),
+                        config.getRedisWriteFlushIntervalMillis());
+            }
+            return redisBatchWriter;
+        }
+    }
+
+    /**
+     * 关闭批量写入器，关闭前发送剩余的待写入条目
+     */
+    private void resetRedisBatchWriter() {
+        synchronized (redisLock) {
+            if (redisBatchWriter != null) {
+                redisBatchWriter.shutdown();
+                redisBatchWriter = null;
+            }
+        }
+    }
+
+    private void resetRedisBatchReader() {
+        synchronized (redisLock) {
+            if (redisBatchReader != null) {
+                redisBatchReader.shutdown();
+                redisBatchReader = null;
+            }
+        }
+    }
 
-            Cache<Object, Object> cache = caffeineBuilder.build();
+    /**
+     * 使用数据加载器预热缓存
+     * 启用warmupReadThroughEnabled时，预热完成前缓存未命中会回源到该加载器
+     * @param cacheName 缓存名称
+     * @param loader 数据加载器
+     * @return 预热句柄
+     */
+    public WarmupHandle warmup(String cacheName, CacheDataLoader loader) {
+        Cache<Object, Object> cache = getCache(cacheName);
+        // 有上次保存的热点键样本时先加载热点键
+        List<Object> hotKeys = hotKeyStore.load(cacheName);
+        WarmupHandle handle = hotKeys.isEmpty() ? loader.loadData(cacheName, cache)
+                : loader.loadData(cacheName, cache, hotKeys);
+        warmupHandles.put(cacheName, handle);
+        warmupLoaders.put(cacheName, loader);
+        if (cache instanceof WarmupReadThroughCache) {
+            ((WarmupReadThroughCache<Object, Object>) cache).attach(loader, handle);
+        }
+        return handle;
+    }
 
-            // 如果启用了自动持久化，则添加写监听器
-            if (config.isAutoPersistenceEnabled()) {
-                CacheWriterAdapter<Object, Object> writerAdapter = new CacheWriterAdapter<>(cacheName, persistenceManager);
-                // 包装缓存以添加写入逻辑
-                cache = new CacheWithWriter<>(cache, writerAdapter);
+    /**
+     * 获取缓存最近一次预热的句柄
+     * @param cacheName 缓存名称
+     * @return 预热句柄，未预热过时返回null
+     */
+    public WarmupHandle getWarmupHandle(String cacheName) {
+        return warmupHandles.get(cacheName);
+    }
+
+    /**
+     * 保存缓存的热点键样本，下次预热时优先加载
+     * 样本取自Caffeine淘汰策略按访问频率排序的最热键，不在读写路径上额外记录访问；未设置容量上限的缓存没有频率信息，不保存
+     * @param cacheName 缓存名称
+     * @return 保存的键数
+     */
+    public int saveHotKeys(String cacheName) {
+        Cache<Object, Object> cache = cacheContainer.get(cacheName);
+        if (cache == null) {
+            return 0;
+        }
+        return cache.policy().eviction()
+                .map(eviction -> hotKeyStore.save(cacheName, eviction.hottest(config.getHotKeyTopK()).keySet()))
+                .orElse(0);
+    }
+
+    /**
+     * 保存所有缓存的热点键样本
+     */
+    public void saveAllHotKeys() {
+        cacheContainer.keySet().forEach(this::saveHotKeys);
+    }
+
+    /**
+     * 按hotKeySnapshotIntervalSeconds配置重新安排定期保存热点键样本的任务
+     */
+    private synchronized void scheduleHotKeySnapshots() {
+        if (hotKeySnapshotTask != null) {
+            hotKeySnapshotTask.cancel(false);
+            hotKeySnapshotTask = null;
+        }
+        long interval = config.getHotKeySnapshotIntervalSeconds();
+        if (interval <= 0 || closed) {
+            return;
+        }
+        if (hotKeyScheduler == null) {
+            hotKeyScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hot-key-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        hotKeySnapshotTask = hotKeyScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                saveAllHotKeys();
+            } catch (RuntimeException e) {
+                logger.warn("定期保存热点键样本失败", e);
             }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 缓存是否已完成预热，可用于就绪探针；未通过{@link #warmup}预热过的缓存视为已就绪
+     * @param cacheName 缓存名称
+     * @return 已就绪返回true
+     */
+    public boolean isWarm(String cacheName) {
+        WarmupHandle handle = warmupHandles.get(cacheName);
+        return handle == null || (handle.isDone() && !handle.getFuture().isCompletedExceptionally());
+    }
+
+    /**
+     * 获取或创建long键缓存
+     * 与对象缓存共用过期时间、容量上限、持久化和堆外存储配置；启用持久化时淘汰和过期按persistenceDeleteCauses配置异步删除持久化数据
+     * @param cacheName 缓存名称
+     * @return long键缓存实例
+     */
+    public LongKeyCache<Object> getLongKeyCache(String cacheName) {
+        return longKeyCacheContainer.computeIfAbsent(cacheName, name -> {
+            CacheWriterAdapter<Object, Object> writerAdapter = config.isAutoPersistenceEnabled() && persistenceManager != null
+                    ? new CacheWriterAdapter<>(cacheName, persistenceManager) : null;
+            LongKeyCache.RemovalListener removalListener = persistenceManager != null
+                    ? (key, cause) -> onCacheRemoval(cacheName, key, cause) : null;
+            LongKeyCache<Object> cache = new LongKeyCache<>(config.getMaximumSize(), config.getExpireAfterWrite(),
+                    TimeUnit.SECONDS, writerAdapter, removalListener);
 
             // 从持久化存储加载缓存（如果启用）
             if (config.isPersistenceEnabled() && persistenceManager != null) {
-                persistenceManager.loadCache(cacheName, cache);
+                persistenceManager.loadEntries(cacheName, (key, value) -> putLongKeyEntry(cache, key, value));
             }
 
             // 从堆外缓存加载（如果启用）
             if (config.isOffHeapCacheEnabled() && offHeapCacheManager != null) {
-                offHeapCacheManager.loadToHeapCache(cacheName, cache);
+                offHeapCacheManager.loadEntries(cacheName,
+                        batch -> batch.forEach((key, value) -> putLongKeyEntry(cache, key, value)));
             }
 
             return cache;
         });
     }
 
+    private static void putLongKeyEntry(LongKeyCache<Object> cache, Object key, Object value) {
+        if (key instanceof Number) {
+            cache.put(((Number) key).longValue(), value);
+        }
+    }
+
+    /**
+     * 构建混合模式缓存
+     * 所有混合模式缓存共用一个存储区，直接内存总量不超过堆外值存储容量；每个缓存按值在堆外实际占用的字节数加权淘汰，
+     * 存储区满时写入方只回收自己的最冷条目。条目被移除时立即归还其堆外内存
+     * @param cacheName 缓存名称
+     * @return 缓存实例
+     */
+    private Cache<Object, Object> buildOffHeapValueCache(String cacheName) {
+        OffHeapValueArena arena = getOffHeapValueArena();
+        // 实例退役时归还句柄产生的移除不是数据删除，不同步到持久化存储
+        AtomicReference<OffHeapValueCache<Object, Object>> owner = new AtomicReference<>();
+        Cache<Object, OffHeapValueHandle> handles = Caffeine.newBuilder()
+                .maximumWeight(arena.getCapacity())
+                .weigher((Object key, OffHeapValueHandle handle) -> handle.getBlockSize())
+                .expireAfterWrite(config.getExpireAfterWrite(), TimeUnit.SECONDS)
+                // 在触发移除的线程上同步释放，避免已淘汰条目继续占用堆外空间
+                .executor(Runnable::run)
+                .removalListener((Object key, OffHeapValueHandle handle, RemovalCause cause) -> {
+                    arena.free(handle);
+                    OffHeapValueCache<Object, Object> cache = owner.get();
+                    if (cache != null && !cache.isReleased()) {
+                        onCacheRemoval(cacheName, key, cause);
+                    }
+                })
+                .build();
+        OffHeapValueCache<Object, Object> cache = new OffHeapValueCache<>(handles, arena, new DefaultOffHeapValueCodec());
+        owner.set(cache);
+        return cache;
+    }
+
+    /**
+     * 获取混合模式共用的堆外值存储区，不存在时按当前容量创建
+     * @return 存储区
+     */
+    private OffHeapValueArena getOffHeapValueArena() {
+        synchronized (offHeapValueArenaLock) {
+            if (offHeapValueArena == null) {
+                offHeapValueArena = new OffHeapValueArena(config.getOffHeapValueStoreCapacity());
+            }
+            return offHeapValueArena;
+        }
+    }
+
+    /**
+     * 退役不再使用的底层实例，混合模式实例归还其占用的堆外内存
+     * @param base 底层实例，可为null
+     */
+    private static void retireBaseCache(Cache<Object, Object> base) {
+        if (base instanceof OffHeapValueCache) {
+            ((OffHeapValueCache<Object, Object>) base).release();
+        }
+    }
+
     /**
      * 保存缓存到堆外存储
      * @param cacheName 缓存名称
@@ -78,6 +638,10 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
             Cache<Object, Object> cache = cacheContainer.get(cacheName);
             offHeapCacheManager.saveFromHeapCache(cacheName, cache);
         }
+        LongKeyCache<Object> longKeyCache = longKeyCacheContainer.get(cacheName);
+        if (config.isOffHeapCacheEnabled() && offHeapCacheManager != null && longKeyCache != null) {
+            offHeapCacheManager.saveEntries(cacheName, longKeyCache.snapshot());
+        }
     }
 
     /**
@@ -86,6 +650,7 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
     public void saveAllToOffHeapCache() {
         if (config.isOffHeapCacheEnabled()) {
             cacheContainer.keySet().forEach(this::saveToOffHeapCache);
+            longKeyCacheContainer.keySet().forEach(this::saveToOffHeapCache);
         }
     }
 
@@ -98,6 +663,10 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
             Cache<Object, Object> cache = cacheContainer.get(cacheName);
             persistenceManager.persistCache(cacheName, cache);
         }
+        LongKeyCache<Object> longKeyCache = longKeyCacheContainer.get(cacheName);
+        if (config.isPersistenceEnabled() && persistenceManager != null && longKeyCache != null) {
+            persistenceManager.persistEntries(cacheName, longKeyCache.snapshot());
+        }
     }
 
     /**
@@ -106,33 +675,119 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
     public void persistAllCaches() {
         if (config.isPersistenceEnabled()) {
             cacheContainer.keySet().forEach(this::persistCache);
+            longKeyCacheContainer.keySet().forEach(this::persistCache);
         }
     }
 
     /**
      * 设置缓存配置
+     * 带版本号的配置不新于当前配置时视为迟到的旧配置并丢弃；其余配置按字段级差异以最低代价生效：
+     * 容量上限和过期时间在已有实例上在线调整，持久化、Redis读写和预热回源等包装层在原实例上重新挂载，
+     * 只有存储形态相关的配置才重建缓存实例。
      * @param config 缓存配置
+     * @return 本次生效的配置差异，配置过期被丢弃时返回null
      */
-    public void setConfig(CacheConfig config) {
-        // 保存旧配置以便比较
-        CacheConfig oldConfig = new CacheConfig();
-        oldConfig.update(this.config);
-        
-        // 更新配置
-        this.config.update(config);
-        
-        // 检查关键配置是否变更
-        if (config.getMaximumSize() != oldConfig.getMaximumSize() ||
-            config.getExpireAfterWrite() != oldConfig.getExpireAfterWrite() ||
-            config.isAutoPersistenceEnabled() != oldConfig.isAutoPersistenceEnabled() ||
-            config.isOffHeapCacheEnabled() != oldConfig.isOffHeapCacheEnabled() ||
-            config.isPersistenceEnabled() != oldConfig.isPersistenceEnabled()) {
-            
-            // 重建所有缓存以应用新配置
+    public synchronized CacheConfigDiff setConfig(CacheConfig config) {
+        CacheConfig.Snapshot oldConfig = this.config.updateIfNewer(config);
+        if (oldConfig == null) {
+            logger.warn("丢弃过期的配置变更: {}, 版本 {} 不新于当前版本 {}", config.getName(),
+                    config.getVersion(), this.config.getVersion());
+            return null;
+        }
+        CacheConfigDiff diff = CacheConfigDiff.between(oldConfig, this.config.snapshot());
+        // 未创建持久化管理器时无法挂载持久化写入，需重新创建缓存管理器
+        if (persistenceManager == null && diff.contains(CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED)) {
+            diff = diff.withApplyMode(CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED, CacheConfigDiff.ApplyMode.RESTART);
+        }
+        if (!diff.isEmpty()) {
+            logger.info("应用配置变更: {}, {}", this.config.getName(), diff);
+            applyConfigDiff(diff);
+        }
+        return diff;
+    }
+
+    /**
+     * 按配置差异以最低代价应用变更
+     * @param diff 配置差异
+     */
+    private void applyConfigDiff(CacheConfigDiff diff) {
+        CacheConfig.Snapshot newConfig = diff.getNewConfig();
+        // 合并窗口或单批上限变更时重新创建批量读取器/写入器，包装层重新挂载后使用新实例
+        if (diff.contains(CacheConfigDiff.Knob.REDIS_L2_BATCH_WINDOW_MICROS) ||
+            diff.contains(CacheConfigDiff.Knob.REDIS_L2_MAX_BATCH_SIZE)) {
+            resetRedisBatchReader();
+        }
+        if (diff.contains(CacheConfigDiff.Knob.REDIS_WRITE_BATCH_SIZE) ||
+            diff.contains(CacheConfigDiff.Knob.REDIS_WRITE_FLUSH_INTERVAL_MILLIS)) {
+            resetRedisBatchWriter();
+        }
+
+        if (diff.requires(CacheConfigDiff.ApplyMode.REBUILD)) {
+            // 重建所有缓存，新实例直接按新配置创建
+            resizer.cancelAll();
             rebuildAllCaches();
+        } else {
+            if (diff.contains(CacheConfigDiff.Knob.MAXIMUM_SIZE)) {
+                resizeAllCaches(newConfig);
+            }
+            if (diff.contains(CacheConfigDiff.Knob.EXPIRE_AFTER_WRITE)) {
+                cacheContainer.values().forEach(cache -> cache.policy().expireAfterWrite()
+                        .ifPresent(expiration -> expiration.setExpiresAfter(newConfig.getExpireAfterWrite(), TimeUnit.SECONDS)));
+            }
+            // Redis写入的过期时间取自expireAfterWrite，在包装层创建时确定
+            boolean ttlChanged = newConfig.isRedisWriteTtlEnabled() && diff.contains(CacheConfigDiff.Knob.EXPIRE_AFTER_WRITE);
+            if (diff.requires(CacheConfigDiff.ApplyMode.TIER) || ttlChanged) {
+                redecorateAllCaches();
+            }
+        }
+        // long键缓存不受存储形态配置影响，总是在原实例上调整
+        applyLongKeyCacheDiff(diff);
+
+        if (diff.contains(CacheConfigDiff.Knob.HOT_KEY_SNAPSHOT_INTERVAL_SECONDS)) {
+            scheduleHotKeySnapshots();
+        }
+        // 移除监听在移除时读取当前的移除原因，队列在下次使用时按新参数创建
+        if (diff.contains(CacheConfigDiff.Knob.PERSISTENCE_DELETE_CAUSES)) {
+            persistenceDeleteCauses = parseRemovalCauses(newConfig.getPersistenceDeleteCauses());
+        }
+        if (diff.contains(CacheConfigDiff.Knob.PERSISTENCE_DELETE_BATCH_SIZE) ||
+            diff.contains(CacheConfigDiff.Knob.PERSISTENCE_DELETE_FLUSH_INTERVAL_MILLIS)) {
+            resetPersistenceDeleteQueue();
+        }
+        if (diff.requires(CacheConfigDiff.ApplyMode.RESTART)) {
+            logger.warn("部分配置只在重新创建缓存管理器后生效: {}", diff);
+        }
+    }
+
+    /**
+     * 在原实例上调整所有long键缓存的容量上限、过期时间和持久化写入器
+     * @param diff 配置差异
+     */
+    private void applyLongKeyCacheDiff(CacheConfigDiff diff) {
+        CacheConfig.Snapshot newConfig = diff.getNewConfig();
+        if (diff.contains(CacheConfigDiff.Knob.MAXIMUM_SIZE)) {
+            long durationMillis = TimeUnit.SECONDS.toMillis(newConfig.getResizeDurationSeconds());
+            longKeyCacheContainer.forEach((cacheName, cache) -> longKeyResizer.resize(cacheName,
+                    cache.getMaximumSize(), cache.estimatedSize(), cache::setMaximumSize, newConfig.getMaximumSize(),
+                    durationMillis, newConfig.getResizeMaxEvictionsPerSecond()));
+        }
+        if (diff.contains(CacheConfigDiff.Knob.EXPIRE_AFTER_WRITE)) {
+            longKeyCacheContainer.values().forEach(cache ->
+                    cache.setExpireAfterWrite(newConfig.getExpireAfterWrite(), TimeUnit.SECONDS));
+        }
+        if (persistenceManager != null && diff.contains(CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED)) {
+            longKeyCacheContainer.forEach((cacheName, cache) -> cache.setWriter(newConfig.isAutoPersistenceEnabled()
+                    ? new CacheWriterAdapter<>(cacheName, persistenceManager) : null));
         }
     }
 
+    /**
+     * 在原底层实例上按当前配置重新挂载所有包装层，数据不迁移
+     */
+    private void redecorateAllCaches() {
+        baseCaches.forEach((cacheName, base) -> cacheContainer.put(cacheName, decorateCache(cacheName, base, false)));
+    }
+
     /**
      * 处理配置变更事件
      * @param newConfig 新配置
@@ -149,6 +804,71 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
         }
     }
     
+    /**
+     * 按新配置原地调整所有缓存的容量上限
+     * 扩容立即生效；缩容按resizeDurationSeconds和resizeMaxEvictionsPerSecond在后台分步进行，
+     * 两者都为0时立即生效。
+     * @param settings 新配置
+     */
+    private void resizeAllCaches(CacheConfig.Snapshot settings) {
+        long durationMillis = TimeUnit.SECONDS.toMillis(settings.getResizeDurationSeconds());
+        cacheContainer.forEach((cacheName, cache) -> resizer.resize(cacheName, cache, settings.getMaximumSize(),
+                durationMillis, settings.getResizeMaxEvictionsPerSecond()));
+    }
+
+    /**
+     * 缓存是否正在分步缩容
+     * @param cacheName 缓存名称
+     * @return 缩容进行中时返回true
+     */
+    public boolean isResizing(String cacheName) {
+        return resizer.isResizing(cacheName);
+    }
+
+    /**
+     * 关闭缓存管理器，停止所有后台线程
+     * Redis批量写入器和持久化批量删除队列先处理完剩余条目，再关闭持久化数据库和堆外缓存；
+     * 缓存实例仍可读写，但不再同步到Redis，淘汰也不再删除持久化数据。重复调用将被忽略
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (hotKeySnapshotTask != null) {
+                hotKeySnapshotTask.cancel(false);
+                hotKeySnapshotTask = null;
+            }
+            if (hotKeyScheduler != null) {
+                hotKeyScheduler.shutdown();
+                hotKeyScheduler = null;
+            }
+        }
+        resizer.shutdown();
+        longKeyResizer.shutdown();
+        resetRedisBatchWriter();
+        resetRedisBatchReader();
+        resetPersistenceDeleteQueue();
+        if (persistenceManager != null) {
+            persistenceManager.shutdown();
+        }
+        if (offHeapCacheManager != null) {
+            offHeapCacheManager.shutdown();
+        }
+        logger.info("缓存管理器已关闭");
+    }
+
+    /**
+     * 缓存管理器是否已关闭
+     * @return 已关闭返回true
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
     /**
      * 重建所有缓存
      */
@@ -159,13 +879,20 @@ public class CaffeineCacheManager implements CacheConfigChangeListener {
             allCacheData.put(cacheName, new ConcurrentHashMap<>(cache.asMap()));
         });
         
-        // 清空现有缓存容器
+        // 清空现有缓存容器，数据已复制到堆内，旧的混合模式实例归还堆外内存
         cacheContainer.clear();
+        baseCaches.values().forEach(CaffeineCacheManager::retireBaseCache);
+        baseCaches.clear();
+        // 存储区按当前容量重新创建
+        synchronized (offHeapValueArenaLock) {
+            offHeapValueArena = null;
+        }
         
         // 重建缓存并恢复数据
         allCacheData.forEach((cacheName, data) -> {
             Cache<Object, Object> newCache = getCache(cacheName);
-            newCache.putAll(data);
+            // 通过asMap恢复，不把已有数据再次写入Redis
+            newCache.asMap().putAll(data);
         });
     }
 
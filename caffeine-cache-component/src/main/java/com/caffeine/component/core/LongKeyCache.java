@@ -0,0 +1,770 @@
+package com.caffeine.component.core;
+
+import com.caffeine.component.persistence.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * long键缓存
+ * 以原始long作为键，避免Long装箱；按键分段，每段是一个线性探测的开放寻址表。
+ * 读路径使用StampedLock乐观读，命中时不分配对象；容量超限时按CLOCK算法淘汰，过期条目在读取时视为未命中并在写入或清理时移除。
+ * 容量上限按段均分，总条目数为近似上限；容量上限和过期时间可在原实例上调整。
+ * 写入器在段锁外调用，同一个键的写入器调用按键分段加锁串行，调用前确认缓存中的值仍与本次操作的结果一致；
+ * 淘汰和过期移除不调用写入器，而是通知移除监听器。
+ */
+public class LongKeyCache<V> {
+    // 最大分段数
+    private static final int MAX_SEGMENTS = 16;
+    // 单段表的初始长度
+    private static final int INITIAL_TABLE_LENGTH = 16;
+    // 表的最大装载因子
+    private static final float LOAD_FACTOR = 0.75f;
+    // 全量失效时每批删除的持久化条目数
+    private static final int DELETE_CHUNK_SIZE = 1000;
+    // 写入器调用的分段锁数，必须是2的幂
+    private static final int LOCK_STRIPES = 64;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    // 容量上限
+    private volatile long maximumSize;
+    // 写入后过期时间(纳秒)，小于等于0表示不过期
+    private volatile long expireAfterWriteNanos;
+    // 自动持久化写入器，可为null
+    private volatile CacheWriter<Object, Object> writer;
+    // 淘汰和过期的移除监听器，可为null
+    private final RemovalListener removalListener;
+    // 写入器调用的分段锁
+    private final ReentrantLock[] writerLocks;
+    // 命中与未命中计数
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * 构造函数
+     * @param maximumSize 最大条目数
+     * @param expireAfterWrite 写入后过期时间，小于等于0表示不过期
+     * @param unit 时间单位
+     */
+    public LongKeyCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this(maximumSize, expireAfterWrite, unit, null);
+    }
+
+    /**
+     * 构造函数
+     * @param maximumSize 最大条目数
+     * @param expireAfterWrite 写入后过期时间，小于等于0表示不过期
+     * @param unit 时间单位
+     * @param writer 自动持久化写入器，可为null
+     */
+    public LongKeyCache(long maximumSize, long expireAfterWrite, TimeUnit unit, CacheWriter<Object, Object> writer) {
+        this(maximumSize, expireAfterWrite, unit, writer, null);
+    }
+
+    /**
+     * 构造函数
+     * @param maximumSize 最大条目数，段数按初始值确定，之后调整上限时不变
+     * @param expireAfterWrite 写入后过期时间，小于等于0表示不过期
+     * @param unit 时间单位
+     * @param writer 自动持久化写入器，可为null
+     * @param removalListener 淘汰和过期的移除监听器，可为null
+     */
+    @SuppressWarnings("unchecked")
+    public LongKeyCache(long maximumSize, long expireAfterWrite, TimeUnit unit, CacheWriter<Object, Object> writer,
+                        RemovalListener removalListener) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize必须大于0: " + maximumSize);
+        }
+        int segmentCount = (int) Math.min(MAX_SEGMENTS, Long.highestOneBit(maximumSize));
+        int perSegment = perSegment(maximumSize, segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment, removalListener);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWrite > 0 ? unit.toNanos(expireAfterWrite) : 0;
+        this.writer = writer;
+        this.removalListener = removalListener;
+        this.writerLocks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            writerLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 淘汰和过期移除的监听器
+     * 在移除条目的线程上、持有该条目所在段的写锁时同步调用，应只做入队等轻量操作，不能访问本缓存
+     */
+    @FunctionalInterface
+    public interface RemovalListener {
+        /**
+         * @param key 被移除的键
+         * @param cause 移除原因，{@link RemovalCause#SIZE}或{@link RemovalCause#EXPIRED}
+         */
+        void onRemoval(long key, RemovalCause cause);
+    }
+
+    private static int perSegment(long maximumSize, int segmentCount) {
+        long perSegment = (maximumSize + segmentCount - 1) / segmentCount;
+        if (perSegment > (1 << 29)) {
+            throw new IllegalArgumentException("maximumSize过大: " + maximumSize);
+        }
+        return (int) perSegment;
+    }
+
+    /**
+     * 在原实例上调整容量上限
+     * 缩容时各段立即按CLOCK算法淘汰超出的条目并收缩表，淘汰的条目通知移除监听器；需要分步缩容时由调用方逐步降低上限
+     * @param maximumSize 最大条目数
+     */
+    public void setMaximumSize(long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize必须大于0: " + maximumSize);
+        }
+        int perSegment = perSegment(maximumSize, segments.length);
+        this.maximumSize = maximumSize;
+        long now = now();
+        for (Segment<V> segment : segments) {
+            segment.setMaxEntries(perSegment, now, expireAfterWriteNanos);
+        }
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 在原实例上调整写入后过期时间，已有条目按原写入时间计算是否过期
+     * @param expireAfterWrite 写入后过期时间，小于等于0表示不过期
+     * @param unit 时间单位
+     */
+    public void setExpireAfterWrite(long expireAfterWrite, TimeUnit unit) {
+        this.expireAfterWriteNanos = expireAfterWrite > 0 ? unit.toNanos(expireAfterWrite) : 0;
+    }
+
+    /**
+     * 设置自动持久化写入器，之后的写入和删除生效
+     * @param writer 写入器，可为null
+     */
+    public void setWriter(CacheWriter<Object, Object> writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * 获取缓存值
+     * @param key 键
+     * @return 值，不存在或已过期时返回null
+     */
+    public V get(long key) {
+        long hash = hash(key);
+        V value = segmentFor(hash).get(key, hash, now(), expireAfterWriteNanos);
+        if (value == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 获取缓存值，不存在时通过映射函数计算并写入
+     * @param key 键
+     * @param mappingFunction 映射函数，返回null时不写入
+     * @return 值
+     */
+    public V get(long key, LongFunction<? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        long hash = hash(key);
+        V created = segmentFor(hash).computeIfAbsent(key, hash, System.nanoTime(), expireAfterWriteNanos, mappingFunction);
+        if (created != null) {
+            written(key, hash, created);
+        }
+        return created;
+    }
+
+    /**
+     * 是否包含未过期的条目，不计入命中统计
+     * @param key 键
+     * @return 包含时返回true
+     */
+    public boolean containsKey(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash, now(), expireAfterWriteNanos) != null;
+    }
+
+    /**
+     * 批量获取缓存值
+     * @param keys 键数组
+     * @param values 与键数组等长的结果数组，未命中的位置填null
+     * @return 结果数组
+     */
+    public V[] getAll(long[] keys, V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("结果数组长度不足: " + values.length + " < " + keys.length);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = get(keys[i]);
+        }
+        return values;
+    }
+
+    /**
+     * 写入缓存
+     * @param key 键
+     * @param value 值
+     */
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = hash(key);
+        // 写入时总是记录写入时间，之后开启过期时按实际写入时间计算
+        segmentFor(hash).put(key, hash, value, System.nanoTime(), expireAfterWriteNanos);
+        written(key, hash, value);
+    }
+
+    /**
+     * 批量写入缓存
+     * @param keys 键数组
+     * @param values 与键数组等长的值数组
+     */
+    public void putAll(long[] keys, V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("值数组长度不足: " + values.length + " < " + keys.length);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * 删除缓存条目
+     * @param key 键
+     */
+    public void invalidate(long key) {
+        long hash = hash(key);
+        V removed = segmentFor(hash).remove(key, hash);
+        if (removed != null) {
+            deleted(key, hash, removed);
+        }
+    }
+
+    /**
+     * 值写入缓存后调用写入器，缓存中的值已被并发替换为不相等的值或已删除时由那次操作调用写入器
+     */
+    private void written(long key, long hash, V value) {
+        CacheWriter<Object, Object> current = writer;
+        if (current == null) {
+            return;
+        }
+        ReentrantLock lock = writerLockFor(hash);
+        lock.lock();
+        try {
+            V cached = segmentFor(hash).get(key, hash, now(), expireAfterWriteNanos);
+            if (Objects.equals(cached, value)) {
+                current.write(key, cached);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 条目删除后调用写入器，键已被重新写入时不删除
+     */
+    private void deleted(long key, long hash, V oldValue) {
+        CacheWriter<Object, Object> current = writer;
+        if (current == null) {
+            return;
+        }
+        ReentrantLock lock = writerLockFor(hash);
+        lock.lock();
+        try {
+            if (segmentFor(hash).get(key, hash, now(), expireAfterWriteNanos) == null) {
+                current.delete(key, oldValue);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock writerLockFor(long hash) {
+        return writerLocks[(int) hash & (LOCK_STRIPES - 1)];
+    }
+
+    // 批量调用写入器时持有全部分段锁，按固定顺序获取，不会与单键操作死锁
+    private void lockAllWriters() {
+        for (ReentrantLock lock : writerLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAllWriters() {
+        for (int i = writerLocks.length - 1; i >= 0; i--) {
+            writerLocks[i].unlock();
+        }
+    }
+
+    /**
+     * 清空缓存
+     * 有写入器时同步删除持久化数据：写入器支持时清空后只调用一次{@link CacheWriter#truncate()}，并重新写入清空期间并发写入的条目；
+     * 否则按段取出被清空的条目，逐批调用{@link CacheWriter#deleteAll}，已被重新写入的键不删除。写入器在段锁外调用
+     */
+    public void invalidateAll() {
+        CacheWriter<Object, Object> current = writer;
+        if (current == null || current.supportsTruncate()) {
+            for (Segment<V> segment : segments) {
+                segment.clear();
+            }
+            if (current != null) {
+                lockAllWriters();
+                try {
+                    current.truncate();
+                    forEach((value, key) -> current.write(key, value));
+                } finally {
+                    unlockAllWriters();
+                }
+            }
+            return;
+        }
+        Map<Object, Object> chunk = new HashMap<>(DELETE_CHUNK_SIZE * 2);
+        for (Segment<V> segment : segments) {
+            // 清空后旧表不再被修改，可在锁外遍历
+            Table removed = segment.clear();
+            for (int i = 0; i <= removed.mask; i++) {
+                if (removed.values[i] == null) {
+                    continue;
+                }
+                chunk.put(removed.keys[i], removed.values[i]);
+                if (chunk.size() == DELETE_CHUNK_SIZE) {
+                    deletedChunk(current, chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            deletedChunk(current, chunk);
+        }
+    }
+
+    /**
+     * 一块条目删除后调用一次写入器，已被重新写入的键不删除
+     */
+    private void deletedChunk(CacheWriter<Object, Object> current, Map<Object, Object> chunk) {
+        lockAllWriters();
+        try {
+            chunk.keySet().removeIf(key -> containsKey((Long) key));
+            if (!chunk.isEmpty()) {
+                current.deleteAll(chunk);
+            }
+        } finally {
+            unlockAllWriters();
+        }
+    }
+
+    /**
+     * 移除所有已过期的条目，移除的条目通知移除监听器
+     */
+    public void cleanUp() {
+        if (expireAfterWriteNanos <= 0) {
+            return;
+        }
+        long now = now();
+        for (Segment<V> segment : segments) {
+            segment.removeExpired(now, expireAfterWriteNanos);
+        }
+    }
+
+    /**
+     * 估算条目数(可能包含尚未清理的过期条目)
+     * @return 条目数
+     */
+    public long estimatedSize() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * 遍历所有未过期的条目
+     * @param action 处理函数，参数为值和键
+     */
+    public void forEach(ObjLongConsumer<? super V> action) {
+        long now = now();
+        for (Segment<V> segment : segments) {
+            segment.forEach(action, now, expireAfterWriteNanos);
+        }
+    }
+
+    /**
+     * 复制所有未过期的条目，用于持久化和堆外存储等需要对象键的场景
+     * @return 条目快照
+     */
+    public Map<Long, V> snapshot() {
+        Map<Long, V> snapshot = new HashMap<>((int) Math.min(Integer.MAX_VALUE, estimatedSize() * 2));
+        forEach((value, key) -> snapshot.put(key, value));
+        return snapshot;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    // 读取时的当前时间，不过期时不读取时钟
+    private long now() {
+        return expireAfterWriteNanos > 0 ? System.nanoTime() : 0;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[segmentShift == 64 ? 0 : (int) (hash >>> segmentShift)];
+    }
+
+    static long hash(long key) {
+        // MurmurHash3 finalizer
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 表结构，扩容时整体替换，保证乐观读看到的数组彼此一致
+     */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final long[] writeTimes;
+        final boolean[] referenced;
+        final int mask;
+
+        Table(int length) {
+            this.keys = new long[length];
+            this.values = new Object[length];
+            this.writeTimes = new long[length];
+            this.referenced = new boolean[length];
+            this.mask = length - 1;
+        }
+    }
+
+    /**
+     * 分段：线性探测开放寻址表，值为null表示空槽
+     */
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        // 淘汰和过期的移除监听器，可为null
+        private final RemovalListener removalListener;
+        // 段内最大条目数，由写锁保护
+        private int maxEntries;
+        // 表的最大长度，由写锁保护
+        private int maxTableLength;
+        private volatile Table table;
+        private volatile int size;
+        // CLOCK淘汰指针
+        private int hand;
+
+        Segment(int maxEntries, RemovalListener removalListener) {
+            this.maxEntries = maxEntries;
+            this.maxTableLength = tableLengthFor(maxEntries);
+            this.removalListener = removalListener;
+            this.table = new Table(Math.min(INITIAL_TABLE_LENGTH, maxTableLength));
+        }
+
+        /**
+         * 调整段内最大条目数，淘汰超出的条目，表长超过新的最大长度时收缩
+         */
+        void setMaxEntries(int maxEntries, long now, long expireNanos) {
+            long stamp = lock.writeLock();
+            try {
+                this.maxEntries = maxEntries;
+                this.maxTableLength = tableLengthFor(maxEntries);
+                Table t = table;
+                while (size > maxEntries) {
+                    evictOne(t, now, expireNanos);
+                }
+                if (t.keys.length > maxTableLength) {
+                    rehash(t, maxTableLength);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V get(long key, long hash, long now, long expireNanos) {
+            long stamp = lock.tryOptimisticRead();
+            V value = find(table, key, hash, now, expireNanos);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    value = find(table, key, hash, now, expireNanos);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        V computeIfAbsent(long key, long hash, long now, long expireNanos, LongFunction<? extends V> mappingFunction) {
+            long stamp = lock.writeLock();
+            try {
+                V existing = find(table, key, hash, now, expireNanos);
+                if (existing != null) {
+                    return existing;
+                }
+                V value = mappingFunction.apply(key);
+                if (value != null) {
+                    insert(key, hash, value, now, expireNanos);
+                }
+                return value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void put(long key, long hash, V value, long now, long expireNanos) {
+            long stamp = lock.writeLock();
+            try {
+                insert(key, hash, value, now, expireNanos);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V remove(long key, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int index = indexOf(t, key, hash);
+                if (index < 0) {
+                    return null;
+                }
+                @SuppressWarnings("unchecked")
+                V removed = (V) t.values[index];
+                removeAt(t, index);
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 清空分段
+         * @return 清空前的表
+         */
+        Table clear() {
+            long stamp = lock.writeLock();
+            try {
+                Table old = table;
+                table = new Table(Math.min(INITIAL_TABLE_LENGTH, maxTableLength));
+                size = 0;
+                hand = 0;
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void removeExpired(long now, long expireNanos) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                for (int i = 0; i <= t.mask; ) {
+                    if (t.values[i] != null && now - t.writeTimes[i] >= expireNanos) {
+                        long key = t.keys[i];
+                        // 删除后可能有条目移入当前位置，需要重新检查
+                        removeAt(t, i);
+                        notifyRemoval(key, RemovalCause.EXPIRED);
+                    } else {
+                        i++;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(ObjLongConsumer<? super V> action, long now, long expireNanos) {
+            long stamp = lock.readLock();
+            try {
+                Table t = table;
+                for (int i = 0; i <= t.mask; i++) {
+                    Object value = t.values[i];
+                    if (value != null && !isExpired(t, i, now, expireNanos)) {
+                        action.accept((V) value, t.keys[i]);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V find(Table t, long key, long hash, long now, long expireNanos) {
+            int mask = t.mask;
+            int index = (int) hash & mask;
+            // 以表长为界，防止乐观读期间看到不一致的表状态时无限探测
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = t.values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (t.keys[index] == key) {
+                    if (isExpired(t, index, now, expireNanos)) {
+                        return null;
+                    }
+                    t.referenced[index] = true;
+                    return (V) value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private int indexOf(Table t, long key, long hash) {
+            int index = (int) hash & t.mask;
+            while (t.values[index] != null) {
+                if (t.keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & t.mask;
+            }
+            return -1;
+        }
+
+        private void insert(long key, long hash, V value, long now, long expireNanos) {
+            Table t = table;
+            int index = indexOf(t, key, hash);
+            if (index >= 0) {
+                t.values[index] = value;
+                t.writeTimes[index] = now;
+                t.referenced[index] = true;
+                return;
+            }
+            if (size >= maxEntries) {
+                evictOne(t, now, expireNanos);
+            } else if (size + 1 > t.keys.length * LOAD_FACTOR && t.keys.length < maxTableLength) {
+                t = resize(t);
+            }
+            index = (int) hash & t.mask;
+            while (t.values[index] != null) {
+                index = (index + 1) & t.mask;
+            }
+            t.keys[index] = key;
+            t.values[index] = value;
+            t.writeTimes[index] = now;
+            t.referenced[index] = false;
+            size++;
+        }
+
+        /**
+         * CLOCK淘汰：优先移除过期条目，其次移除最近未被访问的条目
+         */
+        private void evictOne(Table t, long now, long expireNanos) {
+            for (;;) {
+                int index = hand;
+                hand = (hand + 1) & t.mask;
+                if (t.values[index] == null) {
+                    continue;
+                }
+                boolean expired = isExpired(t, index, now, expireNanos);
+                if (t.referenced[index] && !expired) {
+                    t.referenced[index] = false;
+                    continue;
+                }
+                long key = t.keys[index];
+                removeAt(t, index);
+                notifyRemoval(key, expired ? RemovalCause.EXPIRED : RemovalCause.SIZE);
+                return;
+            }
+        }
+
+        private void notifyRemoval(long key, RemovalCause cause) {
+            if (removalListener != null) {
+                removalListener.onRemoval(key, cause);
+            }
+        }
+
+        private Table resize(Table old) {
+            return rehash(old, old.keys.length * 2);
+        }
+
+        private Table rehash(Table old, int length) {
+            Table t = new Table(length);
+            for (int i = 0; i <= old.mask; i++) {
+                if (old.values[i] != null) {
+                    int index = (int) hash(old.keys[i]) & t.mask;
+                    while (t.values[index] != null) {
+                        index = (index + 1) & t.mask;
+                    }
+                    t.keys[index] = old.keys[i];
+                    t.values[index] = old.values[i];
+                    t.writeTimes[index] = old.writeTimes[i];
+                    t.referenced[index] = old.referenced[i];
+                }
+            }
+            table = t;
+            hand = 0;
+            return t;
+        }
+
+        /**
+         * 删除指定位置的条目，并将后续探测链上的条目回移，避免使用墓碑标记
+         */
+        private void removeAt(Table t, int index) {
+            int mask = t.mask;
+            int hole = index;
+            int next = index;
+            for (;;) {
+                next = (next + 1) & mask;
+                if (t.values[next] == null) {
+                    break;
+                }
+                int home = (int) hash(t.keys[next]) & mask;
+                boolean stays = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+                if (!stays) {
+                    t.keys[hole] = t.keys[next];
+                    t.values[hole] = t.values[next];
+                    t.writeTimes[hole] = t.writeTimes[next];
+                    t.referenced[hole] = t.referenced[next];
+                    hole = next;
+                }
+            }
+            t.values[hole] = null;
+            size--;
+        }
+
+        private static boolean isExpired(Table t, int index, long now, long expireNanos) {
+            return expireNanos > 0 && now - t.writeTimes[index] >= expireNanos;
+        }
+
+        private static int tableLengthFor(int maxEntries) {
+            int length = Integer.highestOneBit((int) Math.ceil(maxEntries / LOAD_FACTOR));
+            while (length * LOAD_FACTOR < maxEntries + 1) {
+                length <<= 1;
+            }
+            return Math.max(length, 2);
+        }
+    }
+}
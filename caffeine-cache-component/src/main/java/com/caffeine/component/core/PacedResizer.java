@@ -0,0 +1,220 @@
+package com.caffeine.component.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * 缓存容量上限的分步调整
+ * 缩容时不一次把上限降到目标值(会在一次维护中淘汰大量条目，造成停顿并集中触发移除回调)，
+ * 而是在后台线程上每隔{@link #STEP_INTERVAL_MILLIS}毫秒降低一步，在给定时长内降到目标值；
+ * 设置每秒最大淘汰数时每步的降幅不超过该速率，总时长可能因此超过给定时长。
+ * 淘汰在调整线程上执行，不占用请求线程。扩容总是立即生效。
+ * 只处理按条目数淘汰的缓存，按权重淘汰(如混合模式)或无上限的缓存会被忽略；
+ * 其他按条目数淘汰的缓存(如long键缓存)通过设置上限的回调调整。
+ */
+public class PacedResizer {
+    private static final Logger logger = LoggerFactory.getLogger(PacedResizer.class);
+    // 每步的间隔(毫秒)
+    static final long STEP_INTERVAL_MILLIS = 100;
+
+    // 进行中的调整，键为缓存名称
+    private final Map<String, ResizeTask> tasks = new ConcurrentHashMap<>();
+    // 调整线程，按需创建
+    private ScheduledExecutorService scheduler;
+    // 是否已停止
+    private boolean shutdown;
+
+    /**
+     * 调整缓存的容量上限，同一缓存已有调整进行中时取消原调整
+     * @param cacheName 缓存名称
+     * @param cache 缓存实例
+     * @param maximumSize 目标上限
+     * @param durationMillis 缩容总时长(毫秒)，0表示不限
+     * @param maxEvictionsPerSecond 每秒最大淘汰数，0表示不限；与总时长都为0时立即生效
+     * @return 上限降到目标值时完成的Future；被新的调整取消时同样完成，调整出错时异常完成
+     */
+    public CompletableFuture<Void> resize(String cacheName, Cache<?, ?> cache, long maximumSize,
+                                          long durationMillis, long maxEvictionsPerSecond) {
+        Optional<? extends Policy.Eviction<?, ?>> evictionPolicy = cache.policy().eviction();
+        if (!evictionPolicy.isPresent() || evictionPolicy.get().isWeighted()) {
+            cancel(cacheName);
+            return CompletableFuture.completedFuture(null);
+        }
+        Policy.Eviction<?, ?> eviction = evictionPolicy.get();
+        return resize(cacheName, eviction.getMaximum(), cache.estimatedSize(), eviction::setMaximum,
+                maximumSize, durationMillis, maxEvictionsPerSecond);
+    }
+
+    /**
+     * 通过设置上限的回调调整缓存的容量上限，同一名称已有调整进行中时取消原调整
+     * @param cacheName 缓存名称，同时用于区分进行中的调整
+     * @param currentMaximum 当前上限
+     * @param estimatedSize 当前条目数
+     * @param setMaximum 设置上限的回调，在调用线程或调整线程上调用
+     * @param maximumSize 目标上限
+     * @param durationMillis 缩容总时长(毫秒)，0表示不限
+     * @param maxEvictionsPerSecond 每秒最大淘汰数，0表示不限；与总时长都为0时立即生效
+     * @return 上限降到目标值时完成的Future；被新的调整取消时同样完成，调整出错时异常完成
+     */
+    public CompletableFuture<Void> resize(String cacheName, long currentMaximum, long estimatedSize,
+                                          LongConsumer setMaximum, long maximumSize,
+                                          long durationMillis, long maxEvictionsPerSecond) {
+        cancel(cacheName);
+        // 从当前上限和当前条目数中较小的开始，条目数远低于上限时前几步不会空转
+        long start = Math.min(currentMaximum, estimatedSize);
+        ScheduledExecutorService executor = start <= maximumSize || (durationMillis <= 0 && maxEvictionsPerSecond <= 0)
+                ? null : getScheduler();
+        if (executor == null) {
+            setMaximum.accept(maximumSize);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long step = start - maximumSize;
+        if (durationMillis > 0) {
+            long steps = Math.max(1, durationMillis / STEP_INTERVAL_MILLIS);
+            step = (step + steps - 1) / steps;
+        }
+        if (maxEvictionsPerSecond > 0) {
+            step = Math.min(step, Math.max(1, maxEvictionsPerSecond * STEP_INTERVAL_MILLIS / 1000));
+        }
+
+        ResizeTask task = new ResizeTask(cacheName, setMaximum, start, maximumSize, step);
+        tasks.put(cacheName, task);
+        logger.info("开始逐步缩容: {}, {} -> {}, 每步 {}", cacheName, start, maximumSize, step);
+        try {
+            task.schedule = executor.scheduleWithFixedDelay(task::step, 0, STEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 调整线程已被并发停止，直接降到目标值
+            tasks.remove(cacheName, task);
+            task.finish();
+            setMaximum.accept(maximumSize);
+            return task.future;
+        }
+        if (task.future.isDone()) {
+            // 首步已在赋值前完成或被取消
+            task.schedule.cancel(false);
+        }
+        return task.future;
+    }
+
+    /**
+     * 缓存是否有调整进行中
+     * @param cacheName 缓存名称
+     * @return 进行中时返回true
+     */
+    public boolean isResizing(String cacheName) {
+        return tasks.containsKey(cacheName);
+    }
+
+    /**
+     * 取消缓存进行中的调整，已降低的上限保持不变
+     * @param cacheName 缓存名称
+     */
+    public void cancel(String cacheName) {
+        ResizeTask task = tasks.remove(cacheName);
+        if (task != null) {
+            task.finish();
+        }
+    }
+
+    /**
+     * 取消所有进行中的调整
+     */
+    public void cancelAll() {
+        tasks.keySet().forEach(this::cancel);
+    }
+
+    /**
+     * 取消所有进行中的调整并停止调整线程，之后的缩容立即生效
+     */
+    public void shutdown() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            shutdown = true;
+            executor = scheduler;
+            scheduler = null;
+        }
+        cancelAll();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 获取调整线程，已停止时返回null
+     */
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null && !shutdown) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-resize");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * 单个缓存的分步缩容
+     */
+    private final class ResizeTask {
+        private final String cacheName;
+        private final LongConsumer setMaximum;
+        private final long target;
+        private final long step;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        // 当前已设置的上限，只在调整线程上访问
+        private long current;
+        private volatile ScheduledFuture<?> schedule;
+
+        ResizeTask(String cacheName, LongConsumer setMaximum, long start, long target, long step) {
+            this.cacheName = cacheName;
+            this.setMaximum = setMaximum;
+            this.current = start;
+            this.target = target;
+            this.step = step;
+        }
+
+        void step() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                current = Math.max(target, current - step);
+                setMaximum.accept(current);
+            } catch (RuntimeException e) {
+                logger.warn("逐步缩容失败，上限停在 {}: {}", current, cacheName, e);
+                tasks.remove(cacheName, this);
+                future.completeExceptionally(e);
+                finish();
+                return;
+            }
+            if (current == target) {
+                tasks.remove(cacheName, this);
+                finish();
+                logger.info("逐步缩容完成: {}, 上限 {}", cacheName, target);
+            }
+        }
+
+        void finish() {
+            ScheduledFuture<?> scheduled = schedule;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            future.complete(null);
+        }
+    }
+}
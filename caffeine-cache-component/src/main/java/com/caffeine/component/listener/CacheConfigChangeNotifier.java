@@ -1,53 +1,340 @@
 package com.caffeine.component.listener;
 
 import com.caffeine.component.config.CacheConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 缓存配置变更通知器
+ * 变更异步分发：每个监听器有独立的串行队列，在共享的后台线程池上依次应用，
+ * 慢监听器不会阻塞调用线程和其他监听器。同一监听器队列中尚未应用的同名缓存变更会被合并，只应用最新的一次。
+ * 监听器可按缓存名称注册，变更只路由到该名称的监听器(按名称索引，与监听器总数无关)；
+ * 不带名称注册的为通配监听器，接收所有变更，用于全局设置。
  */
 @Component
 public class CacheConfigChangeNotifier {
-    
-    // 使用线程安全的集合存储监听器
-    private final List<CacheConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
-    
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfigChangeNotifier.class);
+
+    // 所有监听器的分发队列，按注册顺序
+    private final List<ListenerDispatcher> dispatchers = new CopyOnWriteArrayList<>();
+    // 监听器到分发队列的索引，由通知器的锁保护
+    private final Map<CacheConfigChangeListener, ListenerDispatcher> dispatcherByListener = new HashMap<>();
+    // 按缓存名称索引的监听器
+    private final Map<String, List<ListenerDispatcher>> dispatchersByName = new ConcurrentHashMap<>();
+    // 通配监听器，接收所有缓存的变更
+    private final List<ListenerDispatcher> wildcardDispatchers = new CopyOnWriteArrayList<>();
+    // 分发线程池，各监听器的队列在其上串行执行
+    private final ExecutorService executor;
+
+    public CacheConfigChangeNotifier() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "config-change-dispatch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 注册通配监听器，接收所有缓存的配置变更
+     * @param listener 监听器
+     */
+    public synchronized void registerListener(CacheConfigChangeListener listener) {
+        if (listener == null) {
+            return;
+        }
+        ListenerDispatcher dispatcher = getOrCreateDispatcher(listener);
+        if (!dispatcher.wildcard) {
+            dispatcher.wildcard = true;
+            wildcardDispatchers.add(dispatcher);
+        }
+    }
+
+    /**
+     * 按缓存名称注册监听器，只接收该缓存的配置变更；同一监听器可注册多个名称
+     * @param cacheName 缓存名称
+     * @param listener 监听器
+     */
+    public synchronized void registerListener(String cacheName, CacheConfigChangeListener listener) {
+        if (cacheName == null) {
+            registerListener(listener);
+            return;
+        }
+        if (listener == null) {
+            return;
+        }
+        ListenerDispatcher dispatcher = getOrCreateDispatcher(listener);
+        if (dispatcher.cacheNames.add(cacheName)) {
+            dispatchersByName.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(dispatcher);
+        }
+    }
+
     /**
-     * 注册监听器
+     * 移除监听器的所有订阅，其队列中尚未应用的变更被丢弃
      * @param listener 监听器
      */
-    public void registerListener(CacheConfigChangeListener listener) {
-        if (listener != null && !listeners.contains(listener)) {
-            listeners.add(listener);
+    public synchronized void removeListener(CacheConfigChangeListener listener) {
+        ListenerDispatcher dispatcher = listener == null ? null : dispatcherByListener.get(listener);
+        if (dispatcher == null) {
+            return;
         }
+        for (String cacheName : dispatcher.cacheNames) {
+            unindex(cacheName, dispatcher);
+        }
+        dispatcher.cacheNames.clear();
+        wildcardDispatchers.remove(dispatcher);
+        dispatchers.remove(dispatcher);
+        dispatcherByListener.remove(listener);
+        dispatcher.close();
     }
-    
+
     /**
-     * 移除监听器
+     * 取消监听器对指定缓存名称的订阅，监听器没有其他订阅时一并移除
+     * @param cacheName 缓存名称
      * @param listener 监听器
      */
-    public void removeListener(CacheConfigChangeListener listener) {
-        if (listener != null) {
-            listeners.remove(listener);
+    public synchronized void removeListener(String cacheName, CacheConfigChangeListener listener) {
+        ListenerDispatcher dispatcher = listener == null ? null : dispatcherByListener.get(listener);
+        if (dispatcher == null || !dispatcher.cacheNames.remove(cacheName)) {
+            return;
+        }
+        unindex(cacheName, dispatcher);
+        if (dispatcher.cacheNames.isEmpty() && !dispatcher.wildcard) {
+            removeListener(listener);
         }
     }
-    
+
     /**
-     * 通知所有监听器配置变更
+     * 通知所有监听器配置变更，立即返回
+     * 入队时复制配置，调用方之后对传入对象的修改不会影响本次通知；未设置版本号的配置在入队时分配版本号，
+     * 投递延迟的变更不会在之后发起的变更应用后回滚配置
      * @param config 变更后的缓存配置
+     * @return 所有监听器应用完成(或本变更被更新的同名变更合并后应用完成)时完成的Future；
+     * 任一监听器处理失败时异常完成
      */
-    public void notifyConfigChange(CacheConfig config) {
-        for (CacheConfigChangeListener listener : listeners) {
+    public CompletableFuture<Void> notifyConfigChange(CacheConfig config) {
+        if (config == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CacheConfig copy = new CacheConfig();
+        copy.update(config);
+        if (copy.getVersion() == 0) {
+            copy.setVersion(CacheConfig.nextVersion(0));
+        }
+        List<ListenerDispatcher> named = config.getName() == null ? null : dispatchersByName.get(config.getName());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        if (named != null) {
+            for (ListenerDispatcher dispatcher : named) {
+                // 同时是通配监听器的在下面统一入队，避免重复应用
+                if (!dispatcher.wildcard) {
+                    futures.add(dispatcher.enqueue(copy));
+                }
+            }
+        }
+        for (ListenerDispatcher dispatcher : wildcardDispatchers) {
+            futures.add(dispatcher.enqueue(copy));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 获取各监听器的分发统计
+     * @return 统计快照列表，按注册顺序
+     */
+    public List<ListenerStats> getListenerStats() {
+        List<ListenerStats> stats = new ArrayList<>(dispatchers.size());
+        for (ListenerDispatcher dispatcher : dispatchers) {
+            stats.add(dispatcher.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 关闭分发线程池，等待已在执行的变更应用完成
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ListenerDispatcher getOrCreateDispatcher(CacheConfigChangeListener listener) {
+        ListenerDispatcher dispatcher = dispatcherByListener.get(listener);
+        if (dispatcher == null) {
+            dispatcher = new ListenerDispatcher(listener);
+            dispatcherByListener.put(listener, dispatcher);
+            dispatchers.add(dispatcher);
+        }
+        return dispatcher;
+    }
+
+    private void unindex(String cacheName, ListenerDispatcher dispatcher) {
+        List<ListenerDispatcher> named = dispatchersByName.get(cacheName);
+        if (named != null) {
+            named.remove(dispatcher);
+            if (named.isEmpty()) {
+                dispatchersByName.remove(cacheName);
+            }
+        }
+    }
+
+    /**
+     * 单个监听器的串行分发队列
+     */
+    private final class ListenerDispatcher {
+        private final CacheConfigChangeListener listener;
+        private final String name;
+        // 订阅的缓存名称和是否为通配监听器，由通知器的锁保护(wildcard在分发时无锁读取)
+        private final Set<String> cacheNames = new HashSet<>();
+        private volatile boolean wildcard;
+        // 待应用的变更，键为缓存名称，由自身锁保护
+        private final Map<String, PendingChange> pending = new LinkedHashMap<>();
+        // 是否已有排干队列的任务在线程池中，由pending的锁保护
+        private boolean draining;
+        private boolean closed;
+
+        private final LongAdder appliedCount = new LongAdder();
+        private final LongAdder coalescedCount = new LongAdder();
+        private final LongAdder failedCount = new LongAdder();
+        private final LongAdder totalApplyMillis = new LongAdder();
+        private volatile long lastApplyMillis;
+        private volatile long maxApplyMillis;
+
+        ListenerDispatcher(CacheConfigChangeListener listener) {
+            this.listener = listener;
+            this.name = listener.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(listener));
+        }
+
+        CompletableFuture<Void> enqueue(CacheConfig config) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            boolean schedule;
+            synchronized (pending) {
+                if (closed) {
+                    future.complete(null);
+                    return future;
+                }
+                PendingChange previous = pending.get(config.getName());
+                if (previous != null) {
+                    // 保留队列位置，被合并的调用方在保留的配置应用后一起完成；
+                    // 迟到的旧版本不覆盖已排队的新版本
+                    if (config.getVersion() >= previous.config.getVersion()) {
+                        previous.config = config;
+                    }
+                    previous.futures.add(future);
+                    coalescedCount.increment();
+                } else {
+                    pending.put(config.getName(), new PendingChange(config, future));
+                }
+                schedule = !draining;
+                draining = true;
+            }
+            if (schedule) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // 线程池已关闭时退化为在调用线程上应用
+                    logger.warn("配置变更分发线程池不可用，改为同步应用", e);
+                    drain();
+                }
+            }
+            return future;
+        }
+
+        private void drain() {
+            while (true) {
+                PendingChange change;
+                synchronized (pending) {
+                    Iterator<PendingChange> iterator = pending.values().iterator();
+                    if (closed || !iterator.hasNext()) {
+                        draining = false;
+                        return;
+                    }
+                    change = iterator.next();
+                    iterator.remove();
+                }
+                apply(change);
+            }
+        }
+
+        private void apply(PendingChange change) {
+            long start = System.nanoTime();
+            Throwable failure = null;
             try {
-                listener.onCacheConfigChanged(config);
+                listener.onCacheConfigChanged(change.config);
             } catch (Exception e) {
-                System.err.println("通知配置变更时发生错误: " + e.getMessage());
-                e.printStackTrace();
+                failure = e;
+                failedCount.increment();
+                logger.error("通知配置变更时发生错误: listener={}, cache={}", name, change.config.getName(), e);
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            appliedCount.increment();
+            totalApplyMillis.add(elapsedMillis);
+            lastApplyMillis = elapsedMillis;
+            if (elapsedMillis > maxApplyMillis) {
+                maxApplyMillis = elapsedMillis;
+            }
+            for (CompletableFuture<Void> future : change.futures) {
+                if (failure == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+
+        void close() {
+            List<PendingChange> dropped;
+            synchronized (pending) {
+                closed = true;
+                dropped = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+            for (PendingChange change : dropped) {
+                change.futures.forEach(future -> future.complete(null));
             }
         }
+
+        ListenerStats stats() {
+            int queueDepth;
+            synchronized (pending) {
+                queueDepth = pending.size();
+            }
+            return new ListenerStats(name, queueDepth, appliedCount.sum(), coalescedCount.sum(), failedCount.sum(),
+                    lastApplyMillis, maxApplyMillis, totalApplyMillis.sum());
+        }
+    }
+
+    /**
+     * 待应用的变更及等待它的调用方
+     */
+    private static final class PendingChange {
+        private CacheConfig config;
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+
+        PendingChange(CacheConfig config, CompletableFuture<Void> future) {
+            this.config = config;
+            this.futures.add(future);
+        }
     }
-}
\ No newline at end of file
+}
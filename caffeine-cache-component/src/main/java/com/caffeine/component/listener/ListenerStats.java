@@ -0,0 +1,83 @@
+package com.caffeine.component.listener;
+
+/**
+ * 配置变更监听器的分发统计快照
+ */
+public class ListenerStats {
+    private final String listenerName;
+    // 排队中(尚未应用)的变更数，同名缓存的变更已合并
+    private final int queueDepth;
+    private final long appliedCount;
+    private final long coalescedCount;
+    private final long failedCount;
+    // 监听器处理单个变更的耗时(毫秒)
+    private final long lastApplyMillis;
+    private final long maxApplyMillis;
+    private final long totalApplyMillis;
+
+    public ListenerStats(String listenerName, int queueDepth, long appliedCount, long coalescedCount,
+                         long failedCount, long lastApplyMillis, long maxApplyMillis, long totalApplyMillis) {
+        this.listenerName = listenerName;
+        this.queueDepth = queueDepth;
+        this.appliedCount = appliedCount;
+        this.coalescedCount = coalescedCount;
+        this.failedCount = failedCount;
+        this.lastApplyMillis = lastApplyMillis;
+        this.maxApplyMillis = maxApplyMillis;
+        this.totalApplyMillis = totalApplyMillis;
+    }
+
+    public String getListenerName() {
+        return listenerName;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * 已应用的变更数(含失败)
+     */
+    public long getAppliedCount() {
+        return appliedCount;
+    }
+
+    /**
+     * 被同名缓存的更新变更合并掉的变更数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public long getLastApplyMillis() {
+        return lastApplyMillis;
+    }
+
+    public long getMaxApplyMillis() {
+        return maxApplyMillis;
+    }
+
+    /**
+     * 平均处理耗时(毫秒)，尚未应用过变更时为0
+     */
+    public double getAverageApplyMillis() {
+        return appliedCount == 0 ? 0 : (double) totalApplyMillis / appliedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerStats{" +
+                "listenerName='" + listenerName + '\'' +
+                ", queueDepth=" + queueDepth +
+                ", appliedCount=" + appliedCount +
+                ", coalescedCount=" + coalescedCount +
+                ", failedCount=" + failedCount +
+                ", lastApplyMillis=" + lastApplyMillis +
+                ", maxApplyMillis=" + maxApplyMillis +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+package com.caffeine.component.offheap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 单次批量传输：调用线程负责遍历并切分批次，批次在传输线程池上并行写入目标。
+ * 在途批次数受信号量限制(并行度的两倍)，遍历速度超过写入速度时调用线程会被阻塞，避免批次在内存中堆积。
+ */
+class BatchTransfer {
+    private final Executor executor;
+    private final int batchSize;
+    private final Consumer<Map<Object, Object>> sink;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private Map<Object, Object> batch = new HashMap<>();
+    private long entries;
+    private long batches;
+
+    /**
+     * 构造函数
+     * @param executor 传输线程池
+     * @param parallelism 传输并行度
+     * @param batchSize 每批传输的条目数
+     * @param sink 批次写入函数，需线程安全
+     */
+    BatchTransfer(Executor executor, int parallelism, int batchSize, Consumer<Map<Object, Object>> sink) {
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+        this.sink = sink;
+        this.maxInFlight = Math.max(1, parallelism) * 2;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    void add(Object key, Object value) {
+        batch.put(key, value);
+        entries++;
+        if (batch.size() >= batchSize) {
+            submit();
+        }
+    }
+
+    /**
+     * 提交剩余的条目并等待所有批次完成
+     * @throws IllegalStateException 任一批次写入失败时抛出
+     */
+    void finish() {
+        if (!batch.isEmpty()) {
+            submit();
+        }
+        // 取回全部许可即表示所有在途批次已完成
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new IllegalStateException("堆内/堆外缓存批量传输失败", error);
+        }
+    }
+
+    long getEntries() {
+        return entries;
+    }
+
+    long getBatches() {
+        return batches;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    private void submit() {
+        Map<Object, Object> current = batch;
+        batch = new HashMap<>();
+        batches++;
+        inFlight.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        sink.accept(current);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.caffeine.component.offheap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 默认堆外值编解码器
+ * byte[]和String直接存储原始字节，其余类型使用Java序列化
+ */
+public class DefaultOffHeapValueCodec implements OffHeapValueCodec {
+    private static final byte TYPE_BYTES = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_SERIALIZED = 2;
+
+    @Override
+    public byte[] encode(Object value) {
+        if (value instanceof byte[]) {
+            return withType(TYPE_BYTES, (byte[]) value);
+        }
+        if (value instanceof String) {
+            return withType(TYPE_STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(TYPE_SERIALIZED);
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("值无法序列化到堆外存储: " + value.getClass().getName(), e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        switch (bytes[0]) {
+            case TYPE_BYTES:
+                return Arrays.copyOfRange(bytes, 1, bytes.length);
+            case TYPE_STRING:
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            case TYPE_SERIALIZED:
+                try (ObjectInputStream in = new ObjectInputStream(
+                        new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+                    return in.readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new IllegalStateException("堆外存储中的值反序列化失败", e);
+                }
+            default:
+                throw new IllegalStateException("未知的堆外值类型: " + bytes[0]);
+        }
+    }
+
+    private static byte[] withType(byte type, byte[] payload) {
+        byte[] bytes = new byte[payload.length + 1];
+        bytes[0] = type;
+        System.arraycopy(payload, 0, bytes, 1, payload.length);
+        return bytes;
+    }
+}
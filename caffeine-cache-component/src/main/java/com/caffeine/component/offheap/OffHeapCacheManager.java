@@ -8,28 +8,68 @@ import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.CacheManagerBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
 import org.ehcache.config.units.MemoryUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * 堆外缓存管理器
+ * 堆内与堆外之间的批量传输按批次切分，并在传输线程池上并行执行putAll
  */
 public class OffHeapCacheManager {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapCacheManager.class);
+
+    // 默认每批传输的条目数
+    private static final int DEFAULT_TRANSFER_BATCH_SIZE = 1000;
+
     // 缓存配置
     private final CacheConfig config;
     // EHCache管理器
     private final CacheManager cacheManager;
     // 缓存映射
     private final Map<String, org.ehcache.Cache<Object, Object>> offHeapCaches;
+    // 批量传输线程池
+    private final ExecutorService transferExecutor;
+    // 传输并行度
+    private final int transferParallelism;
+    // 每批传输的条目数
+    private final int transferBatchSize;
+    // 堆外 -> 堆内 传输统计
+    private final OffHeapTransferMetrics loadMetrics = new OffHeapTransferMetrics();
+    // 堆内 -> 堆外 传输统计
+    private final OffHeapTransferMetrics saveMetrics = new OffHeapTransferMetrics();
 
     /**
-     * 构造函数
+     * 构造函数，传输并行度默认为CPU核数
      * @param config 缓存配置
      */
     public OffHeapCacheManager(CacheConfig config) {
+        this(config, Runtime.getRuntime().availableProcessors(), DEFAULT_TRANSFER_BATCH_SIZE);
+    }
+
+    /**
+     * 构造函数，允许指定传输并行度和批次大小
+     * @param config 缓存配置
+     * @param transferParallelism 传输线程数
+     * @param transferBatchSize 每批传输的条目数
+     */
+    public OffHeapCacheManager(CacheConfig config, int transferParallelism, int transferBatchSize) {
         this.config = config;
-        this.offHeapCaches = new HashMap<>();
+        this.offHeapCaches = new ConcurrentHashMap<>();
+        this.transferParallelism = Math.max(1, transferParallelism);
+        this.transferBatchSize = Math.max(1, transferBatchSize);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.transferExecutor = Executors.newFixedThreadPool(this.transferParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "offheap-transfer-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
 
         // 初始化EHCache管理器
         this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
@@ -47,6 +87,15 @@ public class OffHeapCacheManager {
      * @param heapCache 堆缓存
      */
     public void saveFromHeapCache(String cacheName, Cache<Object, Object> heapCache) {
+        saveEntries(cacheName, heapCache.asMap());
+    }
+
+    /**
+     * 保存一组缓存条目到堆外缓存，覆盖堆外缓存中的原有数据
+     * @param cacheName 缓存名称
+     * @param entries 缓存条目
+     */
+    public void saveEntries(String cacheName, Map<?, ?> entries) {
         if (!config.isOffHeapCacheEnabled()) {
             return;
         }
@@ -57,10 +106,16 @@ public class OffHeapCacheManager {
         // 清空堆外缓存
         offHeapCache.clear();
 
-        // 将堆缓存中的数据保存到堆外缓存
-        heapCache.asMap().forEach((key, value) -> {
-            offHeapCache.put(key, value);
-        });
+        // 将堆缓存中的数据分批并行保存到堆外缓存
+        long start = System.nanoTime();
+        BatchTransfer transfer = newTransfer(offHeapCache::putAll);
+        entries.forEach(transfer::add);
+        transfer.finish();
+
+        long elapsed = System.nanoTime() - start;
+        saveMetrics.record(transfer.getEntries(), transfer.getBatches(), elapsed);
+        logger.info("堆缓存保存到堆外缓存完成: {}, 条目数: {}, 耗时: {}ms",
+                cacheName, transfer.getEntries(), elapsed / 1_000_000);
     }
 
     /**
@@ -69,6 +124,15 @@ public class OffHeapCacheManager {
      * @param heapCache 堆缓存
      */
     public void loadToHeapCache(String cacheName, Cache<Object, Object> heapCache) {
+        loadEntries(cacheName, heapCache::putAll);
+    }
+
+    /**
+     * 从堆外缓存分批读取条目，批次在传输线程池上并行交给处理函数
+     * @param cacheName 缓存名称
+     * @param batchConsumer 批次处理函数，需线程安全
+     */
+    public void loadEntries(String cacheName, Consumer<Map<Object, Object>> batchConsumer) {
         if (!config.isOffHeapCacheEnabled()) {
             return;
         }
@@ -79,10 +143,36 @@ public class OffHeapCacheManager {
             return;
         }
 
-        // 将堆外缓存中的数据加载到堆缓存
-        offHeapCache.forEach(entry -> {
-            heapCache.put(entry.getKey(), entry.getValue());
-        });
+        // 遍历堆外缓存，分批并行加载到堆缓存
+        long start = System.nanoTime();
+        BatchTransfer transfer = newTransfer(batchConsumer);
+        offHeapCache.forEach(entry -> transfer.add(entry.getKey(), entry.getValue()));
+        transfer.finish();
+
+        long elapsed = System.nanoTime() - start;
+        loadMetrics.record(transfer.getEntries(), transfer.getBatches(), elapsed);
+        logger.info("堆外缓存加载到堆缓存完成: {}, 条目数: {}, 耗时: {}ms",
+                cacheName, transfer.getEntries(), elapsed / 1_000_000);
+    }
+
+    private BatchTransfer newTransfer(Consumer<Map<Object, Object>> sink) {
+        return new BatchTransfer(transferExecutor, transferParallelism, transferBatchSize, sink);
+    }
+
+    /**
+     * 获取堆外 -> 堆内的传输统计
+     * @return 传输统计
+     */
+    public OffHeapTransferMetrics getLoadMetrics() {
+        return loadMetrics;
+    }
+
+    /**
+     * 获取堆内 -> 堆外的传输统计
+     * @return 传输统计
+     */
+    public OffHeapTransferMetrics getSaveMetrics() {
+        return saveMetrics;
     }
 
     /**
@@ -116,6 +206,7 @@ public class OffHeapCacheManager {
      * 关闭缓存管理器
      */
     public void shutdown() {
+        transferExecutor.shutdown();
         cacheManager.close();
     }
-}
\ No newline at end of file
+}
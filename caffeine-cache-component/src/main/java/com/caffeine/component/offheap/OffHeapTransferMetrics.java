@@ -0,0 +1,82 @@
+package com.caffeine.component.offheap;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 堆内/堆外缓存批量传输的吞吐量统计
+ */
+public class OffHeapTransferMetrics {
+    // 传输次数
+    private final LongAdder transferCount = new LongAdder();
+    // 传输条目总数
+    private final LongAdder entryCount = new LongAdder();
+    // 提交的批次总数
+    private final LongAdder batchCount = new LongAdder();
+    // 传输总耗时(纳秒)
+    private final LongAdder totalTimeNanos = new LongAdder();
+    // 最近一次传输的吞吐量(条/秒)
+    private volatile double lastThroughput;
+
+    /**
+     * 记录一次完成的传输
+     * @param entries 传输的条目数
+     * @param batches 提交的批次数
+     * @param elapsedNanos 耗时(纳秒)
+     */
+    void record(long entries, long batches, long elapsedNanos) {
+        transferCount.increment();
+        entryCount.add(entries);
+        batchCount.add(batches);
+        totalTimeNanos.add(elapsedNanos);
+        lastThroughput = throughput(entries, elapsedNanos);
+    }
+
+    public long getTransferCount() {
+        return transferCount.sum();
+    }
+
+    public long getEntryCount() {
+        return entryCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getTotalTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalTimeNanos.sum());
+    }
+
+    /**
+     * 获取最近一次传输的吞吐量
+     * @return 条/秒
+     */
+    public double getLastThroughput() {
+        return lastThroughput;
+    }
+
+    /**
+     * 获取累计平均吞吐量
+     * @return 条/秒
+     */
+    public double getAverageThroughput() {
+        return throughput(entryCount.sum(), totalTimeNanos.sum());
+    }
+
+    private static double throughput(long entries, long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return entries * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapTransferMetrics{transfers=" + getTransferCount()
+                + ", entries=" + getEntryCount()
+                + ", batches=" + getBatchCount()
+                + ", totalTimeMillis=" + getTotalTimeMillis()
+                + ", lastThroughput=" + String.format("%.1f", lastThroughput) + "/s}";
+    }
+}
@@ -0,0 +1,234 @@
+package com.caffeine.component.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 堆外值存储区
+ * 按需分配固定大小的直接内存块，块内按2的幂大小等级切分。
+ * 释放的内存进入对应等级的空闲链表供后续复用；读取不加锁，分配与释放在存储区锁内完成。
+ */
+public class OffHeapValueArena {
+    // 最小分配单元为32字节
+    private static final int MIN_BLOCK_SHIFT = 5;
+    // 单个直接内存块的默认大小: 64MB
+    private static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    // 存储区总容量(字节)
+    private final long capacity;
+    // 单个直接内存块大小(字节)，同时也是单个值的最大字节数
+    private final int chunkSize;
+    // 已分配的直接内存块
+    private final ByteBuffer[] chunks;
+    // 各大小等级的空闲链表
+    private final LongStack[] freeLists;
+
+    // 已分配的内存块数量，最后一块用于顺序切分
+    private int chunkCount;
+    // 当前内存块中的切分位置
+    private int bumpOffset;
+    // 使用中的字节数
+    private long usedBytes;
+
+    /**
+     * 构造函数
+     * @param capacity 存储区总容量(字节)
+     */
+    public OffHeapValueArena(long capacity) {
+        if (capacity < blockSize(0)) {
+            throw new IllegalArgumentException("堆外值存储容量过小: " + capacity);
+        }
+        // 小容量时缩小内存块，保证容量至少能切出约4个内存块
+        this.chunkSize = (int) Math.max(blockSize(0), Math.min(DEFAULT_CHUNK_SIZE, Long.highestOneBit(capacity / 4)));
+        int maxChunks = (int) Math.min(Integer.MAX_VALUE, capacity / chunkSize);
+        this.capacity = (long) maxChunks * chunkSize;
+        this.chunks = new ByteBuffer[maxChunks];
+        this.freeLists = new LongStack[sizeClassOf(chunkSize) + 1];
+        for (int i = 0; i < freeLists.length; i++) {
+            freeLists[i] = new LongStack();
+        }
+    }
+
+    /**
+     * 分配内存并写入值的字节
+     * @param bytes 值的字节
+     * @return 句柄；存储区空间不足时返回null
+     */
+    public OffHeapValueHandle allocate(byte[] bytes) {
+        if (bytes.length > chunkSize) {
+            throw new IllegalArgumentException("值大小 " + bytes.length + " 超过堆外存储单值上限 " + chunkSize);
+        }
+        int sizeClass = sizeClassOf(bytes.length);
+        long address;
+        synchronized (this) {
+            address = takeBlock(sizeClass);
+            if (address < 0) {
+                return null;
+            }
+            usedBytes += blockSize(sizeClass);
+        }
+        // 句柄尚未发布，写入无需加锁
+        ByteBuffer buffer = chunks[chunkIndex(address)].duplicate();
+        buffer.position(offset(address));
+        buffer.put(bytes);
+        return new OffHeapValueHandle(address, bytes.length, sizeClass);
+    }
+
+    /**
+     * 读取句柄对应的值字节
+     * @param handle 句柄
+     * @return 值的字节；句柄已被释放时返回null
+     */
+    public byte[] read(OffHeapValueHandle handle) {
+        if (handle.isReleased()) {
+            return null;
+        }
+        long address = handle.getAddress();
+        byte[] bytes = new byte[handle.getLength()];
+        ByteBuffer buffer = chunks[chunkIndex(address)].duplicate();
+        buffer.position(offset(address));
+        buffer.get(bytes);
+        // 复制期间句柄可能被释放并被复用，此时复制结果不可信
+        return handle.isReleased() ? null : bytes;
+    }
+
+    /**
+     * 释放句柄占用的内存，重复释放将被忽略
+     * @param handle 句柄
+     */
+    public synchronized void free(OffHeapValueHandle handle) {
+        if (handle == null || handle.isReleased()) {
+            return;
+        }
+        handle.markReleased();
+        freeLists[handle.getSizeClass()].push(handle.getAddress());
+        usedBytes -= handle.getBlockSize();
+    }
+
+    /**
+     * 存储区总容量，为构造时容量向下取整到内存块大小的整数倍
+     * @return 字节数
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 单个值允许的最大字节数
+     * @return 字节数
+     */
+    public int getMaxValueSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 使用中的字节数(按内存块大小计)
+     * @return 字节数
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 已向操作系统申请的直接内存字节数
+     * @return 字节数
+     */
+    public synchronized long getReservedBytes() {
+        return (long) chunkCount * chunkSize;
+    }
+
+    /**
+     * 获取指定大小等级的内存块，依次尝试空闲链表、顺序切分、新内存块和拆分更大的空闲块
+     */
+    private long takeBlock(int sizeClass) {
+        LongStack freeList = freeLists[sizeClass];
+        if (!freeList.isEmpty()) {
+            return freeList.pop();
+        }
+        int blockSize = blockSize(sizeClass);
+        if (chunkCount > 0 && bumpOffset + blockSize <= chunkSize) {
+            long address = address(chunkCount - 1, bumpOffset);
+            bumpOffset += blockSize;
+            return address;
+        }
+        if (chunkCount < chunks.length) {
+            retireChunkTail();
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(chunkSize);
+            bumpOffset = blockSize;
+            return address(chunkCount - 1, 0);
+        }
+        for (int larger = sizeClass + 1; larger < freeLists.length; larger++) {
+            if (!freeLists[larger].isEmpty()) {
+                long address = freeLists[larger].pop();
+                // 拆分后的剩余部分按等级放回空闲链表
+                for (int c = larger - 1; c >= sizeClass; c--) {
+                    freeLists[c].push(address + blockSize(c));
+                }
+                return address;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 切换到新内存块前，将当前内存块剩余的空间切分后放入空闲链表
+     */
+    private void retireChunkTail() {
+        if (chunkCount == 0) {
+            return;
+        }
+        int remaining = chunkSize - bumpOffset;
+        while (remaining >= blockSize(0)) {
+            int sizeClass = sizeClassOf(Integer.highestOneBit(remaining));
+            freeLists[sizeClass].push(address(chunkCount - 1, bumpOffset));
+            bumpOffset += blockSize(sizeClass);
+            remaining -= blockSize(sizeClass);
+        }
+    }
+
+    static int blockSize(int sizeClass) {
+        return 1 << (sizeClass + MIN_BLOCK_SHIFT);
+    }
+
+    static int sizeClassOf(int length) {
+        if (length <= blockSize(0)) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_BLOCK_SHIFT;
+    }
+
+    private static long address(int chunkIndex, int offset) {
+        return ((long) chunkIndex << 32) | offset;
+    }
+
+    private static int chunkIndex(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * 基于long数组的栈，避免空闲地址装箱
+     */
+    private static final class LongStack {
+        private long[] elements = new long[16];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long value) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = value;
+        }
+
+        long pop() {
+            return elements[--size];
+        }
+    }
+}
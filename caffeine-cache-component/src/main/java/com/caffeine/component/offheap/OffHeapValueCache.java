@@ -0,0 +1,507 @@
+package com.caffeine.component.offheap;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 键在堆内、值在堆外的混合缓存
+ * Caffeine只保存键和{@link OffHeapValueHandle}，值编码后存放在{@link OffHeapValueArena}的直接内存中，读取时才解码。
+ * 句柄内存由构建委托缓存时注册的removalListener在条目被移除时归还存储区。
+ * 主动淘汰会修改其他键，不能在Caffeine的compute内执行：加载函数内只尝试分配，空间不足时在compute外淘汰、
+ * 分配后以putIfAbsent安装，安装失败时释放新句柄。
+ * 多个缓存可以共用一个存储区；实例退役时调用{@link #release()}归还其全部句柄，之后不再接受写入。
+ * 注意：{@link #policy()}直接返回委托缓存的策略，其中返回值的方法得到的是句柄而不是解码后的值。
+ */
+public class OffHeapValueCache<K, V> implements Cache<K, V> {
+    // 存储区空间不足时每次主动淘汰的最冷条目数
+    private static final int RECLAIM_BATCH_SIZE = 64;
+    // 存储区空间不足时的最大主动淘汰次数
+    private static final int MAX_RECLAIM_ATTEMPTS = 16;
+
+    private final Cache<K, OffHeapValueHandle> delegate;
+    private final OffHeapValueArena arena;
+    private final OffHeapValueCodec codec;
+    private final ConcurrentMap<K, V> mapView;
+    // 实例是否已退役
+    private volatile boolean released;
+
+    /**
+     * 构造函数
+     * @param delegate 保存句柄的Caffeine缓存，需在removalListener中调用{@link OffHeapValueArena#free}
+     * @param arena 堆外值存储区
+     * @param codec 值编解码器
+     */
+    public OffHeapValueCache(Cache<K, OffHeapValueHandle> delegate, OffHeapValueArena arena, OffHeapValueCodec codec) {
+        this.delegate = delegate;
+        this.arena = arena;
+        this.codec = codec;
+        this.mapView = new HandleMapView();
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        return decodeMapped(key, delegate.getIfPresent(key));
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        for (;;) {
+            // 加载函数在compute内只尝试分配，不主动淘汰；空间不足时带出加载的值
+            Object[] pending = new Object[1];
+            OffHeapValueHandle handle = delegate.get(key, k -> {
+                V value = mappingFunction.apply(k);
+                if (value == null) {
+                    return null;
+                }
+                OffHeapValueHandle allocated = tryStore(value);
+                if (allocated == null) {
+                    pending[0] = value;
+                }
+                return allocated;
+            });
+            if (handle == null) {
+                if (pending[0] == null) {
+                    return null;
+                }
+                @SuppressWarnings("unchecked")
+                V value = (V) pending[0];
+                handle = install(key, value);
+                if (handle == null) {
+                    return value;
+                }
+            }
+            V value = decode(handle);
+            if (value != null) {
+                return value;
+            }
+            // 读取期间条目被替换或淘汰，句柄已失效，重新获取
+        }
+    }
+
+    @Override
+    public Map<K, V> getAllPresent(Iterable<? extends K> keys) {
+        return decodeAll(delegate.getAllPresent(keys));
+    }
+
+    @Override
+    public Map<K, V> getAll(Iterable<? extends K> keys,
+                            Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        Map<K, V> found = new HashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        for (K key : keys) {
+            V value = decodeMapped(key, delegate.getIfPresent(key));
+            if (value != null) {
+                found.put(key, value);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            // 在compute外加载并分配，逐个以putIfAbsent安装，已被并发写入的键使用缓存中的值
+            Map<? extends K, ? extends V> loaded = mappingFunction.apply(Collections.unmodifiableSet(missing));
+            for (Map.Entry<? extends K, ? extends V> entry : loaded.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                OffHeapValueHandle existing = install(entry.getKey(), entry.getValue());
+                V current = existing == null ? null : decode(existing);
+                found.put(entry.getKey(), current != null ? current : entry.getValue());
+            }
+        }
+        Map<K, V> result = new LinkedHashMap<>(found.size() * 2);
+        for (K key : keys) {
+            V value = found.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        delegate.put(key, store(value));
+        afterInstall(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        Map<K, OffHeapValueHandle> handles = new HashMap<>(map.size() * 2);
+        map.forEach((key, value) -> handles.put(key, store(value)));
+        delegate.putAll(handles);
+        if (released) {
+            delegate.invalidateAll(handles.keySet());
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        delegate.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll(Iterable<? extends K> keys) {
+        delegate.invalidateAll(keys);
+    }
+
+    @Override
+    public void invalidateAll() {
+        delegate.invalidateAll();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return delegate.estimatedSize();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return mapView;
+    }
+
+    @Override
+    public void cleanUp() {
+        delegate.cleanUp();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Policy<K, V> policy() {
+        return (Policy<K, V>) (Policy<?, ?>) delegate.policy();
+    }
+
+    /**
+     * 获取堆外值存储区
+     * @return 存储区
+     */
+    public OffHeapValueArena getArena() {
+        return arena;
+    }
+
+    /**
+     * 退役实例：归还全部句柄，之后的写入抛出IllegalStateException，读取视为未命中
+     */
+    public void release() {
+        released = true;
+        delegate.invalidateAll();
+        delegate.cleanUp();
+    }
+
+    /**
+     * 实例是否已退役
+     * @return 已退役返回true
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * 在compute外写入存储区并以putIfAbsent安装
+     * @return 缓存中已有的句柄，安装成功时返回null
+     */
+    private OffHeapValueHandle install(K key, V value) {
+        OffHeapValueHandle handle = store(value);
+        OffHeapValueHandle existing = delegate.asMap().putIfAbsent(key, handle);
+        if (existing != null) {
+            arena.free(handle);
+        } else {
+            afterInstall(key);
+        }
+        return existing;
+    }
+
+    /**
+     * 安装句柄后检查实例是否已在写入期间退役，是则移除以归还句柄
+     */
+    private void afterInstall(K key) {
+        if (released) {
+            delegate.invalidate(key);
+        }
+    }
+
+    /**
+     * 编码并写入存储区，不主动淘汰，可在compute内调用
+     * @return 句柄，空间不足时返回null
+     */
+    private OffHeapValueHandle tryStore(V value) {
+        checkNotReleased();
+        return arena.allocate(codec.encode(value));
+    }
+
+    /**
+     * 编码并写入存储区；空间不足时先主动淘汰最冷的条目再重试
+     * 淘汰会修改其他键，不能在compute内调用
+     */
+    private OffHeapValueHandle store(V value) {
+        checkNotReleased();
+        byte[] bytes = codec.encode(value);
+        OffHeapValueHandle handle = arena.allocate(bytes);
+        for (int attempt = 0; handle == null && attempt < MAX_RECLAIM_ATTEMPTS; attempt++) {
+            reclaim();
+            handle = arena.allocate(bytes);
+        }
+        if (handle == null) {
+            throw new IllegalStateException("堆外值存储空间不足，无法写入 " + bytes.length + " 字节");
+        }
+        if (released) {
+            // 退役期间分配的句柄不会再被淘汰，立即归还
+            arena.free(handle);
+            checkNotReleased();
+        }
+        return handle;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("堆外值缓存实例已退役");
+        }
+    }
+
+    private void reclaim() {
+        delegate.cleanUp();
+        delegate.policy().eviction().ifPresent(eviction ->
+                delegate.invalidateAll(new ArrayList<>(eviction.coldest(RECLAIM_BATCH_SIZE).keySet())));
+    }
+
+    @SuppressWarnings("unchecked")
+    private V decode(OffHeapValueHandle handle) {
+        if (handle == null) {
+            return null;
+        }
+        byte[] bytes = arena.read(handle);
+        return bytes == null ? null : (V) codec.decode(bytes);
+    }
+
+    /**
+     * 解码键当前映射的句柄
+     * 读取期间条目可能被并发替换，旧句柄随之释放；键仍有映射时按新句柄重读，避免误报未命中
+     * @param key 键
+     * @param handle 先前读到的句柄
+     * @return 值，键已无映射时返回null
+     */
+    private V decodeMapped(Object key, OffHeapValueHandle handle) {
+        while (handle != null) {
+            V value = decode(handle);
+            if (value != null) {
+                return value;
+            }
+            // 重读不计入命中统计；仍是同一失效句柄时不再重试
+            OffHeapValueHandle current = delegate.asMap().get(key);
+            handle = current == handle ? null : current;
+        }
+        return null;
+    }
+
+    private Map<K, V> decodeAll(Map<K, OffHeapValueHandle> handles) {
+        Map<K, V> result = new LinkedHashMap<>(handles.size() * 2);
+        handles.forEach((key, handle) -> {
+            V value = decodeMapped(key, handle);
+            if (value != null) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * asMap视图，读时解码；需要返回旧值的操作在compute内解码，保证旧句柄释放前完成读取
+     */
+    private final class HandleMapView extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+        private final ConcurrentMap<K, OffHeapValueHandle> handles = delegate.asMap();
+        private final Set<Entry<K, V>> entrySet = new EntrySetView();
+
+        @Override
+        public int size() {
+            return handles.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return handles.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return handles.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return decodeMapped(key, handles.get(key));
+        }
+
+        @Override
+        public V put(K key, V value) {
+            OffHeapValueHandle handle = store(value);
+            Object[] previous = new Object[1];
+            handles.compute(key, (k, old) -> {
+                previous[0] = decode(old);
+                return handle;
+            });
+            afterInstall(key);
+            return cast(previous[0]);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V remove(Object key) {
+            Object[] previous = new Object[1];
+            handles.computeIfPresent((K) key, (k, old) -> {
+                previous[0] = decode(old);
+                return null;
+            });
+            return cast(previous[0]);
+        }
+
+        @Override
+        public void clear() {
+            handles.clear();
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            OffHeapValueHandle handle = store(value);
+            OffHeapValueHandle existing = handles.putIfAbsent(key, handle);
+            if (existing != null) {
+                arena.free(handle);
+                return decode(existing);
+            }
+            afterInstall(key);
+            return null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object key, Object value) {
+            boolean[] removed = new boolean[1];
+            handles.computeIfPresent((K) key, (k, old) -> {
+                removed[0] = Objects.equals(decode(old), value);
+                return removed[0] ? null : old;
+            });
+            return removed[0];
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            OffHeapValueHandle handle = store(newValue);
+            boolean[] replaced = new boolean[1];
+            handles.computeIfPresent(key, (k, old) -> {
+                replaced[0] = Objects.equals(decode(old), oldValue);
+                return replaced[0] ? handle : old;
+            });
+            if (!replaced[0]) {
+                arena.free(handle);
+            } else {
+                afterInstall(key);
+            }
+            return replaced[0];
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            OffHeapValueHandle handle = store(value);
+            Object[] previous = new Object[1];
+            // 以compute的返回值判断是否安装，旧句柄恰好失效时previous为null但新句柄已安装
+            OffHeapValueHandle installed = handles.computeIfPresent(key, (k, old) -> {
+                previous[0] = decode(old);
+                return handle;
+            });
+            if (installed != handle) {
+                arena.free(handle);
+            } else {
+                afterInstall(key);
+            }
+            return cast(previous[0]);
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return handles.keySet();
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return entrySet;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V cast(Object value) {
+            return (V) value;
+        }
+
+        private final class EntrySetView extends AbstractSet<Entry<K, V>> {
+            @Override
+            public int size() {
+                return handles.size();
+            }
+
+            @Override
+            public void clear() {
+                handles.clear();
+            }
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                Iterator<Entry<K, OffHeapValueHandle>> iterator = handles.entrySet().iterator();
+                return new Iterator<Entry<K, V>>() {
+                    private Entry<K, V> next;
+                    private K lastKey;
+
+                    @Override
+                    public boolean hasNext() {
+                        // 跳过遍历期间已失效的句柄
+                        while (next == null && iterator.hasNext()) {
+                            Entry<K, OffHeapValueHandle> entry = iterator.next();
+                            V value = decode(entry.getValue());
+                            if (value != null) {
+                                next = new SimpleImmutableEntry<>(entry.getKey(), value);
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<K, V> current = next;
+                        next = null;
+                        lastKey = current.getKey();
+                        return current;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastKey == null) {
+                            throw new IllegalStateException();
+                        }
+                        handles.remove(lastKey);
+                        lastKey = null;
+                    }
+                };
+            }
+        }
+    }
+}
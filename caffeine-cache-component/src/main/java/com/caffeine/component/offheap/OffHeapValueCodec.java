@@ -0,0 +1,21 @@
+package com.caffeine.component.offheap;
+
+/**
+ * 堆外值编解码器
+ * 写入时将值编码为字节存入堆外存储区，读取时再解码
+ */
+public interface OffHeapValueCodec {
+    /**
+     * 编码值
+     * @param value 值
+     * @return 编码后的字节
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 解码值
+     * @param bytes 编码后的字节
+     * @return 值
+     */
+    Object decode(byte[] bytes);
+}
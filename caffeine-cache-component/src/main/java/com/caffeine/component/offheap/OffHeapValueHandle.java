@@ -0,0 +1,58 @@
+package com.caffeine.component.offheap;
+
+/**
+ * 堆外值句柄
+ * 堆内缓存中只保存该句柄，值的字节存放在{@link OffHeapValueArena}的直接内存中
+ */
+public final class OffHeapValueHandle {
+    // 高32位为内存块索引，低32位为块内偏移
+    private final long address;
+    // 值的实际字节数
+    private final int length;
+    // 所占内存块的大小等级
+    private final byte sizeClass;
+    // 内存是否已归还给存储区
+    private volatile boolean released;
+
+    OffHeapValueHandle(long address, int length, int sizeClass) {
+        this.address = address;
+        this.length = length;
+        this.sizeClass = (byte) sizeClass;
+    }
+
+    long getAddress() {
+        return address;
+    }
+
+    int getSizeClass() {
+        return sizeClass;
+    }
+
+    void markReleased() {
+        released = true;
+    }
+
+    /**
+     * 值的实际字节数
+     * @return 字节数
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 所占内存块的字节数，即该条目在存储区中的实际占用
+     * @return 字节数
+     */
+    public int getBlockSize() {
+        return OffHeapValueArena.blockSize(sizeClass);
+    }
+
+    /**
+     * 句柄对应的内存是否已被释放
+     * @return 已释放返回true
+     */
+    public boolean isReleased() {
+        return released;
+    }
+}
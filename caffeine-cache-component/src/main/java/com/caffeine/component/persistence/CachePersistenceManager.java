@@ -1,18 +1,23 @@
 package com.caffeine.component.persistence;
 
 import com.caffeine.component.config.CacheConfig;
+import com.caffeine.component.warmup.FencedWrites;
 import com.github.benmanes.caffeine.cache.Cache;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.mapdb.Serializer;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 /**
  * 缓存持久化管理器
+ * 同一个缓存的写入和删除在该缓存的数据库上串行执行，删除前的检查与删除之间不会插入写入。
  */
 public class CachePersistenceManager {
     // 缓存配置
@@ -28,7 +33,7 @@ public class CachePersistenceManager {
      */
     public CachePersistenceManager(CacheConfig config) {
         this.config = config;
-        this.databases = new HashMap<>();
+        this.databases = new ConcurrentHashMap<>();
         this.cacheDataMaps = new ConcurrentHashMap<>();
 
         // 确保持久化目录存在
@@ -44,29 +49,50 @@ public class CachePersistenceManager {
      * @param cache 缓存实例
      */
     public void persistCache(String cacheName, Cache<Object, Object> cache) {
+        persistEntries(cacheName, cache.asMap());
+    }
+
+    /**
+     * 持久化一组缓存条目，覆盖该缓存已持久化的全部数据
+     * @param cacheName 缓存名称
+     * @param entries 缓存条目
+     */
+    public void persistEntries(String cacheName, Map<?, ?> entries) {
         if (!config.isPersistenceEnabled()) {
             return;
         }
 
         // 获取或创建数据库
         DB db = getOrCreateDatabase(cacheName);
-        // 获取或创建数据映射
-        Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
+        synchronized (db) {
+            // 获取或创建数据映射
+            Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
 
-        // 清空现有数据
-        dataMap.clear();
-        // 保存新数据
-        dataMap.putAll(cache.asMap());
-        // 提交更改
-        db.commit();
+            // 清空现有数据
+            dataMap.clear();
+            // 保存新数据
+            dataMap.putAll(entries);
+            // 提交更改
+            db.commit();
+        }
     }
 
     /**
-     * 从持久化存储加载缓存
+     * 从持久化存储加载缓存，条件写入，不覆盖缓存中已有的更新值
      * @param cacheName 缓存名称
      * @param cache 缓存实例
      */
     public void loadCache(String cacheName, Cache<Object, Object> cache) {
+        ConcurrentMap<Object, Object> map = cache.asMap();
+        loadEntries(cacheName, (key, value) -> FencedWrites.putIfNewer(map, key, value));
+    }
+
+    /**
+     * 从持久化存储读取缓存条目
+     * @param cacheName 缓存名称
+     * @param consumer 条目处理函数
+     */
+    public void loadEntries(String cacheName, BiConsumer<Object, Object> consumer) {
         if (!config.isPersistenceEnabled()) {
             return;
         }
@@ -84,9 +110,7 @@ public class CachePersistenceManager {
         }
 
         // 加载数据到缓存
-        dataMap.forEach((key, value) -> {
-            cache.put(key, value);
-        });
+        dataMap.forEach(consumer);
     }
 
     /**
@@ -102,13 +126,15 @@ public class CachePersistenceManager {
 
         // 获取或创建数据库
         DB db = getOrCreateDatabase(cacheName);
-        // 获取或创建数据映射
-        Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
+        synchronized (db) {
+            // 获取或创建数据映射
+            Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
 
-        // 保存条目
-        dataMap.put(key, value);
-        // 提交更改
-        db.commit();
+            // 保存条目
+            dataMap.put(key, value);
+            // 提交更改
+            db.commit();
+        }
     }
 
     /**
@@ -127,12 +153,76 @@ public class CachePersistenceManager {
             return;
         }
 
-        // 尝试获取数据映射
-        Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
+        synchronized (db) {
+            // 尝试获取数据映射
+            Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
+
+            // 删除条目
+            if (dataMap.containsKey(key)) {
+                dataMap.remove(key);
+                // 提交更改
+                db.commit();
+            }
+        }
+    }
+
+    /**
+     * 批量删除缓存条目，一批只提交一次
+     * @param cacheName 缓存名称
+     * @param keys 键
+     * @param filter 删除前在数据库锁内检查每个键，返回false的键保留
+     * @return 实际删除的条目数
+     */
+    public int deleteEntries(String cacheName, Collection<?> keys, Predicate<Object> filter) {
+        if (!config.isPersistenceEnabled() || keys.isEmpty()) {
+            return 0;
+        }
+
+        // 尝试获取数据库
+        DB db = getDatabase(cacheName);
+        if (db == null) {
+            return 0;
+        }
+
+        synchronized (db) {
+            // 尝试获取数据映射
+            Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
+
+            int deleted = 0;
+            for (Object key : keys) {
+                if (filter.test(key) && dataMap.remove(key) != null) {
+                    deleted++;
+                }
+            }
+            if (deleted > 0) {
+                // 提交更改
+                db.commit();
+            }
+            return deleted;
+        }
+    }
+
+    /**
+     * 清空缓存的全部持久化数据，只提交一次
+     * @param cacheName 缓存名称
+     */
+    public void truncateEntries(String cacheName) {
+        if (!config.isPersistenceEnabled()) {
+            return;
+        }
+
+        // 尝试获取数据库
+        DB db = getDatabase(cacheName);
+        if (db == null) {
+            return;
+        }
+
+        synchronized (db) {
+            // 尝试获取数据映射
+            Map<Object, Object> dataMap = getOrCreateDataMap(cacheName, db);
 
-        // 删除条目
-        if (dataMap.containsKey(key)) {
-            dataMap.remove(key);
+            // 清空数据
+            dataMap.clear();
             // 提交更改
             db.commit();
         }
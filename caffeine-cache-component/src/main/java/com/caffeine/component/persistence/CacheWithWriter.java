@@ -2,121 +2,130 @@ package com.caffeine.component.persistence;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Policy;
-import com.github.benmanes.caffeine.cache.RemovalCause;
-import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 /**
  * 包装Caffeine缓存，添加写入逻辑
+ * 只有条目实际新增、值变更或被显式删除时才调用写入器；命中的读取和写入相同的值不会调用。
+ * 写入器在缓存操作完成后于调用线程上同步调用，不在Caffeine的计算锁内执行；同一个键的写入器调用按键分段加锁串行，
+ * 调用前确认缓存中的值仍与本次操作的结果相等，并发修改同一个键时写入器最后看到的总是缓存中的最新值。
+ * compute/computeIfAbsent/computeIfPresent/merge通过底层Caffeine映射原子执行，写入器在计算提交后只调用一次。
+ * 批量失效按块遍历键，不复制整个缓存；每块调用一次{@link CacheWriter#deleteAll}，
+ * 写入器支持时全量失效只调用一次{@link CacheWriter#truncate()}。
+ * 命中路径和put/invalidate不分配额外对象，asMap()返回构造时创建的同一个视图。
+ * 注意：通过asMap()的keySet/values/entrySet视图删除条目不会调用写入器；淘汰和过期也不会。
  */
 public class CacheWithWriter<K, V> implements Cache<K, V> {
     private final Cache<K, V> delegate;
-    private final RemovalListener<K, V> writer;
+    private final CacheWriter<K, V> writer;
+    private final ConcurrentMap<K, V> delegateMap;
+    private final MapWithWriter<K, V> mapView;
 
-    public CacheWithWriter(Cache<K, V> delegate, RemovalListener<K, V> writer) {
+    public CacheWithWriter(Cache<K, V> delegate, CacheWriter<K, V> writer) {
         this.delegate = delegate;
         this.writer = writer;
+        this.delegateMap = delegate.asMap();
+        this.mapView = new MapWithWriter<>(delegateMap, writer);
     }
 
-
-    
-
-
-
     @Override
-    @SuppressWarnings("unchecked")
-    public V getIfPresent(Object key) {
-        return delegate.getIfPresent((K) key);
+    public V getIfPresent(K key) {
+        return delegate.getIfPresent(key);
     }
 
     @Override
-    public V get(K key, java.util.function.Function<? super K, ? extends V> mappingFunction) {
-        V value = delegate.get(key, mappingFunction);
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        // 命中时直接返回，不调用写入器
+        V value = delegate.getIfPresent(key);
         if (value != null) {
-            if (writer instanceof CacheWriterAdapter) {
-                ((CacheWriterAdapter<K, V>) writer).write(key, value);
-            }
+            return value;
         }
-        return value;
+        // 未命中时通过asMap加载，只有本次调用创建的值才写入；
+        // 命中与未命中已由上面的getIfPresent统计，不重复计数
+        return mapView.computeIfAbsent(key, mappingFunction);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public java.util.Map<K, V> getAllPresent(java.lang.Iterable<? extends K> keys) {
+    public Map<K, V> getAllPresent(Iterable<? extends K> keys) {
         return delegate.getAllPresent(keys);
     }
 
     @Override
-    public java.util.Map<K, V> getAll(java.lang.Iterable<? extends K> keys, java.util.function.Function<? super java.util.Set<? extends K>, ? extends java.util.Map<? extends K, ? extends V>> mappingFunction) {
-        java.util.Map<K, V> result = delegate.getAll(keys, mappingFunction);
-        if (writer instanceof CacheWriterAdapter) {
-            CacheWriterAdapter<K, V> adapter = (CacheWriterAdapter<K, V>) writer;
-            result.forEach(adapter::write);
+    public Map<K, V> getAll(Iterable<? extends K> keys,
+                            Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        // 只写入本次批量加载的条目，已命中的条目不写入
+        BulkCreatingFunction<K, V> creating = new BulkCreatingFunction<>(mappingFunction);
+        Map<K, V> result = delegate.getAll(keys, creating);
+        Map<? extends K, ? extends V> created = creating.created;
+        if (created != null) {
+            for (Map.Entry<? extends K, ? extends V> entry : created.entrySet()) {
+                if (entry.getValue() != null) {
+                    mapView.written(entry.getKey(), entry.getValue());
+                }
+            }
         }
         return result;
     }
 
     @Override
     public void put(K key, V value) {
-        delegate.put(key, value);
-        if (writer instanceof CacheWriterAdapter) {
-            ((CacheWriterAdapter<K, V>) writer).write(key, value);
-        }
+        mapView.put(key, value);
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> map) {
-        delegate.putAll(map);
-        if (writer instanceof CacheWriterAdapter) {
-            CacheWriterAdapter<K, V> adapter = (CacheWriterAdapter<K, V>) writer;
-            map.forEach(adapter::write);
-        }
+        mapView.putAll(map);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public void invalidate(Object key) {
-        @SuppressWarnings("unchecked")
-        K k = (K) key;
-        V value = delegate.getIfPresent(k);
-        delegate.invalidate(k);
-        if (value != null) {
-            writer.onRemoval(k, value, RemovalCause.EXPLICIT);
-        }
+    public void invalidate(K key) {
+        mapView.remove(key);
     }
 
     @Override
     public void invalidateAll() {
-        Map<K, V> snapshot = new ConcurrentHashMap<>(delegate.asMap());
-        delegate.invalidateAll();
-        snapshot.forEach((key, value) -> writer.onRemoval(key, value, RemovalCause.EXPLICIT));
+        mapView.clear(null);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void invalidateAll(Iterable<? extends K> keys) {
-        Map<K, V> snapshot = new ConcurrentHashMap<>();
-        keys.forEach(key -> {
-            @SuppressWarnings("unchecked")
-            K k = (K) key;
-            V value = delegate.getIfPresent(k);
-            if (value != null) {
-                snapshot.put(k, value);
-            }
-        });
-        delegate.invalidateAll(keys);
-        snapshot.forEach((key, value) -> writer.onRemoval(key, value, RemovalCause.EXPLICIT));
+        mapView.removeAll(keys, null);
+    }
+
+    /**
+     * 使全部条目失效并报告进度
+     * @param progress 进度回调，参数为已失效的条目数，每处理一块调用一次，结束时再调用一次；可为null
+     * @return 失效的条目数
+     */
+    public long invalidateAll(LongConsumer progress) {
+        return mapView.clear(progress);
+    }
+
+    /**
+     * 使指定的条目失效并报告进度
+     * @param keys 键
+     * @param progress 进度回调，参数为已失效的条目数，每处理一块调用一次，结束时再调用一次；可为null
+     * @return 失效的条目数
+     */
+    public long invalidateAll(Iterable<? extends K> keys, LongConsumer progress) {
+        return mapView.removeAll(keys, progress);
     }
 
     @Override
     public ConcurrentMap<K, V> asMap() {
-        return new MapWithWriter<>(delegate.asMap(), writer);
+        return mapView;
     }
 
     @Override
@@ -129,8 +138,6 @@ public class CacheWithWriter<K, V> implements Cache<K, V> {
         return delegate.policy();
     }
 
-
-
     @Override
     public CacheStats stats() {
         return delegate.stats();
@@ -141,16 +148,231 @@ public class CacheWithWriter<K, V> implements Cache<K, V> {
         return delegate.estimatedSize();
     }
 
+    /**
+     * 记录单键加载创建的值
+     */
+    private static final class CreatingFunction<K, V> implements Function<K, V> {
+        private final Function<? super K, ? extends V> mappingFunction;
+        private V created;
+
+        CreatingFunction(Function<? super K, ? extends V> mappingFunction) {
+            this.mappingFunction = mappingFunction;
+        }
+
+        @Override
+        public V apply(K key) {
+            created = mappingFunction.apply(key);
+            return created;
+        }
+    }
+
+    /**
+     * 记录重新计算前的值
+     */
+    private static final class RecordingFunction<K, V> implements BiFunction<K, V, V> {
+        private final BiFunction<? super K, ? super V, ? extends V> remappingFunction;
+        private boolean invoked;
+        private V oldValue;
+
+        RecordingFunction(BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            this.remappingFunction = remappingFunction;
+        }
+
+        @Override
+        public V apply(K key, V value) {
+            invoked = true;
+            oldValue = value;
+            return remappingFunction.apply(key, value);
+        }
+    }
+
+    /**
+     * 记录批量加载创建的条目
+     */
+    private static final class BulkCreatingFunction<K, V>
+            implements Function<Set<? extends K>, Map<? extends K, ? extends V>> {
+        private final Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> mappingFunction;
+        private Map<? extends K, ? extends V> created;
+
+        BulkCreatingFunction(Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+            this.mappingFunction = mappingFunction;
+        }
+
+        @Override
+        public Map<? extends K, ? extends V> apply(Set<? extends K> keys) {
+            created = mappingFunction.apply(keys);
+            return created;
+        }
+    }
+
     /**
      * 包装Map，添加写入逻辑
      */
-    private static class MapWithWriter<K, V> implements ConcurrentMap<K, V> {
-        private final Map<K, V> delegate;
-        private final RemovalListener<K, V> writer;
+    private static final class MapWithWriter<K, V> implements ConcurrentMap<K, V> {
+        // 写入器调用的分段锁数，必须是2的幂
+        private static final int LOCK_STRIPES = 64;
+        // 批量失效时每块的条目数
+        private static final int CHUNK_SIZE = 1000;
+
+        private final ConcurrentMap<K, V> delegate;
+        private final CacheWriter<K, V> writer;
+        private final ReentrantLock[] locks;
 
-        public MapWithWriter(Map<K, V> delegate, RemovalListener<K, V> writer) {
+        MapWithWriter(ConcurrentMap<K, V> delegate, CacheWriter<K, V> writer) {
             this.delegate = delegate;
             this.writer = writer;
+            this.locks = new ReentrantLock[LOCK_STRIPES];
+            for (int i = 0; i < LOCK_STRIPES; i++) {
+                locks[i] = new ReentrantLock();
+            }
+        }
+
+        private ReentrantLock lockFor(Object key) {
+            int hash = key.hashCode();
+            return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+        }
+
+        // 批量调用写入器时持有全部分段锁，按固定顺序获取，不会与单键操作死锁
+        private void lockAll() {
+            for (ReentrantLock lock : locks) {
+                lock.lock();
+            }
+        }
+
+        private void unlockAll() {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+
+        /**
+         * 值写入缓存后调用写入器，缓存中的值已被替换为不相等的值时由那次操作写入。
+         * 按equals比较：并发写入相等但不是同一对象的值时，后一次写入因与旧值相等不调用写入器，这里写入缓存中的当前值
+         */
+        void written(K key, V value) {
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                V current = delegate.get(key);
+                if (Objects.equals(current, value)) {
+                    writer.write(key, current);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 条目删除后调用写入器，键已被重新写入时不删除
+         */
+        void deleted(K key, V oldValue) {
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                if (!delegate.containsKey(key)) {
+                    writer.delete(key, oldValue);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 一块条目删除后调用一次写入器，已被重新写入的键不删除
+         */
+        private void deletedChunk(Map<K, V> chunk) {
+            lockAll();
+            try {
+                chunk.keySet().removeIf(delegate::containsKey);
+                if (!chunk.isEmpty()) {
+                    writer.deleteAll(chunk);
+                }
+            } finally {
+                unlockAll();
+            }
+        }
+
+        /**
+         * 按块删除指定的键，每块调用一次写入器
+         * @param keys 键
+         * @param progress 进度回调，可为null
+         * @return 删除的条目数
+         */
+        long removeAll(Iterable<?> keys, LongConsumer progress) {
+            Map<K, V> chunk = new HashMap<>();
+            long removed = 0;
+            for (Object key : keys) {
+                V oldValue = delegate.remove(key);
+                if (oldValue == null) {
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                K typedKey = (K) key;
+                chunk.put(typedKey, oldValue);
+                removed++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    deletedChunk(chunk);
+                    chunk.clear();
+                    reportProgress(progress, removed);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                deletedChunk(chunk);
+            }
+            reportProgress(progress, removed);
+            return removed;
+        }
+
+        /**
+         * 清空缓存；写入器支持时先清空缓存再一次清空持久化数据，否则按块删除
+         * @param progress 进度回调，可为null
+         * @return 删除的条目数
+         */
+        long clear(LongConsumer progress) {
+            if (!writer.supportsTruncate()) {
+                // 边遍历边删除，不复制整个缓存
+                return removeAll(delegate.keySet(), progress);
+            }
+            long removed = 0;
+            for (Iterator<K> iterator = delegate.keySet().iterator(); iterator.hasNext(); ) {
+                if (delegate.remove(iterator.next()) != null && ++removed % CHUNK_SIZE == 0) {
+                    reportProgress(progress, removed);
+                }
+            }
+            lockAll();
+            try {
+                writer.truncate();
+                // 清空期间并发写入、未被本次清除的条目重新写入
+                delegate.forEach(writer::write);
+            } finally {
+                unlockAll();
+            }
+            reportProgress(progress, removed);
+            return removed;
+        }
+
+        private static void reportProgress(LongConsumer progress, long removed) {
+            if (progress != null) {
+                progress.accept(removed);
+            }
+        }
+
+        /**
+         * 重新计算提交后按结果调用写入器
+         */
+        private V computed(K key, RecordingFunction<K, V> recording, V newValue) {
+            if (!recording.invoked) {
+                return newValue;
+            }
+            V oldValue = recording.oldValue;
+            if (newValue == null) {
+                if (oldValue != null) {
+                    deleted(key, oldValue);
+                }
+            } else if (!Objects.equals(oldValue, newValue)) {
+                written(key, newValue);
+            }
+            return newValue;
         }
 
         @Override
@@ -181,11 +403,8 @@ public class CacheWithWriter<K, V> implements Cache<K, V> {
         @Override
         public V put(K key, V value) {
             V oldValue = delegate.put(key, value);
-            if (oldValue != null) {
-                writer.onRemoval(key, oldValue, RemovalCause.REPLACED);
-            }
-            if (writer instanceof CacheWriterAdapter) {
-                ((CacheWriterAdapter<K, V>) writer).write(key, value);
+            if (!Objects.equals(oldValue, value)) {
+                written(key, value);
             }
             return oldValue;
         }
@@ -195,51 +414,38 @@ public class CacheWithWriter<K, V> implements Cache<K, V> {
         public V remove(Object key) {
             V oldValue = delegate.remove(key);
             if (oldValue != null) {
-                writer.onRemoval((K) key, oldValue, RemovalCause.EXPLICIT);
+                deleted((K) key, oldValue);
             }
             return oldValue;
         }
 
         @Override
-        public void putAll(Map<? extends K, ? extends V> m) {
-            m.forEach((key, value) -> {
-                V oldValue = delegate.put(key, value);
-                if (oldValue != null) {
-                    writer.onRemoval(key, oldValue, RemovalCause.REPLACED);
-                }
-                if (writer instanceof CacheWriterAdapter) {
-                    ((CacheWriterAdapter<K, V>) writer).write(key, value);
-                }
-            });
+        public void putAll(Map<? extends K, ? extends V> map) {
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
         }
 
         @Override
         public void clear() {
-            Map<K, V> snapshot = new ConcurrentHashMap<>(delegate);
-            delegate.clear();
-            snapshot.forEach((key, value) -> writer.onRemoval(key, value, RemovalCause.EXPLICIT));
+            clear(null);
         }
 
         @Override
         public V putIfAbsent(K key, V value) {
             V oldValue = delegate.putIfAbsent(key, value);
             if (oldValue == null) {
-                if (writer instanceof CacheWriterAdapter) {
-                    ((CacheWriterAdapter<K, V>) writer).write(key, value);
-                }
+                written(key, value);
             }
             return oldValue;
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public boolean remove(Object key, Object value) {
             boolean removed = delegate.remove(key, value);
             if (removed) {
-                @SuppressWarnings("unchecked")
-                K k = (K) key;
-                @SuppressWarnings("unchecked")
-                V v = (V) value;
-                writer.onRemoval(k, v, RemovalCause.EXPLICIT);
+                deleted((K) key, (V) value);
             }
             return removed;
         }
@@ -247,11 +453,8 @@ public class CacheWithWriter<K, V> implements Cache<K, V> {
         @Override
         public boolean replace(K key, V oldValue, V newValue) {
             boolean replaced = delegate.replace(key, oldValue, newValue);
-            if (replaced) {
-                writer.onRemoval(key, oldValue, RemovalCause.REPLACED);
-                if (writer instanceof CacheWriterAdapter) {
-                    ((CacheWriterAdapter<K, V>) writer).write(key, newValue);
-                }
+            if (replaced && !Objects.equals(oldValue, newValue)) {
+                written(key, newValue);
             }
             return replaced;
         }
@@ -259,15 +462,45 @@ public class CacheWithWriter<K, V> implements Cache<K, V> {
         @Override
         public V replace(K key, V value) {
             V oldValue = delegate.replace(key, value);
-            if (oldValue != null) {
-                writer.onRemoval(key, oldValue, RemovalCause.REPLACED);
-                if (writer instanceof CacheWriterAdapter) {
-                    ((CacheWriterAdapter<K, V>) writer).write(key, value);
-                }
+            if (oldValue != null && !Objects.equals(oldValue, value)) {
+                written(key, value);
             }
             return oldValue;
         }
 
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            // 记录映射函数创建的值，只有本次调用创建的值才写入
+            CreatingFunction<K, V> creating = new CreatingFunction<>(mappingFunction);
+            V value = delegate.computeIfAbsent(key, creating);
+            if (value != null && value == creating.created) {
+                written(key, value);
+            }
+            return value;
+        }
+
+        @Override
+        public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            RecordingFunction<K, V> recording = new RecordingFunction<>(remappingFunction);
+            return computed(key, recording, delegate.computeIfPresent(key, recording));
+        }
+
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            RecordingFunction<K, V> recording = new RecordingFunction<>(remappingFunction);
+            return computed(key, recording, delegate.compute(key, recording));
+        }
+
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            Objects.requireNonNull(value);
+            Objects.requireNonNull(remappingFunction);
+            // 以compute实现，记录合并前的值；与merge相同，结果为null时删除条目
+            RecordingFunction<K, V> recording = new RecordingFunction<>(
+                    (k, oldValue) -> oldValue == null ? value : remappingFunction.apply(oldValue, value));
+            return computed(key, recording, delegate.compute(key, recording));
+        }
+
         // 其余ConcurrentMap方法实现
         @Override
         public Set<K> keySet() {
@@ -283,6 +516,15 @@ public class CacheWithWriter<K, V> implements Cache<K, V> {
         public Set<Map.Entry<K, V>> entrySet() {
             return delegate.entrySet();
         }
-    }
 
-}
\ No newline at end of file
+        @Override
+        public boolean equals(Object o) {
+            return o == this || delegate.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.caffeine.component.persistence;
+
+import java.util.Map;
+
+/**
+ * 缓存写入器，由{@link CacheWithWriter}在条目实际新增、变更或删除后同步调用
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public interface CacheWriter<K, V> {
+
+    /**
+     * 条目新增或值变更后调用
+     * @param key 键
+     * @param value 新值
+     */
+    void write(K key, V value);
+
+    /**
+     * 条目被显式删除后调用，淘汰和过期不会调用
+     * @param key 键
+     * @param value 删除前的值
+     */
+    void delete(K key, V value);
+
+    /**
+     * 一批条目被显式删除后调用，默认逐个调用{@link #delete}
+     * @param entries 删除的条目，键为键，值为删除前的值
+     */
+    default void deleteAll(Map<? extends K, ? extends V> entries) {
+        entries.forEach(this::delete);
+    }
+
+    /**
+     * 是否支持一次清空全部数据，支持时全量清空缓存后调用{@link #truncate()}，否则逐批调用{@link #deleteAll}
+     * @return 支持时返回true
+     */
+    default boolean supportsTruncate() {
+        return false;
+    }
+
+    /**
+     * 清空全部数据，只在{@link #supportsTruncate()}返回true时调用
+     */
+    default void truncate() {
+        throw new UnsupportedOperationException("truncate");
+    }
+}
@@ -1,15 +1,14 @@
 package com.caffeine.component.persistence;
 
-import com.caffeine.component.persistence.CachePersistenceManager;
-import com.github.benmanes.caffeine.cache.RemovalListener;
-import com.github.benmanes.caffeine.cache.RemovalCause;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+
 /**
  * 缓存写入适配器，用于自动持久化缓存数据
  */
-public class CacheWriterAdapter<K, V> implements RemovalListener<K, V> {
+public class CacheWriterAdapter<K, V> implements CacheWriter<K, V> {
     private static final Logger logger = LoggerFactory.getLogger(CacheWriterAdapter.class);
 
     // 缓存持久化管理器
@@ -28,15 +27,34 @@ public class CacheWriterAdapter<K, V> implements RemovalListener<K, V> {
     }
 
     @Override
-    public void onRemoval(K key, V value, RemovalCause cause) {
+    public void write(K key, V value) {
+        logger.debug("Writing cache entry: {}={} for cache: {}", key, value, cacheName);
+        // 持久化单个条目
+        persistenceManager.persistEntry(cacheName, key, value);
+    }
+
+    @Override
+    public void delete(K key, V value) {
         logger.debug("Removing cache entry: {} for cache: {}", key, cacheName);
         // 处理删除逻辑
         persistenceManager.deleteEntry(cacheName, key);
     }
 
-    public void write(K key, V value) {
-        logger.debug("Writing cache entry: {}={} for cache: {}", key, value, cacheName);
-        // 持久化单个条目
-        persistenceManager.persistEntry(cacheName, key, value);
+    @Override
+    public void deleteAll(Map<? extends K, ? extends V> entries) {
+        logger.debug("Removing {} cache entries for cache: {}", entries.size(), cacheName);
+        // 一批只提交一次
+        persistenceManager.deleteEntries(cacheName, entries.keySet(), key -> true);
+    }
+
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
+    @Override
+    public void truncate() {
+        logger.debug("Truncating persisted entries for cache: {}", cacheName);
+        persistenceManager.truncateEntries(cacheName);
     }
 }
\ No newline at end of file
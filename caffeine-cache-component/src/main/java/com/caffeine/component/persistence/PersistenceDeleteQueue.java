@@ -0,0 +1,246 @@
+package com.caffeine.component.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * 持久化存储的批量异步删除队列
+ * 缓存淘汰、过期等移除事件只把键放入待删除队列，不在触发移除的线程上访问磁盘；同一个键的多次删除只保留一次。
+ * 后台线程按刷新间隔或攒满单批上限时，按缓存分批删除，每批提交一次事务。
+ * 删除前在数据库锁内再次检查键是否已重新写入缓存，已重新写入的键不删除，避免删掉较新的持久化数据。
+ * 删除失败的键不重试，下次全量持久化时覆盖。
+ */
+public class PersistenceDeleteQueue {
+    private static final Logger logger = LoggerFactory.getLogger(PersistenceDeleteQueue.class);
+
+    private final CachePersistenceManager persistenceManager;
+    // 判断键是否仍在缓存中，参数为缓存名称和键
+    private final BiPredicate<String, Object> retained;
+    // 单批最大键数
+    private final int maxBatchSize;
+    // 刷新间隔(毫秒)
+    private final long flushIntervalMillis;
+    private final Object lock = new Object();
+    private final Thread flusher;
+    // 各缓存待删除的键，由lock保护
+    private Map<String, Set<Object>> pending = new HashMap<>();
+    private int pendingCount;
+    // 当前待删除的键全部处理后完成，由lock保护
+    private CompletableFuture<Void> pendingFlush = new CompletableFuture<>();
+    private boolean flushRequested;
+    private volatile boolean running = true;
+
+    private final LongAdder enqueuedCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder deletedCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+
+    /**
+     * 构造函数
+     * @param persistenceManager 缓存持久化管理器
+     * @param retained 判断键是否仍在缓存中，返回true的键不删除
+     * @param maxBatchSize 单批最大键数，待删除的键达到该值时立即刷新
+     * @param flushIntervalMillis 刷新间隔(毫秒)
+     */
+    public PersistenceDeleteQueue(CachePersistenceManager persistenceManager, BiPredicate<String, Object> retained,
+                                  int maxBatchSize, long flushIntervalMillis) {
+        this.persistenceManager = persistenceManager;
+        this.retained = retained;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.flusher = new Thread(this::flushLoop, "persistence-delete");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        logger.info("初始化持久化批量删除队列，单批上限: {}, 刷新间隔: {}ms", this.maxBatchSize, this.flushIntervalMillis);
+    }
+
+    /**
+     * 删除一个键
+     * @param cacheName 缓存名称
+     * @param key 键
+     * @return 已接受时返回true，队列已关闭时返回false
+     */
+    public boolean enqueue(String cacheName, Object key) {
+        enqueuedCount.increment();
+        synchronized (lock) {
+            if (!running) {
+                return false;
+            }
+            if (pending.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).add(key)) {
+                pendingCount++;
+            } else {
+                coalescedCount.increment();
+            }
+            if (pendingCount >= maxBatchSize) {
+                lock.notifyAll();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 立即处理当前待删除的键，不等待刷新间隔
+     * @return 这些键处理完成时完成
+     */
+    public CompletableFuture<Void> flushAsync() {
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+            return pendingFlush;
+        }
+    }
+
+    /**
+     * 立即处理当前待删除的键并等待完成
+     */
+    public void flush() {
+        flushAsync().join();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Map<String, Set<Object>> batch;
+            CompletableFuture<Void> done;
+            boolean exit;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (running && !flushRequested && pendingCount < maxBatchSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                batch = pending;
+                done = pendingFlush;
+                pending = new HashMap<>();
+                pendingCount = 0;
+                pendingFlush = new CompletableFuture<>();
+                flushRequested = false;
+                exit = !running && batch.isEmpty();
+            }
+            if (!batch.isEmpty()) {
+                deleteBatch(batch);
+            }
+            done.complete(null);
+            if (exit) {
+                return;
+            }
+        }
+    }
+
+    private void deleteBatch(Map<String, Set<Object>> batch) {
+        batch.forEach((cacheName, keys) -> {
+            List<Object> chunk = new ArrayList<>(Math.min(keys.size(), maxBatchSize));
+            for (Object key : keys) {
+                chunk.add(key);
+                if (chunk.size() == maxBatchSize) {
+                    deleteChunk(cacheName, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                deleteChunk(cacheName, chunk);
+            }
+        });
+    }
+
+    private void deleteChunk(String cacheName, List<Object> keys) {
+        batchCount.increment();
+        try {
+            int deleted = persistenceManager.deleteEntries(cacheName, keys, key -> {
+                if (retained.test(cacheName, key)) {
+                    skippedCount.increment();
+                    return false;
+                }
+                return true;
+            });
+            deletedCount.add(deleted);
+        } catch (RuntimeException e) {
+            errorCount.add(keys.size());
+            logger.warn("持久化批量删除失败: {}, 键数: {}", cacheName, keys.size(), e);
+        }
+    }
+
+    /**
+     * 关闭队列，关闭前处理剩余的待删除键
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join(flushIntervalMillis + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 当前待删除的键数
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * 接受的删除请求数，包含合并的重复请求
+     */
+    public long getEnqueuedCount() {
+        return enqueuedCount.sum();
+    }
+
+    /**
+     * 与待删除的键重复而合并的请求数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * 实际从持久化存储删除的条目数
+     */
+    public long getDeletedCount() {
+        return deletedCount.sum();
+    }
+
+    /**
+     * 删除前发现已重新写入缓存而保留的键数
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    /**
+     * 提交的批次数
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * 删除失败的键数
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+}
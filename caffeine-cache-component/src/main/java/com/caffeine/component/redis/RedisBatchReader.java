@@ -0,0 +1,208 @@
+package com.caffeine.component.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis批量读取器
+ * 将短时间窗口内提交的单键读取合并为一次MGET，窗口到期或攒满单批上限时立即发送，以减少网络往返
+ */
+public class RedisBatchReader {
+    private static final Logger logger = LoggerFactory.getLogger(RedisBatchReader.class);
+    // 空闲时等待新请求的轮询间隔(毫秒)，用于响应关闭
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final JedisPool jedisPool;
+    // 单批最大键数
+    private final int maxBatchSize;
+    // 合并窗口(纳秒)
+    private final long windowNanos;
+    private final BlockingQueue<PendingRead> queue = new LinkedBlockingQueue<>();
+    private final Thread[] dispatchers;
+    private volatile boolean running = true;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder fetchNanos = new LongAdder();
+
+    /**
+     * 构造函数
+     * @param jedisPool Jedis连接池，每个发送线程同一时刻占用一个连接
+     * @param maxBatchSize 单批最大键数
+     * @param windowMicros 合并窗口(微秒)
+     * @param dispatcherCount 发送线程数
+     */
+    public RedisBatchReader(JedisPool jedisPool, int maxBatchSize, long windowMicros, int dispatcherCount) {
+        this.jedisPool = jedisPool;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, windowMicros));
+        this.dispatchers = new Thread[Math.max(1, dispatcherCount)];
+        for (int i = 0; i < dispatchers.length; i++) {
+            dispatchers[i] = new Thread(this::dispatchLoop, "redis-batch-reader-" + i);
+            dispatchers[i].setDaemon(true);
+            dispatchers[i].start();
+        }
+        logger.info("初始化Redis批量读取器，单批上限: {}, 合并窗口: {}us, 发送线程: {}",
+                this.maxBatchSize, windowMicros, dispatchers.length);
+    }
+
+    /**
+     * 提交一次读取
+     * @param redisKey Redis键
+     * @return 读取结果，键不存在时为null；Redis访问失败时异常完成
+     */
+    public CompletableFuture<byte[]> read(String redisKey) {
+        requestCount.increment();
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("Redis批量读取器已关闭"));
+            return future;
+        }
+        queue.add(new PendingRead(redisKey, future));
+        return future;
+    }
+
+    private void dispatchLoop() {
+        List<PendingRead> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRead first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 第一个请求到达后开始计时，窗口内继续收集直到攒满
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRead next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                fetch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, e);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 以一次MGET获取一批键并完成对应的请求
+     */
+    private void fetch(List<PendingRead> batch) {
+        batchCount.increment();
+        long start = System.nanoTime();
+        byte[][] keys = new byte[batch.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = batch.get(i).key.getBytes(StandardCharsets.UTF_8);
+        }
+        List<byte[]> values;
+        try (Jedis jedis = jedisPool.getResource()) {
+            values = jedis.mget(keys);
+        } catch (Exception e) {
+            errorCount.increment();
+            logger.warn("Redis批量读取失败，键数: {}: {}", batch.size(), e.toString());
+            fail(batch, e);
+            return;
+        } finally {
+            fetchNanos.add(System.nanoTime() - start);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(values.get(i));
+        }
+    }
+
+    private static void fail(List<PendingRead> batch, Throwable error) {
+        for (PendingRead read : batch) {
+            read.future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * 读取请求总数
+     * @return 请求数
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * 已发送的MGET批次数
+     * @return 批次数
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * 平均每批键数
+     * @return 键数
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : (double) requestCount.sum() / batches;
+    }
+
+    /**
+     * 平均每批MGET耗时
+     * @return 毫秒
+     */
+    public double getAverageFetchMillis() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : fetchNanos.sum() / 1e6 / batches;
+    }
+
+    /**
+     * 停止接收新请求，已提交的请求发送完成后发送线程退出
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread dispatcher : dispatchers) {
+            try {
+                dispatcher.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<PendingRead> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        fail(remaining, new IllegalStateException("Redis批量读取器已关闭"));
+        logger.info("关闭Redis批量读取器，请求数: {}, 批次数: {}", getRequestCount(), getBatchCount());
+    }
+
+    /**
+     * 等待发送的读取请求
+     */
+    private static class PendingRead {
+        private final String key;
+        private final CompletableFuture<byte[]> future;
+
+        PendingRead(String key, CompletableFuture<byte[]> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+}
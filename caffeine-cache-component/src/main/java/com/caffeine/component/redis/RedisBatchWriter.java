@@ -0,0 +1,371 @@
+package com.caffeine.component.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis批量写入器
+ * 写入先进入待写队列，同一个键的多次写入只保留最后一次；后台线程按刷新间隔或攒满单批上限时，
+ * 以流水线发送MSET(无过期时间)、SETEX(带过期时间)和DEL，每批一次网络往返。
+ * 写入失败的条目在未被更新的写入覆盖时重新入队，最多尝试{@link #MAX_ATTEMPTS}次；
+ * 有条目重试时，该批次的Future等到重试有结果后才完成，调用方看到失败时不会再有迟到的重试写入Redis。
+ */
+public class RedisBatchWriter {
+    private static final Logger logger = LoggerFactory.getLogger(RedisBatchWriter.class);
+    // 单个条目的最大写入尝试次数
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JedisPool jedisPool;
+    // 单批最大条目数
+    private final int maxBatchSize;
+    // 刷新间隔(毫秒)
+    private final long flushIntervalMillis;
+    private final Object lock = new Object();
+    private final Thread flusher;
+    // 待写入条目，由lock保护
+    private Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    // 当前待写入条目全部发送后完成，由lock保护
+    private CompletableFuture<Void> pendingFlush = new CompletableFuture<>();
+    private boolean flushRequested;
+    private volatile boolean running = true;
+
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder flushedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    /**
+     * 构造函数
+     * @param jedisPool Jedis连接池
+     * @param maxBatchSize 单批最大条目数，待写条目达到该值时立即刷新
+     * @param flushIntervalMillis 刷新间隔(毫秒)
+     */
+    public RedisBatchWriter(JedisPool jedisPool, int maxBatchSize, long flushIntervalMillis) {
+        this.jedisPool = jedisPool;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.flusher = new Thread(this::flushLoop, "redis-batch-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        logger.info("初始化Redis批量写入器，单批上限: {}, 刷新间隔: {}ms", this.maxBatchSize, this.flushIntervalMillis);
+    }
+
+    /**
+     * 写入一个值
+     * @param redisKey Redis键
+     * @param value 值
+     * @param ttlSeconds 过期时间(秒)，小于等于0表示不过期
+     * @return 包含该写入的批次发送完成时完成，失败时异常完成
+     */
+    public CompletableFuture<Void> set(String redisKey, byte[] value, long ttlSeconds) {
+        return enqueue(new PendingWrite(redisKey, value, ttlSeconds));
+    }
+
+    /**
+     * 删除一个键
+     * @param redisKey Redis键
+     * @return 包含该删除的批次发送完成时完成，失败时异常完成
+     */
+    public CompletableFuture<Void> delete(String redisKey) {
+        return enqueue(new PendingWrite(redisKey, null, 0));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite write) {
+        writeCount.increment();
+        synchronized (lock) {
+            if (!running) {
+                CompletableFuture<Void> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new IllegalStateException("Redis批量写入器已关闭"));
+                return rejected;
+            }
+            if (pending.put(write.key, write) != null) {
+                coalescedCount.increment();
+            }
+            if (pending.size() >= maxBatchSize) {
+                lock.notifyAll();
+            }
+            return pendingFlush;
+        }
+    }
+
+    /**
+     * 立即发送当前待写入的条目，不等待刷新间隔
+     * @return 这些条目发送完成时完成
+     */
+    public CompletableFuture<Void> flushAsync() {
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+            return pendingFlush;
+        }
+    }
+
+    /**
+     * 立即发送当前待写入的条目并等待完成
+     */
+    public void flush() {
+        flushAsync().join();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Map<String, PendingWrite> batch;
+            CompletableFuture<Void> done;
+            boolean exit;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (running && !flushRequested && pending.size() < maxBatchSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                batch = pending;
+                done = pendingFlush;
+                pending = new LinkedHashMap<>();
+                pendingFlush = new CompletableFuture<>();
+                flushRequested = false;
+                exit = !running && batch.isEmpty();
+            }
+            if (batch.isEmpty()) {
+                done.complete(null);
+            } else {
+                write(new ArrayList<>(batch.values()), done);
+            }
+            if (exit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按单批上限拆分，每批通过一次流水线发送
+     */
+    private void write(List<PendingWrite> writes, CompletableFuture<Void> done) {
+        Exception failure = null;
+        boolean abandoned = false;
+        boolean retrying = false;
+        for (int from = 0; from < writes.size(); from += maxBatchSize) {
+            List<PendingWrite> chunk = writes.subList(from, Math.min(from + maxBatchSize, writes.size()));
+            long start = System.nanoTime();
+            try {
+                writeChunk(chunk);
+                flushedCount.add(chunk.size());
+                batchCount.increment();
+            } catch (Exception e) {
+                errorCount.increment();
+                failure = e;
+                logger.warn("Redis批量写入失败，条目数: {}: {}", chunk.size(), e.toString());
+                int requeued = requeue(chunk);
+                retrying |= requeued > 0;
+                abandoned |= requeued < chunk.size();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                flushNanos.add(elapsed);
+                maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        }
+        if (failure == null) {
+            done.complete(null);
+        } else if (!retrying) {
+            done.completeExceptionally(failure);
+        } else {
+            // 重试的条目进入下一批次，本批次随下一批次完成；有条目已放弃时仍以失败完成
+            CompletableFuture<Void> retry;
+            synchronized (lock) {
+                retry = pendingFlush;
+            }
+            Exception finalFailure = abandoned ? failure : null;
+            retry.whenComplete((ignored, error) -> {
+                if (finalFailure != null) {
+                    done.completeExceptionally(finalFailure);
+                } else if (error != null) {
+                    done.completeExceptionally(error);
+                } else {
+                    done.complete(null);
+                }
+            });
+        }
+    }
+
+    private void writeChunk(List<PendingWrite> chunk) {
+        List<byte[]> msetArgs = new ArrayList<>();
+        List<byte[]> deletes = new ArrayList<>();
+        try (Jedis jedis = jedisPool.getResource(); Pipeline pipeline = jedis.pipelined()) {
+            for (PendingWrite write : chunk) {
+                byte[] key = write.key.getBytes(StandardCharsets.UTF_8);
+                if (write.value == null) {
+                    deletes.add(key);
+                } else if (write.ttlSeconds > 0) {
+                    pipeline.setex(key, write.ttlSeconds, write.value);
+                } else {
+                    msetArgs.add(key);
+                    msetArgs.add(write.value);
+                }
+            }
+            if (!msetArgs.isEmpty()) {
+                pipeline.mset(msetArgs.toArray(new byte[0][]));
+            }
+            if (!deletes.isEmpty()) {
+                pipeline.del(deletes.toArray(new byte[0][]));
+            }
+            for (Object reply : pipeline.syncAndReturnAll()) {
+                if (reply instanceof Exception) {
+                    throw new IllegalStateException("Redis批量写入返回错误", (Exception) reply);
+                }
+            }
+        }
+    }
+
+    /**
+     * 失败的条目重新入队，已有更新写入的键不再重试，由下一批次中更新的写入代替
+     * @return 重新入队或已被更新写入代替的条目数，其余条目已达到最大尝试次数被放弃
+     */
+    private int requeue(List<PendingWrite> chunk) {
+        int requeued = 0;
+        synchronized (lock) {
+            for (PendingWrite write : chunk) {
+                if (pending.containsKey(write.key)) {
+                    requeued++;
+                } else if (write.attempts + 1 < MAX_ATTEMPTS) {
+                    pending.put(write.key, write.retry());
+                    requeued++;
+                } else {
+                    logger.error("Redis写入多次失败，放弃: {}", write.key);
+                }
+            }
+        }
+        return requeued;
+    }
+
+    /**
+     * 写入请求数
+     * @return 写入和删除请求数
+     */
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * 发送前被同一键的后续写入覆盖的请求数
+     * @return 合并数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * 已发送到Redis的条目数
+     * @return 条目数
+     */
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * 当前待写入的条目数
+     * @return 条目数
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 平均每批条目数
+     * @return 条目数
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : (double) flushedCount.sum() / batches;
+    }
+
+    /**
+     * 平均每批发送耗时
+     * @return 毫秒
+     */
+    public double getAverageFlushMillis() {
+        long batches = batchCount.sum() + errorCount.sum();
+        return batches == 0 ? 0 : flushNanos.sum() / 1e6 / batches;
+    }
+
+    /**
+     * 单批发送的最大耗时
+     * @return 毫秒
+     */
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1e6;
+    }
+
+    /**
+     * 停止接收新写入，发送剩余条目后退出
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("关闭Redis批量写入器，写入数: {}, 合并数: {}, 批次数: {}",
+                getWriteCount(), getCoalescedCount(), getBatchCount());
+    }
+
+    /**
+     * 待写入的条目，value为null表示删除
+     */
+    private static class PendingWrite {
+        private final String key;
+        private final byte[] value;
+        private final long ttlSeconds;
+        private final int attempts;
+
+        PendingWrite(String key, byte[] value, long ttlSeconds) {
+            this(key, value, ttlSeconds, 0);
+        }
+
+        private PendingWrite(String key, byte[] value, long ttlSeconds, int attempts) {
+            this.key = key;
+            this.value = value;
+            this.ttlSeconds = ttlSeconds;
+            this.attempts = attempts;
+        }
+
+        PendingWrite retry() {
+            return new PendingWrite(key, value, ttlSeconds, attempts + 1);
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.caffeine.component.redis;
+
+import com.caffeine.component.warmup.loader.RedisValueDecoder;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.params.XReadParams;
+import redis.clients.jedis.resps.StreamEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Redis增量同步
+ * 预热完成后持续消费Redis的变更，只刷新或失效本地受影响的条目，使本地缓存不必等过期或全量重载才与Redis一致。
+ * 变更来源二选一：
+ * <ul>
+ *     <li>键空间通知：需在Redis开启notify-keyspace-events(至少包含K和g$x)，断线期间的通知会丢失</li>
+ *     <li>Stream：由写入方在修改键后XADD一条包含key字段(完整Redis键)的记录，op字段为del时表示删除；
+ *     断线重连后从最后处理的记录继续读取，不丢变更</li>
+ * </ul>
+ * 变更按键合并，攒满单批上限或批处理窗口到期时处理一批：已删除的键直接失效；其余键只处理本地已存在的，
+ * 以一次MGET读取最新值后替换，读不到(已删除或非字符串类型)时失效。设置{@link #setInvalidateOnly}时全部只失效不回读。
+ * 本地条目通过asMap()修改，不会再次写入Redis。
+ */
+public class RedisDeltaSync {
+    private static final Logger logger = LoggerFactory.getLogger(RedisDeltaSync.class);
+    // 订阅或读取失败后的重连间隔(毫秒)
+    private static final long RECONNECT_BACKOFF_MILLIS = 1000;
+    // XREAD的阻塞时间(毫秒)，需小于连接的读超时
+    private static final int STREAM_BLOCK_MILLIS = 1000;
+    // Stream记录中的键字段和操作字段
+    private static final String STREAM_KEY_FIELD = "key";
+    private static final String STREAM_OP_FIELD = "op";
+
+    private final JedisPool jedisPool;
+    private final String redisPrefix;
+    private final RedisValueDecoder decoder;
+    // 单批最大键数
+    private final int maxBatchSize;
+    // 批处理窗口(毫秒)
+    private final long batchWindowMillis;
+    // 同步的缓存，键为缓存名称；通过Supplier获取，缓存实例被替换后仍同步到新实例
+    private final Map<String, Supplier<Cache<Object, Object>>> caches = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    // 待处理的变更，由lock保护
+    private final Map<String, PendingChange> pending = new LinkedHashMap<>();
+    private volatile boolean invalidateOnly;
+    private volatile boolean running;
+    private Thread listener;
+    private Thread applier;
+    private volatile JedisPubSub subscription;
+    // Stream模式下最后处理的记录ID
+    private volatile StreamEntryID lastStreamId;
+
+    private final LongAdder eventCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder refreshedCount = new LongAdder();
+    private final LongAdder invalidatedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder reconnectCount = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    /**
+     * 构造函数
+     * @param jedisPool Jedis连接池，监听线程长期占用一个连接
+     * @param redisPrefix Redis键前缀，与{@link com.caffeine.component.warmup.loader.RedisCacheLoader}一致
+     * @param decoder 值解码器
+     * @param maxBatchSize 单批最大键数
+     * @param batchWindowMillis 批处理窗口(毫秒)
+     */
+    public RedisDeltaSync(JedisPool jedisPool, String redisPrefix, RedisValueDecoder decoder,
+                          int maxBatchSize, long batchWindowMillis) {
+        this.jedisPool = jedisPool;
+        this.redisPrefix = redisPrefix != null ? redisPrefix : "";
+        this.decoder = decoder != null ? decoder : RedisValueDecoder.UTF8_STRING;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchWindowMillis = Math.max(1, batchWindowMillis);
+    }
+
+    /**
+     * 注册需要同步的缓存，对应Redis键为前缀+缓存名称+":"+键
+     * @param cacheName 缓存名称
+     * @param cache 获取当前缓存实例，返回null时跳过
+     */
+    public void register(String cacheName, Supplier<Cache<Object, Object>> cache) {
+        caches.put(cacheName, cache);
+    }
+
+    /**
+     * 设置是否只失效不回读，适用于本地未命中会回源Redis的场景，可减少一次MGET
+     * @param invalidateOnly 只失效时为true，默认false
+     */
+    public void setInvalidateOnly(boolean invalidateOnly) {
+        this.invalidateOnly = invalidateOnly;
+    }
+
+    /**
+     * 以键空间通知为变更来源启动同步
+     */
+    public synchronized void startKeyspaceNotifications() {
+        String pattern = "__keyspace@*__:" + redisPrefix + "*";
+        start(() -> subscribeLoop(pattern), "redis-delta-sync-keyspace");
+        logger.info("启动Redis增量同步，键空间通知: {}", pattern);
+    }
+
+    /**
+     * 以Stream为变更来源启动同步，从启动时Stream中最后一条记录之后开始读取
+     * @param streamKey Stream键
+     */
+    public void startStream(String streamKey) {
+        startStream(streamKey, null);
+    }
+
+    /**
+     * 以Stream为变更来源启动同步
+     * @param streamKey Stream键
+     * @param startAfterId 从该ID之后的记录开始读取，为null时从启动时Stream中最后一条记录之后开始
+     */
+    public synchronized void startStream(String streamKey, String startAfterId) {
+        if (startAfterId != null) {
+            lastStreamId = new StreamEntryID(startAfterId);
+        } else {
+            // 启动时确定起始ID；XREAD使用"$"时每次读取都从当时的最新记录开始，两次读取之间追加的记录会被跳过
+            try (Jedis jedis = jedisPool.getResource()) {
+                lastStreamId = lastEntryId(jedis, streamKey);
+            } catch (Exception e) {
+                lastStreamId = null;
+                logger.warn("获取Stream最后一条记录失败，连接恢复后再确定起始ID: {}: {}", streamKey, e.toString());
+            }
+        }
+        start(() -> streamLoop(streamKey), "redis-delta-sync-stream");
+        logger.info("启动Redis增量同步，Stream: {}, 起始ID: {}", streamKey, lastStreamId);
+    }
+
+    private void start(Runnable listenLoop, String listenerName) {
+        if (running) {
+            throw new IllegalStateException("Redis增量同步已启动");
+        }
+        running = true;
+        listener = new Thread(listenLoop, listenerName);
+        listener.setDaemon(true);
+        applier = new Thread(this::applyLoop, "redis-delta-sync-applier");
+        applier.setDaemon(true);
+        applier.start();
+        listener.start();
+    }
+
+    private void subscribeLoop(String pattern) {
+        while (running) {
+            JedisPubSub pubSub = new JedisPubSub() {
+                @Override
+                public void onPMessage(String subscribedPattern, String channel, String message) {
+                    int separator = channel.indexOf("__:");
+                    if (separator >= 0) {
+                        boolean deleted = "del".equals(message) || "expired".equals(message) || "evicted".equals(message);
+                        enqueue(channel.substring(separator + 3), deleted, System.currentTimeMillis());
+                    }
+                }
+            };
+            subscription = pubSub;
+            try (Jedis jedis = jedisPool.getResource()) {
+                jedis.psubscribe(pubSub, pattern);
+            } catch (Exception e) {
+                if (running) {
+                    errorCount.increment();
+                    logger.warn("Redis键空间通知订阅中断，断线期间的变更将丢失: {}", e.toString());
+                }
+            }
+            if (running) {
+                reconnectCount.increment();
+                sleepQuietly(RECONNECT_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void streamLoop(String streamKey) {
+        while (running) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                if (lastStreamId == null) {
+                    lastStreamId = lastEntryId(jedis, streamKey);
+                    logger.info("确定Redis变更Stream起始ID: {}, {}", streamKey, lastStreamId);
+                }
+                while (running) {
+                    List<Map.Entry<String, List<StreamEntry>>> result = jedis.xread(
+                            XReadParams.xReadParams().count(maxBatchSize).block(STREAM_BLOCK_MILLIS),
+                            Collections.singletonMap(streamKey, lastStreamId));
+                    if (result == null) {
+                        continue;
+                    }
+                    for (Map.Entry<String, List<StreamEntry>> stream : result) {
+                        for (StreamEntry entry : stream.getValue()) {
+                            String key = entry.getFields().get(STREAM_KEY_FIELD);
+                            if (key != null) {
+                                enqueue(key, "del".equals(entry.getFields().get(STREAM_OP_FIELD)),
+                                        entry.getID().getTime());
+                            }
+                            lastStreamId = entry.getID();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    errorCount.increment();
+                    reconnectCount.increment();
+                    logger.warn("读取Redis变更Stream失败，稍后从 {} 继续: {}", lastStreamId, e.toString());
+                    sleepQuietly(RECONNECT_BACKOFF_MILLIS);
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询Stream中最后一条记录的ID
+     * @return 记录ID，Stream不存在或为空时返回0-0，之后追加的记录都会被读取
+     */
+    private static StreamEntryID lastEntryId(Jedis jedis, String streamKey) {
+        List<StreamEntry> last = jedis.xrevrange(streamKey, "+", "-", 1);
+        return last == null || last.isEmpty() ? new StreamEntryID() : last.get(0).getID();
+    }
+
+    /**
+     * 登记一个键的变更，同一个键的多次变更合并，延迟按最早一次计算
+     */
+    private void enqueue(String redisKey, boolean deleted, long eventMillis) {
+        eventCount.increment();
+        synchronized (lock) {
+            PendingChange previous = pending.get(redisKey);
+            if (previous != null) {
+                coalescedCount.increment();
+                pending.put(redisKey, new PendingChange(deleted, Math.min(previous.eventMillis, eventMillis)));
+            } else {
+                pending.put(redisKey, new PendingChange(deleted, eventMillis));
+            }
+            if (pending.size() >= maxBatchSize) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void applyLoop() {
+        while (true) {
+            Map<String, PendingChange> batch = new LinkedHashMap<>();
+            boolean exit;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + batchWindowMillis;
+                while (running && pending.size() < maxBatchSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                Iterator<Map.Entry<String, PendingChange>> it = pending.entrySet().iterator();
+                while (it.hasNext() && batch.size() < maxBatchSize) {
+                    Map.Entry<String, PendingChange> change = it.next();
+                    batch.put(change.getKey(), change.getValue());
+                    it.remove();
+                }
+                // 关闭后继续分批处理，直到待处理的变更全部应用
+                exit = !running && pending.isEmpty();
+            }
+            if (!batch.isEmpty()) {
+                apply(batch);
+            }
+            if (exit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 处理一批变更
+     */
+    private void apply(Map<String, PendingChange> batch) {
+        List<LocalChange> refreshes = new ArrayList<>();
+        long oldestEventMillis = Long.MAX_VALUE;
+        for (Map.Entry<String, PendingChange> change : batch.entrySet()) {
+            oldestEventMillis = Math.min(oldestEventMillis, change.getValue().eventMillis);
+            LocalChange local = resolve(change.getKey());
+            if (local == null) {
+                continue;
+            }
+            if (change.getValue().deleted || invalidateOnly) {
+                invalidate(local);
+            } else if (local.map.containsKey(local.key)) {
+                refreshes.add(local);
+            }
+        }
+
+        if (!refreshes.isEmpty()) {
+            refresh(refreshes);
+        }
+        batchCount.increment();
+        long lag = Math.max(0, System.currentTimeMillis() - oldestEventMillis);
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    /**
+     * 以一次MGET读取最新值并替换本地条目，读取失败时改为失效
+     */
+    private void refresh(List<LocalChange> refreshes) {
+        byte[][] keys = new byte[refreshes.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = refreshes.get(i).redisKey.getBytes(StandardCharsets.UTF_8);
+        }
+        List<byte[]> values;
+        try (Jedis jedis = jedisPool.getResource()) {
+            values = jedis.mget(keys);
+        } catch (Exception e) {
+            errorCount.increment();
+            logger.warn("增量同步读取Redis失败，失效 {} 个本地条目: {}", refreshes.size(), e.toString());
+            refreshes.forEach(this::invalidate);
+            return;
+        }
+        for (int i = 0; i < refreshes.size(); i++) {
+            LocalChange local = refreshes.get(i);
+            byte[] bytes = values.get(i);
+            Object value = bytes != null ? decoder.decode(local.cacheName, local.key, bytes) : null;
+            if (value == null) {
+                invalidate(local);
+            } else if (local.map.replace(local.key, value) != null) {
+                refreshedCount.increment();
+            }
+        }
+    }
+
+    private void invalidate(LocalChange local) {
+        if (local.map.remove(local.key) != null) {
+            invalidatedCount.increment();
+        }
+    }
+
+    /**
+     * 根据Redis键找到对应的缓存和本地键，有多个缓存名称匹配时取最长的
+     */
+    private LocalChange resolve(String redisKey) {
+        if (!redisKey.startsWith(redisPrefix)) {
+            return null;
+        }
+        String matched = null;
+        for (String cacheName : caches.keySet()) {
+            if (redisKey.startsWith(cacheName + ":", redisPrefix.length())
+                    && (matched == null || cacheName.length() > matched.length())) {
+                matched = cacheName;
+            }
+        }
+        if (matched == null) {
+            return null;
+        }
+        Cache<Object, Object> cache = caches.get(matched).get();
+        if (cache == null) {
+            return null;
+        }
+        String key = redisKey.substring(redisPrefix.length() + matched.length() + 1);
+        return new LocalChange(matched, key, redisKey, cache.asMap());
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 收到的变更数
+     * @return 键空间通知或Stream记录数
+     */
+    public long getEventCount() {
+        return eventCount.sum();
+    }
+
+    /**
+     * 被同一个键的后续变更合并的变更数
+     * @return 合并数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * 从Redis读取最新值并替换的本地条目数
+     * @return 刷新数
+     */
+    public long getRefreshedCount() {
+        return refreshedCount.sum();
+    }
+
+    /**
+     * 失效的本地条目数
+     * @return 失效数
+     */
+    public long getInvalidatedCount() {
+        return invalidatedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getReconnectCount() {
+        return reconnectCount.sum();
+    }
+
+    /**
+     * 待处理的变更数
+     * @return 已收到尚未处理的键数
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 最近一批的同步延迟，即批内最早一次变更到处理完成的时间；
+     * Stream模式以记录ID中的时间计算，键空间通知没有时间戳，以收到通知的时间计算
+     * @return 延迟(毫秒)
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    /**
+     * Stream模式下最后处理的记录ID，可持久化后用于重启时{@link #startStream(String, String)}续读
+     * @return 记录ID，未使用Stream模式或尚未确定起始ID时返回null
+     */
+    public String getLastStreamId() {
+        StreamEntryID id = lastStreamId;
+        return id != null ? id.toString() : null;
+    }
+
+    /**
+     * 停止同步，处理已收到的变更后退出
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            synchronized (lock) {
+                running = false;
+                lock.notifyAll();
+            }
+        }
+        try {
+            // 订阅可能正在建立，重复尝试退订直到监听线程退出
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (listener.isAlive() && System.currentTimeMillis() < deadline) {
+                JedisPubSub pubSub = subscription;
+                if (pubSub != null && pubSub.isSubscribed()) {
+                    pubSub.punsubscribe();
+                }
+                listener.join(100);
+            }
+            applier.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("关闭Redis增量同步，变更数: {}, 刷新数: {}, 失效数: {}, 最大延迟: {}ms",
+                getEventCount(), getRefreshedCount(), getInvalidatedCount(), getMaxLagMillis());
+    }
+
+    /**
+     * 待处理的变更
+     */
+    private static class PendingChange {
+        private final boolean deleted;
+        private final long eventMillis;
+
+        PendingChange(boolean deleted, long eventMillis) {
+            this.deleted = deleted;
+            this.eventMillis = eventMillis;
+        }
+    }
+
+    /**
+     * 变更对应的本地条目
+     */
+    private static class LocalChange {
+        private final String cacheName;
+        private final String key;
+        private final String redisKey;
+        private final ConcurrentMap<Object, Object> map;
+
+        LocalChange(String cacheName, String key, String redisKey, ConcurrentMap<Object, Object> map) {
+            this.cacheName = cacheName;
+            this.key = key;
+            this.redisKey = redisKey;
+            this.map = map;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.caffeine.component.redis;
+
+import com.caffeine.component.warmup.loader.RedisValueDecoder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 以Redis作为二级缓存的缓存包装
+ * 本地未命中时通过{@link RedisBatchReader}合并读取Redis，同一个键同时只有一次回源，其余调用方等待同一结果。
+ * 回源超时或失败按未命中处理；Redis中确认不存在的键在短时间内记为未命中，期间不再回源，写入或失效该键时清除。
+ * getAll的批量未命中先合并回源Redis，Redis中也不存在的键再交给映射函数；通过{@link #asMap()}的读取不回源。
+ * 写入或失效某个键时丢弃其进行中的回源并递增该键所在分段的代数，开始于写入或失效之前的回源结果只返回给调用方，
+ * 不写入本地缓存，避免旧值覆盖失效。通过{@link #asMap()}的写入不递增代数。
+ */
+public class RedisReadThroughCache<K, V> implements Cache<K, V> {
+    private static final Logger logger = LoggerFactory.getLogger(RedisReadThroughCache.class);
+    // 未命中记录的最大条目数
+    private static final long NEGATIVE_CACHE_MAXIMUM_SIZE = 10000;
+    // 写入代数的分段数，必须是2的幂
+    private static final int GENERATION_STRIPES = 64;
+
+    private final Cache<K, V> delegate;
+    private final String cacheName;
+    // Redis键前缀，与RedisCacheLoader一致：前缀 + 缓存名称 + ":"
+    private final String keyPrefix;
+    private final RedisBatchReader reader;
+    private final RedisValueDecoder decoder;
+    private final long timeoutMillis;
+    // 正在回源的键
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // Redis中确认不存在的键，不缓存未命中时为null
+    private final Cache<K, Boolean> negativeCache;
+    // 按键分段的写入代数，写入或失效时递增；同一分段的其他键写入时回源结果同样不写入本地缓存
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * 构造函数，不缓存未命中
+     * @param delegate 本地缓存
+     * @param cacheName 缓存名称
+     * @param redisPrefix Redis键前缀
+     * @param reader Redis批量读取器
+     * @param decoder 值解码器
+     * @param timeoutMillis 回源等待超时(毫秒)
+     */
+    public RedisReadThroughCache(Cache<K, V> delegate, String cacheName, String redisPrefix,
+                                 RedisBatchReader reader, RedisValueDecoder decoder, long timeoutMillis) {
+        this(delegate, cacheName, redisPrefix, reader, decoder, timeoutMillis, 0);
+    }
+
+    /**
+     * 构造函数
+     * @param delegate 本地缓存
+     * @param cacheName 缓存名称
+     * @param redisPrefix Redis键前缀
+     * @param reader Redis批量读取器
+     * @param decoder 值解码器
+     * @param timeoutMillis 回源等待超时(毫秒)
+     * @param negativeTtlMillis Redis中不存在的键在该时间内不再回源(毫秒)，0表示不缓存未命中
+     */
+    public RedisReadThroughCache(Cache<K, V> delegate, String cacheName, String redisPrefix,
+                                 RedisBatchReader reader, RedisValueDecoder decoder, long timeoutMillis,
+                                 long negativeTtlMillis) {
+        this.delegate = delegate;
+        this.cacheName = cacheName;
+        this.keyPrefix = (redisPrefix != null ? redisPrefix : "") + cacheName + ":";
+        this.reader = reader;
+        this.decoder = decoder;
+        this.timeoutMillis = timeoutMillis;
+        this.negativeCache = negativeTtlMillis > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(NEGATIVE_CACHE_MAXIMUM_SIZE)
+                        .expireAfterWrite(negativeTtlMillis, TimeUnit.MILLISECONDS)
+                        .<K, Boolean>build()
+                : null;
+    }
+
+    /**
+     * 键最近是否已确认在Redis中不存在
+     */
+    private boolean isKnownMissing(K key) {
+        return negativeCache != null && negativeCache.getIfPresent(key) != null;
+    }
+
+    /**
+     * 发起或加入某个键的回源，解码只执行一次
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<V> loadAsync(K key) {
+        CompletableFuture<V> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<V> created = new CompletableFuture<>();
+        long generation = generation(key);
+        existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        reader.read(keyPrefix + key).whenComplete((raw, error) -> {
+            try {
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else if (raw == null) {
+                    // 只记录确认的不存在，超时和失败不记录；回源期间键被写入或失效时不记录
+                    if (negativeCache != null && generation(key) == generation) {
+                        negativeCache.put(key, Boolean.TRUE);
+                        if (generation(key) != generation) {
+                            negativeCache.invalidate(key);
+                        }
+                    }
+                    created.complete(null);
+                } else {
+                    created.complete((V) decoder.decode(cacheName, key.toString(), raw));
+                }
+            } catch (Exception e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 等待回源结果，超时或失败返回null
+     */
+    private V await(K key, CompletableFuture<V> future, long remainingMillis) {
+        try {
+            return future.get(Math.max(0, remainingMillis), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("Redis回源超时: {}:{}", cacheName, key);
+        } catch (ExecutionException e) {
+            logger.warn("Redis回源失败: {}:{}: {}", cacheName, key, e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * 合并回源一批键，所有键共用一个等待截止时间
+     * @return 回源到的值，不包含未命中、近期确认不存在、超时或失败的键
+     */
+    private Map<K, V> loadAll(Collection<? extends K> keys) {
+        List<K> pending = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            if (!isKnownMissing(key)) {
+                pending.add(key);
+            }
+        }
+        // 先全部提交，使这些键落在同一合并窗口内
+        List<CompletableFuture<V>> futures = new ArrayList<>(pending.size());
+        for (K key : pending) {
+            futures.add(loadAsync(key));
+        }
+        Map<K, V> loaded = new LinkedHashMap<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (int i = 0; i < pending.size(); i++) {
+            K key = pending.get(i);
+            V value = await(key, futures.get(i), deadline - System.currentTimeMillis());
+            if (value != null) {
+                loaded.put(key, value);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 回源结果写入本地缓存，不覆盖回源期间写入的更新值
+     * 回源期间键被写入或失效时不写入；写入后再次检查代数，期间被失效时撤回，失效与写入交错时最终不留下旧值
+     * @param generation 发起回源前读取的代数
+     */
+    private V store(K key, long generation, V loaded) {
+        if (loaded == null || generation(key) != generation) {
+            return loaded;
+        }
+        ConcurrentMap<K, V> map = delegate.asMap();
+        V existing = map.putIfAbsent(key, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        if (generation(key) != generation) {
+            map.remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    private int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private long generation(K key) {
+        return generations.get(stripe(key));
+    }
+
+    /**
+     * 写入或失效前丢弃键进行中的回源并递增代数，之后的未命中重新回源
+     * 先丢弃再递增：加入了被丢弃回源的调用方读到的代数一定早于递增
+     */
+    private void supersede(K key) {
+        inFlight.remove(key);
+        generations.incrementAndGet(stripe(key));
+    }
+
+    private void supersedeAll() {
+        inFlight.clear();
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        V value = delegate.getIfPresent(key);
+        if (value != null || isKnownMissing(key)) {
+            return value;
+        }
+        // 代数在加入回源前读取
+        long generation = generation(key);
+        return store(key, generation, await(key, loadAsync(key), timeoutMillis));
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        // 回源结果由Caffeine的计算写入，不能在计算中再写同一个键
+        return delegate.get(key, k -> {
+            V loaded = isKnownMissing(k) ? null : await(k, loadAsync(k), timeoutMillis);
+            return loaded != null ? loaded : mappingFunction.apply(k);
+        });
+    }
+
+    @Override
+    public Map<K, V> getAllPresent(Iterable<? extends K> keys) {
+        Map<K, V> present = delegate.getAllPresent(keys);
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            if (!present.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return present;
+        }
+        long[] missingGenerations = new long[missing.size()];
+        for (int i = 0; i < missingGenerations.length; i++) {
+            missingGenerations[i] = generation(missing.get(i));
+        }
+        Map<K, V> result = new LinkedHashMap<>(present);
+        Map<K, V> loaded = loadAll(missing);
+        for (int i = 0; i < missingGenerations.length; i++) {
+            K key = missing.get(i);
+            V value = loaded.get(key);
+            if (value != null) {
+                result.put(key, store(key, missingGenerations[i], value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量获取，未命中的键先合并回源Redis，Redis中也不存在的键再交给映射函数，结果由Caffeine的计算写入
+     */
+    @Override
+    public Map<K, V> getAll(Iterable<? extends K> keys,
+                            Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        return delegate.getAll(keys, missing -> {
+            Map<K, V> loaded = loadAll(missing);
+            if (loaded.size() < missing.size()) {
+                Set<K> rest = new LinkedHashSet<>();
+                for (K key : missing) {
+                    if (!loaded.containsKey(key)) {
+                        rest.add(key);
+                    }
+                }
+                loaded.putAll(mappingFunction.apply(Collections.unmodifiableSet(rest)));
+            }
+            return loaded;
+        });
+    }
+
+    @Override
+    public void put(K key, V value) {
+        supersede(key);
+        delegate.put(key, value);
+        forgetMissing(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        map.keySet().forEach(this::supersede);
+        delegate.putAll(map);
+        if (negativeCache != null) {
+            negativeCache.invalidateAll(map.keySet());
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        supersede(key);
+        delegate.invalidate(key);
+        forgetMissing(key);
+    }
+
+    @Override
+    public void invalidateAll(Iterable<? extends K> keys) {
+        keys.forEach(this::supersede);
+        delegate.invalidateAll(keys);
+        if (negativeCache != null) {
+            negativeCache.invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        supersedeAll();
+        delegate.invalidateAll();
+        if (negativeCache != null) {
+            negativeCache.invalidateAll();
+        }
+    }
+
+    /**
+     * 写入或失效后清除未命中记录，下次未命中重新回源
+     */
+    private void forgetMissing(K key) {
+        if (negativeCache != null) {
+            negativeCache.invalidate(key);
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        return delegate.estimatedSize();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return delegate.asMap();
+    }
+
+    @Override
+    public void cleanUp() {
+        delegate.cleanUp();
+    }
+
+    @Override
+    public Policy<K, V> policy() {
+        return delegate.policy();
+    }
+}
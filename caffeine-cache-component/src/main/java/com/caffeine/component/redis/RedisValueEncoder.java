@@ -0,0 +1,24 @@
+package com.caffeine.component.redis;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Redis值编码器，写入Redis时将本地缓存的值编码为字节
+ */
+public interface RedisValueEncoder {
+    /**
+     * byte[]原样写入，其余值按toString()的UTF-8字节写入，与RedisValueDecoder.UTF8_STRING对应
+     */
+    RedisValueEncoder UTF8_STRING = (cacheName, key, value) -> value instanceof byte[]
+            ? (byte[]) value
+            : value.toString().getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 编码一个值
+     * @param cacheName 缓存名称
+     * @param key 本地缓存键
+     * @param value 值
+     * @return 写入Redis的字节
+     */
+    byte[] encode(String cacheName, Object key, Object value);
+}
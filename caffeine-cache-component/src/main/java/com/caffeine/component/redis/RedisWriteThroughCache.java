@@ -0,0 +1,231 @@
+package com.caffeine.component.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 将写入同步到Redis的缓存包装
+ * put/putAll/invalidate通过{@link RedisBatchWriter}批量写入Redis。
+ * 写回(write-behind)模式下只入队即返回；写穿(write-through)模式下立即触发发送并等待Redis确认后再写本地缓存，
+ * 并发的写穿调用会合并到同一批次。
+ * 同一个键的写入按分段锁串行化，入队Redis与写本地缓存的顺序一致，并发写入同一个键时两边不会留下不同的值；
+ * 写穿模式下持锁等待Redis确认，同一分段的其他键在此期间等待。
+ * invalidateAll()只清空本地缓存；通过{@link #asMap()}的写入和get加载的值不同步到Redis。
+ */
+public class RedisWriteThroughCache<K, V> implements Cache<K, V> {
+    // 写入串行化的分段锁数，必须是2的幂
+    private static final int LOCK_STRIPES = 64;
+
+    private final Cache<K, V> delegate;
+    private final String cacheName;
+    // Redis键前缀，与RedisCacheLoader一致：前缀 + 缓存名称 + ":"
+    private final String keyPrefix;
+    private final RedisBatchWriter writer;
+    private final RedisValueEncoder encoder;
+    // 写入Redis的过期时间(秒)，小于等于0表示不过期
+    private final long ttlSeconds;
+    private final boolean writeThrough;
+    private final ReentrantLock[] locks;
+
+    /**
+     * 构造函数
+     * @param delegate 本地缓存
+     * @param cacheName 缓存名称
+     * @param redisPrefix Redis键前缀
+     * @param writer Redis批量写入器
+     * @param encoder 值编码器
+     * @param ttlSeconds 写入Redis的过期时间(秒)，小于等于0表示不过期
+     * @param writeThrough true为写穿，false为写回
+     */
+    public RedisWriteThroughCache(Cache<K, V> delegate, String cacheName, String redisPrefix, RedisBatchWriter writer,
+                                  RedisValueEncoder encoder, long ttlSeconds, boolean writeThrough) {
+        this.delegate = delegate;
+        this.cacheName = cacheName;
+        this.keyPrefix = (redisPrefix != null ? redisPrefix : "") + cacheName + ":";
+        this.writer = writer;
+        this.encoder = encoder;
+        this.ttlSeconds = ttlSeconds;
+        this.writeThrough = writeThrough;
+        this.locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    private int stripeFor(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    /**
+     * 按分段序号升序获取一批键涉及的分段锁，与单键操作和其他批量操作都不会死锁
+     * @return 已获取的锁，按获取顺序排列
+     */
+    private List<ReentrantLock> lockAll(Iterable<?> keys) {
+        Set<Integer> stripes = new TreeSet<>();
+        for (Object key : keys) {
+            stripes.add(stripeFor(key));
+        }
+        List<ReentrantLock> acquired = new ArrayList<>(stripes.size());
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+            acquired.add(locks[stripe]);
+        }
+        return acquired;
+    }
+
+    private static void unlockAll(List<ReentrantLock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+    }
+
+    private CompletableFuture<Void> write(K key, V value) {
+        return writer.set(keyPrefix + key, encoder.encode(cacheName, key, value), ttlSeconds);
+    }
+
+    /**
+     * 写穿模式下立即发送并等待写入完成
+     */
+    private void awaitIfWriteThrough(List<CompletableFuture<Void>> futures) {
+        if (!writeThrough || futures.isEmpty()) {
+            return;
+        }
+        writer.flushAsync();
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("写入Redis失败: " + cacheName, e.getCause());
+        }
+    }
+
+    private void awaitIfWriteThrough(CompletableFuture<Void> future) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+        futures.add(future);
+        awaitIfWriteThrough(futures);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        ReentrantLock lock = locks[stripeFor(key)];
+        lock.lock();
+        try {
+            awaitIfWriteThrough(write(key, value));
+            delegate.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        List<ReentrantLock> acquired = lockAll(map.keySet());
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                CompletableFuture<Void> future = write(entry.getKey(), entry.getValue());
+                // 同一批次的写入共享同一个Future
+                if (futures.isEmpty() || futures.get(futures.size() - 1) != future) {
+                    futures.add(future);
+                }
+            }
+            awaitIfWriteThrough(futures);
+            delegate.putAll(map);
+        } finally {
+            unlockAll(acquired);
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        ReentrantLock lock = locks[stripeFor(key)];
+        lock.lock();
+        try {
+            awaitIfWriteThrough(writer.delete(keyPrefix + key));
+            delegate.invalidate(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll(Iterable<? extends K> keys) {
+        List<ReentrantLock> acquired = lockAll(keys);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (K key : keys) {
+                CompletableFuture<Void> future = writer.delete(keyPrefix + key);
+                if (futures.isEmpty() || futures.get(futures.size() - 1) != future) {
+                    futures.add(future);
+                }
+            }
+            awaitIfWriteThrough(futures);
+            delegate.invalidateAll(keys);
+        } finally {
+            unlockAll(acquired);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        delegate.invalidateAll();
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        return delegate.getIfPresent(key);
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        return delegate.get(key, mappingFunction);
+    }
+
+    @Override
+    public Map<K, V> getAllPresent(Iterable<? extends K> keys) {
+        return delegate.getAllPresent(keys);
+    }
+
+    @Override
+    public Map<K, V> getAll(Iterable<? extends K> keys,
+                            Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        return delegate.getAll(keys, mappingFunction);
+    }
+
+    @Override
+    public long estimatedSize() {
+        return delegate.estimatedSize();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return delegate.asMap();
+    }
+
+    @Override
+    public void cleanUp() {
+        delegate.cleanUp();
+    }
+
+    @Override
+    public Policy<K, V> policy() {
+        return delegate.policy();
+    }
+}
@@ -2,14 +2,67 @@ package com.caffeine.component.warmup;
 
 import com.github.benmanes.caffeine.cache.Cache;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 缓存数据加载器接口
  */
 public interface CacheDataLoader {
     /**
-     * 加载数据到缓存
+     * 按优先级加载时每批读取的热点键数
+     */
+    int PRIORITY_BATCH_SIZE = 1000;
+
+    /**
+     * 加载数据到缓存，实现应通过{@link FencedWrites}写入，避免覆盖业务并发写入的新值
+     * @param cacheName 缓存名称
+     * @param cache 缓存实例
+     * @return 预热句柄，可用于等待完成和查看进度
+     */
+    WarmupHandle loadData(String cacheName, Cache<Object, Object> cache);
+
+    /**
+     * 按优先级加载数据到缓存：先按给定顺序加载热点键，再执行全量加载
+     * 默认在调用线程上分批调用{@link #loadValues}加载热点键，然后调用{@link #loadData(String, Cache)}；实现可覆盖为异步加载
      * @param cacheName 缓存名称
      * @param cache 缓存实例
+     * @param priorityKeys 按热度从高到低排列的键
+     * @return 预热句柄
+     */
+    default WarmupHandle loadData(String cacheName, Cache<Object, Object> cache, List<?> priorityKeys) {
+        for (int from = 0; from < priorityKeys.size(); from += PRIORITY_BATCH_SIZE) {
+            FencedWrites.putAllIfNewer(cache, loadValues(cacheName, priorityKeys.subList(from,
+                    Math.min(from + PRIORITY_BATCH_SIZE, priorityKeys.size()))));
+        }
+        return loadData(cacheName, cache);
+    }
+
+    /**
+     * 从数据源读取单个值，用于预热完成前回源处理本地缓存未命中
+     * @param cacheName 缓存名称
+     * @param key 键
+     * @return 值，不存在或不支持时返回null
+     */
+    default Object loadValue(String cacheName, Object key) {
+        return null;
+    }
+
+    /**
+     * 从数据源批量读取值，默认逐个调用{@link #loadValue}
+     * @param cacheName 缓存名称
+     * @param keys 键
+     * @return 键到值的映射，不包含不存在的键
      */
-    void loadData(String cacheName, Cache<Object, Object> cache);
-}
\ No newline at end of file
+    default Map<Object, Object> loadValues(String cacheName, Iterable<?> keys) {
+        Map<Object, Object> values = new HashMap<>();
+        for (Object key : keys) {
+            Object value = loadValue(cacheName, key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+}
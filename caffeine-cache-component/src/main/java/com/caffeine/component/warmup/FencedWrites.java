@@ -0,0 +1,68 @@
+package com.caffeine.component.warmup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 批量预热的条件写入
+ * 预热与业务写入并发时，预热读到的数据可能比业务已写入的值旧。条件写入只在键不存在时插入；
+ * 键已存在时，仅当新旧值都实现{@link VersionedValue}且新值版本更高时以CAS替换，否则保留已有值。
+ * 因此预热可以与业务写入完全并发，不会用旧数据覆盖新值。
+ * 注意：预热期间被业务删除的键没有留下版本信息，仍可能被预热重新插入。
+ */
+public final class FencedWrites {
+    // 版本替换的CAS最大重试次数，超过后保留已有值
+    private static final int MAX_REPLACE_ATTEMPTS = 8;
+
+    private FencedWrites() {
+    }
+
+    /**
+     * 条件写入单个条目
+     * @param map 缓存的Map视图
+     * @param key 键
+     * @param value 预热读到的值
+     * @return 写入或替换时返回true，保留已有值时返回false
+     */
+    public static boolean putIfNewer(ConcurrentMap<Object, Object> map, Object key, Object value) {
+        Object existing = map.putIfAbsent(key, value);
+        for (int attempt = 0; existing != null && attempt < MAX_REPLACE_ATTEMPTS; attempt++) {
+            if (!isNewer(value, existing)) {
+                return false;
+            }
+            if (map.replace(key, existing, value)) {
+                return true;
+            }
+            // 并发修改，重新读取后比较；期间被删除时重新尝试插入
+            existing = map.get(key);
+            if (existing == null) {
+                existing = map.putIfAbsent(key, value);
+            }
+        }
+        return existing == null;
+    }
+
+    /**
+     * 条件写入一批条目
+     * @param cache 缓存实例，通过asMap()写入
+     * @param entries 预热读到的条目
+     * @return 实际写入或替换的条目数
+     */
+    public static int putAllIfNewer(Cache<Object, Object> cache, Map<?, ?> entries) {
+        ConcurrentMap<Object, Object> map = cache.asMap();
+        int written = 0;
+        for (Map.Entry<?, ?> entry : entries.entrySet()) {
+            if (putIfNewer(map, entry.getKey(), entry.getValue())) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static boolean isNewer(Object value, Object existing) {
+        return value instanceof VersionedValue && existing instanceof VersionedValue
+                && ((VersionedValue) value).getVersion() > ((VersionedValue) existing).getVersion();
+    }
+}
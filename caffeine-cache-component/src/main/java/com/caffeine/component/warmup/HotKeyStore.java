@@ -0,0 +1,104 @@
+package com.caffeine.component.warmup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 热点键存储
+ * 按热度从高到低保存各缓存的热点键样本，重启后预热时按该顺序优先加载。
+ * 每个缓存一个文件，先写临时文件再原子替换，写入中途崩溃不会留下损坏的样本；不可序列化的键被跳过。
+ */
+public class HotKeyStore {
+    private static final Logger logger = LoggerFactory.getLogger(HotKeyStore.class);
+    private static final String FILE_SUFFIX = ".hotkeys";
+
+    private final File directory;
+
+    /**
+     * 构造函数
+     * @param directory 存储目录，不存在时在首次保存时创建
+     */
+    public HotKeyStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 保存热点键样本，覆盖之前的样本
+     * @param cacheName 缓存名称
+     * @param keys 按热度从高到低排列的键
+     * @return 实际保存的键数
+     */
+    public int save(String cacheName, Collection<?> keys) {
+        List<Object> serializable = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            if (key instanceof Serializable) {
+                serializable.add(key);
+            }
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            logger.warn("无法创建热点键目录: {}", directory);
+            return 0;
+        }
+        File target = fileOf(cacheName);
+        File temp = new File(directory, target.getName() + ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                out.writeInt(serializable.size());
+                for (Object key : serializable) {
+                    out.writeObject(key);
+                }
+            }
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("保存热点键样本: {}, 键数: {}", cacheName, serializable.size());
+            return serializable.size();
+        } catch (IOException e) {
+            logger.warn("保存热点键样本失败: {}", cacheName, e);
+            temp.delete();
+            return 0;
+        }
+    }
+
+    /**
+     * 读取热点键样本
+     * @param cacheName 缓存名称
+     * @return 按热度从高到低排列的键，没有样本或读取失败时返回空列表
+     */
+    public List<Object> load(String cacheName) {
+        File file = fileOf(cacheName);
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            int count = in.readInt();
+            List<Object> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(in.readObject());
+            }
+            return keys;
+        } catch (IOException | ClassNotFoundException e) {
+            logger.warn("读取热点键样本失败，忽略: {}", cacheName, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private File fileOf(String cacheName) {
+        return new File(directory, cacheName + FILE_SUFFIX);
+    }
+}
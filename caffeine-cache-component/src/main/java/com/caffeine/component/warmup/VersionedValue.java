@@ -0,0 +1,13 @@
+package com.caffeine.component.warmup;
+
+/**
+ * 带版本的缓存值
+ * 批量预热写入时，只有版本更高的值才会替换缓存中已有的值；版本可以是数据行的版本号或更新时间戳
+ */
+public interface VersionedValue {
+    /**
+     * 获取版本，越大越新
+     * @return 版本
+     */
+    long getVersion();
+}
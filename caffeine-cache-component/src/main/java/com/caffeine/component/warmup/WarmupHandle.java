@@ -0,0 +1,148 @@
+package com.caffeine.component.warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存预热句柄
+ * 提供预热完成的Future以及已加载条目数、字节数、加载速率和预计剩余时间
+ */
+public class WarmupHandle {
+    private final String cacheName;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final LongAdder loadedCount = new LongAdder();
+    private final LongAdder loadedBytes = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    // 预计总条目数，未知时为-1
+    private volatile long expectedCount = -1;
+    private volatile long endNanos;
+
+    /**
+     * 构造函数
+     * @param cacheName 缓存名称
+     */
+    public WarmupHandle(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * 创建一个已完成的句柄，用于同步完成加载的实现
+     * @param cacheName 缓存名称
+     * @param loadedCount 已加载条目数
+     * @return 已完成的句柄
+     */
+    public static WarmupHandle completed(String cacheName, long loadedCount) {
+        WarmupHandle handle = new WarmupHandle(cacheName);
+        handle.recordLoaded(loadedCount, 0);
+        handle.complete();
+        return handle;
+    }
+
+    /**
+     * 记录加载进度，重试回滚时可传入负数
+     * @param count 条目数
+     * @param bytes 字节数(估算)
+     */
+    public void recordLoaded(long count, long bytes) {
+        loadedCount.add(count);
+        loadedBytes.add(bytes);
+    }
+
+    /**
+     * 设置预计总条目数，用于计算剩余时间
+     * @param expectedCount 预计总条目数，未知时为-1
+     */
+    public void setExpectedCount(long expectedCount) {
+        this.expectedCount = expectedCount;
+    }
+
+    /**
+     * 标记预热成功完成
+     */
+    public void complete() {
+        endNanos = System.nanoTime();
+        future.complete(null);
+    }
+
+    /**
+     * 标记预热失败
+     * @param error 失败原因
+     */
+    public void fail(Throwable error) {
+        endNanos = System.nanoTime();
+        future.completeExceptionally(error);
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * 预热完成的Future，失败时异常完成
+     * @return Future
+     */
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public long getLoadedCount() {
+        return loadedCount.sum();
+    }
+
+    public long getLoadedBytes() {
+        return loadedBytes.sum();
+    }
+
+    public long getExpectedCount() {
+        return expectedCount;
+    }
+
+    /**
+     * 已耗时
+     * @return 毫秒
+     */
+    public long getElapsedMillis() {
+        long end = isDone() ? endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * 平均加载速率
+     * @return 条/秒
+     */
+    public double getRate() {
+        long elapsedMillis = getElapsedMillis();
+        return elapsedMillis <= 0 ? 0 : getLoadedCount() * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * 预计剩余时间
+     * @return 毫秒；已完成时为0，总量或速率未知时为-1
+     */
+    public long getEtaMillis() {
+        if (isDone()) {
+            return 0;
+        }
+        long expected = expectedCount;
+        double rate = getRate();
+        if (expected < 0 || rate <= 0) {
+            return -1;
+        }
+        return (long) (Math.max(0, expected - getLoadedCount()) * 1000 / rate);
+    }
+
+    @Override
+    public String toString() {
+        return "WarmupHandle{cache=" + cacheName
+                + ", done=" + isDone()
+                + ", loaded=" + getLoadedCount()
+                + ", bytes=" + getLoadedBytes()
+                + ", rate=" + String.format("%.1f", getRate()) + "/s"
+                + ", etaMillis=" + getEtaMillis() + "}";
+    }
+}
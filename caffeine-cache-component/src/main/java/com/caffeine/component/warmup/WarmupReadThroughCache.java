@@ -0,0 +1,203 @@
+package com.caffeine.component.warmup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 预热期间回源的缓存包装
+ * 预热进行中时，通过Cache接口读取未命中的键(包括getAll的批量未命中)会从预热数据源读取并写入本地缓存；预热完成后不再回源。
+ * 通过{@link #asMap()}的读取不回源。
+ */
+public class WarmupReadThroughCache<K, V> implements Cache<K, V> {
+    private final Cache<K, V> delegate;
+    private final String cacheName;
+    // 当前预热的数据源和句柄，未在预热时为null
+    private volatile CacheDataLoader source;
+    private volatile WarmupHandle handle;
+
+    public WarmupReadThroughCache(Cache<K, V> delegate, String cacheName) {
+        this.delegate = delegate;
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * 关联一次预热，预热完成(成功或失败)后自动解除
+     * @param loader 预热数据源
+     * @param warmupHandle 预热句柄
+     */
+    public void attach(CacheDataLoader loader, WarmupHandle warmupHandle) {
+        this.source = loader;
+        this.handle = warmupHandle;
+        warmupHandle.getFuture().whenComplete((ignored, error) -> {
+            if (this.handle == warmupHandle) {
+                this.source = null;
+            }
+        });
+    }
+
+    /**
+     * 是否正在预热
+     * @return 预热中返回true
+     */
+    public boolean isWarmingUp() {
+        WarmupHandle current = handle;
+        return source != null && current != null && !current.isDone();
+    }
+
+    private CacheDataLoader activeSource() {
+        CacheDataLoader loader = source;
+        WarmupHandle current = handle;
+        return loader != null && current != null && !current.isDone() ? loader : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getIfPresent(K key) {
+        V value = delegate.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        CacheDataLoader loader = activeSource();
+        if (loader == null) {
+            return null;
+        }
+        V loaded = (V) loader.loadValue(cacheName, key);
+        if (loaded == null) {
+            return null;
+        }
+        // 不覆盖回源期间写入的更新值
+        V existing = delegate.asMap().putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        return delegate.get(key, k -> {
+            CacheDataLoader loader = activeSource();
+            if (loader != null) {
+                V loaded = (V) loader.loadValue(cacheName, k);
+                if (loaded != null) {
+                    return loaded;
+                }
+            }
+            return mappingFunction.apply(k);
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, V> getAllPresent(Iterable<? extends K> keys) {
+        Map<K, V> present = delegate.getAllPresent(keys);
+        CacheDataLoader loader = activeSource();
+        if (loader == null) {
+            return present;
+        }
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            if (!present.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return present;
+        }
+        Map<K, V> result = new LinkedHashMap<>(present);
+        loader.loadValues(cacheName, missing).forEach((key, value) -> {
+            V existing = delegate.asMap().putIfAbsent((K) key, (V) value);
+            result.put((K) key, existing != null ? existing : (V) value);
+        });
+        return result;
+    }
+
+    /**
+     * 批量获取，预热进行中时未命中的键先通过{@link CacheDataLoader#loadValues}一次回源，数据源中也不存在的键再交给映射函数
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, V> getAll(Iterable<? extends K> keys,
+                            Function<? super Set<? extends K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        if (activeSource() == null) {
+            return delegate.getAll(keys, mappingFunction);
+        }
+        return delegate.getAll(keys, missing -> {
+            Map<K, V> loaded = new HashMap<>();
+            CacheDataLoader loader = activeSource();
+            if (loader != null) {
+                loader.loadValues(cacheName, missing).forEach((key, value) -> loaded.put((K) key, (V) value));
+            }
+            if (loaded.size() < missing.size()) {
+                Set<K> rest = new LinkedHashSet<>();
+                for (K key : missing) {
+                    if (!loaded.containsKey(key)) {
+                        rest.add(key);
+                    }
+                }
+                loaded.putAll(mappingFunction.apply(Collections.unmodifiableSet(rest)));
+            }
+            return loaded;
+        });
+    }
+
+    @Override
+    public void put(K key, V value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        delegate.putAll(map);
+    }
+
+    @Override
+    public void invalidate(K key) {
+        delegate.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll(Iterable<? extends K> keys) {
+        delegate.invalidateAll(keys);
+    }
+
+    @Override
+    public void invalidateAll() {
+        delegate.invalidateAll();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return delegate.estimatedSize();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return delegate.asMap();
+    }
+
+    @Override
+    public void cleanUp() {
+        delegate.cleanUp();
+    }
+
+    @Override
+    public Policy<K, V> policy() {
+        return delegate.policy();
+    }
+}
@@ -1,21 +1,45 @@
 package com.caffeine.component.warmup.loader;
 
 import com.caffeine.component.warmup.CacheDataLoader;
+import com.caffeine.component.warmup.FencedWrites;
+import com.caffeine.component.warmup.WarmupHandle;
 import com.github.benmanes.caffeine.cache.Cache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 外部缓存数据加载器抽象基类
- * 提供从外部缓存中间件异步加载数据到本地缓存的通用实现
+ * 提供从外部缓存中间件异步加载数据到本地缓存的通用实现。
+ * 子类可通过{@link #createPartitions}将数据源划分为多个分区，各分区在线程池上并发加载，失败的分区单独重试。
+ * 设置{@link WarmupThrottle}后，子类在每批写入前通过{@link #throttle}申请额度，使预热让路于线上流量。
  */
 public abstract class AbstractExternalCacheLoader implements CacheDataLoader {
     private static final Logger logger = LoggerFactory.getLogger(AbstractExternalCacheLoader.class);
+    // 默认分区失败重试次数
+    private static final int DEFAULT_MAX_RETRIES = 2;
+    // 重试退避基准时间(毫秒)，第n次重试等待n倍
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+
     private final ExecutorService executorService;
     private final int threadPoolSize;
+    private final int maxRetries;
+    // 各缓存最近一次加载的分区进度
+    private final Map<String, List<PartitionProgress>> partitionProgress = new ConcurrentHashMap<>();
+    // 预热限流器，为null时不限流
+    private volatile WarmupThrottle warmupThrottle;
+    // 有热点键时只加载热点键
+    private volatile boolean priorityKeysOnly;
 
     /**
      * 默认构造函数，使用单线程池
@@ -29,7 +53,17 @@ public abstract class AbstractExternalCacheLoader implements CacheDataLoader {
      * @param threadPoolSize 线程池大小
      */
     protected AbstractExternalCacheLoader(int threadPoolSize) {
+        this(threadPoolSize, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * 构造函数，允许指定线程池大小和分区重试次数
+     * @param threadPoolSize 线程池大小
+     * @param maxRetries 单个分区加载失败后的最大重试次数
+     */
+    protected AbstractExternalCacheLoader(int threadPoolSize, int maxRetries) {
         this.threadPoolSize = Math.max(1, threadPoolSize);
+        this.maxRetries = Math.max(0, maxRetries);
         this.executorService = Executors.newFixedThreadPool(this.threadPoolSize);
         logger.info("初始化外部缓存加载器，线程池大小: {}", this.threadPoolSize);
     }
@@ -38,19 +72,199 @@ public abstract class AbstractExternalCacheLoader implements CacheDataLoader {
      * 从外部缓存加载数据到本地缓存
      * @param cacheName 缓存名称
      * @param cache 本地缓存实例
+     * @return 预热句柄，所有分区加载成功后正常完成，任一分区最终失败时异常完成
      */
     @Override
-    public void loadData(String cacheName, Cache<Object, Object> cache) {
-        logger.info("开始异步加载外部缓存数据到本地缓存: {}", cacheName);
+    public WarmupHandle loadData(String cacheName, Cache<Object, Object> cache) {
+        return loadData(cacheName, cache, Collections.emptyList());
+    }
 
-        CompletableFuture.runAsync(() -> {
+    /**
+     * 按优先级从外部缓存加载数据到本地缓存
+     * 热点键作为第一个阶段在线程池上按顺序分批加载，完成后再并发加载各分区；
+     * 设置{@link #setPriorityKeysOnly}时只加载热点键。热点键加载失败不影响后续全量加载，
+     * 加载线程被中断时整个加载以中断异常结束，不再加载各分区。
+     * 分区划分和总条目数估算可能查询数据源，与热点键阶段一起提交到线程池，不阻塞调用线程；
+     * 估算完成后才设置预计总条目数。
+     * @param cacheName 缓存名称
+     * @param cache 本地缓存实例
+     * @param priorityKeys 按热度从高到低排列的键
+     * @return 预热句柄
+     */
+    @Override
+    public WarmupHandle loadData(String cacheName, Cache<Object, Object> cache, List<?> priorityKeys) {
+        logger.info("开始异步加载外部缓存数据到本地缓存: {}, 热点键数: {}", cacheName, priorityKeys.size());
+        WarmupHandle handle = new WarmupHandle(cacheName);
+        boolean hotOnly = priorityKeysOnly && !priorityKeys.isEmpty();
+        if (hotOnly) {
+            handle.setExpectedCount(priorityKeys.size());
+        }
+
+        PartitionProgress hot = priorityKeys.isEmpty() ? null
+                : new PartitionProgress(new LoadPartition("hot", priorityKeys), handle);
+        List<PartitionProgress> hotList = hot == null ? Collections.emptyList() : Collections.singletonList(hot);
+        // 划分完成前只有热点键阶段的进度
+        AtomicReference<List<PartitionProgress>> progressList = new AtomicReference<>(hotList);
+        partitionProgress.put(cacheName, hotList);
+
+        CompletableFuture<Void> hotStage = hot == null ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> loadPriorityKeys(cacheName, cache, priorityKeys, hot), executorService);
+        CompletableFuture<List<PartitionProgress>> planStage = hotOnly
+                ? CompletableFuture.completedFuture(Collections.emptyList())
+                : CompletableFuture.supplyAsync(() -> {
+                    List<PartitionProgress> planned = planPartitions(cacheName, handle, priorityKeys.size());
+                    List<PartitionProgress> all = new ArrayList<>(hotList.size() + planned.size());
+                    all.addAll(hotList);
+                    all.addAll(planned);
+                    progressList.set(Collections.unmodifiableList(all));
+                    partitionProgress.put(cacheName, progressList.get());
+                    return planned;
+                }, executorService);
+
+        CompletableFuture<Void> allStages = hotStage.thenCombine(planStage, (ignored, rest) -> rest).thenCompose(rest -> {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[rest.size()];
+            for (int i = 0; i < futures.length; i++) {
+                PartitionProgress progress = rest.get(i);
+                futures[i] = CompletableFuture.runAsync(
+                        () -> loadPartitionWithRetry(cacheName, cache, progress), executorService);
+            }
+            return CompletableFuture.allOf(futures);
+        });
+
+        allStages.whenComplete((ignored, error) -> {
+            if (error == null) {
+                handle.complete();
+                logger.info("成功加载外部缓存数据到本地缓存: {}, 分区数: {}, {}", cacheName, progressList.get().size(), handle);
+            } else {
+                handle.fail(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                logger.error("加载外部缓存数据到本地缓存失败: {}, 分区进度: {}", cacheName, progressList.get());
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * 划分分区并估算总条目数，在线程池上执行
+     * @return 各分区的进度
+     */
+    private List<PartitionProgress> planPartitions(String cacheName, WarmupHandle handle, int priorityKeyCount) {
+        List<LoadPartition> partitions;
+        long estimated;
+        try {
+            partitions = createPartitions(cacheName);
+            estimated = estimateCount(cacheName);
+        } catch (Exception e) {
+            logger.error("划分外部缓存数据分区失败: {}", cacheName, e);
+            throw new CompletionException(e);
+        }
+        handle.setExpectedCount(estimated < 0 ? -1 : estimated + priorityKeyCount);
+        List<PartitionProgress> progressList = new ArrayList<>(partitions.size());
+        for (LoadPartition partition : partitions) {
+            progressList.add(new PartitionProgress(partition, handle));
+        }
+        return progressList;
+    }
+
+    /**
+     * 按顺序分批加载热点键，失败时记录并继续全量加载；被中断时结束整个加载
+     */
+    private void loadPriorityKeys(String cacheName, Cache<Object, Object> cache, List<?> priorityKeys,
+                                  PartitionProgress progress) {
+        progress.start(1);
+        try {
+            for (int from = 0; from < priorityKeys.size(); from += PRIORITY_BATCH_SIZE) {
+                List<?> batch = priorityKeys.subList(from, Math.min(from + PRIORITY_BATCH_SIZE, priorityKeys.size()));
+                Map<Object, Object> values = loadValues(cacheName, batch);
+                throttle(cache, values.size(), 0);
+                FencedWrites.putAllIfNewer(cache, values);
+                progress.addLoaded(values.size());
+            }
+            progress.complete();
+            logger.info("热点键加载完成: {}, 条目数: {}", cacheName, progress.getLoadedCount());
+        } catch (InterruptedException e) {
+            // 与分区重试等待被中断时一致：结束整个加载，不在已中断的线程上继续提交分区
+            Thread.currentThread().interrupt();
+            progress.fail(e);
+            logger.warn("热点键加载被中断，停止加载: {}", cacheName);
+            throw new CompletionException(e);
+        } catch (Exception e) {
+            progress.fail(e);
+            logger.warn("热点键加载失败，继续全量加载: {}: {}", cacheName, e.toString());
+        }
+    }
+
+    /**
+     * 获取缓存最近一次加载的分区进度
+     * @param cacheName 缓存名称
+     * @return 分区进度列表，未加载过时返回空列表
+     */
+    public List<PartitionProgress> getPartitionProgress(String cacheName) {
+        return partitionProgress.getOrDefault(cacheName, Collections.emptyList());
+    }
+
+    /**
+     * 加载单个分区，失败时按退避时间重试
+     */
+    private void loadPartitionWithRetry(String cacheName, Cache<Object, Object> cache, PartitionProgress progress) {
+        LoadPartition partition = progress.getPartition();
+        for (int attempt = 1; ; attempt++) {
+            progress.start(attempt);
             try {
-                doLoadData(cacheName, cache);
-                logger.info("成功加载外部缓存数据到本地缓存: {}", cacheName);
+                doLoadPartition(cacheName, partition, cache, progress);
+                progress.complete();
+                logger.info("分区加载完成: {} [{}], 条目数: {}", cacheName, partition, progress.getLoadedCount());
+                return;
             } catch (Exception e) {
-                logger.error("加载外部缓存数据到本地缓存失败: {}", cacheName, e);
+                if (attempt > maxRetries) {
+                    progress.fail(e);
+                    logger.error("分区加载失败: {} [{}], 已尝试 {} 次", cacheName, partition, attempt, e);
+                    throw new CompletionException(e);
+                }
+                progress.retrying(e);
+                logger.warn("分区加载失败，准备重试: {} [{}], 第 {} 次尝试: {}", cacheName, partition, attempt, e.toString());
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    progress.fail(interrupted);
+                    throw new CompletionException(interrupted);
+                }
             }
-        }, executorService);
+        }
+    }
+
+    /**
+     * 将数据源划分为可并发加载的分区，默认整体作为一个分区
+     * @param cacheName 缓存名称
+     * @return 分区列表
+     * @throws Exception 划分过程中可能出现的异常
+     */
+    protected List<LoadPartition> createPartitions(String cacheName) throws Exception {
+        return Collections.singletonList(new LoadPartition("all", null));
+    }
+
+    /**
+     * 估算需要加载的总条目数，用于计算预计剩余时间
+     * @param cacheName 缓存名称
+     * @return 预计总条目数，未知时返回-1
+     * @throws Exception 估算过程中可能出现的异常
+     */
+    protected long estimateCount(String cacheName) throws Exception {
+        return -1;
+    }
+
+    /**
+     * 加载单个分区的数据，默认调用{@link #doLoadData}
+     * 实现需保证可重复执行：分区失败重试时会重新加载整个分区
+     * @param cacheName 缓存名称
+     * @param partition 分区
+     * @param cache 本地缓存实例
+     * @param progress 分区进度，加载过程中通过{@link PartitionProgress#addLoaded}上报条目数
+     * @throws Exception 加载过程中可能出现的异常
+     */
+    protected void doLoadPartition(String cacheName, LoadPartition partition, Cache<Object, Object> cache,
+                                   PartitionProgress progress) throws Exception {
+        doLoadData(cacheName, cache);
     }
 
     /**
@@ -61,6 +275,48 @@ public abstract class AbstractExternalCacheLoader implements CacheDataLoader {
      */
     protected abstract void doLoadData(String cacheName, Cache<Object, Object> cache) throws Exception;
 
+    /**
+     * 写入一批数据前申请限流额度，未设置限流器时立即返回
+     * @param cache 本地缓存实例
+     * @param entries 条目数
+     * @param bytes 字节数(估算)
+     * @throws InterruptedException 等待期间被中断
+     */
+    protected void throttle(Cache<Object, Object> cache, long entries, long bytes) throws InterruptedException {
+        WarmupThrottle current = warmupThrottle;
+        if (current != null) {
+            current.acquire(cache, entries, bytes);
+        }
+    }
+
+    /**
+     * 设置预热限流器，对之后写入的批次生效
+     * @param warmupThrottle 限流器，为null时不限流
+     */
+    public void setWarmupThrottle(WarmupThrottle warmupThrottle) {
+        this.warmupThrottle = warmupThrottle;
+    }
+
+    public WarmupThrottle getWarmupThrottle() {
+        return warmupThrottle;
+    }
+
+    /**
+     * 设置有热点键时是否只加载热点键，适用于本地缓存容量远小于数据源、全量加载会立即淘汰的场景
+     * @param priorityKeysOnly 只加载热点键时为true，默认false
+     */
+    public void setPriorityKeysOnly(boolean priorityKeysOnly) {
+        this.priorityKeysOnly = priorityKeysOnly;
+    }
+
+    /**
+     * 获取线程池大小
+     * @return 线程池大小
+     */
+    protected int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
     /**
      * 关闭线程池资源
      */
@@ -68,4 +324,4 @@ public abstract class AbstractExternalCacheLoader implements CacheDataLoader {
         logger.info("关闭外部缓存加载器线程池");
         executorService.shutdown();
     }
-}
\ No newline at end of file
+}
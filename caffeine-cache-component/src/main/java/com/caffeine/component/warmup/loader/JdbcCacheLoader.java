@@ -0,0 +1,256 @@
+package com.caffeine.component.warmup.loader;
+
+import com.caffeine.component.warmup.FencedWrites;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JDBC缓存加载器
+ * 以固定fetchSize流式读取查询结果，每行经{@link JdbcRowMapper}映射后按批条件写入缓存，内存占用与单批大小相当，与表大小无关。
+ * 指定整数类型的键列时，按键的取值范围划分为与线程池大小相同数量的分区并发加载。
+ * 注意：MySQL Connector/J需在连接URL中设置useCursorFetch=true，fetchSize才会生效。
+ */
+public class JdbcCacheLoader extends AbstractExternalCacheLoader {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcCacheLoader.class);
+    // 默认每次从数据库拉取的行数
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    // 默认每批写入缓存的条目数
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    // 加载查询
+    private final String sql;
+    // 用于划分分区和单键回源的整数键列，为null时不分区
+    private final String keyColumn;
+    private final JdbcRowMapper rowMapper;
+    // 每次从数据库拉取的行数
+    private final int fetchSize;
+    // 每批写入缓存的条目数
+    private final int batchSize;
+    // 划分分区时顺带统计的行数，供估算总量使用
+    private final Map<String, Long> rowCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数，单线程加载整个查询结果
+     * @param dataSource 数据源
+     * @param sql 加载查询
+     * @param rowMapper 行映射函数
+     */
+    public JdbcCacheLoader(DataSource dataSource, String sql, JdbcRowMapper rowMapper) {
+        this(dataSource, sql, null, rowMapper, 1);
+    }
+
+    /**
+     * 构造函数
+     * @param dataSource 数据源
+     * @param sql 加载查询
+     * @param keyColumn 整数类型的键列，用于按取值范围划分分区，为null时不分区
+     * @param rowMapper 行映射函数
+     * @param parallelism 并行加载的分区数，每个分区占用一个线程和一个连接
+     */
+    public JdbcCacheLoader(DataSource dataSource, String sql, String keyColumn, JdbcRowMapper rowMapper,
+                           int parallelism) {
+        this(dataSource, sql, keyColumn, rowMapper, parallelism, DEFAULT_FETCH_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 构造函数
+     * @param dataSource 数据源
+     * @param sql 加载查询
+     * @param keyColumn 整数类型的键列，用于按取值范围划分分区，为null时不分区
+     * @param rowMapper 行映射函数
+     * @param parallelism 并行加载的分区数，每个分区占用一个线程和一个连接
+     * @param fetchSize 每次从数据库拉取的行数
+     * @param batchSize 每批写入缓存的条目数
+     */
+    public JdbcCacheLoader(DataSource dataSource, String sql, String keyColumn, JdbcRowMapper rowMapper,
+                           int parallelism, int fetchSize, int batchSize) {
+        super(parallelism);
+        this.dataSource = dataSource;
+        this.sql = sql;
+        this.keyColumn = keyColumn;
+        this.rowMapper = rowMapper;
+        this.fetchSize = Math.max(1, fetchSize);
+        this.batchSize = Math.max(1, batchSize);
+        logger.info("初始化JDBC缓存加载器，fetchSize: {}, batchSize: {}, 键列: {}", this.fetchSize, this.batchSize, keyColumn);
+    }
+
+    /**
+     * 按键列的取值范围均分为与线程池大小相同数量的分区，分区描述为[起始, 结束)的long数组
+     * @param cacheName 缓存名称
+     * @return 分区列表
+     * @throws SQLException 统计键范围失败
+     */
+    @Override
+    protected List<LoadPartition> createPartitions(String cacheName) throws SQLException {
+        if (keyColumn == null || getThreadPoolSize() <= 1) {
+            return Collections.singletonList(new LoadPartition("all", null));
+        }
+
+        long min;
+        long max;
+        String rangeSql = "SELECT MIN(t." + keyColumn + "), MAX(t." + keyColumn + "), COUNT(*) FROM (" + sql + ") t";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(rangeSql);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            rowCounts.put(cacheName, resultSet.getLong(3));
+            min = resultSet.getLong(1);
+            if (resultSet.wasNull()) {
+                // 空表
+                return Collections.singletonList(new LoadPartition("all", null));
+            }
+            max = resultSet.getLong(2);
+        }
+
+        long span = max - min + 1;
+        if (span <= 0) {
+            // 取值范围超出long，退化为不分区
+            return Collections.singletonList(new LoadPartition("all", null));
+        }
+        int partitionCount = (int) Math.min(getThreadPoolSize(), span);
+        long step = (span + partitionCount - 1) / partitionCount;
+        List<LoadPartition> partitions = new ArrayList<>(partitionCount);
+        for (long from = min; from <= max; from += step) {
+            long to = Math.min(from + step, max + 1);
+            partitions.add(new LoadPartition(keyColumn + "[" + from + "," + to + ")", new long[]{from, to}));
+            if (to > max) {
+                break;
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * 优先使用划分分区时统计的行数，否则执行COUNT查询
+     */
+    @Override
+    protected long estimateCount(String cacheName) throws SQLException {
+        Long counted = rowCounts.remove(cacheName);
+        if (counted != null) {
+            return counted;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM (" + sql + ") t");
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    @Override
+    protected void doLoadPartition(String cacheName, LoadPartition partition, Cache<Object, Object> cache,
+                                   PartitionProgress progress) throws Exception {
+        load(cacheName, (long[]) partition.getSpec(), cache, progress);
+    }
+
+    @Override
+    protected void doLoadData(String cacheName, Cache<Object, Object> cache) throws Exception {
+        load(cacheName, null, cache, null);
+    }
+
+    /**
+     * 流式读取查询结果并按批写入缓存
+     * @param cacheName 缓存名称
+     * @param range 键范围[起始, 结束)，为null时读取全部结果
+     * @param cache 本地缓存实例
+     * @param progress 分区进度，可为null
+     */
+    private void load(String cacheName, long[] range, Cache<Object, Object> cache, PartitionProgress progress)
+            throws SQLException, InterruptedException {
+        String query = range == null ? sql
+                : "SELECT * FROM (" + sql + ") t WHERE t." + keyColumn + " >= ? AND t." + keyColumn + " < ?";
+        long loaded = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            // 部分驱动(如PostgreSQL)只有在关闭自动提交时才按fetchSize使用游标分批拉取
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                if (range != null) {
+                    statement.setLong(1, range[0]);
+                    statement.setLong(2, range[1]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Map<Object, Object> chunk = new HashMap<>(batchSize * 2);
+                    while (resultSet.next()) {
+                        Map.Entry<Object, Object> entry = rowMapper.mapRow(resultSet);
+                        if (entry != null) {
+                            chunk.put(entry.getKey(), entry.getValue());
+                        }
+                        if (chunk.size() >= batchSize) {
+                            loaded += flushChunk(cache, chunk, progress);
+                        }
+                    }
+                    loaded += flushChunk(cache, chunk, progress);
+                }
+            } finally {
+                // 只读查询，结束游标所在的事务
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        logger.info("成功从数据库加载 {} 条数据到本地缓存: {}, 范围: {}", loaded, cacheName,
+                range == null ? "全部" : "[" + range[0] + "," + range[1] + ")");
+    }
+
+    /**
+     * 将一批条目写入缓存后清空，批次Map可复用
+     */
+    private int flushChunk(Cache<Object, Object> cache, Map<Object, Object> chunk, PartitionProgress progress)
+            throws InterruptedException {
+        int size = chunk.size();
+        if (size == 0) {
+            return 0;
+        }
+        throttle(cache, size, 0);
+        FencedWrites.putAllIfNewer(cache, chunk);
+        chunk.clear();
+        if (progress != null) {
+            progress.addLoaded(size);
+        }
+        return size;
+    }
+
+    /**
+     * 预热完成前回源：按键列查询单行，未指定键列时不回源
+     * @param cacheName 缓存名称
+     * @param key 键
+     * @return 映射后的值，不存在时返回null
+     */
+    @Override
+    public Object loadValue(String cacheName, Object key) {
+        if (keyColumn == null) {
+            return null;
+        }
+        String query = "SELECT * FROM (" + sql + ") t WHERE t." + keyColumn + " = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setObject(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                Map.Entry<Object, Object> entry = rowMapper.mapRow(resultSet);
+                return entry != null ? entry.getValue() : null;
+            }
+        } catch (SQLException e) {
+            logger.warn("从数据库回源失败: {}:{}: {}", cacheName, key, e.toString());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.caffeine.component.warmup.loader;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * JDBC行映射函数，将结果集的当前行映射为缓存条目
+ */
+@FunctionalInterface
+public interface JdbcRowMapper {
+    /**
+     * 映射当前行，实现不应移动结果集游标
+     * @param resultSet 结果集，已定位到当前行
+     * @return 缓存条目，返回null时跳过该行
+     * @throws SQLException 读取列值失败
+     */
+    Map.Entry<Object, Object> mapRow(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,35 @@
+package com.caffeine.component.warmup.loader;
+
+/**
+ * 预热分区
+ * 描述数据源中可独立加载的一部分数据，如键前缀范围、主键区间或数据源自带的分片
+ */
+public final class LoadPartition {
+    // 分区名称，用于日志和进度展示
+    private final String name;
+    // 分区描述，由具体加载器解释
+    private final Object spec;
+
+    /**
+     * 构造函数
+     * @param name 分区名称
+     * @param spec 分区描述，由具体加载器解释
+     */
+    public LoadPartition(String name, Object spec) {
+        this.name = name;
+        this.spec = spec;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getSpec() {
+        return spec;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
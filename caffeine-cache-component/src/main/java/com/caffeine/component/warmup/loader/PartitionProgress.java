@@ -0,0 +1,118 @@
+package com.caffeine.component.warmup.loader;
+
+import com.caffeine.component.warmup.WarmupHandle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个预热分区的加载进度
+ */
+public class PartitionProgress {
+    /**
+     * 分区加载状态
+     */
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    private final LoadPartition partition;
+    // 所属预热任务的句柄，分区进度同时累加到句柄
+    private final WarmupHandle handle;
+    private final AtomicLong loadedCount = new AtomicLong();
+    private final AtomicLong loadedBytes = new AtomicLong();
+    private volatile State state = State.PENDING;
+    private volatile int attempts;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile String lastError;
+
+    public PartitionProgress(LoadPartition partition, WarmupHandle handle) {
+        this.partition = partition;
+        this.handle = handle;
+    }
+
+    /**
+     * 记录本次尝试新加载的条目数，由具体加载器在加载过程中调用
+     * @param count 条目数
+     */
+    public void addLoaded(long count) {
+        addLoaded(count, 0);
+    }
+
+    /**
+     * 记录本次尝试新加载的条目数和字节数，由具体加载器在加载过程中调用
+     * @param count 条目数
+     * @param bytes 字节数(估算)
+     */
+    public void addLoaded(long count, long bytes) {
+        loadedCount.addAndGet(count);
+        loadedBytes.addAndGet(bytes);
+        handle.recordLoaded(count, bytes);
+    }
+
+    void start(int attempt) {
+        this.attempts = attempt;
+        this.state = State.RUNNING;
+        this.startTime = System.currentTimeMillis();
+        this.endTime = 0;
+        // 重试时整个分区重新加载，计数从零开始，并从句柄中扣除上次尝试的计数
+        handle.recordLoaded(-loadedCount.getAndSet(0), -loadedBytes.getAndSet(0));
+    }
+
+    void complete() {
+        this.endTime = System.currentTimeMillis();
+        this.state = State.COMPLETED;
+    }
+
+    void fail(Throwable error) {
+        this.lastError = error.toString();
+        this.endTime = System.currentTimeMillis();
+        this.state = State.FAILED;
+    }
+
+    void retrying(Throwable error) {
+        this.lastError = error.toString();
+    }
+
+    public LoadPartition getPartition() {
+        return partition;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getLoadedCount() {
+        return loadedCount.get();
+    }
+
+    public long getLoadedBytes() {
+        return loadedBytes.get();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionProgress{partition=" + partition
+                + ", state=" + state
+                + ", attempts=" + attempts
+                + ", loaded=" + loadedCount.get()
+                + (lastError != null ? ", lastError=" + lastError : "")
+                + "}";
+    }
+}
@@ -1,24 +1,62 @@
 package com.caffeine.component.warmup.loader;
 
+import com.caffeine.component.warmup.FencedWrites;
 import com.caffeine.component.warmup.loader.AbstractExternalCacheLoader;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Redis缓存加载器
- * 从Redis加载数据到本地缓存
+ * 从Redis加载数据到本地缓存，使用二进制命令读取，支持字符串和哈希类型的键，值在加载时由{@link RedisValueDecoder}解码。
+ * 每次加载只由一个SCAN遍历一次键空间，并行度大于1时各页的获取和写入在获取线程池上并行执行。
  */
 public class RedisCacheLoader extends AbstractExternalCacheLoader {
     private static final Logger logger = LoggerFactory.getLogger(RedisCacheLoader.class);
+    // 默认每次SCAN的COUNT提示值
+    private static final int DEFAULT_SCAN_COUNT = 1000;
+    // 默认每个MGET命令包含的键数
+    private static final int DEFAULT_MGET_BATCH_SIZE = 200;
+    // 默认使用HSCAN分页获取的哈希字段数阈值
+    private static final int DEFAULT_HASH_SCAN_THRESHOLD = 1000;
+
     private final JedisPool jedisPool;
     private final String redisPrefix;
+    // 每次SCAN的COUNT提示值
+    private final int scanCount;
+    // 每个MGET命令包含的键数
+    private final int mgetBatchSize;
+    // 并行获取的页数
+    private final int parallelism;
+    // 页面获取线程池，并行度为1时为null，由SCAN线程直接获取
+    private final ExecutorService fetchExecutor;
+    // 值解码器
+    private volatile RedisValueDecoder valueDecoder = RedisValueDecoder.UTF8_STRING;
+    // 是否加载哈希类型的键
+    private volatile boolean hashEnabled = true;
+    // 字段数超过该值的哈希使用HSCAN分页获取
+    private volatile int hashScanThreshold = DEFAULT_HASH_SCAN_THRESHOLD;
 
     /**
      * 构造函数
@@ -38,10 +76,71 @@ public class RedisCacheLoader extends AbstractExternalCacheLoader {
      * @param poolConfig Jedis连接池配置
      */
     public RedisCacheLoader(String host, int port, String redisPrefix, JedisPoolConfig poolConfig) {
-        super();
+        this(host, port, redisPrefix, poolConfig, DEFAULT_SCAN_COUNT, DEFAULT_MGET_BATCH_SIZE);
+    }
+
+    /**
+     * 构造函数
+     * @param host Redis主机地址
+     * @param port Redis端口
+     * @param redisPrefix Redis键前缀
+     * @param poolConfig Jedis连接池配置
+     * @param scanCount 每次SCAN的COUNT提示值
+     * @param mgetBatchSize 每个MGET命令包含的键数
+     */
+    public RedisCacheLoader(String host, int port, String redisPrefix, JedisPoolConfig poolConfig,
+                            int scanCount, int mgetBatchSize) {
+        this(host, port, redisPrefix, poolConfig, scanCount, mgetBatchSize, 1);
+    }
+
+    /**
+     * 构造函数
+     * @param host Redis主机地址
+     * @param port Redis端口
+     * @param redisPrefix Redis键前缀
+     * @param poolConfig Jedis连接池配置，并行度大于1时最大连接数应不小于并行度加1
+     * @param scanCount 每次SCAN的COUNT提示值
+     * @param mgetBatchSize 每个MGET命令包含的键数
+     * @param parallelism 并行获取的页数，每个获取线程占用一个连接，SCAN另占一个连接
+     */
+    public RedisCacheLoader(String host, int port, String redisPrefix, JedisPoolConfig poolConfig,
+                            int scanCount, int mgetBatchSize, int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        int connections = this.parallelism > 1 ? this.parallelism + 1 : 1;
+        if (poolConfig.getMaxTotal() < connections) {
+            logger.warn("Jedis连接池最大连接数 {} 小于预热所需连接数 {}，部分页面将等待连接",
+                    poolConfig.getMaxTotal(), connections);
+        }
         this.redisPrefix = redisPrefix != null ? redisPrefix : "";
         this.jedisPool = new JedisPool(poolConfig, host, port);
-        logger.info("初始化Redis缓存加载器，连接到: {}:{}", host, port);
+        this.scanCount = Math.max(1, scanCount);
+        this.mgetBatchSize = Math.max(1, mgetBatchSize);
+        this.fetchExecutor = this.parallelism > 1 ? Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "redis-warmup-fetch");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        logger.info("初始化Redis缓存加载器，连接到: {}:{}, 并行度: {}", host, port, this.parallelism);
+    }
+
+    /**
+     * 整个键空间作为一个分区，只由一个SCAN遍历一次；并行来自各页的获取和本地写入，不再按模式拆分多次遍历
+     * @param cacheName 缓存名称
+     * @return 单个分区，分区描述为SCAN MATCH模式
+     */
+    @Override
+    protected List<LoadPartition> createPartitions(String cacheName) {
+        String pattern = redisPrefix + cacheName + ":*";
+        return Collections.singletonList(new LoadPartition(pattern, pattern));
+    }
+
+    /**
+     * 加载单个分区：按分区的MATCH模式扫描并加载
+     */
+    @Override
+    protected void doLoadPartition(String cacheName, LoadPartition partition, Cache<Object, Object> cache,
+                                   PartitionProgress progress) throws Exception {
+        scanAndLoad(cacheName, (String) partition.getSpec(), cache, progress);
     }
 
     /**
@@ -52,34 +151,391 @@ public class RedisCacheLoader extends AbstractExternalCacheLoader {
      */
     @Override
     protected void doLoadData(String cacheName, Cache<Object, Object> cache) throws Exception {
+        scanAndLoad(cacheName, redisPrefix + cacheName + ":*", cache, null);
+    }
+
+    /**
+     * 使用SCAN游标分页遍历匹配的键，每页的值通过流水线批量获取并解码后条件写入缓存
+     * 并行度大于1时各页提交到获取线程池，在途页数有上限，内存占用与并行度乘单页大小相当
+     * @param cacheName 缓存名称
+     * @param keyPattern SCAN MATCH模式
+     * @param cache 本地缓存实例
+     * @param progress 分区进度，可为null
+     * @throws InterruptedException 限流或等待在途页面期间被中断
+     */
+    private void scanAndLoad(String cacheName, String keyPattern, Cache<Object, Object> cache,
+                             PartitionProgress progress) throws InterruptedException {
+        int prefixLength = (redisPrefix + cacheName + ":").getBytes(StandardCharsets.UTF_8).length;
+        PageLoader pages = new PageLoader(cacheName, prefixLength, cache, progress);
         try (Jedis jedis = jedisPool.getResource()) {
-            // 构造Redis键模式
-            String keyPattern = redisPrefix + cacheName + ":*";
             logger.info("从Redis加载数据，键模式: {}", keyPattern);
 
-            // 获取匹配的键
-            Set<String> keys = jedis.keys(keyPattern);
-            if (keys.isEmpty()) {
-                logger.info("没有找到匹配的Redis键: {}", keyPattern);
+            ScanParams scanParams = new ScanParams().match(keyPattern).count(scanCount);
+            byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+            ScanResult<byte[]> page;
+            do {
+                page = jedis.scan(cursor, scanParams);
+                cursor = page.getCursorAsBytes();
+                List<byte[]> keys = page.getResult();
+                if (!keys.isEmpty()) {
+                    pages.submit(jedis, keys);
+                }
+            } while (!page.isCompleteIteration());
+            pages.await();
+            pages.checkFailure();
+
+            logger.info("成功加载 {} 个键值对到本地缓存: {}, 键模式: {}", pages.loaded.get(), cacheName, keyPattern);
+        } catch (Exception e) {
+            // 失败的加载会整体重试，先等在途页面结束，避免与重试交错写入
+            pages.await();
+            logger.error("从Redis加载数据失败, 键模式: {}", keyPattern, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 一次加载中各页的获取与写入
+     * 并行度为1时在SCAN线程上直接执行；否则提交到获取线程池，在途页数受信号量限制(并行度的两倍)，
+     * 获取慢于SCAN时SCAN线程被阻塞，避免页面在内存中堆积
+     */
+    private class PageLoader {
+        private final String cacheName;
+        private final int prefixLength;
+        private final Cache<Object, Object> cache;
+        private final PartitionProgress progress;
+        private final int maxInFlight = parallelism * 2;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final AtomicLong loaded = new AtomicLong();
+
+        PageLoader(String cacheName, int prefixLength, Cache<Object, Object> cache, PartitionProgress progress) {
+            this.cacheName = cacheName;
+            this.prefixLength = prefixLength;
+            this.cache = cache;
+            this.progress = progress;
+        }
+
+        /**
+         * 加载一页键
+         * @param scanConnection SCAN使用的连接，并行度为1时直接用于获取
+         * @param keys Redis键
+         */
+        void submit(Jedis scanConnection, List<byte[]> keys) throws InterruptedException {
+            if (fetchExecutor == null) {
+                load(scanConnection, keys);
                 return;
             }
+            inFlight.acquire();
+            try {
+                // 已有页面失败时停止SCAN
+                checkFailure();
+                fetchExecutor.execute(() -> {
+                    try (Jedis jedis = jedisPool.getResource()) {
+                        load(jedis, keys);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        private void load(Jedis jedis, List<byte[]> keys) throws InterruptedException {
+            LoadedPage values = fetchValues(jedis, cacheName, keys, prefixLength);
+            // 写入前申请限流额度，在途页面占满后SCAN同样暂停，Redis和网络负载一并受限
+            throttle(cache, values.entries.size(), values.bytes);
+            // 条件写入，不覆盖预热期间业务写入的新值
+            FencedWrites.putAllIfNewer(cache, values.entries);
+            loaded.addAndGet(values.entries.size());
+            if (progress != null) {
+                progress.addLoaded(values.entries.size(), values.bytes);
+            }
+        }
+
+        /**
+         * 等待在途页面全部完成，取回全部许可即表示完成
+         */
+        void await() {
+            if (fetchExecutor != null) {
+                inFlight.acquireUninterruptibly(maxInFlight);
+                inFlight.release(maxInFlight);
+            }
+        }
+
+        void checkFailure() {
+            Exception error = failure.get();
+            if (error != null) {
+                throw new IllegalStateException("Redis预热页面加载失败: " + cacheName, error);
+            }
+        }
+    }
+
+    /**
+     * 批量获取一页键的值并解码
+     * 启用哈希支持时先以流水线TYPE区分类型；字符串键拆分为多个MGET，哈希键按字段数选择HGETALL或HSCAN
+     * @param jedis Redis连接
+     * @param cacheName 缓存名称
+     * @param keys Redis键
+     * @param prefixLength 需要去掉的键前缀字节数
+     * @return 本地缓存键到解码后值的映射及原始字节数，不包含已不存在或类型不支持的键
+     */
+    private LoadedPage fetchValues(Jedis jedis, String cacheName, List<byte[]> keys, int prefixLength) {
+        List<byte[]> stringKeys = keys;
+        List<byte[]> hashKeys = Collections.emptyList();
+        if (hashEnabled) {
+            List<Response<String>> types = new ArrayList<>(keys.size());
+            try (Pipeline pipeline = jedis.pipelined()) {
+                for (byte[] key : keys) {
+                    types.add(pipeline.type(key));
+                }
+                pipeline.sync();
+            }
+            stringKeys = new ArrayList<>(keys.size());
+            hashKeys = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String type = types.get(i).get();
+                if ("string".equals(type)) {
+                    stringKeys.add(keys.get(i));
+                } else if ("hash".equals(type)) {
+                    hashKeys.add(keys.get(i));
+                }
+            }
+        }
 
-            logger.info("找到 {} 个匹配的Redis键", keys.size());
+        List<Response<List<byte[]>>> mgets = new ArrayList<>();
+        List<Response<Long>> hashLengths = new ArrayList<>(hashKeys.size());
+        try (Pipeline pipeline = jedis.pipelined()) {
+            for (int from = 0; from < stringKeys.size(); from += mgetBatchSize) {
+                List<byte[]> batch = stringKeys.subList(from, Math.min(from + mgetBatchSize, stringKeys.size()));
+                mgets.add(pipeline.mget(batch.toArray(new byte[0][])));
+            }
+            for (byte[] key : hashKeys) {
+                hashLengths.add(pipeline.hlen(key));
+            }
+            pipeline.sync();
+        }
 
-            // 批量获取键值对
-            for (String key : keys) {
-                // 去掉前缀，只保留实际的键
-                String actualKey = key.substring((redisPrefix + cacheName + ":").length());
-                String value = jedis.get(key);
+        LoadedPage page = new LoadedPage(keys.size());
+        int index = 0;
+        for (Response<List<byte[]>> response : mgets) {
+            for (byte[] value : response.get()) {
+                byte[] redisKey = stringKeys.get(index++);
                 if (value != null) {
-                    cache.put(actualKey, value);
+                    String key = localKey(redisKey, prefixLength);
+                    page.add(key, valueDecoder.decode(cacheName, key, value), redisKey.length + value.length);
                 }
             }
+        }
+        if (!hashKeys.isEmpty()) {
+            fetchHashes(jedis, cacheName, hashKeys, hashLengths, prefixLength, page);
+        }
+        return page;
+    }
 
-            logger.info("成功加载 {} 个键值对到本地缓存: {}", keys.size(), cacheName);
-        } catch (Exception e) {
-            logger.error("从Redis加载数据失败", e);
-            throw e;
+    /**
+     * 获取哈希键：字段数不超过阈值的通过流水线HGETALL一次往返获取，较大的哈希用HSCAN分页获取，避免单个命令阻塞Redis
+     */
+    private void fetchHashes(Jedis jedis, String cacheName, List<byte[]> hashKeys, List<Response<Long>> hashLengths,
+                             int prefixLength, LoadedPage page) {
+        List<byte[]> smallKeys = new ArrayList<>(hashKeys.size());
+        List<Response<Map<byte[], byte[]>>> smallHashes = new ArrayList<>(hashKeys.size());
+        List<byte[]> largeKeys = new ArrayList<>();
+        try (Pipeline pipeline = jedis.pipelined()) {
+            for (int i = 0; i < hashKeys.size(); i++) {
+                byte[] key = hashKeys.get(i);
+                long length = hashLengths.get(i).get();
+                if (length > hashScanThreshold) {
+                    largeKeys.add(key);
+                } else if (length > 0) {
+                    smallKeys.add(key);
+                    smallHashes.add(pipeline.hgetAll(key));
+                }
+            }
+            pipeline.sync();
+        }
+
+        for (int i = 0; i < smallKeys.size(); i++) {
+            addHash(cacheName, smallKeys.get(i), smallHashes.get(i).get(), prefixLength, page);
+        }
+        for (byte[] redisKey : largeKeys) {
+            Map<byte[], byte[]> fields = new LinkedHashMap<>();
+            ScanParams hscanParams = new ScanParams().count(scanCount);
+            byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+            ScanResult<Map.Entry<byte[], byte[]>> fieldPage;
+            do {
+                fieldPage = jedis.hscan(redisKey, cursor, hscanParams);
+                cursor = fieldPage.getCursorAsBytes();
+                for (Map.Entry<byte[], byte[]> field : fieldPage.getResult()) {
+                    fields.put(field.getKey(), field.getValue());
+                }
+            } while (!fieldPage.isCompleteIteration());
+            addHash(cacheName, redisKey, fields, prefixLength, page);
+        }
+    }
+
+    private void addHash(String cacheName, byte[] redisKey, Map<byte[], byte[]> fields, int prefixLength,
+                         LoadedPage page) {
+        if (fields == null || fields.isEmpty()) {
+            return;
+        }
+        long bytes = redisKey.length;
+        for (Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+            bytes += field.getKey().length + field.getValue().length;
+        }
+        String key = localKey(redisKey, prefixLength);
+        page.add(key, valueDecoder.decodeHash(cacheName, key, fields), bytes);
+    }
+
+    /**
+     * 去掉前缀，只保留实际的键
+     */
+    private static String localKey(byte[] redisKey, int prefixLength) {
+        return new String(redisKey, prefixLength, redisKey.length - prefixLength, StandardCharsets.UTF_8);
+    }
+
+    private byte[] redisKey(String cacheName, Object key) {
+        return (redisPrefix + cacheName + ":" + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 预热完成前回源：从Redis读取单个值，字符串键用GET，启用哈希支持时哈希键用HGETALL
+     * @param cacheName 缓存名称
+     * @param key 键
+     * @return 解码后的值，不存在时返回null
+     */
+    @Override
+    public Object loadValue(String cacheName, Object key) {
+        byte[] redisKey = redisKey(cacheName, key);
+        try (Jedis jedis = jedisPool.getResource()) {
+            byte[] value;
+            try {
+                value = jedis.get(redisKey);
+            } catch (JedisDataException e) {
+                // WRONGTYPE：键不是字符串类型
+                if (!hashEnabled) {
+                    return null;
+                }
+                Map<byte[], byte[]> fields = jedis.hgetAll(redisKey);
+                return fields.isEmpty() ? null : valueDecoder.decodeHash(cacheName, key.toString(), fields);
+            }
+            return value != null ? valueDecoder.decode(cacheName, key.toString(), value) : null;
+        }
+    }
+
+    /**
+     * 预热完成前回源：通过一次MGET批量读取；启用哈希支持时，MGET未命中的键再通过流水线HGETALL读取
+     * @param cacheName 缓存名称
+     * @param keys 键
+     * @return 键到解码后值的映射，不包含不存在的键
+     */
+    @Override
+    public Map<Object, Object> loadValues(String cacheName, Iterable<?> keys) {
+        List<Object> keyList = new ArrayList<>();
+        List<byte[]> redisKeys = new ArrayList<>();
+        for (Object key : keys) {
+            keyList.add(key);
+            redisKeys.add(redisKey(cacheName, key));
+        }
+        Map<Object, Object> values = new HashMap<>();
+        if (redisKeys.isEmpty()) {
+            return values;
+        }
+        try (Jedis jedis = jedisPool.getResource()) {
+            List<byte[]> results = jedis.mget(redisKeys.toArray(new byte[0][]));
+            List<Integer> missing = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) != null) {
+                    values.put(keyList.get(i), valueDecoder.decode(cacheName, keyList.get(i).toString(), results.get(i)));
+                } else {
+                    missing.add(i);
+                }
+            }
+            if (hashEnabled && !missing.isEmpty()) {
+                List<Response<Map<byte[], byte[]>>> hashes = new ArrayList<>(missing.size());
+                try (Pipeline pipeline = jedis.pipelined()) {
+                    for (int i : missing) {
+                        hashes.add(pipeline.hgetAll(redisKeys.get(i)));
+                    }
+                    pipeline.sync();
+                }
+                for (int j = 0; j < missing.size(); j++) {
+                    Map<byte[], byte[]> fields;
+                    try {
+                        fields = hashes.get(j).get();
+                    } catch (JedisDataException e) {
+                        // 既不是字符串也不是哈希
+                        continue;
+                    }
+                    if (!fields.isEmpty()) {
+                        Object key = keyList.get(missing.get(j));
+                        values.put(key, valueDecoder.decodeHash(cacheName, key.toString(), fields));
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 设置值解码器，加载时对每个值解码一次
+     * @param valueDecoder 解码器，默认{@link RedisValueDecoder#UTF8_STRING}
+     */
+    public void setValueDecoder(RedisValueDecoder valueDecoder) {
+        this.valueDecoder = valueDecoder != null ? valueDecoder : RedisValueDecoder.UTF8_STRING;
+    }
+
+    /**
+     * 设置是否加载哈希类型的键，关闭后每页可省去一次TYPE往返，哈希键将被跳过
+     * @param hashEnabled 是否加载哈希类型的键，默认true
+     */
+    public void setHashEnabled(boolean hashEnabled) {
+        this.hashEnabled = hashEnabled;
+    }
+
+    /**
+     * 设置使用HSCAN分页获取的哈希字段数阈值
+     * @param hashScanThreshold 字段数超过该值的哈希使用HSCAN，否则使用HGETALL
+     */
+    public void setHashScanThreshold(int hashScanThreshold) {
+        this.hashScanThreshold = Math.max(1, hashScanThreshold);
+    }
+
+    /**
+     * 获取Redis连接池，可与Redis回源共用
+     * @return Jedis连接池
+     */
+    public JedisPool getJedisPool() {
+        return jedisPool;
+    }
+
+    public String getRedisPrefix() {
+        return redisPrefix;
+    }
+
+    public RedisValueDecoder getValueDecoder() {
+        return valueDecoder;
+    }
+
+    /**
+     * 一页已解码的键值对及其原始字节数
+     */
+    private static class LoadedPage {
+        private final Map<Object, Object> entries;
+        private long bytes;
+
+        LoadedPage(int expectedSize) {
+            this.entries = new HashMap<>(expectedSize * 2);
+        }
+
+        void add(String key, Object value, long rawBytes) {
+            if (value != null) {
+                entries.put(key, value);
+                bytes += rawBytes;
+            }
         }
     }
 
@@ -93,7 +549,7 @@ public class RedisCacheLoader extends AbstractExternalCacheLoader {
         try (Jedis jedis = jedisPool.getResource()) {
             String redisKey = redisPrefix + cacheName + ":" + key;
             jedis.set(redisKey, value);
-            logger.info("设置Redis键值对成功: {} -> {}", redisKey, value);
+            logger.debug("设置Redis键值对成功: {}", redisKey);
         } catch (Exception e) {
             logger.error("设置Redis键值对失败: {}:{}", cacheName, key, e);
             throw new RuntimeException("设置Redis键值对失败", e);
@@ -101,23 +557,46 @@ public class RedisCacheLoader extends AbstractExternalCacheLoader {
     }
 
     /**
-     * 批量设置Redis键值对
+     * 批量设置Redis键值对，按MGET批次大小拆分为多个MSET并通过流水线一次往返发送
      * @param cacheName 缓存名称
      * @param data 键值对映射
      */
     public void setBatch(String cacheName, Map<String, String> data) {
+        setBatch(cacheName, data, 0);
+    }
+
+    /**
+     * 批量设置Redis键值对并指定过期时间，通过流水线发送，不设置过期时间时合并为MSET，否则每个键一条SETEX
+     * @param cacheName 缓存名称
+     * @param data 键值对映射
+     * @param ttlSeconds 过期时间(秒)，小于等于0表示不过期
+     */
+    public void setBatch(String cacheName, Map<String, String> data, long ttlSeconds) {
         if (data == null || data.isEmpty()) {
             logger.info("批量设置Redis键值对，数据为空");
             return;
         }
 
-        try (Jedis jedis = jedisPool.getResource()) {
+        String keyPrefix = redisPrefix + cacheName + ":";
+        try (Jedis jedis = jedisPool.getResource(); Pipeline pipeline = jedis.pipelined()) {
+            List<String> msetArgs = new ArrayList<>(Math.min(data.size(), mgetBatchSize) * 2);
             for (Map.Entry<String, String> entry : data.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue();
-                String redisKey = redisPrefix + cacheName + ":" + key;
-                jedis.set(redisKey, value);
+                String redisKey = keyPrefix + entry.getKey();
+                if (ttlSeconds > 0) {
+                    pipeline.setex(redisKey, ttlSeconds, entry.getValue());
+                    continue;
+                }
+                msetArgs.add(redisKey);
+                msetArgs.add(entry.getValue());
+                if (msetArgs.size() >= mgetBatchSize * 2) {
+                    pipeline.mset(msetArgs.toArray(new String[0]));
+                    msetArgs.clear();
+                }
             }
+            if (!msetArgs.isEmpty()) {
+                pipeline.mset(msetArgs.toArray(new String[0]));
+            }
+            pipeline.sync();
             logger.info("成功批量设置 {} 个Redis键值对到缓存: {}", data.size(), cacheName);
         } catch (Exception e) {
             logger.error("批量设置Redis键值对失败", e);
@@ -126,11 +605,14 @@ public class RedisCacheLoader extends AbstractExternalCacheLoader {
     }
 
     /**
-     * 关闭Redis连接池和线程池
+     * 关闭Redis连接池、获取线程池和线程池
      */
     @Override
     public void shutdown() {
         super.shutdown();
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdown();
+        }
         logger.info("关闭Redis连接池");
         jedisPool.close();
     }
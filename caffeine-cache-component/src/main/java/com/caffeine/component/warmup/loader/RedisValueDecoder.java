@@ -0,0 +1,45 @@
+package com.caffeine.component.warmup.loader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Redis值解码器
+ * 加载时将Redis中的二进制值解码一次，本地缓存中保存可直接使用的对象，读取时无需再次解析
+ */
+public interface RedisValueDecoder {
+    /**
+     * 按UTF-8解码为字符串，与未配置解码器时的行为一致
+     */
+    RedisValueDecoder UTF8_STRING = (cacheName, key, value) -> new String(value, StandardCharsets.UTF_8);
+
+    /**
+     * 不解码，直接缓存原始字节
+     */
+    RedisValueDecoder RAW = (cacheName, key, value) -> value;
+
+    /**
+     * 解码字符串类型键的值
+     * @param cacheName 缓存名称
+     * @param key 本地缓存键(已去掉前缀)
+     * @param value Redis中的原始字节
+     * @return 写入本地缓存的值，返回null时跳过该键
+     */
+    Object decode(String cacheName, String key, byte[] value);
+
+    /**
+     * 解码哈希类型键的全部字段，默认逐个字段调用{@link #decode}并以UTF-8字段名组成Map
+     * @param cacheName 缓存名称
+     * @param key 本地缓存键(已去掉前缀)
+     * @param fields 哈希字段到原始字节的映射
+     * @return 写入本地缓存的值，返回null时跳过该键
+     */
+    default Object decodeHash(String cacheName, String key, Map<byte[], byte[]> fields) {
+        Map<String, Object> result = new LinkedHashMap<>(fields.size() * 2);
+        for (Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+            result.put(new String(field.getKey(), StandardCharsets.UTF_8), decode(cacheName, key, field.getValue()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,227 @@
+package com.caffeine.component.warmup.loader;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 预热限流器
+ * 按条目数/秒和字节数/秒限制预热写入速率，所有分区共享同一额度。
+ * 当前台请求的p99延迟或缓存待处理的淘汰积压超过阈值时，暂停预热并降低速率，压力消除后逐步恢复。
+ */
+public class WarmupThrottle {
+    private static final Logger logger = LoggerFactory.getLogger(WarmupThrottle.class);
+    // 检测到压力时的初始暂停时间(毫秒)，连续检测到压力时翻倍
+    private static final long MIN_PAUSE_MILLIS = 50;
+    // 单次暂停的最大时间(毫秒)
+    private static final long MAX_PAUSE_MILLIS = 2000;
+    // 单次申请因压力累计暂停的上限(毫秒)，超过后以降低后的速率继续，避免预热被无限期挂起
+    private static final long DEFAULT_MAX_STALL_MILLIS = 10000;
+    // 速率系数的下限，压力下速率最多降到配置值的1/16
+    private static final double MIN_RATE_FACTOR = 1.0 / 16;
+    // 每次无压力申请后速率系数的恢复步长
+    private static final double RATE_FACTOR_STEP = 1.0 / 16;
+
+    // 每秒条目数上限，0表示不限制
+    private final long entriesPerSecond;
+    // 每秒字节数上限，0表示不限制
+    private final long bytesPerSecond;
+    // 下一次可用额度的时间点(纳秒)
+    private long nextFreeNanos = System.nanoTime();
+    // 当前速率系数，(0, 1]
+    private volatile double rateFactor = 1.0;
+
+    // 前台p99延迟(微秒)的提供者及阈值
+    private volatile LongSupplier foregroundP99Micros;
+    private volatile long p99ThresholdMicros;
+    // 淘汰积压阈值：估算大小超出最大容量的比例
+    private volatile double maintenanceBacklogRatio = 0.1;
+    private volatile long maxStallMillis = DEFAULT_MAX_STALL_MILLIS;
+
+    private final LongAdder throttledNanos = new LongAdder();
+    private final LongAdder pausedNanos = new LongAdder();
+    private final AtomicLong pauseCount = new AtomicLong();
+
+    /**
+     * 构造函数
+     * @param entriesPerSecond 每秒条目数上限，0表示不限制
+     * @param bytesPerSecond 每秒字节数上限，0表示不限制
+     */
+    public WarmupThrottle(long entriesPerSecond, long bytesPerSecond) {
+        this.entriesPerSecond = Math.max(0, entriesPerSecond);
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+    }
+
+    /**
+     * 设置前台延迟的背压信号
+     * @param p99Micros 返回前台请求当前p99延迟(微秒)的提供者，通常来自应用的监控指标
+     * @param thresholdMicros 阈值，超过时预热让路
+     */
+    public void setForegroundLatency(LongSupplier p99Micros, long thresholdMicros) {
+        this.foregroundP99Micros = p99Micros;
+        this.p99ThresholdMicros = thresholdMicros;
+    }
+
+    /**
+     * 设置淘汰积压阈值
+     * Caffeine不公开待处理的维护任务数，这里以估算大小(或权重)超出最大容量的比例作为积压的近似
+     * @param ratio 超出比例，小于等于0时不检测
+     */
+    public void setMaintenanceBacklogRatio(double ratio) {
+        this.maintenanceBacklogRatio = ratio;
+    }
+
+    /**
+     * 设置单次申请因压力累计暂停的上限
+     * @param maxStallMillis 毫秒
+     */
+    public void setMaxStallMillis(long maxStallMillis) {
+        this.maxStallMillis = Math.max(0, maxStallMillis);
+    }
+
+    /**
+     * 写入一批数据前申请额度，必要时阻塞当前加载线程
+     * @param cache 写入的本地缓存，用于检测淘汰积压
+     * @param entries 条目数
+     * @param bytes 字节数(估算)
+     * @throws InterruptedException 等待期间被中断
+     */
+    public void acquire(Cache<?, ?> cache, long entries, long bytes) throws InterruptedException {
+        awaitPressureRelief(cache);
+
+        long costNanos = costNanos(entries, bytes);
+        if (costNanos <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextFreeNanos);
+            nextFreeNanos = start + costNanos;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            throttledNanos.add(waitNanos);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 存在压力时指数退避等待，并降低速率系数；无压力时逐步恢复速率系数
+     */
+    private void awaitPressureRelief(Cache<?, ?> cache) throws InterruptedException {
+        long pauseMillis = MIN_PAUSE_MILLIS;
+        long stalledMillis = 0;
+        while (underPressure(cache)) {
+            if (stalledMillis >= maxStallMillis) {
+                logger.warn("预热持续受到背压已超过 {}ms，以 {} 倍速率继续", maxStallMillis, rateFactor);
+                return;
+            }
+            rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor / 2);
+            pauseCount.incrementAndGet();
+            long pause = Math.min(pauseMillis, maxStallMillis - stalledMillis);
+            pausedNanos.add(TimeUnit.MILLISECONDS.toNanos(pause));
+            Thread.sleep(pause);
+            stalledMillis += pause;
+            pauseMillis = Math.min(MAX_PAUSE_MILLIS, pauseMillis * 2);
+        }
+        if (rateFactor < 1.0) {
+            rateFactor = Math.min(1.0, rateFactor + RATE_FACTOR_STEP);
+        }
+    }
+
+    /**
+     * 是否存在前台延迟或淘汰积压压力
+     * @param cache 本地缓存
+     * @return 存在压力时返回true
+     */
+    boolean underPressure(Cache<?, ?> cache) {
+        LongSupplier p99 = foregroundP99Micros;
+        if (p99 != null && p99ThresholdMicros > 0 && p99.getAsLong() > p99ThresholdMicros) {
+            return true;
+        }
+        double ratio = maintenanceBacklogRatio;
+        if (ratio <= 0 || cache == null) {
+            return false;
+        }
+        Optional<? extends Policy.Eviction<?, ?>> eviction = cache.policy().eviction();
+        if (!eviction.isPresent()) {
+            return false;
+        }
+        Policy.Eviction<?, ?> policy = eviction.get();
+        long maximum = policy.getMaximum();
+        long current = policy.isWeighted()
+                ? policy.weightedSize().orElse(0)
+                : cache.estimatedSize();
+        // 以差值比较，上限接近Long.MAX_VALUE时不会溢出
+        return current > maximum && current - maximum > maximum * ratio;
+    }
+
+    /**
+     * 按当前速率系数计算一批数据需要占用的时间
+     */
+    private long costNanos(long entries, long bytes) {
+        double factor = rateFactor;
+        long cost = 0;
+        if (entriesPerSecond > 0) {
+            cost = Math.max(cost, (long) (entries * 1e9 / (entriesPerSecond * factor)));
+        }
+        if (bytesPerSecond > 0) {
+            cost = Math.max(cost, (long) (bytes * 1e9 / (bytesPerSecond * factor)));
+        }
+        return cost;
+    }
+
+    public long getEntriesPerSecond() {
+        return entriesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * 当前速率系数，1表示按配置速率，压力下降低
+     * @return 速率系数
+     */
+    public double getRateFactor() {
+        return rateFactor;
+    }
+
+    /**
+     * 因速率限制累计等待的时间
+     * @return 毫秒
+     */
+    public long getThrottledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.sum());
+    }
+
+    /**
+     * 因背压累计暂停的时间
+     * @return 毫秒
+     */
+    public long getPausedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pausedNanos.sum());
+    }
+
+    public long getPauseCount() {
+        return pauseCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "WarmupThrottle{entriesPerSecond=" + entriesPerSecond
+                + ", bytesPerSecond=" + bytesPerSecond
+                + ", rateFactor=" + rateFactor
+                + ", throttledMillis=" + getThrottledMillis()
+                + ", pausedMillis=" + getPausedMillis()
+                + ", pauses=" + pauseCount.get() + "}";
+    }
+}
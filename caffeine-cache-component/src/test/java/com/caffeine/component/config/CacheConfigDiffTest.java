@@ -0,0 +1,87 @@
+package com.caffeine.component.config;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * 配置差异测试
+ */
+public class CacheConfigDiffTest {
+
+    @Test
+    public void testListsExactlyChangedKnobs() {
+        CacheConfig config = new CacheConfig();
+        CacheConfig.Snapshot before = config.snapshot();
+        config.setMaximumSize(20);
+        config.setRedisL2Enabled(true);
+        config.setVersion(3);
+
+        CacheConfigDiff diff = CacheConfigDiff.between(before, config.snapshot());
+
+        assertEquals(EnumSet.of(CacheConfigDiff.Knob.MAXIMUM_SIZE, CacheConfigDiff.Knob.REDIS_L2_ENABLED),
+                diff.getChangedKnobs());
+        assertTrue(diff.requires(CacheConfigDiff.ApplyMode.LIVE_TUNE));
+        assertTrue(diff.requires(CacheConfigDiff.ApplyMode.TIER));
+        assertFalse(diff.requires(CacheConfigDiff.ApplyMode.REBUILD));
+        assertTrue(diff.toString().contains("MAXIMUM_SIZE: 10000 -> 20"));
+    }
+
+    @Test
+    public void testSameSnapshotIsEmpty() {
+        CacheConfig.Snapshot snapshot = new CacheConfig().snapshot();
+
+        assertTrue(CacheConfigDiff.between(snapshot, snapshot).isEmpty());
+        assertTrue(CacheConfigDiff.between(snapshot, new CacheConfig().snapshot()).isEmpty());
+    }
+
+    @Test
+    public void testStorageKnobsRequireRebuild() {
+        CacheConfig config = new CacheConfig();
+        CacheConfig.Snapshot before = config.snapshot();
+        config.setOffHeapValueStoreEnabled(true);
+
+        CacheConfigDiff diff = CacheConfigDiff.between(before, config.snapshot());
+
+        assertTrue(diff.contains(CacheConfigDiff.Knob.OFF_HEAP_VALUE_STORE_ENABLED));
+        assertTrue(diff.requires(CacheConfigDiff.ApplyMode.REBUILD));
+    }
+
+    @Test
+    public void testManagerKnobsRequireRestart() {
+        CacheConfig config = new CacheConfig();
+        CacheConfig.Snapshot before = config.snapshot();
+        config.setOffHeapCacheEnabled(true);
+        config.setPersistenceEnabled(true);
+        config.setAutoPersistenceEnabled(true);
+
+        CacheConfigDiff diff = CacheConfigDiff.between(before, config.snapshot());
+
+        assertEquals(EnumSet.of(CacheConfigDiff.Knob.OFF_HEAP_CACHE_ENABLED, CacheConfigDiff.Knob.PERSISTENCE_ENABLED,
+                CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED), diff.getChangedKnobs());
+        assertTrue(diff.requires(CacheConfigDiff.ApplyMode.RESTART));
+        assertFalse(diff.requires(CacheConfigDiff.ApplyMode.REBUILD));
+        // 自动持久化在持久化管理器存在时重新挂载包装层即可生效
+        assertEquals(CacheConfigDiff.ApplyMode.TIER, diff.getApplyMode(CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED));
+        assertTrue(diff.requires(CacheConfigDiff.ApplyMode.TIER));
+    }
+
+    @Test
+    public void testApplyModeOverrideAffectsOnlyNewDiff() {
+        CacheConfig config = new CacheConfig();
+        CacheConfig.Snapshot before = config.snapshot();
+        config.setAutoPersistenceEnabled(true);
+        CacheConfigDiff diff = CacheConfigDiff.between(before, config.snapshot());
+
+        CacheConfigDiff restart = diff.withApplyMode(CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED,
+                CacheConfigDiff.ApplyMode.RESTART);
+
+        assertTrue(restart.requires(CacheConfigDiff.ApplyMode.RESTART));
+        assertFalse(restart.requires(CacheConfigDiff.ApplyMode.TIER));
+        assertEquals(diff.getChangedKnobs(), restart.getChangedKnobs());
+        assertTrue(diff.requires(CacheConfigDiff.ApplyMode.TIER));
+        assertFalse(diff.requires(CacheConfigDiff.ApplyMode.RESTART));
+    }
+}
@@ -0,0 +1,111 @@
+package com.caffeine.component.config;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 缓存配置快照测试
+ */
+public class CacheConfigTest {
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() {
+        CacheConfig config = new CacheConfig();
+        config.setMaximumSize(100);
+        CacheConfig.Snapshot before = config.snapshot();
+
+        config.setMaximumSize(200);
+        config.setRedisL2Enabled(true);
+
+        assertEquals(100, before.getMaximumSize());
+        assertFalse(before.isRedisL2Enabled());
+        assertEquals(200, config.getMaximumSize());
+        assertTrue(config.isRedisL2Enabled());
+        assertNotSame(before, config.snapshot());
+    }
+
+    @Test
+    public void testUpdatePublishesOtherConfigSnapshot() {
+        CacheConfig config = new CacheConfig();
+        CacheConfig other = new CacheConfig();
+        other.setName("users");
+        other.setExpireAfterWrite(60);
+
+        config.update(other);
+        other.setExpireAfterWrite(120);
+
+        assertEquals("users", config.getName());
+        assertEquals(60, config.getExpireAfterWrite());
+    }
+
+    @Test
+    public void testUpdateIfNewerRejectsStaleVersions() {
+        CacheConfig config = new CacheConfig();
+        config.setVersion(5);
+        CacheConfig stale = new CacheConfig();
+        stale.setVersion(4);
+        stale.setMaximumSize(1);
+        CacheConfig newer = new CacheConfig();
+        newer.setVersion(6);
+        newer.setMaximumSize(2);
+
+        assertNull(config.updateIfNewer(stale));
+        assertEquals(10000, config.getMaximumSize());
+        assertNotNull(config.updateIfNewer(newer));
+        assertEquals(2, config.getMaximumSize());
+        assertNull(config.updateIfNewer(newer));
+    }
+
+    @Test
+    public void testUnversionedUpdateIsRejectedAfterVersionedConfig() {
+        CacheConfig config = new CacheConfig();
+        CacheConfig unversioned = new CacheConfig();
+        unversioned.setMaximumSize(3);
+        // 两者都未设置版本号时接受
+        assertNotNull(config.updateIfNewer(unversioned));
+        assertEquals(3, config.getMaximumSize());
+
+        config.setVersion(5);
+        CacheConfig delayed = new CacheConfig();
+        delayed.setMaximumSize(4);
+
+        assertNull(config.updateIfNewer(delayed));
+        assertEquals(3, config.getMaximumSize());
+        assertEquals(5, config.getVersion());
+    }
+
+    @Test
+    public void testNextVersionIsMonotonicAndAboveGivenVersion() {
+        long first = CacheConfig.nextVersion(0);
+        long second = CacheConfig.nextVersion(0);
+        long ahead = second + 1000;
+
+        assertTrue(first > 0);
+        assertTrue(second > first);
+        assertTrue(CacheConfig.nextVersion(ahead) > ahead);
+        assertTrue(CacheConfig.nextVersion(0) > ahead);
+    }
+
+    @Test
+    public void testConcurrentWritersDoNotLoseUpdates() throws Exception {
+        CacheConfig config = new CacheConfig();
+        Thread sizeWriter = new Thread(() -> {
+            for (int i = 1; i <= 10000; i++) {
+                config.setMaximumSize(i);
+            }
+        });
+        Thread ttlWriter = new Thread(() -> {
+            for (int i = 1; i <= 10000; i++) {
+                config.setExpireAfterWrite(i);
+            }
+        });
+        sizeWriter.start();
+        ttlWriter.start();
+        sizeWriter.join();
+        ttlWriter.join();
+
+        assertEquals(10000, config.getMaximumSize());
+        assertEquals(10000, config.getExpireAfterWrite());
+    }
+}
@@ -0,0 +1,163 @@
+package com.caffeine.component.config;
+
+import com.caffeine.component.listener.CacheConfigChangeNotifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * 配置文件配置源测试
+ */
+public class FileConfigSourceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final CacheConfigChangeNotifier notifier = new CacheConfigChangeNotifier();
+    private final List<CacheConfig> received = new CopyOnWriteArrayList<>();
+    private FileConfigSource source;
+
+    @Before
+    public void setUp() {
+        notifier.registerListener(received::add);
+    }
+
+    @After
+    public void tearDown() {
+        if (source != null) {
+            source.close();
+        }
+        notifier.shutdown();
+    }
+
+    @Test
+    public void testPushesOnlyChangedCaches() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.properties");
+        write(file, "caches.users.maximumSize=5000", "caches.orders.expireAfterWrite=60");
+        CacheConfig base = new CacheConfig();
+        base.setRedisL2Enabled(true);
+        source = new FileConfigSource(file, notifier, base, 50);
+
+        assertEquals(2, source.reload().size());
+        assertTrue(source.reload().isEmpty());
+
+        write(file, "caches.users.maximumSize=6000", "caches.orders.expireAfterWrite=60");
+        assertEquals(Collections.singleton("users"), source.reload());
+
+        awaitReceived(3);
+        CacheConfig users = received.get(2);
+        assertEquals("users", users.getName());
+        assertEquals(6000, users.getMaximumSize());
+        // 文件中未出现的配置项取基础配置的值
+        assertTrue(users.isRedisL2Enabled());
+    }
+
+    @Test
+    public void testInvalidValuesAreSkipped() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.properties");
+        write(file, "caches.users.maximumSize=lots", "caches.orders.unknownKnob=1", "caches.items.persistenceEnabled=true");
+        source = new FileConfigSource(file, notifier, new CacheConfig(), 50);
+
+        assertEquals(Collections.singleton("items"), source.reload());
+
+        write(file, "caches.users.maximumSize=10", "caches.orders.unknownKnob=1", "caches.items.persistenceEnabled=true");
+        assertEquals(Collections.singleton("users"), source.reload());
+    }
+
+    @Test
+    public void testOverridesOnlyFileKeysOnCurrentConfig() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.properties");
+        write(file, "caches.users.expireAfterWrite=60");
+        // 模拟缓存管理器的当前配置，运行期间被其他来源修改过
+        CacheConfig live = new CacheConfig();
+        live.setMaximumSize(777);
+        live.setVersion(5);
+        source = new FileConfigSource(file, notifier, live, 50);
+
+        source.reload();
+        awaitReceived(1);
+        assertEquals(60, received.get(0).getExpireAfterWrite());
+        assertEquals(777, received.get(0).getMaximumSize());
+        // 推送的配置分配了新于基础配置的版本号，不会被当作迟到的变更丢弃
+        assertTrue(received.get(0).getVersion() > 5);
+
+        live.setMaximumSize(888);
+        write(file, "caches.users.expireAfterWrite=90");
+        source.reload();
+        awaitReceived(2);
+        assertEquals(90, received.get(1).getExpireAfterWrite());
+        assertEquals(888, received.get(1).getMaximumSize());
+        assertTrue(received.get(1).getVersion() > received.get(0).getVersion());
+    }
+
+    @Test
+    public void testVersionCannotBeSetFromFile() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.properties");
+        write(file, "caches.users.version=9", "caches.orders.maximumSize=10");
+        source = new FileConfigSource(file, notifier, new CacheConfig(), 50);
+
+        assertEquals(Collections.singleton("orders"), source.reload());
+    }
+
+    @Test
+    public void testParsesYamlSubset() {
+        Map<String, String> flat = FileConfigSource.parseYaml(Arrays.asList(
+                "# 缓存配置",
+                "caches:",
+                "  users:",
+                "    maximumSize: 5000   # 上限",
+                "    persistencePath: \"./data#1\"",
+                "  orders:",
+                "    expireAfterWrite: 60"));
+
+        assertEquals("5000", flat.get("caches.users.maximumSize"));
+        assertEquals("./data#1", flat.get("caches.users.persistencePath"));
+        assertEquals("60", flat.get("caches.orders.expireAfterWrite"));
+        assertEquals(3, flat.size());
+    }
+
+    @Test
+    public void testWatchesFileAndDebouncesEdits() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.yml");
+        write(file, "caches:", "  users:", "    maximumSize: 100");
+        source = new FileConfigSource(file, notifier, new CacheConfig(), 200);
+        source.start();
+        awaitReceived(1);
+
+        for (int size = 101; size <= 105; size++) {
+            write(file, "caches:", "  users:", "    maximumSize: " + size);
+        }
+
+        awaitReceived(2);
+        Thread.sleep(500);
+        // 连续编辑合并为一次重新加载
+        assertEquals(2, received.size());
+        assertEquals(105, received.get(1).getMaximumSize());
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (received.size() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待配置推送超时");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void write(Path file, String... lines) throws Exception {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,228 @@
+package com.caffeine.component.core;
+
+import com.caffeine.component.config.CacheConfig;
+import com.caffeine.component.config.CacheConfigDiff;
+import com.caffeine.component.persistence.CacheWithWriter;
+import com.caffeine.component.persistence.PersistenceDeleteQueue;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import redis.clients.jedis.JedisPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 配置变更按差异生效测试
+ */
+public class CaffeineCacheManagerConfigTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CaffeineCacheManager manager;
+
+    @Before
+    public void setUp() {
+        CacheConfig config = new CacheConfig();
+        config.setName("users");
+        config.setVersion(1);
+        manager = new CaffeineCacheManager(config);
+    }
+
+    @Test
+    public void testStaleVersionIsDropped() {
+        CacheConfig newer = config(3);
+        newer.setMaximumSize(500);
+        CacheConfig delayed = config(2);
+        delayed.setMaximumSize(100);
+
+        assertNotNull(manager.setConfig(newer));
+        assertNull(manager.setConfig(delayed));
+
+        assertEquals(500, manager.getConfig().getMaximumSize());
+        assertEquals(3, manager.getConfig().getVersion());
+    }
+
+    @Test
+    public void testLiveTuneKeepsInstance() {
+        Cache<Object, Object> cache = manager.getCache("users");
+        cache.put("a", 1);
+        CacheConfig next = config(2);
+        next.setMaximumSize(500);
+        next.setExpireAfterWrite(60);
+
+        CacheConfigDiff diff = manager.setConfig(next);
+
+        assertFalse(diff.requires(CacheConfigDiff.ApplyMode.REBUILD));
+        assertSame(cache, manager.getCache("users"));
+        assertEquals(500, cache.policy().eviction().get().getMaximum());
+        assertEquals(60, cache.policy().expireAfterWrite().get().getExpiresAfter(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTierChangeRewrapsSameData() {
+        Cache<Object, Object> cache = manager.getCache("users");
+        cache.put("a", 1);
+        CacheConfig next = config(2);
+        next.setWarmupReadThroughEnabled(true);
+
+        CacheConfigDiff diff = manager.setConfig(next);
+
+        assertEquals(CacheConfigDiff.ApplyMode.TIER, CacheConfigDiff.Knob.WARMUP_READ_THROUGH_ENABLED.getApplyMode());
+        assertTrue(diff.contains(CacheConfigDiff.Knob.WARMUP_READ_THROUGH_ENABLED));
+        Cache<Object, Object> rewrapped = manager.getCache("users");
+        assertNotSame(cache, rewrapped);
+        assertEquals(1, rewrapped.getIfPresent("a"));
+        // 包装层共用底层实例，写入新包装层后旧引用同样可见
+        rewrapped.put("b", 2);
+        assertEquals(2, cache.getIfPresent("b"));
+    }
+
+    @Test
+    public void testEnablingAutoPersistenceAtRuntimeNeedsRestart() {
+        Cache<Object, Object> cache = manager.getCache("users");
+        CacheConfig next = config(2);
+        next.setAutoPersistenceEnabled(true);
+        next.setWarmupReadThroughEnabled(true);
+
+        CacheConfigDiff diff = manager.setConfig(next);
+
+        assertTrue(diff.requires(CacheConfigDiff.ApplyMode.RESTART));
+        assertEquals(CacheConfigDiff.ApplyMode.RESTART, diff.getApplyMode(CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED));
+        // 持久化管理器未创建，重新挂载包装层时不添加持久化写入
+        Cache<Object, Object> rewrapped = manager.getCache("users");
+        assertNotSame(cache, rewrapped);
+        rewrapped.put("a", 1);
+        assertEquals(1, rewrapped.getIfPresent("a"));
+        manager.getLongKeyCache("ids").put(1L, "one");
+        assertEquals("one", manager.getLongKeyCache("ids").get(1L));
+    }
+
+    @Test
+    public void testLongKeyCacheIsAdjustedInPlace() throws Exception {
+        LongKeyCache<Object> ids = manager.getLongKeyCache("ids");
+        for (long i = 0; i < 1000; i++) {
+            ids.put(i, i);
+        }
+        CacheConfig next = config(2);
+        next.setMaximumSize(160);
+        next.setExpireAfterWrite(1);
+
+        manager.setConfig(next);
+
+        assertSame(ids, manager.getLongKeyCache("ids"));
+        assertEquals(160, ids.getMaximumSize());
+        assertTrue(ids.estimatedSize() <= 160);
+        long present = ids.snapshot().keySet().iterator().next();
+        Thread.sleep(1100);
+        assertNull(ids.get(present));
+    }
+
+    @Test
+    public void testLongKeyEvictionsAreQueuedForPersistenceDelete() throws Exception {
+        CacheConfig config = new CacheConfig();
+        config.setName("users");
+        config.setPersistenceEnabled(true);
+        config.setPersistencePath(folder.newFolder("data").getPath());
+        config.setMaximumSize(16);
+        manager = new CaffeineCacheManager(config);
+        LongKeyCache<Object> ids = manager.getLongKeyCache("ids");
+
+        for (long i = 0; i < 100; i++) {
+            ids.put(i, i);
+        }
+
+        // 淘汰的键进入持久化删除队列
+        assertEquals(100 - ids.estimatedSize(), manager.getPersistenceDeleteQueue().getEnqueuedCount());
+    }
+
+    @Test
+    public void testAutoPersistenceTogglesAtRuntimeWithPersistenceManager() throws Exception {
+        CacheConfig config = new CacheConfig();
+        config.setName("users");
+        config.setVersion(1);
+        config.setPersistenceEnabled(true);
+        config.setPersistencePath(folder.newFolder("data").getPath());
+        manager = new CaffeineCacheManager(config);
+        assertFalse(manager.getCache("users") instanceof CacheWithWriter);
+        CacheConfig enable = config(2);
+        enable.setAutoPersistenceEnabled(true);
+
+        CacheConfigDiff diff = manager.setConfig(enable);
+
+        assertEquals(CacheConfigDiff.ApplyMode.TIER, diff.getApplyMode(CacheConfigDiff.Knob.AUTO_PERSISTENCE_ENABLED));
+        assertFalse(diff.requires(CacheConfigDiff.ApplyMode.RESTART));
+        // 持久化写入在原实例上挂载和卸下
+        assertTrue(manager.getCache("users") instanceof CacheWithWriter);
+        CacheConfig disable = config(3);
+        disable.setAutoPersistenceEnabled(false);
+        manager.setConfig(disable);
+        assertFalse(manager.getCache("users") instanceof CacheWithWriter);
+    }
+
+    @Test
+    public void testCacheCreationDoesNotWaitForConfigChange() throws Exception {
+        CacheConfig next = config(2);
+        next.setRedisL2Enabled(true);
+        next.setRedisWriteEnabled(true);
+        manager.setConfig(next);
+        manager.setRedisL2Source(new JedisPool("localhost", 6379), "app:", null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 配置变更持有管理器的锁期间，新缓存仍可在创建时获取共用的批量读取器和写入器
+            synchronized (manager) {
+                Future<Cache<Object, Object>> created = executor.submit(() -> manager.getCache("orders"));
+                assertNotNull(created.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNotNull(manager.getRedisBatchReader());
+        assertNotNull(manager.getRedisBatchWriter());
+    }
+
+    @Test
+    public void testCloseDrainsQueuesAndStopsBackgroundWork() throws Exception {
+        CacheConfig config = new CacheConfig();
+        config.setName("users");
+        config.setPersistenceEnabled(true);
+        config.setPersistencePath(folder.newFolder("data").getPath());
+        config.setMaximumSize(16);
+        config.setPersistenceDeleteFlushIntervalMillis(60_000);
+        config.setRedisWriteEnabled(true);
+        manager = new CaffeineCacheManager(config);
+        manager.setRedisL2Source(new JedisPool("localhost", 6379), "app:", null);
+        LongKeyCache<Object> ids = manager.getLongKeyCache("ids");
+        for (long i = 0; i < 100; i++) {
+            ids.put(i, i);
+        }
+        PersistenceDeleteQueue queue = manager.getPersistenceDeleteQueue();
+        assertTrue(queue.getPendingCount() > 0);
+
+        manager.close();
+
+        assertTrue(manager.isClosed());
+        // 关闭前处理剩余的待删除键，之后不再按需创建后台组件
+        assertEquals(0, queue.getPendingCount());
+        assertNull(manager.getPersistenceDeleteQueue());
+        assertNull(manager.getRedisBatchWriter());
+        assertNull(manager.getRedisBatchReader());
+        // 重复关闭将被忽略，缓存实例仍可读写
+        manager.close();
+        ids.put(1000L, "after");
+        assertEquals("after", ids.get(1000L));
+    }
+
+    private CacheConfig config(long version) {
+        CacheConfig config = new CacheConfig();
+        config.update(manager.getConfig());
+        config.setVersion(version);
+        return config;
+    }
+}
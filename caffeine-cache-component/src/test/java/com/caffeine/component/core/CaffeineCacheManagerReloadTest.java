@@ -0,0 +1,93 @@
+package com.caffeine.component.core;
+
+import com.caffeine.component.config.CacheConfig;
+import com.caffeine.component.warmup.CacheDataLoader;
+import com.caffeine.component.warmup.WarmupHandle;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * 双缓冲全量重载测试
+ */
+public class CaffeineCacheManagerReloadTest {
+    private CaffeineCacheManager manager;
+
+    @Before
+    public void setUp() {
+        manager = new CaffeineCacheManager(new CacheConfig());
+        Cache<Object, Object> cache = manager.getCache("ref");
+        cache.put("a", "old");
+        cache.put("stale", "x");
+    }
+
+    @Test
+    public void testSwapsOnlyAfterLoadCompletes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        CacheDataLoader loader = (cacheName, cache) -> {
+            WarmupHandle handle = new WarmupHandle(cacheName);
+            new Thread(() -> {
+                cache.put("a", "new");
+                cache.put("b", "new");
+                handle.recordLoaded(2, 0);
+                loaded.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                handle.complete();
+            }).start();
+            return handle;
+        };
+        Cache<Object, Object> before = manager.getCache("ref");
+
+        CompletableFuture<Cache<Object, Object>> reload = manager.reload("ref", loader);
+        loaded.await();
+
+        // 加载未完成时读取的仍是旧实例，看不到部分新数据
+        assertSame(before, manager.getCache("ref"));
+        assertEquals("old", manager.getCache("ref").getIfPresent("a"));
+        assertNull(manager.getCache("ref").getIfPresent("b"));
+        assertSame(reload, manager.reload("ref", loader));
+        assertEquals(2, manager.getReloadHandle("ref").getLoadedCount());
+
+        release.countDown();
+        Cache<Object, Object> after = reload.join();
+
+        assertSame(after, manager.getCache("ref"));
+        assertEquals("new", after.getIfPresent("a"));
+        assertEquals("new", after.getIfPresent("b"));
+        assertNull(after.getIfPresent("stale"));
+        // 仍持有旧实例的读取方可以继续读完
+        assertEquals("old", before.getIfPresent("a"));
+    }
+
+    @Test
+    public void testFailedLoadKeepsOldInstance() {
+        Cache<Object, Object> before = manager.getCache("ref");
+        CacheDataLoader loader = (cacheName, cache) -> {
+            cache.put("a", "partial");
+            WarmupHandle handle = new WarmupHandle(cacheName);
+            handle.fail(new IllegalStateException("source down"));
+            return handle;
+        };
+
+        try {
+            manager.reload("ref", loader).join();
+            fail("重载应失败");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+
+        assertSame(before, manager.getCache("ref"));
+        assertEquals("old", manager.getCache("ref").getIfPresent("a"));
+    }
+}
@@ -0,0 +1,434 @@
+package com.caffeine.component.core;
+
+import com.caffeine.component.persistence.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * long键缓存测试
+ * 最大条目数不小于16时共16段，段号为哈希的高4位，新表长度为16，槽位为哈希的低位
+ */
+public class LongKeyCacheTest {
+
+    @Test
+    public void testRemoveShiftsProbeChainAcrossTableEnd() {
+        LongKeyCache<String> cache = new LongKeyCache<>(1600, 0, TimeUnit.SECONDS);
+        // 三个键都落在0号段的15号槽，依次占用15、0、1号槽；第四个键落在0号槽，被挤到2号槽
+        long[] tail = keysWith(0, 15, 3);
+        long head = keysWith(0, 0, 1)[0];
+        for (long key : tail) {
+            cache.put(key, "v" + key);
+        }
+        cache.put(head, "v" + head);
+
+        // 删除绕回表头的条目后，后续条目回移，仍可找到
+        cache.invalidate(tail[1]);
+        assertNull(cache.get(tail[1]));
+        assertEquals("v" + tail[0], cache.get(tail[0]));
+        assertEquals("v" + tail[2], cache.get(tail[2]));
+        assertEquals("v" + head, cache.get(head));
+
+        // 删除链头后剩余条目仍可找到，重新写入不产生重复条目
+        cache.invalidate(tail[0]);
+        assertEquals("v" + tail[2], cache.get(tail[2]));
+        assertEquals("v" + head, cache.get(head));
+        cache.put(tail[2], "updated");
+        assertEquals("updated", cache.get(tail[2]));
+        assertEquals(2, cache.estimatedSize());
+    }
+
+    @Test
+    public void testResizeKeepsEveryEntryAcrossSegments() {
+        LongKeyCache<Long> cache = new LongKeyCache<>(16000, 0, TimeUnit.SECONDS);
+        List<Long> keys = new ArrayList<>();
+        keys.add(0L);
+        keys.add(-1L);
+        keys.add(Long.MIN_VALUE);
+        keys.add(Long.MAX_VALUE);
+        for (long i = 1; i <= 5000; i++) {
+            keys.add(i * 7919);
+        }
+        for (long key : keys) {
+            cache.put(key, key);
+        }
+        assertEquals(keys.size(), cache.estimatedSize());
+
+        // 删除一半后其余条目仍在
+        for (int i = 0; i < keys.size(); i += 2) {
+            cache.invalidate(keys.get(i));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            long key = keys.get(i);
+            assertEquals(i % 2 == 0 ? null : (Long) key, cache.get(key));
+        }
+        assertEquals(keys.size() / 2, cache.estimatedSize());
+        assertEquals(keys.size() / 2, cache.snapshot().size());
+    }
+
+    @Test
+    public void testClockEvictionSparesReferencedEntries() {
+        // 每段最多4个条目
+        LongKeyCache<String> cache = new LongKeyCache<>(64, 0, TimeUnit.SECONDS);
+        long[] keys = keysInSegment(0, 5);
+        for (int i = 0; i < 4; i++) {
+            cache.put(keys[i], "v" + i);
+        }
+        // 访问过的条目在第一轮扫描中被跳过
+        assertEquals("v0", cache.get(keys[0]));
+
+        cache.put(keys[4], "v4");
+
+        assertEquals(4, cache.estimatedSize());
+        assertEquals("v0", cache.get(keys[0]));
+        assertEquals("v4", cache.get(keys[4]));
+        int evicted = 0;
+        for (int i = 1; i < 4; i++) {
+            if (cache.get(keys[i]) == null) {
+                evicted++;
+            }
+        }
+        assertEquals(1, evicted);
+    }
+
+    @Test
+    public void testExpiredEntriesMissAndAreCleanedUp() throws Exception {
+        LongKeyCache<String> cache = new LongKeyCache<>(64, 50, TimeUnit.MILLISECONDS);
+        cache.put(1, "v1");
+        cache.put(2, "v2");
+        assertEquals("v1", cache.get(1));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get(1));
+        assertEquals("v2", cache.get(2L, key -> "v2"));
+        assertEquals(1, cache.snapshot().size());
+        cache.cleanUp();
+        assertEquals(1, cache.estimatedSize());
+    }
+
+    @Test
+    public void testConcurrentPutAndRemove() throws Exception {
+        LongKeyCache<Long> cache = new LongKeyCache<>(100000, 0, TimeUnit.SECONDS);
+        int threads = 8;
+        int keysPerThread = 512;
+        List<Map<Long, Long>> expected = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // 每个线程只写自己的键，读取所有键
+                Map<Long, Long> owned = new HashMap<>();
+                expected.add(owned);
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50000; i++) {
+                        long key = (long) random.nextInt(keysPerThread) * threads + thread;
+                        if (random.nextInt(3) == 0) {
+                            cache.invalidate(key);
+                            owned.remove(key);
+                        } else {
+                            long value = key * 100000 + i;
+                            cache.put(key, value);
+                            owned.put(key, value);
+                        }
+                        long other = random.nextInt(keysPerThread * threads);
+                        Long read = cache.get(other);
+                        if (read != null) {
+                            assertEquals(other, read / 100000);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<Long, Long> all = new HashMap<>();
+        expected.forEach(all::putAll);
+        assertEquals(all, cache.snapshot());
+        assertEquals(all.size(), cache.estimatedSize());
+    }
+
+    @Test
+    public void testInvalidateAllDeletesInBatchesThroughWriter() {
+        RecordingWriter writer = new RecordingWriter(false);
+        LongKeyCache<Object> cache = new LongKeyCache<>(16000, 0, TimeUnit.SECONDS, writer);
+        for (long i = 0; i < 2500; i++) {
+            cache.put(i, i);
+        }
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.estimatedSize());
+        assertNull(cache.get(1));
+        int deleted = 0;
+        for (int size : writer.deleteBatches) {
+            assertTrue(size <= 1000);
+            deleted += size;
+        }
+        assertEquals(2500, deleted);
+        assertEquals(3, writer.deleteBatches.size());
+        assertEquals(0, writer.deletes);
+        assertEquals(0, writer.truncates);
+    }
+
+    @Test
+    public void testInvalidateAllTruncatesWhenSupported() {
+        RecordingWriter writer = new RecordingWriter(true);
+        LongKeyCache<Object> cache = new LongKeyCache<>(16000, 0, TimeUnit.SECONDS, writer);
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.estimatedSize());
+        assertEquals(1, writer.truncates);
+        assertTrue(writer.deleteBatches.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentPutsPersistLatestValue() throws Exception {
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingWriter writer = new BlockingWriter("first", blocking, release);
+        LongKeyCache<Object> cache = new LongKeyCache<>(16000, 0, TimeUnit.SECONDS, writer);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 第一次写入的写入器调用阻塞期间，第二次写入已更新缓存
+            Future<?> first = executor.submit(() -> cache.put(1, "first"));
+            assertTrue(blocking.await(5, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> cache.put(1, "second"));
+            awaitValue(cache, 1, "second");
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("second", writer.values.get(1L));
+    }
+
+    @Test
+    public void testInvalidateRacingPutLeavesNoPersistedEntry() throws Exception {
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingWriter writer = new BlockingWriter("value", blocking, release);
+        LongKeyCache<Object> cache = new LongKeyCache<>(16000, 0, TimeUnit.SECONDS, writer);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> put = executor.submit(() -> cache.put(1, "value"));
+            assertTrue(blocking.await(5, TimeUnit.SECONDS));
+            Future<?> invalidate = executor.submit(() -> cache.invalidate(1));
+            awaitValue(cache, 1, null);
+            release.countDown();
+            put.get(5, TimeUnit.SECONDS);
+            invalidate.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(writer.values.containsKey(1L));
+    }
+
+    @Test
+    public void testEvictionAndExpirationNotifyRemovalListener() throws Exception {
+        List<String> removals = new CopyOnWriteArrayList<>();
+        // 每段最多4个条目
+        LongKeyCache<String> cache = new LongKeyCache<>(64, 50, TimeUnit.MILLISECONDS, null,
+                (key, cause) -> removals.add(key + ":" + cause));
+        long[] keys = keysInSegment(0, 5);
+        for (int i = 0; i < 5; i++) {
+            cache.put(keys[i], "v" + i);
+        }
+        assertEquals(1, removals.size());
+        assertTrue(removals.get(0).endsWith(":" + RemovalCause.SIZE));
+
+        Thread.sleep(100);
+        cache.cleanUp();
+
+        assertEquals(0, cache.estimatedSize());
+        assertEquals(5, removals.size());
+        for (int i = 1; i < 5; i++) {
+            assertTrue(removals.get(i).endsWith(":" + RemovalCause.EXPIRED));
+        }
+    }
+
+    @Test
+    public void testMaximumSizeAdjustsInPlace() {
+        List<Long> evicted = new CopyOnWriteArrayList<>();
+        LongKeyCache<Long> cache = new LongKeyCache<>(16000, 0, TimeUnit.SECONDS, null,
+                (key, cause) -> evicted.add(key));
+        for (long i = 0; i < 2000; i++) {
+            cache.put(i, i);
+        }
+
+        // 每段最多10个条目
+        cache.setMaximumSize(160);
+
+        assertEquals(160, cache.getMaximumSize());
+        assertTrue(cache.estimatedSize() <= 160);
+        assertEquals(2000, cache.estimatedSize() + evicted.size());
+        for (long key : evicted) {
+            assertNull(cache.get(key));
+        }
+        Map<Long, Long> remaining = cache.snapshot();
+        assertEquals(cache.estimatedSize(), remaining.size());
+        remaining.forEach((key, value) -> assertEquals(key, value));
+
+        // 扩容后可以继续写入到新的上限
+        cache.setMaximumSize(16000);
+        evicted.clear();
+        for (long i = 0; i < 2000; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(2000, cache.estimatedSize());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void testExpirationCanBeEnabledInPlace() throws Exception {
+        LongKeyCache<String> cache = new LongKeyCache<>(64, 0, TimeUnit.SECONDS);
+        cache.put(1, "v1");
+
+        cache.setExpireAfterWrite(50, TimeUnit.MILLISECONDS);
+        assertEquals("v1", cache.get(1));
+        Thread.sleep(100);
+
+        assertNull(cache.get(1));
+        cache.setExpireAfterWrite(0, TimeUnit.SECONDS);
+        assertEquals("v1", cache.get(1));
+    }
+
+    private static void awaitValue(LongKeyCache<Object> cache, long key, Object expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Objects.equals(cache.get(key), expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, cache.get(key));
+    }
+
+    /**
+     * 查找落在指定段和新表槽位上的键
+     */
+    private static long[] keysWith(int segment, int slot, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            long hash = LongKeyCache.hash(key);
+            if ((int) (hash >>> 60) == segment && ((int) hash & 15) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    private static long[] keysInSegment(int segment, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            if ((int) (LongKeyCache.hash(key) >>> 60) == segment) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 记录每个键最后一次写入值的写入器，写入指定值时阻塞到放行
+     */
+    private static class BlockingWriter implements CacheWriter<Object, Object> {
+        private final Object blockedValue;
+        private final CountDownLatch blocking;
+        private final CountDownLatch release;
+        final Map<Object, Object> values = new ConcurrentHashMap<>();
+
+        BlockingWriter(Object blockedValue, CountDownLatch blocking, CountDownLatch release) {
+            this.blockedValue = blockedValue;
+            this.blocking = blocking;
+            this.release = release;
+        }
+
+        @Override
+        public void write(Object key, Object value) {
+            if (blockedValue.equals(value) && blocking.getCount() > 0) {
+                blocking.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            values.put(key, value);
+        }
+
+        @Override
+        public void delete(Object key, Object value) {
+            values.remove(key);
+        }
+    }
+
+    /**
+     * 记录删除批次和清空次数的写入器
+     */
+    private static class RecordingWriter implements CacheWriter<Object, Object> {
+        private final boolean truncateSupported;
+        final List<Integer> deleteBatches = new ArrayList<>();
+        int deletes;
+        int truncates;
+
+        RecordingWriter(boolean truncateSupported) {
+            this.truncateSupported = truncateSupported;
+        }
+
+        @Override
+        public void write(Object key, Object value) {
+        }
+
+        @Override
+        public void delete(Object key, Object value) {
+            deletes++;
+        }
+
+        @Override
+        public void deleteAll(Map<?, ?> entries) {
+            deleteBatches.add(entries.size());
+        }
+
+        @Override
+        public boolean supportsTruncate() {
+            return truncateSupported;
+        }
+
+        @Override
+        public void truncate() {
+            truncates++;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.caffeine.component.core;
+
+import com.caffeine.component.config.CacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 容量上限分步调整测试
+ */
+public class PacedResizerTest {
+    private final PacedResizer resizer = new PacedResizer();
+
+    @Test
+    public void testShrinksInStepsOverDuration() throws Exception {
+        AtomicLong evicted = new AtomicLong();
+        Cache<Object, Object> cache = filledCache(10000, evicted);
+
+        CompletableFuture<Void> done = resizer.resize("users", cache, 1000, 1000, 0);
+
+        // 第一步最多降低约十分之一，不会一次淘汰到目标值
+        Thread.sleep(50);
+        assertTrue(resizer.isResizing("users"));
+        assertTrue(evicted.get() < 9000);
+
+        done.get(5, TimeUnit.SECONDS);
+        cache.cleanUp();
+        assertFalse(resizer.isResizing("users"));
+        assertEquals(1000, cache.policy().eviction().get().getMaximum());
+        assertEquals(1000, cache.estimatedSize());
+        assertEquals(9000, evicted.get());
+    }
+
+    @Test
+    public void testEvictionRateLimit() throws Exception {
+        AtomicLong evicted = new AtomicLong();
+        Cache<Object, Object> cache = filledCache(1000, evicted);
+
+        resizer.resize("users", cache, 500, 0, 1000);
+
+        // 每100毫秒一步，每步最多淘汰100个
+        Thread.sleep(250);
+        assertTrue(evicted.get() <= 300);
+        assertTrue(resizer.isResizing("users"));
+        resizer.cancel("users");
+        assertFalse(resizer.isResizing("users"));
+    }
+
+    @Test
+    public void testGrowthAndUnpacedShrinkApplyImmediately() {
+        Cache<Object, Object> cache = filledCache(100, new AtomicLong());
+
+        assertTrue(resizer.resize("users", cache, 200, 1000, 0).isDone());
+        assertEquals(200, cache.policy().eviction().get().getMaximum());
+
+        assertTrue(resizer.resize("users", cache, 50, 0, 0).isDone());
+        cache.cleanUp();
+        assertEquals(50, cache.estimatedSize());
+    }
+
+    @Test
+    public void testManagerResizesInPlaceWhenOnlyMaximumSizeChanges() throws Exception {
+        CacheConfig config = new CacheConfig();
+        config.setName("users");
+        config.setMaximumSize(1000);
+        CaffeineCacheManager manager = new CaffeineCacheManager(config);
+        Cache<Object, Object> before = manager.getCache("users");
+        for (int i = 0; i < 1000; i++) {
+            before.put(i, i);
+        }
+
+        CacheConfig smaller = new CacheConfig();
+        smaller.update(config);
+        smaller.setMaximumSize(100);
+        smaller.setResizeDurationSeconds(1);
+        manager.setConfig(smaller);
+
+        assertSame(before, manager.getCache("users"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (manager.isResizing("users") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        before.cleanUp();
+        assertEquals(100, before.estimatedSize());
+    }
+
+    @Test
+    public void testShutdownCancelsPacingAndLaterShrinksApplyImmediately() throws Exception {
+        AtomicLong maximum = new AtomicLong(1000);
+        CompletableFuture<Void> paced = resizer.resize("ids", maximum.get(), 1000, maximum::set, 100, 60_000, 0);
+        assertTrue(resizer.isResizing("ids"));
+
+        resizer.shutdown();
+
+        assertTrue(paced.isDone());
+        assertFalse(resizer.isResizing("ids"));
+        assertTrue(resizer.resize("ids", maximum.get(), 1000, maximum::set, 50, 60_000, 0).isDone());
+        assertEquals(50, maximum.get());
+    }
+
+    private static Cache<Object, Object> filledCache(int size, AtomicLong evicted) {
+        Cache<Object, Object> cache = Caffeine.newBuilder()
+                .maximumSize(size)
+                .executor(Runnable::run)
+                .removalListener((key, value, cause) -> {
+                    if (cause.wasEvicted()) {
+                        evicted.incrementAndGet();
+                    }
+                })
+                .build();
+        for (int i = 0; i < size; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+        return cache;
+    }
+}
@@ -2,6 +2,7 @@ package com.caffeine.component.example;
 
 import com.caffeine.component.config.CacheConfig;
 import com.caffeine.component.core.CaffeineCacheManager;
+import com.caffeine.component.warmup.WarmupHandle;
 import com.caffeine.component.warmup.loader.RedisCacheLoader;
 import com.github.benmanes.caffeine.cache.Cache;
 import redis.clients.jedis.JedisPoolConfig;
@@ -45,14 +46,11 @@ public class RedisCacheLoaderExample {
         addTestDataToRedis(redisCacheLoader, cacheName);
 
         // 6. 从Redis异步加载数据到本地缓存
-        redisCacheLoader.loadData(cacheName, cache);
+        WarmupHandle handle = redisCacheLoader.loadData(cacheName, cache);
 
         // 7. 等待数据加载完成（实际应用中，这通常是异步的）
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        handle.getFuture().join();
+        System.out.println("预热完成: " + handle);
 
         // 8. 验证数据是否加载成功
         Object userId1 = cache.getIfPresent("1");
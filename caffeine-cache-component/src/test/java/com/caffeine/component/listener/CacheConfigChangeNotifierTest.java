@@ -0,0 +1,213 @@
+package com.caffeine.component.listener;
+
+import com.caffeine.component.config.CacheConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 配置变更异步分发测试
+ */
+public class CacheConfigChangeNotifierTest {
+    private final CacheConfigChangeNotifier notifier = new CacheConfigChangeNotifier();
+
+    @After
+    public void tearDown() {
+        notifier.shutdown();
+    }
+
+    @Test
+    public void testSlowListenerDoesNotBlockCallerOrOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastApplied = new CountDownLatch(1);
+        notifier.registerListener(config -> await(release));
+        notifier.registerListener(config -> fastApplied.countDown());
+
+        CompletableFuture<Void> future = notifier.notifyConfigChange(config("users", 100));
+
+        assertTrue(fastApplied.await(5, TimeUnit.SECONDS));
+        assertFalse(future.isDone());
+        release.countDown();
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testPendingChangesForSameCacheAreCoalesced() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> applied = new CopyOnWriteArrayList<>();
+        notifier.registerListener(config -> {
+            if (config.getName().equals("blocker")) {
+                started.countDown();
+                await(release);
+            }
+            applied.add(config.getName() + ":" + config.getMaximumSize());
+        });
+
+        CompletableFuture<Void> blocker = notifier.notifyConfigChange(config("blocker", 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> first = notifier.notifyConfigChange(config("users", 100));
+        CompletableFuture<Void> other = notifier.notifyConfigChange(config("orders", 10));
+        CompletableFuture<Void> second = notifier.notifyConfigChange(config("users", 200));
+        CompletableFuture<Void> third = notifier.notifyConfigChange(config("users", 300));
+
+        ListenerStats queued = notifier.getListenerStats().get(0);
+        assertEquals(2, queued.getQueueDepth());
+        assertEquals(2, queued.getCoalescedCount());
+
+        release.countDown();
+        CompletableFuture.allOf(blocker, first, other, second, third).get(5, TimeUnit.SECONDS);
+
+        // 合并后的变更保留首次入队的位置，只应用最新配置
+        assertEquals(3, applied.size());
+        assertEquals("blocker:1", applied.get(0));
+        assertEquals("users:300", applied.get(1));
+        assertEquals("orders:10", applied.get(2));
+        ListenerStats stats = notifier.getListenerStats().get(0);
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(3, stats.getAppliedCount());
+        assertTrue(stats.getMaxApplyMillis() >= stats.getLastApplyMillis());
+    }
+
+    @Test
+    public void testCoalescingKeepsHigherVersion() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> applied = new CopyOnWriteArrayList<>();
+        notifier.registerListener(config -> {
+            if (config.getName().equals("blocker")) {
+                started.countDown();
+                await(release);
+            }
+            applied.add(config.getName() + ":" + config.getMaximumSize());
+        });
+
+        CompletableFuture<Void> blocker = notifier.notifyConfigChange(config("blocker", 1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // 版本3先到，迟到的版本2不覆盖
+        CompletableFuture<Void> newer = notifier.notifyConfigChange(versioned("users", 300, 3));
+        CompletableFuture<Void> stale = notifier.notifyConfigChange(versioned("users", 200, 2));
+        // 未设置版本号的配置按到达顺序覆盖
+        CompletableFuture<Void> first = notifier.notifyConfigChange(config("orders", 10));
+        CompletableFuture<Void> last = notifier.notifyConfigChange(config("orders", 20));
+
+        release.countDown();
+        CompletableFuture.allOf(blocker, newer, stale, first, last).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, applied.size());
+        assertEquals("users:300", applied.get(1));
+        assertEquals("orders:20", applied.get(2));
+        assertEquals(2, notifier.getListenerStats().get(0).getCoalescedCount());
+    }
+
+    @Test
+    public void testUnversionedChangesAreStampedInOrder() {
+        List<Long> versions = new CopyOnWriteArrayList<>();
+        notifier.registerListener(config -> versions.add(config.getVersion()));
+        CacheConfig config = config("users", 100);
+
+        notifier.notifyConfigChange(config).join();
+        notifier.notifyConfigChange(config("users", 200)).join();
+        notifier.notifyConfigChange(versioned("users", 300, 7)).join();
+
+        assertTrue(versions.get(0) > 0);
+        assertTrue(versions.get(1) > versions.get(0));
+        assertEquals(7L, (long) versions.get(2));
+        // 调用方传入的配置不被修改
+        assertEquals(0, config.getVersion());
+    }
+
+    @Test
+    public void testConfigIsCopiedAtEnqueue() {
+        List<Long> sizes = new CopyOnWriteArrayList<>();
+        notifier.registerListener(config -> sizes.add(config.getMaximumSize()));
+        CacheConfig config = config("users", 100);
+
+        CompletableFuture<Void> future = notifier.notifyConfigChange(config);
+        config.setMaximumSize(999);
+        future.join();
+
+        assertEquals(100L, (long) sizes.get(0));
+    }
+
+    @Test
+    public void testListenerFailureCompletesExceptionallyAndIsCounted() {
+        notifier.registerListener(config -> {
+            throw new IllegalStateException("boom");
+        });
+
+        try {
+            notifier.notifyConfigChange(config("users", 100)).join();
+            fail("监听器失败应传递给调用方");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals(1, notifier.getListenerStats().get(0).getFailedCount());
+        // 失败不影响后续变更的分发
+        notifier.notifyConfigChange(config("users", 200)).exceptionally(e -> null).join();
+        assertEquals(2, notifier.getListenerStats().get(0).getAppliedCount());
+    }
+
+    @Test
+    public void testRoutesByCacheNameAndWildcard() {
+        List<String> users = new CopyOnWriteArrayList<>();
+        List<String> orders = new CopyOnWriteArrayList<>();
+        List<String> global = new CopyOnWriteArrayList<>();
+        CacheConfigChangeListener usersListener = config -> users.add(config.getName());
+        notifier.registerListener("users", usersListener);
+        notifier.registerListener("orders", config -> orders.add(config.getName()));
+        notifier.registerListener(config -> global.add(config.getName()));
+
+        notifier.notifyConfigChange(config("users", 100)).join();
+        notifier.notifyConfigChange(config("orders", 100)).join();
+        notifier.notifyConfigChange(config("unknown", 100)).join();
+
+        assertEquals(1, users.size());
+        assertEquals(1, orders.size());
+        assertEquals(3, global.size());
+
+        // 同一监听器再订阅一个名称，以及同时作为通配监听器时只应用一次
+        notifier.registerListener("orders", usersListener);
+        notifier.notifyConfigChange(config("orders", 200)).join();
+        assertEquals(2, users.size());
+        notifier.registerListener(usersListener);
+        notifier.notifyConfigChange(config("users", 200)).join();
+        assertEquals(3, users.size());
+
+        notifier.removeListener("users", usersListener);
+        notifier.removeListener(usersListener);
+        notifier.notifyConfigChange(config("users", 300)).join();
+        assertEquals(3, users.size());
+        assertEquals(2, notifier.getListenerStats().size());
+    }
+
+    private static CacheConfig config(String name, long maximumSize) {
+        CacheConfig config = new CacheConfig();
+        config.setName(name);
+        config.setMaximumSize(maximumSize);
+        return config;
+    }
+
+    private static CacheConfig versioned(String name, long maximumSize, long version) {
+        CacheConfig config = config(name, maximumSize);
+        config.setVersion(version);
+        return config;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
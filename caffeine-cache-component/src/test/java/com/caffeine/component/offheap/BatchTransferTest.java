@@ -0,0 +1,102 @@
+package com.caffeine.component.offheap;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量传输测试：批次切分、在途批次上限和失败传递
+ */
+public class BatchTransferTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSplitsIntoBatchesAndWaitsForAll() {
+        Map<Object, Object> target = new ConcurrentHashMap<>();
+        AtomicInteger batchCount = new AtomicInteger();
+        BatchTransfer transfer = new BatchTransfer(executor, 2, 100, batch -> {
+            assertTrue(batch.size() <= 100);
+            batchCount.incrementAndGet();
+            target.putAll(batch);
+        });
+        for (int i = 0; i < 1050; i++) {
+            transfer.add(i, i);
+        }
+        transfer.finish();
+
+        assertEquals(1050, target.size());
+        assertEquals(1050, transfer.getEntries());
+        assertEquals(11, transfer.getBatches());
+        assertEquals(11, batchCount.get());
+    }
+
+    @Test
+    public void testInFlightBatchesAreBounded() throws Exception {
+        Semaphore release = new Semaphore(0);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        // 并行度1时最多2个在途批次，线程池有4个线程也不会超过
+        BatchTransfer transfer = new BatchTransfer(executor, 1, 1, batch -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.acquireUninterruptibly();
+            running.decrementAndGet();
+        });
+        assertEquals(2, transfer.getMaxInFlight());
+
+        CountDownLatch producerDone = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                transfer.add(i, i);
+            }
+            transfer.finish();
+            producerDone.countDown();
+        });
+        producer.start();
+
+        // 两个批次占满许可后生产线程被阻塞
+        Thread.sleep(100);
+        assertEquals(2, running.get());
+        assertFalse(producerDone.await(50, TimeUnit.MILLISECONDS));
+
+        release.release(5);
+        assertTrue(producerDone.await(5, TimeUnit.SECONDS));
+        assertEquals(2, maxRunning.get());
+        assertEquals(5, transfer.getBatches());
+    }
+
+    @Test
+    public void testFailureIsRethrownAndLaterBatchesSkipped() {
+        AtomicInteger accepted = new AtomicInteger();
+        BatchTransfer transfer = new BatchTransfer(Runnable::run, 1, 1, batch -> {
+            if (accepted.incrementAndGet() == 2) {
+                throw new IllegalArgumentException("boom");
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            transfer.add(i, i);
+        }
+        try {
+            transfer.finish();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        // 失败后的批次不再写入目标
+        assertEquals(2, accepted.get());
+    }
+}
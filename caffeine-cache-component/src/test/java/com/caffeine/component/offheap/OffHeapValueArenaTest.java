@@ -0,0 +1,93 @@
+package com.caffeine.component.offheap;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 堆外值存储区测试：容量1024字节时内存块为256字节，共4块
+ */
+public class OffHeapValueArenaTest {
+    private final OffHeapValueArena arena = new OffHeapValueArena(1024);
+
+    @Test
+    public void testAllocateAndRead() {
+        byte[] bytes = bytes(100, (byte) 7);
+        OffHeapValueHandle handle = arena.allocate(bytes);
+
+        assertNotNull(handle);
+        assertArrayEquals(bytes, arena.read(handle));
+        assertEquals(128, handle.getBlockSize());
+        assertEquals(128, arena.getUsedBytes());
+        assertEquals(256, arena.getReservedBytes());
+    }
+
+    @Test
+    public void testFreedBlockIsReused() {
+        OffHeapValueHandle first = arena.allocate(bytes(100, (byte) 1));
+        arena.allocate(bytes(100, (byte) 2));
+        arena.free(first);
+        // 重复释放被忽略
+        arena.free(first);
+        assertEquals(128, arena.getUsedBytes());
+        assertNull(arena.read(first));
+
+        OffHeapValueHandle reused = arena.allocate(bytes(90, (byte) 3));
+        assertEquals(first.getAddress(), reused.getAddress());
+        assertArrayEquals(bytes(90, (byte) 3), arena.read(reused));
+        assertEquals(256, arena.getUsedBytes());
+    }
+
+    @Test
+    public void testFullArenaReturnsNull() {
+        assertEquals(1024, arena.getCapacity());
+        assertEquals(256, arena.getMaxValueSize());
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(arena.allocate(bytes(256, (byte) i)));
+        }
+        assertNull(arena.allocate(bytes(1, (byte) 0)));
+        assertEquals(1024, arena.getUsedBytes());
+        assertEquals(1024, arena.getReservedBytes());
+    }
+
+    @Test
+    public void testLargerFreeBlockIsSplitWhenFull() {
+        OffHeapValueHandle[] handles = new OffHeapValueHandle[4];
+        for (int i = 0; i < 4; i++) {
+            handles[i] = arena.allocate(bytes(256, (byte) i));
+        }
+        arena.free(handles[1]);
+
+        OffHeapValueHandle small = arena.allocate(bytes(20, (byte) 9));
+        assertNotNull(small);
+        assertEquals(handles[1].getAddress(), small.getAddress());
+        assertEquals(3 * 256 + 32, arena.getUsedBytes());
+        // 拆分剩余的32、64、128字节块仍可分配
+        assertNotNull(arena.allocate(bytes(32, (byte) 1)));
+        assertNotNull(arena.allocate(bytes(64, (byte) 1)));
+        assertNotNull(arena.allocate(bytes(128, (byte) 1)));
+        assertNull(arena.allocate(bytes(32, (byte) 1)));
+        // 未被覆盖
+        assertArrayEquals(bytes(256, (byte) 0), arena.read(handles[0]));
+        assertArrayEquals(bytes(20, (byte) 9), arena.read(small));
+    }
+
+    @Test
+    public void testOversizedValueIsRejected() {
+        try {
+            arena.allocate(new byte[257]);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 超过单个内存块的值无法存放
+        }
+        assertEquals(0, arena.getReservedBytes());
+    }
+
+    private static byte[] bytes(int length, byte value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
@@ -0,0 +1,182 @@
+package com.caffeine.component.offheap;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 混合模式缓存测试：句柄由移除监听器归还，与缓存管理器的配置方式一致
+ */
+public class OffHeapValueCacheTest {
+
+    @Test
+    public void testConcurrentReadAndReplaceSeeOnlyWrittenValues() throws Exception {
+        OffHeapValueArena arena = new OffHeapValueArena(4 * 1024 * 1024);
+        OffHeapValueCache<Integer, String> cache = newCache(arena, arena.getCapacity());
+        int keys = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20000; i++) {
+                        int key = random.nextInt(keys);
+                        String written = key + "-" + thread + "-" + i;
+                        String read;
+                        switch (random.nextInt(6)) {
+                            case 0:
+                                cache.put(key, written);
+                                read = written;
+                                break;
+                            case 1:
+                                cache.asMap().replace(key, written);
+                                read = cache.getIfPresent(key);
+                                break;
+                            case 2:
+                                read = cache.get(key, k -> written);
+                                break;
+                            case 3:
+                                cache.invalidate(key);
+                                read = null;
+                                break;
+                            case 4:
+                                read = cache.getAll(Arrays.asList(key, (key + 1) % keys), missing -> {
+                                    Map<Integer, String> loaded = new HashMap<>();
+                                    missing.forEach(k -> loaded.put(k, k + "-loaded"));
+                                    return loaded;
+                                }).get(key);
+                                break;
+                            default:
+                                read = cache.getIfPresent(key);
+                                break;
+                        }
+                        // 读到的值总是该键写入过的完整值，不会读到被复用的句柄内容
+                        if (read != null) {
+                            assertTrue(read, read.startsWith(key + "-"));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 竞争失败的句柄全部归还，清空后不残留占用
+        cache.invalidateAll();
+        cache.cleanUp();
+        assertEquals(0, arena.getUsedBytes());
+    }
+
+    @Test
+    public void testLoadReclaimsColdEntriesWhenArenaIsFull() {
+        OffHeapValueArena arena = new OffHeapValueArena(1024);
+        // 权重上限远大于存储区，空间不足只能由写入方主动淘汰
+        OffHeapValueCache<Integer, String> cache = newCache(arena, Long.MAX_VALUE);
+        String value = new String(new char[150]).replace('\0', 'x');
+
+        for (int i = 0; i < 20; i++) {
+            int key = i;
+            assertEquals(value, cache.get(key, k -> value));
+            assertEquals(value, cache.getIfPresent(key));
+        }
+        assertTrue(arena.getUsedBytes() <= arena.getCapacity());
+        assertTrue(cache.estimatedSize() < 20);
+    }
+
+    @Test
+    public void testReleaseReturnsMemoryAndRejectsWrites() {
+        OffHeapValueArena arena = new OffHeapValueArena(1024);
+        OffHeapValueCache<Integer, String> cache = newCache(arena, arena.getCapacity());
+        cache.put(1, "v1");
+        cache.put(2, "v2");
+
+        cache.release();
+
+        assertTrue(cache.isReleased());
+        assertEquals(0, arena.getUsedBytes());
+        assertNull(cache.getIfPresent(1));
+        try {
+            cache.put(3, "v3");
+            fail();
+        } catch (IllegalStateException expected) {
+            // 已退役的实例不再接受写入
+        }
+        assertEquals(0, arena.getUsedBytes());
+    }
+
+    @Test
+    public void testReadDuringReplaceIsNotAMiss() throws Exception {
+        OffHeapValueArena arena = new OffHeapValueArena(4 * 1024 * 1024);
+        OffHeapValueCache<Integer, String> cache = newCache(arena, arena.getCapacity());
+        cache.put(1, "1-init");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20000; i++) {
+                        cache.put(1, "1-" + thread + "-" + i);
+                    }
+                    return null;
+                }));
+            }
+            for (int t = 0; t < 2; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20000; i++) {
+                        // 键始终有映射，替换期间的读取不应误报未命中
+                        assertNotNull(cache.getIfPresent(1));
+                        assertTrue(cache.getAllPresent(Arrays.asList(1)).containsKey(1));
+                        assertNotNull(cache.asMap().get(1));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static OffHeapValueCache<Integer, String> newCache(OffHeapValueArena arena, long maximumWeight) {
+        Cache<Integer, OffHeapValueHandle> handles = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Integer key, OffHeapValueHandle handle) -> handle.getBlockSize())
+                .executor(Runnable::run)
+                .removalListener((Integer key, OffHeapValueHandle handle, RemovalCause cause) -> arena.free(handle))
+                .build();
+        return new OffHeapValueCache<>(handles, arena, new DefaultOffHeapValueCodec());
+    }
+}
@@ -0,0 +1,134 @@
+package com.caffeine.component.persistence;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 写入包装与原始Caffeine缓存的吞吐对比，写入器为空操作，只衡量包装本身的开销
+ * 运行: 在测试classpath下执行main方法，或配合-prof gc查看每次操作的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CacheWithWriterBenchmark {
+    private static final int SIZE = 1 << 14;
+    private static final int MASK = SIZE - 1;
+    private static final Function<Integer, Integer> IDENTITY = key -> key;
+
+    private Integer[] keys;
+    // 写入用的值，与键错开，put每次写入与当前值不同的对象，走完整的写入路径
+    private Integer[] values;
+    private Cache<Integer, Integer> raw;
+    private Cache<Integer, Integer> wrapped;
+
+    @Setup
+    public void setUp() {
+        keys = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = i;
+        }
+        values = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = SIZE + i;
+        }
+        raw = Caffeine.newBuilder().maximumSize(SIZE * 2).build();
+        wrapped = new CacheWithWriter<>(Caffeine.newBuilder().maximumSize(SIZE * 2).<Integer, Integer>build(),
+                new CacheWriter<Integer, Integer>() {
+                    @Override
+                    public void write(Integer key, Integer value) {
+                    }
+
+                    @Override
+                    public void delete(Integer key, Integer value) {
+                    }
+                });
+        for (Integer key : keys) {
+            raw.put(key, key);
+            wrapped.put(key, key);
+        }
+    }
+
+    private Integer nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt() & MASK];
+    }
+
+    /**
+     * 随机取一个值，与键当前的值相同的概率约为1/SIZE
+     */
+    private Integer nextValue() {
+        return values[ThreadLocalRandom.current().nextInt() & MASK];
+    }
+
+    @Benchmark
+    public Integer rawGetHit() {
+        return raw.get(nextKey(), IDENTITY);
+    }
+
+    @Benchmark
+    public Integer wrappedGetHit() {
+        return wrapped.get(nextKey(), IDENTITY);
+    }
+
+    @Benchmark
+    public void rawPut() {
+        raw.put(nextKey(), nextValue());
+    }
+
+    @Benchmark
+    public void wrappedPut() {
+        wrapped.put(nextKey(), nextValue());
+    }
+
+    /**
+     * 写入与当前值相同的值，包装跳过写入器调用
+     */
+    @Benchmark
+    public void rawPutSameValue() {
+        Integer key = nextKey();
+        raw.put(key, key);
+    }
+
+    @Benchmark
+    public void wrappedPutSameValue() {
+        Integer key = nextKey();
+        wrapped.put(key, key);
+    }
+
+    @Benchmark
+    public void rawAsMapGet(Blackhole blackhole) {
+        blackhole.consume(raw.asMap().get(nextKey()));
+    }
+
+    @Benchmark
+    public void wrappedAsMapGet(Blackhole blackhole) {
+        blackhole.consume(wrapped.asMap().get(nextKey()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CacheWithWriterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,389 @@
+package com.caffeine.component.persistence;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 写入包装测试：只有条目实际新增、变更或删除时才调用写入器
+ */
+public class CacheWithWriterTest {
+    private final RecordingWriter writer = new RecordingWriter();
+    private final Cache<String, String> cache =
+            new CacheWithWriter<>(Caffeine.newBuilder().<String, String>build(), writer);
+
+    @Test
+    public void testLoadWritesOnceAndHitDoesNotWrite() {
+        assertEquals("v1", cache.get("k1", key -> "v1"));
+        assertEquals("v1", cache.get("k1", key -> "other"));
+        assertEquals(Collections.singletonList("write k1=v1"), writer.events);
+    }
+
+    @Test
+    public void testPutSameValueDoesNotWrite() {
+        cache.put("k1", "v1");
+        cache.put("k1", "v1");
+        cache.put("k1", "v2");
+        assertEquals(Arrays.asList("write k1=v1", "write k1=v2"), writer.events);
+    }
+
+    @Test
+    public void testInvalidateDeletesOnlyPresentEntries() {
+        cache.put("k1", "v1");
+        cache.invalidate("k1");
+        cache.invalidate("k1");
+        assertEquals(Arrays.asList("write k1=v1", "delete k1=v1"), writer.events);
+    }
+
+    @Test
+    public void testInvalidateAllDeletesEveryEntry() {
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        writer.events.clear();
+        cache.invalidateAll();
+        assertEquals(0, cache.estimatedSize());
+        assertEquals(2, writer.events.size());
+        assertTrue(writer.events.contains("delete k1=v1"));
+        assertTrue(writer.events.contains("delete k2=v2"));
+    }
+
+    @Test
+    public void testAsMapIsCachedAndWritesOnChange() {
+        assertSame(cache.asMap(), cache.asMap());
+        assertNull(cache.asMap().putIfAbsent("k1", "v1"));
+        assertEquals("v1", cache.asMap().putIfAbsent("k1", "v2"));
+        assertFalse(cache.asMap().replace("k1", "v2", "v3"));
+        assertTrue(cache.asMap().replace("k1", "v1", "v1"));
+        assertTrue(cache.asMap().remove("k1", "v1"));
+        assertEquals(Arrays.asList("write k1=v1", "delete k1=v1"), writer.events);
+    }
+
+    @Test
+    public void testGetAllWritesOnlyLoadedEntries() {
+        cache.put("k1", "v1");
+        writer.events.clear();
+        cache.getAll(Arrays.asList("k1", "k2"), keys -> Collections.singletonMap("k2", "v2"));
+        assertEquals(Collections.singletonList("write k2=v2"), writer.events);
+    }
+
+    @Test
+    public void testComputeWritesResultOnceAfterCommit() {
+        ConcurrentMap<String, String> map = cache.asMap();
+        assertEquals("v1", map.compute("k1", (key, value) -> {
+            // 计算提交前写入器不可见
+            assertTrue(writer.events.isEmpty());
+            return "v1";
+        }));
+        assertEquals("v1", map.compute("k1", (key, value) -> value));
+        assertEquals("v1v2", map.merge("k1", "v2", String::concat));
+        assertNull(map.computeIfPresent("k1", (key, value) -> null));
+        assertNull(map.computeIfPresent("k1", (key, value) -> "never"));
+        assertEquals("v3", map.computeIfAbsent("k1", key -> "v3"));
+        assertEquals("v3", map.computeIfAbsent("k1", key -> "never"));
+        assertNull(map.merge("k1", "x", (oldValue, value) -> null));
+        assertEquals(Arrays.asList("write k1=v1", "write k1=v1v2", "delete k1=v1v2",
+                "write k1=v3", "delete k1=v3"), writer.events);
+    }
+
+    @Test
+    public void testFailedComputeDoesNotWrite() {
+        cache.put("k1", "v1");
+        writer.events.clear();
+        try {
+            cache.asMap().compute("k1", (key, value) -> {
+                throw new IllegalStateException("boom");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            // 计算失败时保留原值
+        }
+        assertEquals("v1", cache.getIfPresent("k1"));
+        assertTrue(writer.events.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentMergeKeepsEveryUpdate() throws Exception {
+        LastValueWriter<String, Long> lastValues = new LastValueWriter<>();
+        ConcurrentMap<String, Long> counters =
+                new CacheWithWriter<>(Caffeine.newBuilder().<String, Long>build(), lastValues).asMap();
+        int threads = 8;
+        int iterations = 20000;
+        String[] keys = {"a", "b", "c"};
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < iterations; i++) {
+                counters.merge(keys[i % keys.length], 1L, Long::sum);
+            }
+        });
+
+        long total = 0;
+        for (String key : keys) {
+            total += counters.get(key);
+            // 写入器最后看到的值与缓存中的最终值一致
+            assertEquals(counters.get(key), lastValues.values.get(key));
+        }
+        assertEquals((long) threads * iterations, total);
+    }
+
+    @Test
+    public void testConcurrentComputeAndRemoveKeepPersistedStateConsistent() throws Exception {
+        LastValueWriter<Integer, Integer> lastValues = new LastValueWriter<>();
+        ConcurrentMap<Integer, Integer> map =
+                new CacheWithWriter<>(Caffeine.newBuilder().<Integer, Integer>build(), lastValues).asMap();
+
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 20000; i++) {
+                int key = i % 4;
+                if ((i + thread) % 5 == 0) {
+                    map.remove(key);
+                } else {
+                    map.compute(key, (k, value) -> value == null ? 1 : value + 1);
+                }
+            }
+        });
+
+        for (int key = 0; key < 4; key++) {
+            assertEquals(map.get(key), lastValues.values.get(key));
+        }
+    }
+
+    @Test
+    public void testConcurrentEqualValuesAreNotLost() throws Exception {
+        LastValueWriter<Integer, String> lastValues = new LastValueWriter<>();
+        ConcurrentMap<Integer, String> map =
+                new CacheWithWriter<>(Caffeine.newBuilder().<Integer, String>build(), lastValues).asMap();
+
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 20000; i++) {
+                int key = i % 4;
+                // 每次写入新的字符串对象，相等但不是同一对象
+                String value = new String((i + thread) % 3 == 0 ? "a" : "b");
+                if (i % 2 == 0) {
+                    map.put(key, value);
+                } else {
+                    map.compute(key, (k, old) -> value);
+                }
+            }
+        });
+
+        for (int key = 0; key < 4; key++) {
+            assertEquals(map.get(key), lastValues.values.get(key));
+        }
+    }
+
+    @Test
+    public void testEqualValueWrittenWhileFirstWriterWaits() throws Exception {
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LastValueWriter<Integer, String> lastValues = new LastValueWriter<Integer, String>() {
+            @Override
+            public void write(Integer key, String value) {
+                if (key == 65) {
+                    blocking.countDown();
+                    await(release);
+                }
+                super.write(key, value);
+            }
+        };
+        ConcurrentMap<Integer, String> map =
+                new CacheWithWriter<>(Caffeine.newBuilder().<Integer, String>build(), lastValues).asMap();
+        map.put(1, "old");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 65与1落在同一分段，写入器阻塞时占住该分段的锁
+            Future<?> holder = executor.submit(() -> map.put(65, "z"));
+            assertTrue(blocking.await(5, TimeUnit.SECONDS));
+            Future<?> first = executor.submit(() -> map.put(1, new String("new")));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"new".equals(map.get(1)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            // 相等但不是同一对象的值，与旧值相等不调用写入器
+            map.put(1, new String("new"));
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            first.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("new", lastValues.values.get(1));
+    }
+
+    @Test
+    public void testInvalidateAllDeletesInChunksAndReportsProgress() {
+        BatchWriter<Integer, Integer> batchWriter = new BatchWriter<>(false);
+        CacheWithWriter<Integer, Integer> batched =
+                new CacheWithWriter<>(Caffeine.newBuilder().<Integer, Integer>build(), batchWriter);
+        for (int i = 0; i < 2500; i++) {
+            batched.put(i, i);
+        }
+        List<Long> progress = new ArrayList<>();
+
+        assertEquals(2500, batched.invalidateAll(progress::add));
+
+        assertEquals(0, batched.estimatedSize());
+        assertEquals(Arrays.asList(1000L, 2000L, 2500L), progress);
+        assertEquals(Arrays.asList(1000, 1000, 500), batchWriter.deleteBatches);
+        assertEquals(0, batchWriter.truncates);
+    }
+
+    @Test
+    public void testInvalidateKeysDeletesInChunks() {
+        BatchWriter<Integer, Integer> batchWriter = new BatchWriter<>(true);
+        CacheWithWriter<Integer, Integer> batched =
+                new CacheWithWriter<>(Caffeine.newBuilder().<Integer, Integer>build(), batchWriter);
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            batched.put(i, i);
+            keys.add(i);
+        }
+        // 不存在的键不计入
+        keys.add(-1);
+
+        assertEquals(1500, batched.invalidateAll(keys, null));
+        assertEquals(Arrays.asList(1000, 500), batchWriter.deleteBatches);
+        assertEquals(0, batchWriter.truncates);
+    }
+
+    @Test
+    public void testFullInvalidateTruncatesOnceWhenSupported() {
+        BatchWriter<Integer, Integer> batchWriter = new BatchWriter<>(true);
+        CacheWithWriter<Integer, Integer> batched =
+                new CacheWithWriter<>(Caffeine.newBuilder().<Integer, Integer>build(), batchWriter);
+        for (int i = 0; i < 2500; i++) {
+            batched.put(i, i);
+        }
+        List<Long> progress = new ArrayList<>();
+
+        batched.asMap().clear();
+        assertEquals(0, batched.estimatedSize());
+        assertEquals(1, batchWriter.truncates);
+        assertTrue(batchWriter.deleteBatches.isEmpty());
+
+        batched.put(1, 1);
+        assertEquals(1, batched.invalidateAll(progress::add));
+        assertEquals(Collections.singletonList(1L), progress);
+        assertEquals(2, batchWriter.truncates);
+    }
+
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+
+    /**
+     * 只保留每个键最后一次写入的写入器，模拟持久化存储
+     */
+    private static class LastValueWriter<K, V> implements CacheWriter<K, V> {
+        final Map<K, V> values = new ConcurrentHashMap<>();
+
+        @Override
+        public void write(K key, V value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void delete(K key, V value) {
+            values.remove(key);
+        }
+    }
+
+    /**
+     * 记录批量删除和清空次数的写入器
+     */
+    private static class BatchWriter<K, V> implements CacheWriter<K, V> {
+        private final boolean truncateSupported;
+        final List<Integer> deleteBatches = new ArrayList<>();
+        int truncates;
+
+        BatchWriter(boolean truncateSupported) {
+            this.truncateSupported = truncateSupported;
+        }
+
+        @Override
+        public void write(K key, V value) {
+        }
+
+        @Override
+        public void delete(K key, V value) {
+            fail("批量失效不应逐个删除");
+        }
+
+        @Override
+        public void deleteAll(Map<? extends K, ? extends V> entries) {
+            deleteBatches.add(entries.size());
+        }
+
+        @Override
+        public boolean supportsTruncate() {
+            return truncateSupported;
+        }
+
+        @Override
+        public void truncate() {
+            truncates++;
+        }
+    }
+
+    /**
+     * 记录调用顺序的写入器
+     */
+    private static class RecordingWriter implements CacheWriter<String, String> {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void write(String key, String value) {
+            events.add("write " + key + "=" + value);
+        }
+
+        @Override
+        public void delete(String key, String value) {
+            events.add("delete " + key + "=" + value);
+        }
+    }
+}
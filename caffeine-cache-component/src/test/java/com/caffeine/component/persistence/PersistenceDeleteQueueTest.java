@@ -0,0 +1,117 @@
+package com.caffeine.component.persistence;
+
+import com.caffeine.component.config.CacheConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * 持久化批量删除队列测试，使用记录删除批次的持久化管理器替身
+ */
+public class PersistenceDeleteQueueTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RecordingPersistenceManager persistenceManager;
+    private final Set<Object> retainedKeys = Collections.synchronizedSet(new HashSet<>());
+    private PersistenceDeleteQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        CacheConfig config = new CacheConfig();
+        config.setPersistenceEnabled(true);
+        config.setPersistencePath(folder.newFolder("data").getPath());
+        persistenceManager = new RecordingPersistenceManager(config);
+        // 刷新间隔足够长，测试中由flush()控制处理时机
+        queue = new PersistenceDeleteQueue(persistenceManager, (cacheName, key) -> retainedKeys.contains(key), 2, 10000);
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    public void testDeletesInBatchesPerCache() {
+        queue.enqueue("users", "k1");
+        queue.enqueue("users", "k2");
+        queue.enqueue("users", "k3");
+        queue.enqueue("orders", "o1");
+        queue.flush();
+
+        assertEquals(3, persistenceManager.batches.size());
+        assertTrue(persistenceManager.batches.contains("users" + Arrays.asList("k1", "k2")));
+        assertTrue(persistenceManager.batches.contains("users" + Collections.singletonList("k3")));
+        assertTrue(persistenceManager.batches.contains("orders" + Collections.singletonList("o1")));
+        assertEquals(4, queue.getDeletedCount());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void testDuplicateKeysAreCoalesced() {
+        queue.enqueue("users", "k1");
+        queue.enqueue("users", "k1");
+        queue.flush();
+
+        assertEquals(Collections.singletonList("users" + Collections.singletonList("k1")), persistenceManager.batches);
+        assertEquals(2, queue.getEnqueuedCount());
+        assertEquals(1, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void testKeysWrittenAgainAreNotDeleted() {
+        retainedKeys.add("k1");
+        queue.enqueue("users", "k1");
+        queue.flush();
+
+        assertEquals(0, queue.getDeletedCount());
+        assertEquals(1, queue.getSkippedCount());
+    }
+
+    @Test
+    public void testShutdownDrainsPendingKeys() {
+        queue.enqueue("users", "k1");
+        queue.shutdown();
+
+        assertEquals(1, queue.getDeletedCount());
+        assertFalse(queue.enqueue("users", "k2"));
+    }
+
+    /**
+     * 记录每批删除的持久化管理器
+     */
+    private static class RecordingPersistenceManager extends CachePersistenceManager {
+        final List<String> batches = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingPersistenceManager(CacheConfig config) {
+            super(config);
+        }
+
+        @Override
+        public int deleteEntries(String cacheName, Collection<?> keys, Predicate<Object> filter) {
+            List<Object> deleted = new ArrayList<>();
+            for (Object key : keys) {
+                if (filter.test(key)) {
+                    deleted.add(key);
+                }
+            }
+            if (!deleted.isEmpty()) {
+                batches.add(cacheName + deleted);
+            }
+            return deleted.size();
+        }
+    }
+}
@@ -0,0 +1,718 @@
+package com.caffeine.component.redis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的Redis协议(RESP2)替身，仅用于测试
+ * 支持字符串(含二进制值)和哈希的常用命令、SCAN/HSCAN游标遍历、键空间通知(PSUBSCRIBE，始终开启)和Stream(XADD/XREAD/XREVRANGE)，
+ * 并记录各命令的调用次数，可注入响应延迟
+ */
+public class FakeRedisServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final List<Socket> clients = new ArrayList<>();
+    // 键以ISO-8859-1字符串保存，与原始字节一一对应
+    private final Map<String, byte[]> strings = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+    // 各命令的调用次数
+    private final Map<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+    // 各键被读取的次数
+    private final Map<String, AtomicLong> keyReads = new ConcurrentHashMap<>();
+    // 键空间通知的模式订阅
+    private final List<PatternSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Stream记录，由streams加锁保护
+    private final Map<String, List<StreamRecord>> streams = new LinkedHashMap<>();
+    private volatile long responseDelayMillis;
+    // 之后的写入命令(SET/SETEX/MSET/DEL)中返回错误且不生效的个数
+    private final AtomicInteger failingWrites = new AtomicInteger();
+    private volatile boolean closed;
+
+    public FakeRedisServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "fake-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+    }
+
+    /**
+     * 之后的若干个写入命令返回错误且不生效，模拟Redis写入失败
+     * @param count 失败的写入命令数
+     */
+    public void failNextWrites(int count) {
+        failingWrites.set(count);
+    }
+
+    public void set(String key, String value) {
+        strings.put(key, value.getBytes(StandardCharsets.UTF_8));
+        notifyKeyspace(key, "set");
+    }
+
+    /**
+     * 写入二进制值
+     * @param key 键
+     * @param value 原始字节
+     */
+    public void set(String key, byte[] value) {
+        strings.put(key, value.clone());
+        notifyKeyspace(key, "set");
+    }
+
+    public void hset(String key, String field, String value) {
+        hashes.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                .put(field, value.getBytes(StandardCharsets.UTF_8));
+        notifyKeyspace(key, "hset");
+    }
+
+    public void del(String key) {
+        if (strings.remove(key) != null | hashes.remove(key) != null) {
+            notifyKeyspace(key, "del");
+        }
+    }
+
+    /**
+     * 以自动生成的ID追加一条Stream记录
+     * @param stream Stream键
+     * @param fieldsAndValues 字段和值交替排列
+     * @return 记录ID
+     */
+    public String xadd(String stream, String... fieldsAndValues) {
+        List<byte[]> fields = new ArrayList<>();
+        for (String part : fieldsAndValues) {
+            fields.add(part.getBytes(StandardCharsets.UTF_8));
+        }
+        return appendStream(stream, fields);
+    }
+
+    /**
+     * 当前的键空间通知订阅数，可用于等待订阅建立
+     * @return 订阅数
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    public String get(String key) {
+        byte[] value = strings.get(key);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    public long getCommandCount(String command) {
+        AtomicLong count = commandCounts.get(command.toUpperCase());
+        return count != null ? count.get() : 0;
+    }
+
+    public long getKeyReads(String key) {
+        AtomicLong count = keyReads.get(key);
+        return count != null ? count.get() : 0;
+    }
+
+    public void resetCounts() {
+        commandCounts.clear();
+        keyReads.clear();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (clients) {
+                    clients.add(socket);
+                }
+                Thread handler = new Thread(() -> serve(socket), "fake-redis-client");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             InputStream in = new BufferedInputStream(s.getInputStream());
+             OutputStream out = new BufferedOutputStream(s.getOutputStream())) {
+            try {
+                serveCommands(in, out);
+            } finally {
+                subscriptions.removeIf(subscription -> subscription.out == out);
+            }
+        } catch (EOFException e) {
+            // 客户端断开
+        } catch (IOException | InterruptedException e) {
+            // 服务关闭
+        }
+    }
+
+    private void serveCommands(InputStream in, OutputStream out) throws IOException, InterruptedException {
+        while (!closed) {
+            List<byte[]> command = readCommand(in);
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+            // 其他连接的写入命令会向订阅连接推送通知，按连接串行化输出
+            synchronized (out) {
+                boolean quit = execute(command, out);
+                // 流水线中的后续命令已在缓冲区时继续处理，否则立即刷出
+                if (in.available() == 0) {
+                    out.flush();
+                }
+                if (quit) {
+                    out.flush();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean execute(List<byte[]> command, OutputStream out) throws IOException {
+        String name = str(command.get(0)).toUpperCase();
+        commandCounts.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+        if (isWrite(name) && failingWrites.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            error(out, "ERR injected write failure");
+            return false;
+        }
+        switch (name) {
+            case "PING":
+                simple(out, "PONG");
+                return false;
+            case "QUIT":
+                simple(out, "OK");
+                return true;
+            case "SELECT":
+            case "CLIENT":
+                simple(out, "OK");
+                return false;
+            case "GET": {
+                String key = str(command.get(1));
+                countRead(key);
+                if (hashes.containsKey(key)) {
+                    error(out, "WRONGTYPE Operation against a key holding the wrong kind of value");
+                } else {
+                    bulk(out, strings.get(key));
+                }
+                return false;
+            }
+            case "MGET":
+                out.write(("*" + (command.size() - 1) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                for (int i = 1; i < command.size(); i++) {
+                    String key = str(command.get(i));
+                    countRead(key);
+                    bulk(out, strings.get(key));
+                }
+                return false;
+            case "SET":
+                hashes.remove(str(command.get(1)));
+                strings.put(str(command.get(1)), command.get(2));
+                simple(out, "OK");
+                notifyKeyspace(str(command.get(1)), "set");
+                return false;
+            case "SETEX":
+                hashes.remove(str(command.get(1)));
+                strings.put(str(command.get(1)), command.get(3));
+                simple(out, "OK");
+                notifyKeyspace(str(command.get(1)), "set");
+                return false;
+            case "MSET":
+                for (int i = 1; i + 1 < command.size(); i += 2) {
+                    hashes.remove(str(command.get(i)));
+                    strings.put(str(command.get(i)), command.get(i + 1));
+                }
+                simple(out, "OK");
+                for (int i = 1; i + 1 < command.size(); i += 2) {
+                    notifyKeyspace(str(command.get(i)), "set");
+                }
+                return false;
+            case "DEL": {
+                List<String> removed = new ArrayList<>();
+                for (int i = 1; i < command.size(); i++) {
+                    String key = str(command.get(i));
+                    if (strings.remove(key) != null | hashes.remove(key) != null) {
+                        removed.add(key);
+                    }
+                }
+                integer(out, removed.size());
+                removed.forEach(key -> notifyKeyspace(key, "del"));
+                return false;
+            }
+            case "PSUBSCRIBE":
+                for (int i = 1; i < command.size(); i++) {
+                    String pattern = str(command.get(i));
+                    subscriptions.add(new PatternSubscription(pattern, out));
+                    out.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+                    bulk(out, "psubscribe".getBytes(StandardCharsets.US_ASCII));
+                    bulk(out, command.get(i));
+                    integer(out, countSubscriptions(out));
+                }
+                return false;
+            case "PUNSUBSCRIBE": {
+                List<PatternSubscription> removed = new ArrayList<>();
+                for (PatternSubscription subscription : subscriptions) {
+                    if (subscription.out == out && (command.size() == 1
+                            || command.subList(1, command.size()).stream()
+                                    .anyMatch(p -> str(p).equals(subscription.pattern)))) {
+                        removed.add(subscription);
+                    }
+                }
+                subscriptions.removeAll(removed);
+                if (removed.isEmpty()) {
+                    out.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+                    bulk(out, "punsubscribe".getBytes(StandardCharsets.US_ASCII));
+                    bulk(out, null);
+                    integer(out, 0);
+                }
+                int remaining = countSubscriptions(out) + removed.size();
+                for (PatternSubscription subscription : removed) {
+                    out.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+                    bulk(out, "punsubscribe".getBytes(StandardCharsets.US_ASCII));
+                    bulk(out, subscription.pattern.getBytes(StandardCharsets.ISO_8859_1));
+                    integer(out, --remaining);
+                }
+                return false;
+            }
+            case "XADD": {
+                if (!"*".equals(str(command.get(2)))) {
+                    error(out, "ERR only auto-generated IDs are supported");
+                    return false;
+                }
+                String id = appendStream(str(command.get(1)), command.subList(3, command.size()));
+                bulk(out, id.getBytes(StandardCharsets.US_ASCII));
+                return false;
+            }
+            case "XREAD":
+                xread(command, out);
+                return false;
+            case "XREVRANGE":
+                xrevrange(command, out);
+                return false;
+            case "SCAN":
+                scan(command, out);
+                return false;
+            case "TYPE": {
+                String key = str(command.get(1));
+                simple(out, strings.containsKey(key) ? "string" : hashes.containsKey(key) ? "hash" : "none");
+                return false;
+            }
+            case "HLEN": {
+                Map<String, byte[]> hash = hashes.get(str(command.get(1)));
+                integer(out, hash != null ? hash.size() : 0);
+                return false;
+            }
+            case "HSCAN":
+                hscan(command, out);
+                return false;
+            case "HGETALL": {
+                String key = str(command.get(1));
+                countRead(key);
+                Map<String, byte[]> hash = hashes.get(key);
+                if (hash == null && strings.containsKey(key)) {
+                    error(out, "WRONGTYPE Operation against a key holding the wrong kind of value");
+                    return false;
+                }
+                Map<String, byte[]> fields = hash != null ? hash : new ConcurrentHashMap<>();
+                out.write(("*" + fields.size() * 2 + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                for (Map.Entry<String, byte[]> field : fields.entrySet()) {
+                    bulk(out, field.getKey().getBytes(StandardCharsets.ISO_8859_1));
+                    bulk(out, field.getValue());
+                }
+                return false;
+            }
+            default:
+                error(out, "ERR unknown command '" + name + "'");
+                return false;
+        }
+    }
+
+    /**
+     * SCAN cursor [MATCH pattern] [COUNT n]，游标为键按字典序排列后的位置，每次最多检查COUNT个键
+     */
+    private void scan(List<byte[]> command, OutputStream out) throws IOException {
+        int cursor = Integer.parseInt(str(command.get(1)));
+        Pattern match = null;
+        int count = 10;
+        for (int i = 2; i + 1 < command.size(); i += 2) {
+            String option = str(command.get(i)).toUpperCase();
+            if ("MATCH".equals(option)) {
+                match = globToRegex(str(command.get(i + 1)));
+            } else if ("COUNT".equals(option)) {
+                count = Integer.parseInt(str(command.get(i + 1)));
+            }
+        }
+        List<String> keys = new ArrayList<>(strings.keySet());
+        keys.addAll(hashes.keySet());
+        Collections.sort(keys);
+        int end = Math.min(keys.size(), cursor + count);
+        List<String> page = new ArrayList<>();
+        for (int i = cursor; i < end; i++) {
+            if (match == null || match.matcher(keys.get(i)).matches()) {
+                page.add(keys.get(i));
+            }
+        }
+        out.write("*2\r\n".getBytes(StandardCharsets.US_ASCII));
+        bulk(out, String.valueOf(end >= keys.size() ? 0 : end).getBytes(StandardCharsets.US_ASCII));
+        out.write(("*" + page.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (String key : page) {
+            bulk(out, key.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * HSCAN key cursor [COUNT n]，游标为字段名按字典序排列后的位置
+     */
+    private void hscan(List<byte[]> command, OutputStream out) throws IOException {
+        String key = str(command.get(1));
+        countRead(key);
+        int cursor = Integer.parseInt(str(command.get(2)));
+        int count = 10;
+        for (int i = 3; i + 1 < command.size(); i += 2) {
+            if ("COUNT".equalsIgnoreCase(str(command.get(i)))) {
+                count = Integer.parseInt(str(command.get(i + 1)));
+            }
+        }
+        Map<String, byte[]> hash = hashes.getOrDefault(key, new ConcurrentHashMap<>());
+        List<String> fields = new ArrayList<>(hash.keySet());
+        Collections.sort(fields);
+        int end = Math.min(fields.size(), cursor + count);
+        out.write("*2\r\n".getBytes(StandardCharsets.US_ASCII));
+        bulk(out, String.valueOf(end >= fields.size() ? 0 : end).getBytes(StandardCharsets.US_ASCII));
+        out.write(("*" + Math.max(0, end - cursor) * 2 + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (int i = cursor; i < end; i++) {
+            bulk(out, fields.get(i).getBytes(StandardCharsets.ISO_8859_1));
+            bulk(out, hash.get(fields.get(i)));
+        }
+    }
+
+    /**
+     * glob模式转换为正则，支持*、?和字符集([abc]、[^abc])
+     */
+    private static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '[' && glob.indexOf(']', i + 1) > i) {
+                int close = glob.indexOf(']', i + 1);
+                int from = i + 1;
+                regex.append('[');
+                if (glob.charAt(from) == '^') {
+                    regex.append('^');
+                    from++;
+                }
+                for (int j = from; j < close; j++) {
+                    char member = glob.charAt(j);
+                    regex.append(Character.isLetterOrDigit(member) ? "" : "\\").append(member);
+                }
+                regex.append(']');
+                i = close;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * XREAD [COUNT n] [BLOCK ms] STREAMS key id，仅支持单个Stream
+     */
+    private void xread(List<byte[]> command, OutputStream out) throws IOException {
+        int count = Integer.MAX_VALUE;
+        long blockMillis = -1;
+        int i = 1;
+        while (!"STREAMS".equalsIgnoreCase(str(command.get(i)))) {
+            String option = str(command.get(i)).toUpperCase();
+            if ("COUNT".equals(option)) {
+                count = Integer.parseInt(str(command.get(i + 1)));
+            } else if ("BLOCK".equals(option)) {
+                blockMillis = Long.parseLong(str(command.get(i + 1)));
+            }
+            i += 2;
+        }
+        String stream = str(command.get(i + 1));
+        String afterId = str(command.get(i + 2));
+        List<StreamRecord> found = new ArrayList<>();
+        synchronized (streams) {
+            List<StreamRecord> records = streams.computeIfAbsent(stream, k -> new ArrayList<>());
+            long[] after = "$".equals(afterId)
+                    ? (records.isEmpty() ? new long[]{0, 0} : records.get(records.size() - 1).id)
+                    : parseId(afterId);
+            long deadline = System.currentTimeMillis() + (blockMillis == 0 ? Long.MAX_VALUE / 2 : blockMillis);
+            while (true) {
+                for (StreamRecord record : records) {
+                    if (compareIds(record.id, after) > 0 && found.size() < count) {
+                        found.add(record);
+                    }
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (!found.isEmpty() || blockMillis < 0 || remaining <= 0 || closed) {
+                    break;
+                }
+                try {
+                    streams.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            out.write("*-1\r\n".getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        out.write("*1\r\n*2\r\n".getBytes(StandardCharsets.US_ASCII));
+        bulk(out, stream.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(("*" + found.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (StreamRecord record : found) {
+            out.write("*2\r\n".getBytes(StandardCharsets.US_ASCII));
+            bulk(out, record.idString().getBytes(StandardCharsets.US_ASCII));
+            out.write(("*" + record.fields.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (byte[] field : record.fields) {
+                bulk(out, field);
+            }
+        }
+    }
+
+    /**
+     * XREVRANGE key end start [COUNT n]，按ID从大到小返回
+     */
+    private void xrevrange(List<byte[]> command, OutputStream out) throws IOException {
+        String stream = str(command.get(1));
+        String end = str(command.get(2));
+        String start = str(command.get(3));
+        int count = command.size() > 5 ? Integer.parseInt(str(command.get(5))) : Integer.MAX_VALUE;
+        List<StreamRecord> found = new ArrayList<>();
+        synchronized (streams) {
+            List<StreamRecord> records = streams.getOrDefault(stream, Collections.emptyList());
+            for (int i = records.size() - 1; i >= 0 && found.size() < count; i--) {
+                StreamRecord record = records.get(i);
+                if (("+".equals(end) || compareIds(record.id, parseId(end)) <= 0)
+                        && ("-".equals(start) || compareIds(record.id, parseId(start)) >= 0)) {
+                    found.add(record);
+                }
+            }
+        }
+        out.write(("*" + found.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (StreamRecord record : found) {
+            out.write("*2\r\n".getBytes(StandardCharsets.US_ASCII));
+            bulk(out, record.idString().getBytes(StandardCharsets.US_ASCII));
+            out.write(("*" + record.fields.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (byte[] field : record.fields) {
+                bulk(out, field);
+            }
+        }
+    }
+
+    private String appendStream(String stream, List<byte[]> fields) {
+        synchronized (streams) {
+            List<StreamRecord> records = streams.computeIfAbsent(stream, k -> new ArrayList<>());
+            long millis = System.currentTimeMillis();
+            long sequence = 0;
+            if (!records.isEmpty()) {
+                long[] last = records.get(records.size() - 1).id;
+                if (millis <= last[0]) {
+                    millis = last[0];
+                    sequence = last[1] + 1;
+                }
+            }
+            StreamRecord record = new StreamRecord(new long[]{millis, sequence}, new ArrayList<>(fields));
+            records.add(record);
+            streams.notifyAll();
+            return record.idString();
+        }
+    }
+
+    private static long[] parseId(String id) {
+        int dash = id.indexOf('-');
+        return dash < 0 ? new long[]{Long.parseLong(id), 0}
+                : new long[]{Long.parseLong(id.substring(0, dash)), Long.parseLong(id.substring(dash + 1))};
+    }
+
+    private static int compareIds(long[] a, long[] b) {
+        return a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]);
+    }
+
+    /**
+     * 向匹配的模式订阅推送键空间通知
+     */
+    private void notifyKeyspace(String key, String event) {
+        String channel = "__keyspace@0__:" + key;
+        for (PatternSubscription subscription : subscriptions) {
+            if (!subscription.regex.matcher(channel).matches()) {
+                continue;
+            }
+            synchronized (subscription.out) {
+                try {
+                    subscription.out.write("*4\r\n".getBytes(StandardCharsets.US_ASCII));
+                    bulk(subscription.out, "pmessage".getBytes(StandardCharsets.US_ASCII));
+                    bulk(subscription.out, subscription.pattern.getBytes(StandardCharsets.ISO_8859_1));
+                    bulk(subscription.out, channel.getBytes(StandardCharsets.ISO_8859_1));
+                    bulk(subscription.out, event.getBytes(StandardCharsets.US_ASCII));
+                    subscription.out.flush();
+                } catch (IOException e) {
+                    subscriptions.remove(subscription);
+                }
+            }
+        }
+    }
+
+    private int countSubscriptions(OutputStream out) {
+        int count = 0;
+        for (PatternSubscription subscription : subscriptions) {
+            if (subscription.out == out) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void countRead(String key) {
+        keyReads.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static String str(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header.isEmpty() || header.charAt(0) != '*') {
+            throw new IOException("不支持的请求: " + header);
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String lengthLine = readLine(in);
+            int length = Integer.parseInt(lengthLine.substring(1));
+            byte[] arg = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(arg, read, length - read);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                read += n;
+            }
+            readLine(in);
+            args.add(arg);
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            line.write(b);
+        }
+        in.read();
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static void simple(OutputStream out, String value) throws IOException {
+        out.write(("+" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static boolean isWrite(String name) {
+        return "SET".equals(name) || "SETEX".equals(name) || "MSET".equals(name) || "DEL".equals(name);
+    }
+
+    private static void error(OutputStream out, String message) throws IOException {
+        out.write(("-" + message + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void integer(OutputStream out, long value) throws IOException {
+        out.write((":" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void bulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        out.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(value);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 一个连接上的模式订阅，模式按glob语法匹配(支持*和?)
+     */
+    private static class PatternSubscription {
+        private final String pattern;
+        private final Pattern regex;
+        private final OutputStream out;
+
+        PatternSubscription(String pattern, OutputStream out) {
+            this.pattern = pattern;
+            this.out = out;
+            this.regex = globToRegex(pattern);
+        }
+    }
+
+    /**
+     * Stream记录，ID为[毫秒时间, 序号]
+     */
+    private static class StreamRecord {
+        private final long[] id;
+        private final List<byte[]> fields;
+
+        StreamRecord(long[] id, List<byte[]> fields) {
+            this.id = id;
+            this.fields = fields;
+        }
+
+        String idString() {
+            return id[0] + "-" + id[1];
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (streams) {
+            streams.notifyAll();
+        }
+        serverSocket.close();
+        synchronized (clients) {
+            for (Socket client : clients) {
+                client.close();
+            }
+        }
+    }
+}
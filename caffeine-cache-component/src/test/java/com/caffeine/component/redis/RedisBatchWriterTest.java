@@ -0,0 +1,186 @@
+package com.caffeine.component.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Redis批量写入测试，使用进程内的Redis协议替身
+ */
+public class RedisBatchWriterTest {
+    private FakeRedisServer server;
+    private JedisPool jedisPool;
+    private RedisBatchWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRedisServer();
+        jedisPool = new JedisPool(new JedisPoolConfig(), server.getHost(), server.getPort());
+        // 刷新间隔足够长，测试中由flush()控制发送时机
+        writer = new RedisBatchWriter(jedisPool, 100, 10000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        writer.shutdown();
+        jedisPool.close();
+        server.close();
+    }
+
+    @Test
+    public void testRepeatedWritesAreCoalesced() {
+        for (int i = 0; i < 50; i++) {
+            writer.set("app:users:1", ("v" + i).getBytes(StandardCharsets.UTF_8), 0);
+        }
+        writer.flush();
+
+        assertEquals("v49", server.get("app:users:1"));
+        assertEquals(49, writer.getCoalescedCount());
+        assertEquals(1, writer.getFlushedCount());
+        assertEquals(1, server.getCommandCount("MSET"));
+        assertEquals(0, server.getCommandCount("SET"));
+    }
+
+    @Test
+    public void testBatchesAreSplitAndPipelined() {
+        for (int i = 0; i < 250; i++) {
+            writer.set("app:users:" + i, "x".getBytes(StandardCharsets.UTF_8), 0);
+        }
+        writer.set("app:users:ttl", "t".getBytes(StandardCharsets.UTF_8), 60);
+        writer.delete("app:users:gone");
+        writer.flush();
+
+        // 达到单批上限时后台线程可能提前发送，批次数取决于时序，但每批不超过上限
+        assertEquals(252, writer.getFlushedCount());
+        assertTrue(writer.getBatchCount() >= 3);
+        assertTrue(server.getCommandCount("MSET") >= 3);
+        assertEquals(1, server.getCommandCount("SETEX"));
+        assertEquals(1, server.getCommandCount("DEL"));
+        assertEquals("t", server.get("app:users:ttl"));
+    }
+
+    @Test
+    public void testWriteBehindCacheFlushesAsynchronously() throws Exception {
+        RedisBatchWriter fastWriter = new RedisBatchWriter(jedisPool, 100, 10);
+        Cache<Object, Object> cache = new RedisWriteThroughCache<>(Caffeine.newBuilder().build(), "users", "app:",
+                fastWriter, RedisValueEncoder.UTF8_STRING, 0, false);
+        cache.put("1", "alice");
+        assertEquals("alice", cache.getIfPresent("1"));
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (server.get("app:users:1") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("alice", server.get("app:users:1"));
+        fastWriter.shutdown();
+    }
+
+    @Test
+    public void testWriteThroughCacheWaitsForRedis() {
+        Cache<Object, Object> cache = new RedisWriteThroughCache<>(Caffeine.newBuilder().build(), "users", "app:",
+                writer, RedisValueEncoder.UTF8_STRING, 0, true);
+
+        cache.put("1", "alice");
+        assertEquals("alice", server.get("app:users:1"));
+
+        Map<Object, Object> batch = new HashMap<>();
+        batch.put("2", "bob");
+        batch.put("3", "carol");
+        cache.putAll(batch);
+        assertEquals("bob", server.get("app:users:2"));
+        assertEquals("carol", server.get("app:users:3"));
+
+        cache.invalidate("1");
+        assertNull(server.get("app:users:1"));
+        assertNull(cache.getIfPresent("1"));
+    }
+
+    @Test
+    public void testFutureWaitsForRetryOfFailedWrite() {
+        RedisBatchWriter fastWriter = new RedisBatchWriter(jedisPool, 100, 20);
+        server.failNextWrites(1);
+
+        CompletableFuture<Void> future = fastWriter.set("app:users:1", "alice".getBytes(StandardCharsets.UTF_8), 0);
+        fastWriter.flushAsync();
+
+        // 第一次失败后重试成功，Future随重试成功完成
+        future.join();
+        assertEquals("alice", server.get("app:users:1"));
+        assertEquals(1, fastWriter.getErrorCount());
+        fastWriter.shutdown();
+    }
+
+    @Test
+    public void testFutureFailsOnlyAfterLastAttempt() throws Exception {
+        RedisBatchWriter fastWriter = new RedisBatchWriter(jedisPool, 100, 20);
+        server.failNextWrites(3);
+
+        CompletableFuture<Void> future = fastWriter.set("app:users:1", "alice".getBytes(StandardCharsets.UTF_8), 0);
+        fastWriter.flushAsync();
+        try {
+            future.join();
+            fail();
+        } catch (CompletionException expected) {
+            // 三次尝试都失败
+        }
+
+        assertEquals(3, fastWriter.getErrorCount());
+        // 调用方看到失败后不会再有迟到的重试
+        Thread.sleep(100);
+        assertNull(server.get("app:users:1"));
+        assertEquals(0, fastWriter.getPendingCount());
+        fastWriter.shutdown();
+    }
+
+    @Test
+    public void testConcurrentWriteThroughPutsKeepRedisAndLocalInSync() throws Exception {
+        RedisBatchWriter fastWriter = new RedisBatchWriter(jedisPool, 100, 1);
+        Cache<Object, Object> local = Caffeine.newBuilder().build();
+        Cache<Object, Object> cache = new RedisWriteThroughCache<>(local, "users", "app:",
+                fastWriter, RedisValueEncoder.UTF8_STRING, 0, true);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 20; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    String value = "v" + round + "-" + t;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        cache.put("hot", value);
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+                // 最后写入本地的值也是Redis中的值
+                assertEquals(local.getIfPresent("hot"), server.get("app:users:hot"));
+            }
+        } finally {
+            executor.shutdownNow();
+            fastWriter.shutdown();
+        }
+    }
+}
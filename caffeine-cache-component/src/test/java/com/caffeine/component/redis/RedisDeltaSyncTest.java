@@ -0,0 +1,155 @@
+package com.caffeine.component.redis;
+
+import com.caffeine.component.warmup.loader.RedisValueDecoder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Redis增量同步测试，使用进程内的Redis协议替身
+ */
+public class RedisDeltaSyncTest {
+    private FakeRedisServer server;
+    private JedisPool jedisPool;
+    private RedisDeltaSync sync;
+    private Cache<Object, Object> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRedisServer();
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(8);
+        jedisPool = new JedisPool(poolConfig, server.getHost(), server.getPort());
+        sync = new RedisDeltaSync(jedisPool, "app:", RedisValueDecoder.UTF8_STRING, 100, 10);
+        cache = Caffeine.newBuilder().maximumSize(1000).build();
+        cache.put("1", "old-1");
+        cache.put("2", "old-2");
+        sync.register("users", () -> cache);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sync.shutdown();
+        jedisPool.close();
+        server.close();
+    }
+
+    @Test
+    public void testKeyspaceNotificationsRefreshAndInvalidate() throws Exception {
+        server.set("app:users:2", "old-2");
+        sync.startKeyspaceNotifications();
+        awaitTrue(() -> server.getSubscriptionCount() == 1);
+
+        server.set("app:users:1", "new-1");
+        server.del("app:users:2");
+        server.set("app:users:3", "remote-only");
+        server.set("app:orders:1", "other-cache");
+
+        awaitTrue(() -> "new-1".equals(cache.getIfPresent("1")) && cache.getIfPresent("2") == null);
+        // 本地不存在的键不回读，也不会被加入本地缓存
+        assertNull(cache.getIfPresent("3"));
+        assertEquals(1, sync.getRefreshedCount());
+        assertEquals(1, sync.getInvalidatedCount());
+        assertTrue(sync.getEventCount() >= 4);
+    }
+
+    @Test
+    public void testStreamResumesFromLastIdAndTracksLag() throws Exception {
+        server.set("app:users:1", "new-1");
+        server.xadd("changes", "key", "app:users:1");
+        String deleteId = server.xadd("changes", "key", "app:users:2", "op", "del");
+        sync.startStream("changes", "0-0");
+
+        awaitTrue(() -> "new-1".equals(cache.getIfPresent("1")) && cache.getIfPresent("2") == null);
+        awaitTrue(() -> deleteId.equals(sync.getLastStreamId()));
+        assertTrue(sync.getLastLagMillis() >= 0);
+        assertTrue(sync.getMaxLagMillis() >= sync.getLastLagMillis());
+
+        // 启动后追加的记录同样被处理
+        cache.put("4", "old-4");
+        server.set("app:users:4", "new-4");
+        server.xadd("changes", "key", "app:users:4");
+        awaitTrue(() -> "new-4".equals(cache.getIfPresent("4")));
+    }
+
+    @Test
+    public void testStreamStartsAfterLastEntryAtStart() throws Exception {
+        server.set("app:users:1", "new-1");
+        String existingId = server.xadd("changes", "key", "app:users:1");
+
+        sync.startStream("changes");
+        assertEquals(existingId, sync.getLastStreamId());
+
+        // 启动前已有的记录不处理，启动后立即追加的记录不因尚未开始读取而被跳过
+        server.set("app:users:2", "new-2");
+        server.xadd("changes", "key", "app:users:2");
+        awaitTrue(() -> "new-2".equals(cache.getIfPresent("2")));
+        assertEquals("old-1", cache.getIfPresent("1"));
+    }
+
+    @Test
+    public void testInvalidateOnlySkipsRedisReads() throws Exception {
+        sync.setInvalidateOnly(true);
+        sync.startKeyspaceNotifications();
+        awaitTrue(() -> server.getSubscriptionCount() == 1);
+        server.resetCounts();
+
+        server.set("app:users:1", "new-1");
+
+        awaitTrue(() -> cache.getIfPresent("1") == null);
+        assertEquals(0, server.getCommandCount("MGET"));
+        assertEquals("old-2", cache.getIfPresent("2"));
+    }
+
+    @Test
+    public void testShutdownAppliesEveryPendingChange() throws Exception {
+        int changes = 35;
+        Cache<Object, Object> orders = Caffeine.newBuilder().build();
+        for (int i = 0; i < changes; i++) {
+            orders.put(String.valueOf(i), "order-" + i);
+            server.xadd("order-changes", "key", "app:orders:" + i, "op", "del");
+        }
+        // 单批10个键，第一批处理时阻塞，其余变更在队列中积压
+        RedisDeltaSync slowSync = new RedisDeltaSync(jedisPool, "app:", RedisValueDecoder.UTF8_STRING, 10, 10000);
+        CountDownLatch release = new CountDownLatch(1);
+        slowSync.register("orders", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return orders;
+        });
+        slowSync.startStream("order-changes", "0-0");
+        awaitTrue(() -> slowSync.getEventCount() == changes);
+
+        Thread shutdown = new Thread(slowSync::shutdown);
+        shutdown.start();
+        Thread.sleep(200);
+        release.countDown();
+        shutdown.join();
+
+        // 积压超过单批上限的变更在关闭前全部处理
+        assertEquals(0, orders.estimatedSize());
+        assertEquals(changes, slowSync.getInvalidatedCount());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待条件超时");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
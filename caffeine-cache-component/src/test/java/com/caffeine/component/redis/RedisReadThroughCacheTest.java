@@ -0,0 +1,254 @@
+package com.caffeine.component.redis;
+
+import com.caffeine.component.config.CacheConfig;
+import com.caffeine.component.core.CaffeineCacheManager;
+import com.caffeine.component.warmup.loader.RedisValueDecoder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Redis回源测试，使用进程内的Redis协议替身
+ */
+public class RedisReadThroughCacheTest {
+    private FakeRedisServer server;
+    private JedisPool jedisPool;
+    private RedisBatchReader reader;
+    private Cache<Object, Object> localCache;
+    private Cache<Object, Object> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRedisServer();
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(8);
+        jedisPool = new JedisPool(poolConfig, server.getHost(), server.getPort());
+        // 测试中放宽合并窗口，使并发请求稳定地落在同一批次
+        reader = new RedisBatchReader(jedisPool, 64, 20000, 1);
+        localCache = Caffeine.newBuilder().maximumSize(1000).build();
+        cache = new RedisReadThroughCache<>(localCache, "users", "app:", reader, RedisValueDecoder.UTF8_STRING, 1000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.shutdown();
+        jedisPool.close();
+        server.close();
+    }
+
+    @Test
+    public void testMissReadsThroughAndStoresLocally() {
+        server.set("app:users:1", "alice");
+
+        assertEquals("alice", cache.getIfPresent("1"));
+        assertEquals("alice", localCache.getIfPresent("1"));
+
+        server.resetCounts();
+        assertEquals("alice", cache.getIfPresent("1"));
+        assertEquals(0, server.getCommandCount("MGET"));
+    }
+
+    @Test
+    public void testMissingKeyReturnsNull() {
+        assertNull(cache.getIfPresent("absent"));
+        assertEquals("loaded", cache.get("absent", key -> "loaded"));
+    }
+
+    @Test
+    public void testConfirmedMissIsCachedBriefly() throws Exception {
+        Cache<Object, Object> negative = new RedisReadThroughCache<>(
+                localCache, "users", "app:", reader, RedisValueDecoder.UTF8_STRING, 1000, 200);
+
+        assertNull(negative.getIfPresent("late"));
+        server.set("app:users:late", "late-value");
+        // 未命中记录有效期内不再回源
+        assertNull(negative.getIfPresent("late"));
+        assertEquals("loaded", negative.get("late", key -> "loaded"));
+        assertEquals(1, server.getKeyReads("app:users:late"));
+
+        // 失效后清除未命中记录，重新回源
+        negative.invalidate("late");
+        assertEquals("late-value", negative.getIfPresent("late"));
+
+        assertNull(negative.getIfPresent("gone"));
+        server.set("app:users:gone", "back");
+        Thread.sleep(300);
+        assertEquals("back", negative.getIfPresent("gone"));
+        assertEquals(2, server.getKeyReads("app:users:gone"));
+    }
+
+    @Test
+    public void testGetAllReadsThroughBeforeMappingFunction() {
+        server.set("app:users:a", "A");
+        server.set("app:users:b", "B");
+        localCache.put("c", "C");
+        List<Object> mapped = new ArrayList<>();
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("a", "b", "c", "d"), keys -> {
+            mapped.addAll(keys);
+            return Collections.singletonMap("d", "D");
+        });
+
+        assertEquals(4, values.size());
+        assertEquals("A", values.get("a"));
+        assertEquals("B", values.get("b"));
+        assertEquals("C", values.get("c"));
+        assertEquals("D", values.get("d"));
+        // 只有Redis中也不存在的键交给映射函数
+        assertEquals(Collections.singletonList("d"), mapped);
+        assertEquals(1, server.getCommandCount("MGET"));
+        assertEquals("A", localCache.getIfPresent("a"));
+        assertEquals("D", localCache.getIfPresent("d"));
+    }
+
+    @Test
+    public void testConcurrentMissesAreBatched() throws Exception {
+        int keyCount = 64;
+        for (int i = 0; i < keyCount; i++) {
+            server.set("app:users:" + i, "user-" + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(keyCount);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < keyCount; i++) {
+            String key = String.valueOf(i);
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.getIfPresent(key);
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < keyCount; i++) {
+            assertEquals("user-" + i, results.get(i).get());
+        }
+        executor.shutdown();
+
+        long mgets = server.getCommandCount("MGET");
+        assertTrue("并发未命中应合并为少量MGET，实际: " + mgets, mgets < keyCount / 4);
+        assertEquals(0, server.getCommandCount("GET"));
+    }
+
+    @Test
+    public void testSingleFlightPerKey() throws Exception {
+        server.set("app:users:hot", "hot-value");
+        server.setResponseDelayMillis(100);
+
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.getIfPresent("hot");
+            }));
+        }
+        start.countDown();
+        for (Future<Object> result : results) {
+            assertEquals("hot-value", result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, server.getKeyReads("app:users:hot"));
+    }
+
+    @Test
+    public void testInvalidateDuringReadDoesNotStoreStaleValue() throws Exception {
+        server.set("app:users:1", "old");
+        server.setResponseDelayMillis(300);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> stale = executor.submit(() -> cache.getIfPresent("1"));
+            Thread.sleep(100);
+            // 回源进行中时Redis和本地缓存都已更新
+            server.set("app:users:1", "new");
+            cache.invalidate("1");
+
+            assertEquals("old", stale.get());
+            assertNull(localCache.getIfPresent("1"));
+        } finally {
+            executor.shutdown();
+        }
+        server.setResponseDelayMillis(0);
+        assertEquals("new", cache.getIfPresent("1"));
+        assertEquals("new", localCache.getIfPresent("1"));
+    }
+
+    @Test
+    public void testPutDuringBatchReadKeepsWrittenValue() throws Exception {
+        server.set("app:users:a", "old-a");
+        server.set("app:users:b", "old-b");
+        server.setResponseDelayMillis(300);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<Object, Object>> stale = executor.submit(() -> cache.getAllPresent(Arrays.asList("a", "b")));
+            Thread.sleep(100);
+            cache.put("a", "new-a");
+            cache.invalidate("b");
+
+            stale.get();
+            assertEquals("new-a", localCache.getIfPresent("a"));
+            assertNull(localCache.getIfPresent("b"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetAllPresentUsesSingleBatch() {
+        server.set("app:users:a", "A");
+        server.set("app:users:b", "B");
+        localCache.put("c", "C");
+
+        Map<Object, Object> values = cache.getAllPresent(Arrays.asList("a", "b", "c", "d"));
+        assertEquals(3, values.size());
+        assertEquals("A", values.get("a"));
+        assertEquals("B", values.get("b"));
+        assertEquals("C", values.get("c"));
+        assertEquals(1, server.getCommandCount("MGET"));
+    }
+
+    @Test
+    public void testTimeoutIsTreatedAsMiss() {
+        server.set("app:users:slow", "slow-value");
+        server.setResponseDelayMillis(500);
+        Cache<Object, Object> impatient = new RedisReadThroughCache<>(
+                localCache, "users", "app:", reader, RedisValueDecoder.UTF8_STRING, 50);
+
+        assertNull(impatient.getIfPresent("slow"));
+    }
+
+    @Test
+    public void testCacheManagerReadThrough() {
+        server.set("app:orders:42", "order-42");
+        CacheConfig config = new CacheConfig();
+        config.setOffHeapCacheEnabled(false);
+        config.setPersistenceEnabled(false);
+        config.setAutoPersistenceEnabled(false);
+        config.setRedisL2Enabled(true);
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(config);
+        cacheManager.setRedisL2Source(jedisPool, "app:", null);
+
+        Cache<Object, Object> orders = cacheManager.getCache("orders");
+        assertEquals("order-42", orders.getIfPresent("42"));
+        assertTrue(cacheManager.getRedisBatchReader().getBatchCount() >= 1);
+        cacheManager.getRedisBatchReader().shutdown();
+    }
+}
@@ -0,0 +1,98 @@
+package com.caffeine.component.warmup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量预热条件写入测试
+ */
+public class FencedWritesTest {
+
+    @Test
+    public void testInsertsOnlyAbsentPlainValues() {
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+        cache.put("a", "fresh");
+        Map<Object, Object> loaded = new HashMap<>();
+        loaded.put("a", "stale");
+        loaded.put("b", "loaded");
+
+        assertEquals(1, FencedWrites.putAllIfNewer(cache, loaded));
+
+        assertEquals("fresh", cache.getIfPresent("a"));
+        assertEquals("loaded", cache.getIfPresent("b"));
+    }
+
+    @Test
+    public void testHigherVersionReplacesLowerVersion() {
+        ConcurrentMap<Object, Object> map = Caffeine.newBuilder().build().asMap();
+        map.put("a", new Row(5));
+        map.put("b", new Row(5));
+
+        assertTrue(FencedWrites.putIfNewer(map, "a", new Row(6)));
+        assertFalse(FencedWrites.putIfNewer(map, "b", new Row(4)));
+        assertFalse(FencedWrites.putIfNewer(map, "b", new Row(5)));
+
+        assertEquals(6, ((Row) map.get("a")).getVersion());
+        assertEquals(5, ((Row) map.get("b")).getVersion());
+    }
+
+    @Test
+    public void testConcurrentWarmupNeverRegressesNewerWrites() throws Exception {
+        ConcurrentMap<Object, Object> map = Caffeine.newBuilder().build().asMap();
+        int keys = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        // 业务线程写入版本100，预热线程写入版本1到99的旧数据
+        Thread writer = new Thread(() -> {
+            await(start);
+            for (int i = 0; i < keys; i++) {
+                map.put(i, new Row(100));
+            }
+        });
+        Thread warmup = new Thread(() -> {
+            await(start);
+            for (int version = 1; version < 100; version++) {
+                for (int i = 0; i < keys; i++) {
+                    FencedWrites.putIfNewer(map, i, new Row(version));
+                }
+            }
+        });
+        writer.start();
+        warmup.start();
+        start.countDown();
+        writer.join();
+        warmup.join();
+
+        for (int i = 0; i < keys; i++) {
+            assertEquals(100, ((Row) map.get(i)).getVersion());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Row implements VersionedValue {
+        private final long version;
+
+        Row(long version) {
+            this.version = version;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+}
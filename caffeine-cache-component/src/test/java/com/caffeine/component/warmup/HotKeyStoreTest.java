@@ -0,0 +1,47 @@
+package com.caffeine.component.warmup;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * 热点键存储测试
+ */
+public class HotKeyStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoadKeepsOrder() {
+        HotKeyStore store = new HotKeyStore(new File(folder.getRoot(), "hotkeys"));
+
+        assertEquals(3, store.save("users", Arrays.asList("c", 2L, "a")));
+
+        assertEquals(Arrays.asList("c", 2L, "a"), store.load("users"));
+        assertTrue(store.load("orders").isEmpty());
+    }
+
+    @Test
+    public void testSkipsNonSerializableKeys() {
+        HotKeyStore store = new HotKeyStore(folder.getRoot());
+
+        assertEquals(1, store.save("users", Arrays.asList(new Object(), "a")));
+
+        assertEquals(Collections.singletonList("a"), store.load("users"));
+    }
+
+    @Test
+    public void testCorruptFileLoadsAsEmpty() throws Exception {
+        Files.write(new File(folder.getRoot(), "users.hotkeys").toPath(), new byte[]{1, 2, 3});
+        HotKeyStore store = new HotKeyStore(folder.getRoot());
+
+        assertTrue(store.load("users").isEmpty());
+    }
+}
@@ -0,0 +1,75 @@
+package com.caffeine.component.warmup;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预热句柄测试
+ */
+public class WarmupHandleTest {
+
+    @Test
+    public void testCompletedHandle() {
+        WarmupHandle handle = WarmupHandle.completed("users", 42);
+
+        assertTrue(handle.isDone());
+        assertEquals("users", handle.getCacheName());
+        assertEquals(42, handle.getLoadedCount());
+        assertEquals(0, handle.getEtaMillis());
+        assertNull(handle.getFuture().join());
+    }
+
+    @Test
+    public void testProgressAndEta() throws Exception {
+        WarmupHandle handle = new WarmupHandle("users");
+        handle.recordLoaded(100, 1000);
+        // 总量未知时无法估算剩余时间
+        assertEquals(-1, handle.getEtaMillis());
+
+        handle.setExpectedCount(1000);
+        Thread.sleep(20);
+
+        assertEquals(100, handle.getLoadedCount());
+        assertEquals(1000, handle.getLoadedBytes());
+        assertTrue(handle.getRate() > 0);
+        assertTrue(handle.getEtaMillis() > 0);
+        assertFalse(handle.isDone());
+
+        // 重试回滚时扣除上次尝试的计数
+        handle.recordLoaded(-40, -400);
+        assertEquals(60, handle.getLoadedCount());
+        assertEquals(600, handle.getLoadedBytes());
+    }
+
+    @Test
+    public void testElapsedTimeStopsAtCompletion() throws Exception {
+        WarmupHandle handle = new WarmupHandle("users");
+        Thread.sleep(10);
+        handle.complete();
+        long elapsed = handle.getElapsedMillis();
+        Thread.sleep(30);
+
+        assertEquals(elapsed, handle.getElapsedMillis());
+        assertEquals(0, handle.getEtaMillis());
+    }
+
+    @Test
+    public void testFailCompletesFutureExceptionally() {
+        WarmupHandle handle = new WarmupHandle("users");
+        IllegalStateException error = new IllegalStateException("boom");
+
+        handle.fail(error);
+
+        assertTrue(handle.isDone());
+        assertTrue(handle.getFuture().isCompletedExceptionally());
+        try {
+            handle.getFuture().join();
+            fail();
+        } catch (CompletionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+}
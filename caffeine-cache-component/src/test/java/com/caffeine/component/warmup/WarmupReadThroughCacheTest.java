@@ -0,0 +1,146 @@
+package com.caffeine.component.warmup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预热期间回源的缓存包装测试
+ */
+public class WarmupReadThroughCacheTest {
+    private final Cache<Object, Object> local = Caffeine.newBuilder().build();
+    private final WarmupReadThroughCache<Object, Object> cache = new WarmupReadThroughCache<>(local, "users");
+    private final RecordingLoader loader = new RecordingLoader();
+    private WarmupHandle handle;
+
+    @Before
+    public void setUp() {
+        loader.source.put("a", "A");
+        loader.source.put("b", "B");
+        loader.source.put("c", "C");
+        handle = new WarmupHandle("users");
+        cache.attach(loader, handle);
+    }
+
+    @Test
+    public void testMissReadsThroughOnlyWhileWarming() {
+        assertTrue(cache.isWarmingUp());
+        assertEquals("A", cache.getIfPresent("a"));
+        assertEquals("A", local.getIfPresent("a"));
+        assertNull(cache.getIfPresent("absent"));
+
+        handle.complete();
+
+        assertFalse(cache.isWarmingUp());
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(2, loader.singleReads);
+    }
+
+    @Test
+    public void testReadThroughDoesNotOverwriteConcurrentWrite() {
+        // 回源期间业务写入了新值
+        loader.onRead = key -> local.put(key, "newer");
+
+        assertEquals("newer", cache.getIfPresent("a"));
+        assertEquals("newer", local.getIfPresent("a"));
+    }
+
+    @Test
+    public void testGetFallsBackToMappingFunction() {
+        assertEquals("A", cache.get("a", key -> "computed"));
+        assertEquals("computed", cache.get("absent", key -> "computed"));
+        assertEquals("computed", local.getIfPresent("absent"));
+    }
+
+    @Test
+    public void testGetAllLoadsMissingKeysInOneBatch() {
+        local.put("a", "local");
+        List<Set<Object>> computed = new ArrayList<>();
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("a", "b", "c", "absent"), missing -> {
+            computed.add(new HashSet<>(missing));
+            return Collections.singletonMap("absent", "computed");
+        });
+
+        assertEquals("local", values.get("a"));
+        assertEquals("B", values.get("b"));
+        assertEquals("C", values.get("c"));
+        assertEquals("computed", values.get("absent"));
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("b", "c", "absent"))), loader.batchReads);
+        assertEquals(Collections.singletonList(Collections.singleton("absent")), computed);
+        assertEquals("B", local.getIfPresent("b"));
+    }
+
+    @Test
+    public void testGetAllAfterWarmupUsesOnlyMappingFunction() {
+        handle.fail(new IllegalStateException("boom"));
+
+        Map<Object, Object> values = cache.getAll(Collections.singletonList("b"),
+                missing -> Collections.singletonMap("b", "computed"));
+
+        assertFalse(cache.isWarmingUp());
+        assertEquals("computed", values.get("b"));
+        assertTrue(loader.batchReads.isEmpty());
+    }
+
+    @Test
+    public void testGetAllPresentReadsThroughMissingKeys() {
+        local.put("a", "local");
+
+        Map<Object, Object> values = cache.getAllPresent(Arrays.asList("a", "b", "absent"));
+
+        assertEquals(2, values.size());
+        assertEquals("local", values.get("a"));
+        assertEquals("B", values.get("b"));
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("b", "absent"))), loader.batchReads);
+    }
+
+    /**
+     * 记录回源调用的数据源
+     */
+    private static class RecordingLoader implements CacheDataLoader {
+        final Map<Object, Object> source = new HashMap<>();
+        final List<Set<Object>> batchReads = new ArrayList<>();
+        int singleReads;
+        Consumer<Object> onRead = key -> { };
+
+        @Override
+        public WarmupHandle loadData(String cacheName, Cache<Object, Object> cache) {
+            return WarmupHandle.completed(cacheName, 0);
+        }
+
+        @Override
+        public Object loadValue(String cacheName, Object key) {
+            singleReads++;
+            onRead.accept(key);
+            return source.get(key);
+        }
+
+        @Override
+        public Map<Object, Object> loadValues(String cacheName, Iterable<?> keys) {
+            Set<Object> requested = new HashSet<>();
+            Map<Object, Object> values = new HashMap<>();
+            for (Object key : keys) {
+                requested.add(key);
+                if (source.containsKey(key)) {
+                    values.put(key, source.get(key));
+                }
+            }
+            batchReads.add(requested);
+            return values;
+        }
+    }
+}
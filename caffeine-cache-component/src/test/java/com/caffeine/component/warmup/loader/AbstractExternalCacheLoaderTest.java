@@ -0,0 +1,145 @@
+package com.caffeine.component.warmup.loader;
+
+import com.caffeine.component.warmup.WarmupHandle;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * 外部缓存加载器基类测试
+ */
+public class AbstractExternalCacheLoaderTest {
+    private AbstractExternalCacheLoader loader;
+
+    @After
+    public void tearDown() {
+        if (loader != null) {
+            loader.shutdown();
+        }
+    }
+
+    @Test
+    public void testPartitionPlanningRunsOnLoaderThread() throws Exception {
+        CountDownLatch planning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        loader = new AbstractExternalCacheLoader() {
+            @Override
+            protected List<LoadPartition> createPartitions(String cacheName) throws Exception {
+                planning.countDown();
+                // 模拟耗时的范围统计查询
+                release.await();
+                return Collections.singletonList(new LoadPartition("all", null));
+            }
+
+            @Override
+            protected long estimateCount(String cacheName) {
+                return 3;
+            }
+
+            @Override
+            protected void doLoadData(String cacheName, Cache<Object, Object> cache) {
+                cache.put("a", 1);
+                cache.put("b", 2);
+                cache.put("c", 3);
+            }
+        };
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        // 划分分区阻塞时调用线程不等待，预计总条目数在估算完成前未知
+        WarmupHandle handle = loader.loadData("items", cache);
+        assertTrue(planning.await(5, TimeUnit.SECONDS));
+        assertFalse(handle.isDone());
+        assertEquals(-1, handle.getExpectedCount());
+
+        release.countDown();
+        handle.getFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(3, handle.getExpectedCount());
+        assertEquals(3, cache.estimatedSize());
+        assertEquals(1, loader.getPartitionProgress("items").size());
+    }
+
+    @Test
+    public void testInterruptedPriorityLoadStopsWithoutLoadingPartitions() throws Exception {
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        AtomicInteger fullLoads = new AtomicInteger();
+        loader = new AbstractExternalCacheLoader() {
+            @Override
+            public Map<Object, Object> loadValues(String cacheName, Iterable<?> keys) {
+                worker.set(Thread.currentThread());
+                Map<Object, Object> values = new HashMap<>();
+                keys.forEach(key -> values.put(key, key));
+                return values;
+            }
+
+            @Override
+            protected void doLoadData(String cacheName, Cache<Object, Object> cache) {
+                fullLoads.incrementAndGet();
+            }
+        };
+        // 额度远小于一批热点键，申请额度时长时间等待
+        loader.setWarmupThrottle(new WarmupThrottle(1, 0));
+        List<Integer> priorityKeys = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            priorityKeys.add(i);
+        }
+
+        WarmupHandle handle = loader.loadData("items", Caffeine.newBuilder().build(), priorityKeys);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (worker.get() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        worker.get().interrupt();
+
+        try {
+            handle.getFuture().get(5, TimeUnit.SECONDS);
+            fail("热点键加载被中断时句柄应异常完成");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+        assertEquals(0, fullLoads.get());
+        assertEquals(PartitionProgress.State.FAILED, loader.getPartitionProgress("items").get(0).getState());
+
+        // 线程池中的线程不受上次中断影响，之后的加载正常完成
+        loader.setWarmupThrottle(null);
+        loader.loadData("items", Caffeine.newBuilder().build()).getFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(1, fullLoads.get());
+    }
+
+    @Test
+    public void testPlanningFailureFailsHandle() throws Exception {
+        loader = new AbstractExternalCacheLoader() {
+            @Override
+            protected List<LoadPartition> createPartitions(String cacheName) throws Exception {
+                throw new IllegalStateException("range query failed");
+            }
+
+            @Override
+            protected void doLoadData(String cacheName, Cache<Object, Object> cache) {
+                fail("分区划分失败时不应加载");
+            }
+        };
+
+        WarmupHandle handle = loader.loadData("items", Caffeine.newBuilder().build());
+
+        try {
+            handle.getFuture().get(5, TimeUnit.SECONDS);
+            fail("划分失败时句柄应异常完成");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.caffeine.component.warmup.loader;
+
+import com.caffeine.component.warmup.WarmupHandle;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JDBC缓存加载器测试，使用内嵌H2数据库
+ */
+public class JdbcCacheLoaderTest {
+    private static final int ROWS = 10000;
+    private static final String SQL = "SELECT id, name FROM items";
+    private static final JdbcRowMapper MAPPER = resultSet ->
+            new AbstractMap.SimpleImmutableEntry<>(resultSet.getLong("id"), resultSet.getString("name"));
+
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+    private JdbcCacheLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:jdbc_loader_test;DB_CLOSE_DELAY=-1");
+        // 保持一个连接，避免内存数据库在用例之间被销毁
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS items");
+            statement.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, name VARCHAR(64))");
+        }
+        try (PreparedStatement insert = keepAlive.prepareStatement("INSERT INTO items VALUES (?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setLong(1, i);
+                insert.setString(2, "item-" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (loader != null) {
+            loader.shutdown();
+        }
+        keepAlive.close();
+    }
+
+    @Test
+    public void testLoadsAllRowsAcrossKeyRangePartitions() {
+        loader = new JdbcCacheLoader(dataSource, SQL, "id", MAPPER, 4, 100, 500);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        WarmupHandle handle = loader.loadData("items", cache);
+        handle.getFuture().join();
+
+        assertEquals(ROWS, cache.estimatedSize());
+        assertEquals("item-1", cache.getIfPresent(1L));
+        assertEquals("item-" + ROWS, cache.getIfPresent((long) ROWS));
+        assertEquals(ROWS, handle.getLoadedCount());
+        assertEquals(ROWS, handle.getExpectedCount());
+
+        List<PartitionProgress> partitions = loader.getPartitionProgress("items");
+        assertEquals(4, partitions.size());
+        for (PartitionProgress partition : partitions) {
+            assertEquals(PartitionProgress.State.COMPLETED, partition.getState());
+            assertEquals(ROWS / 4, partition.getLoadedCount());
+        }
+    }
+
+    @Test
+    public void testSinglePartitionWithoutKeyColumn() {
+        loader = new JdbcCacheLoader(dataSource, SQL, MAPPER);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        loader.loadData("items", cache).getFuture().join();
+
+        assertEquals(ROWS, cache.estimatedSize());
+        assertEquals(1, loader.getPartitionProgress("items").size());
+    }
+
+    @Test
+    public void testMapperCanSkipRows() {
+        JdbcRowMapper evenOnly = resultSet -> resultSet.getLong("id") % 2 == 0 ? MAPPER.mapRow(resultSet) : null;
+        loader = new JdbcCacheLoader(dataSource, SQL, "id", evenOnly, 2, 100, 300);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        loader.loadData("items", cache).getFuture().join();
+
+        assertEquals(ROWS / 2, cache.estimatedSize());
+        assertNull(cache.getIfPresent(1L));
+        assertEquals("item-2", cache.getIfPresent(2L));
+    }
+
+    @Test
+    public void testPriorityKeysLoadedBeforePartitions() {
+        loader = new JdbcCacheLoader(dataSource, SQL, "id", MAPPER, 2, 100, 500);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        WarmupHandle handle = loader.loadData("items", cache, Arrays.asList(7L, 3L, ROWS + 1L));
+        handle.getFuture().join();
+
+        assertEquals(ROWS, cache.estimatedSize());
+        List<PartitionProgress> partitions = loader.getPartitionProgress("items");
+        assertEquals(3, partitions.size());
+        assertEquals("hot", partitions.get(0).getPartition().getName());
+        assertEquals(2, partitions.get(0).getLoadedCount());
+        assertEquals(ROWS + 3, handle.getExpectedCount());
+    }
+
+    @Test
+    public void testPriorityKeysOnly() {
+        loader = new JdbcCacheLoader(dataSource, SQL, "id", MAPPER, 2);
+        loader.setPriorityKeysOnly(true);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        loader.loadData("items", cache, Arrays.asList(7L, 3L)).getFuture().join();
+
+        assertEquals(2, cache.estimatedSize());
+        assertEquals("item-7", cache.getIfPresent(7L));
+    }
+
+    @Test
+    public void testLoadValueByKeyColumn() {
+        loader = new JdbcCacheLoader(dataSource, SQL, "id", MAPPER, 1);
+
+        assertEquals("item-42", loader.loadValue("items", 42L));
+        assertNull(loader.loadValue("items", ROWS + 1L));
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DELETE FROM items");
+        }
+        loader = new JdbcCacheLoader(dataSource, SQL, "id", MAPPER, 4);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        WarmupHandle handle = loader.loadData("items", cache);
+        handle.getFuture().join();
+
+        assertEquals(0, cache.estimatedSize());
+        assertFalse(handle.getFuture().isCompletedExceptionally());
+    }
+}
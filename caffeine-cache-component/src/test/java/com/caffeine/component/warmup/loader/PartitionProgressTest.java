@@ -0,0 +1,68 @@
+package com.caffeine.component.warmup.loader;
+
+import com.caffeine.component.warmup.WarmupHandle;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分区加载进度测试
+ */
+public class PartitionProgressTest {
+    private final WarmupHandle handle = new WarmupHandle("users");
+    private final PartitionProgress progress = new PartitionProgress(new LoadPartition("p0", null), handle);
+
+    @Test
+    public void testLoadedCountsAccumulateIntoHandle() {
+        assertEquals(PartitionProgress.State.PENDING, progress.getState());
+        progress.start(1);
+        progress.addLoaded(10, 100);
+        progress.addLoaded(5);
+
+        assertEquals(PartitionProgress.State.RUNNING, progress.getState());
+        assertEquals(15, progress.getLoadedCount());
+        assertEquals(100, progress.getLoadedBytes());
+        assertEquals(15, handle.getLoadedCount());
+        assertEquals(100, handle.getLoadedBytes());
+        assertTrue(progress.getStartTime() > 0);
+    }
+
+    @Test
+    public void testRetryResetsCountsAndHandle() {
+        PartitionProgress other = new PartitionProgress(new LoadPartition("p1", null), handle);
+        other.start(1);
+        other.addLoaded(7, 70);
+        progress.start(1);
+        progress.addLoaded(10, 100);
+        progress.retrying(new IllegalStateException("boom"));
+
+        // 重试前状态不变，只记录错误
+        assertEquals(PartitionProgress.State.RUNNING, progress.getState());
+        assertTrue(progress.getLastError().contains("boom"));
+
+        progress.start(2);
+
+        assertEquals(2, progress.getAttempts());
+        assertEquals(0, progress.getLoadedCount());
+        assertEquals(0, progress.getLoadedBytes());
+        // 只扣除本分区上次尝试的计数
+        assertEquals(7, handle.getLoadedCount());
+        assertEquals(70, handle.getLoadedBytes());
+        assertEquals(0, progress.getEndTime());
+    }
+
+    @Test
+    public void testCompleteAndFail() {
+        progress.start(1);
+        progress.complete();
+        assertEquals(PartitionProgress.State.COMPLETED, progress.getState());
+        assertTrue(progress.getEndTime() >= progress.getStartTime());
+        assertNull(progress.getLastError());
+
+        progress.start(2);
+        progress.fail(new IllegalStateException("boom"));
+        assertEquals(PartitionProgress.State.FAILED, progress.getState());
+        assertTrue(progress.getLastError().contains("boom"));
+        assertTrue(progress.toString().contains("lastError"));
+    }
+}
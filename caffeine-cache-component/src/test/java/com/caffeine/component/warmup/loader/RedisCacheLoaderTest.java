@@ -0,0 +1,185 @@
+package com.caffeine.component.warmup.loader;
+
+import com.caffeine.component.redis.FakeRedisServer;
+import com.caffeine.component.warmup.WarmupHandle;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Redis缓存加载器测试，使用进程内的Redis协议替身
+ */
+public class RedisCacheLoaderTest {
+    private static final int KEYS = 2500;
+
+    private FakeRedisServer server;
+    private RedisCacheLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRedisServer();
+        for (int i = 0; i < KEYS; i++) {
+            server.set("app:users:" + i, "user-" + i);
+        }
+        // 其他缓存的键不应被加载
+        server.set("app:orders:o1", "order");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (loader != null) {
+            loader.shutdown();
+        }
+        server.close();
+    }
+
+    @Test
+    public void testScanLoadsEveryPageAndStripsPrefix() {
+        loader = newLoader(1);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        WarmupHandle handle = loader.loadData("users", cache);
+        handle.getFuture().join();
+
+        assertEquals(KEYS, cache.estimatedSize());
+        assertEquals("user-0", cache.getIfPresent("0"));
+        assertEquals("user-" + (KEYS - 1), cache.getIfPresent(String.valueOf(KEYS - 1)));
+        assertNull(cache.getIfPresent("o1"));
+        assertEquals(KEYS, handle.getLoadedCount());
+        // SCAN按COUNT分页遍历到游标归零，每页的值按MGET批次大小拆分获取
+        assertEquals((KEYS + 1 + 99) / 100, server.getCommandCount("SCAN"));
+        assertTrue(server.getCommandCount("MGET") >= KEYS / 50);
+        for (int i = 0; i < KEYS; i += 97) {
+            assertEquals(1, server.getKeyReads("app:users:" + i));
+        }
+    }
+
+    @Test
+    public void testParallelLoadScansKeyspaceOnce() {
+        loader = newLoader(4);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        WarmupHandle handle = loader.loadData("users", cache);
+        handle.getFuture().join();
+
+        assertEquals(KEYS, cache.estimatedSize());
+        assertEquals(KEYS, handle.getLoadedCount());
+        // 并行只作用于各页的获取，键空间只遍历一次
+        assertEquals((KEYS + 1 + 99) / 100, server.getCommandCount("SCAN"));
+        List<PartitionProgress> partitions = loader.getPartitionProgress("users");
+        assertEquals(1, partitions.size());
+        assertEquals(PartitionProgress.State.COMPLETED, partitions.get(0).getState());
+        assertEquals(KEYS, partitions.get(0).getLoadedCount());
+    }
+
+    @Test
+    public void testLoadValuesReadsThroughOneMget() {
+        loader = newLoader(1);
+        server.resetCounts();
+
+        Map<Object, Object> values = loader.loadValues("users", Arrays.asList("1", "2", "absent"));
+
+        assertEquals(2, values.size());
+        assertEquals("user-1", values.get("1"));
+        assertEquals("user-2", values.get("2"));
+        assertEquals(1, server.getCommandCount("MGET"));
+        assertEquals("user-3", loader.loadValue("users", "3"));
+        assertNull(loader.loadValue("users", "absent"));
+    }
+
+    @Test
+    public void testBinaryValuesAreDecodedOnceWithCustomDecoder() {
+        byte[] binary = {0, (byte) 0xff, (byte) 0x80, 1};
+        server.set("app:blobs:b1", binary);
+        server.set("app:blobs:b2", new byte[]{(byte) 0xc3});
+        loader = newLoader(1);
+        AtomicInteger decodes = new AtomicInteger();
+        loader.setValueDecoder((cacheName, key, value) -> {
+            decodes.incrementAndGet();
+            return value;
+        });
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+
+        loader.loadData("blobs", cache).getFuture().join();
+
+        // 原始字节不经UTF-8转换
+        assertArrayEquals(binary, (byte[]) cache.getIfPresent("b1"));
+        assertArrayEquals(new byte[]{(byte) 0xc3}, (byte[]) cache.getIfPresent("b2"));
+        assertEquals(2, decodes.get());
+        assertArrayEquals(binary, (byte[]) loader.loadValue("blobs", "b1"));
+    }
+
+    @Test
+    public void testSmallHashesUseHgetallAndLargeHashesUseHscan() {
+        server.hset("app:profiles:small", "name", "alice");
+        server.hset("app:profiles:small", "age", "30");
+        for (int i = 0; i < 250; i++) {
+            server.hset("app:profiles:large", "f" + i, "v" + i);
+        }
+        server.set("app:profiles:plain", "text");
+        loader = newLoader(1);
+        loader.setHashScanThreshold(10);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+        server.resetCounts();
+
+        loader.loadData("profiles", cache).getFuture().join();
+
+        Map<?, ?> small = (Map<?, ?>) cache.getIfPresent("small");
+        assertEquals("alice", small.get("name"));
+        assertEquals("30", small.get("age"));
+        Map<?, ?> large = (Map<?, ?>) cache.getIfPresent("large");
+        assertEquals(250, large.size());
+        assertEquals("v7", large.get("f7"));
+        assertEquals("text", cache.getIfPresent("plain"));
+        assertEquals(1, server.getCommandCount("HGETALL"));
+        // 250个字段按COUNT 100分3页
+        assertEquals(3, server.getCommandCount("HSCAN"));
+    }
+
+    @Test
+    public void testHashesAreSkippedWhenDisabled() {
+        server.hset("app:profiles:small", "name", "alice");
+        server.set("app:profiles:plain", "text");
+        loader = newLoader(1);
+        loader.setHashEnabled(false);
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+        server.resetCounts();
+
+        loader.loadData("profiles", cache).getFuture().join();
+
+        assertEquals(1, cache.estimatedSize());
+        assertEquals("text", cache.getIfPresent("plain"));
+        assertEquals(0, server.getCommandCount("TYPE"));
+        // 回源读取哈希键同样跳过
+        assertNull(loader.loadValue("profiles", "small"));
+    }
+
+    @Test
+    public void testReadThroughDecodesHashKeys() {
+        server.hset("app:profiles:small", "name", "alice");
+        loader = newLoader(1);
+
+        Map<?, ?> single = (Map<?, ?>) loader.loadValue("profiles", "small");
+        Map<Object, Object> batch = loader.loadValues("profiles", Arrays.asList("small", "absent"));
+
+        assertEquals("alice", single.get("name"));
+        assertEquals(1, batch.size());
+        assertEquals("alice", ((Map<?, ?>) batch.get("small")).get("name"));
+    }
+
+    private RedisCacheLoader newLoader(int parallelism) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(8);
+        return new RedisCacheLoader(server.getHost(), server.getPort(), "app:", poolConfig, 100, 50, parallelism);
+    }
+}
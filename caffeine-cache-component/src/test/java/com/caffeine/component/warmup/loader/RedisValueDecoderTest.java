@@ -0,0 +1,58 @@
+package com.caffeine.component.warmup.loader;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Redis值解码器测试
+ */
+public class RedisValueDecoderTest {
+
+    @Test
+    public void testBuiltInDecoders() {
+        byte[] utf8 = "用户-1".getBytes(StandardCharsets.UTF_8);
+        assertEquals("用户-1", RedisValueDecoder.UTF8_STRING.decode("users", "1", utf8));
+
+        byte[] binary = {0, (byte) 0xff, (byte) 0x80, 1};
+        assertSame(binary, RedisValueDecoder.RAW.decode("users", "1", binary));
+    }
+
+    @Test
+    public void testDecodeHashDecodesEveryFieldWithUtf8Names() {
+        RedisValueDecoder lengths = (cacheName, key, value) -> value.length;
+        Map<byte[], byte[]> fields = new LinkedHashMap<>();
+        fields.put("名称".getBytes(StandardCharsets.UTF_8), new byte[]{1, 2, 3});
+        fields.put("age".getBytes(StandardCharsets.UTF_8), new byte[]{(byte) 0xff});
+
+        Object decoded = lengths.decodeHash("users", "1", fields);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("名称", 3);
+        expected.put("age", 1);
+        assertEquals(expected, decoded);
+    }
+
+    @Test
+    public void testDecodeHashCanBeOverridden() {
+        RedisValueDecoder fieldCount = new RedisValueDecoder() {
+            @Override
+            public Object decode(String cacheName, String key, byte[] value) {
+                return null;
+            }
+
+            @Override
+            public Object decodeHash(String cacheName, String key, Map<byte[], byte[]> fields) {
+                return fields.size();
+            }
+        };
+        Map<byte[], byte[]> fields = new LinkedHashMap<>();
+        fields.put(new byte[]{1}, new byte[]{2});
+
+        assertEquals(1, fieldCount.decodeHash("users", "1", fields));
+    }
+}
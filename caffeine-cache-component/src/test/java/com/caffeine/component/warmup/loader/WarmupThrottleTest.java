@@ -0,0 +1,138 @@
+package com.caffeine.component.warmup.loader;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预热限流器测试，前台p99延迟通过注入的提供者模拟
+ */
+public class WarmupThrottleTest {
+
+    @Test
+    public void testEntryRateIsLimited() throws Exception {
+        WarmupThrottle throttle = new WarmupThrottle(1000, 0);
+        long start = System.nanoTime();
+
+        // 第一批立即通过，之后每批100条需等待约100ms
+        for (int i = 0; i < 5; i++) {
+            throttle.acquire(null, 100, 0);
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 350);
+        assertTrue(throttle.getThrottledMillis() >= 300);
+        assertEquals(0, throttle.getPauseCount());
+    }
+
+    @Test
+    public void testByteRateIsLimited() throws Exception {
+        WarmupThrottle throttle = new WarmupThrottle(0, 1000);
+        long start = System.nanoTime();
+
+        throttle.acquire(null, 1, 200);
+        throttle.acquire(null, 1, 200);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+    }
+
+    @Test
+    public void testUnlimitedThrottleNeverWaits() throws Exception {
+        WarmupThrottle throttle = new WarmupThrottle(0, 0);
+        for (int i = 0; i < 1000; i++) {
+            throttle.acquire(null, 1000, 1 << 20);
+        }
+        assertEquals(0, throttle.getThrottledMillis());
+        assertEquals(1.0, throttle.getRateFactor(), 0);
+    }
+
+    @Test
+    public void testBacksOffUntilForegroundLatencyRecovers() throws Exception {
+        AtomicLong p99 = new AtomicLong(100_000);
+        WarmupThrottle throttle = new WarmupThrottle(0, 0);
+        throttle.setForegroundLatency(p99::get, 50_000);
+        Thread recover = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            p99.set(10_000);
+        });
+        recover.start();
+        long start = System.nanoTime();
+
+        throttle.acquire(null, 1, 0);
+
+        recover.join();
+        // 依次暂停50、100、200ms后压力消除
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+        assertTrue(throttle.getPauseCount() >= 2);
+        assertTrue(throttle.getPausedMillis() >= 150);
+        // 压力期间速率系数减半，压力消除后按步长恢复
+        assertTrue(throttle.getRateFactor() < 1.0);
+        double reduced = throttle.getRateFactor();
+        throttle.acquire(null, 1, 0);
+        assertEquals(Math.min(1.0, reduced + 1.0 / 16), throttle.getRateFactor(), 1e-9);
+    }
+
+    @Test
+    public void testStallIsBoundedUnderPersistentPressure() throws Exception {
+        WarmupThrottle throttle = new WarmupThrottle(0, 0);
+        throttle.setForegroundLatency(() -> 100_000, 50_000);
+        throttle.setMaxStallMillis(120);
+        long start = System.nanoTime();
+
+        throttle.acquire(null, 1, 0);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 100 && elapsedMillis < 1000);
+        // 暂停50ms和剩余的70ms，共两次，每次速率系数减半
+        assertEquals(2, throttle.getPauseCount());
+        assertEquals(120, throttle.getPausedMillis());
+        assertEquals(0.25, throttle.getRateFactor(), 1e-9);
+    }
+
+    @Test
+    public void testReducedRateFactorSlowsRateLimit() throws Exception {
+        WarmupThrottle throttle = new WarmupThrottle(1000, 0);
+        throttle.setForegroundLatency(() -> 100_000, 50_000);
+        throttle.setMaxStallMillis(50);
+        // 一次暂停后速率系数降为0.5，每批10条需20ms
+        throttle.acquire(null, 10, 0);
+        throttle.setForegroundLatency(null, 0);
+        long start = System.nanoTime();
+
+        throttle.acquire(null, 10, 0);
+        throttle.acquire(null, 10, 0);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 15);
+    }
+
+    @Test
+    public void testEvictionBacklogOnBoundedCache() {
+        // 维护任务不执行，写入超过上限的条目尚未淘汰
+        Cache<Integer, Integer> cache = Caffeine.newBuilder()
+                .maximumSize(100)
+                .executor(task -> { })
+                .build();
+        for (int i = 0; i < 200; i++) {
+            cache.put(i, i);
+        }
+        WarmupThrottle throttle = new WarmupThrottle(0, 0);
+
+        assertTrue(throttle.underPressure(cache));
+        throttle.setMaintenanceBacklogRatio(0);
+        assertFalse(throttle.underPressure(cache));
+
+        throttle.setMaintenanceBacklogRatio(0.1);
+        cache.cleanUp();
+        assertFalse(throttle.underPressure(cache));
+        assertFalse(throttle.underPressure(Caffeine.newBuilder().build()));
+    }
+}
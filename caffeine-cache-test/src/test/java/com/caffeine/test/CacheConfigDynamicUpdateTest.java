@@ -43,7 +43,7 @@ public class CacheConfigDynamicUpdateTest {
         newConfig.setExpireAfterWrite(120); // 120秒
 
         // 模拟配置变更通知
-        configChangeNotifier.notifyConfigChange(newConfig);
+        configChangeNotifier.notifyConfigChange(newConfig).join();
 
         // 验证配置是否更新
         assertEquals(200, cacheManager.getConfig().getMaximumSize());
@@ -62,7 +62,7 @@ public class CacheConfigDynamicUpdateTest {
         unrelatedConfig.setExpireAfterWrite(180);
 
         // 模拟配置变更通知
-        configChangeNotifier.notifyConfigChange(unrelatedConfig);
+        configChangeNotifier.notifyConfigChange(unrelatedConfig).join();
 
         // 验证当前缓存配置未被修改
         assertEquals(100, cacheManager.getConfig().getMaximumSize());
@@ -86,7 +86,7 @@ public class CacheConfigDynamicUpdateTest {
         updateConfig.setName("anotherCache");
         updateConfig.setMaximumSize(200);
         updateConfig.setExpireAfterWrite(120);
-        configChangeNotifier.notifyConfigChange(updateConfig);
+        configChangeNotifier.notifyConfigChange(updateConfig).join();
 
         // 验证另一个管理器的配置是否被更新
         assertEquals(200, anotherManager.getConfig().getMaximumSize());
@@ -100,7 +100,7 @@ public class CacheConfigDynamicUpdateTest {
         updateConfig2.setName("anotherCache");
         updateConfig2.setMaximumSize(300);
         updateConfig2.setExpireAfterWrite(180);
-        configChangeNotifier.notifyConfigChange(updateConfig2);
+        configChangeNotifier.notifyConfigChange(updateConfig2).join();
 
         // 验证另一个管理器的配置是否不再被更新
         assertEquals(200, anotherManager.getConfig().getMaximumSize());
@@ -40,7 +40,7 @@ public class CacheConfigIntegrationTest {
         newConfig.setExpireAfterWrite(120);
 
         // 直接调用通知器更新配置
-        configChangeNotifier.notifyConfigChange(newConfig);
+        configChangeNotifier.notifyConfigChange(newConfig).join();
 
         // 验证配置是否更新
         assertEquals(200, cacheManager.getConfig().getMaximumSize());
@@ -62,7 +62,7 @@ public class CacheConfigIntegrationTest {
         newConfig.setName("testCache");
         newConfig.setMaximumSize(200);
         newConfig.setExpireAfterWrite(120);
-        configChangeNotifier.notifyConfigChange(newConfig);
+        configChangeNotifier.notifyConfigChange(newConfig).join();
 
         // 验证数据仍然存在
         assertEquals("value1", cacheManager.getCache("testCache").getIfPresent("key1"));
@@ -84,7 +84,7 @@ public class CacheConfigIntegrationTest {
         updatedConfig.setName("testCache");
         updatedConfig.setMaximumSize(200);
         updatedConfig.setExpireAfterWrite(120);
-        configChangeNotifier.notifyConfigChange(updatedConfig);
+        configChangeNotifier.notifyConfigChange(updatedConfig).join();
 
         // 验证只有第一个缓存管理器的配置被更新
         assertEquals(200, cacheManager.getConfig().getMaximumSize());